@@ -0,0 +1,88 @@
+package com.mephi.skillfactory.urlshortener.controller.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mephi.skillfactory.urlshortener.controller.dto.LinkView;
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenRequest;
+import com.mephi.skillfactory.urlshortener.domain.Link;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary codecs against Jackson configured as in Spring Boot (ISO dates). {@code jsonEncodeDomainLinks} is the previous
+ * {@code GET /api/links} body that serialized {@link Link} directly.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"10", "1000"})
+    int links;
+
+    private ObjectMapper objectMapper;
+    private List<Link> domainLinks;
+    private List<LinkView> views;
+    private byte[] jsonRequest;
+    private byte[] binaryRequest;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule()).disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        final var userId = UUID.randomUUID();
+        domainLinks = new ArrayList<>();
+        views = new ArrayList<>();
+        for (var i = 0; i < links; i++) {
+            final var link = new Link("c" + i, "https://example.com/articles/" + i + "?utm_source=benchmark", userId, 900, 10);
+            domainLinks.add(link);
+            views.add(LinkView.of(link));
+        }
+        final var request = new ShortenRequest("https://example.com/articles/42?utm_source=benchmark", 10, 900L, null, null, null, null, null);
+        jsonRequest = objectMapper.writeValueAsBytes(request);
+        binaryRequest = LinkWireCodec.encodeShortenRequest(request);
+    }
+
+    @Benchmark
+    public byte[] jsonEncodeDomainLinks() throws Exception {
+        return objectMapper.writeValueAsBytes(domainLinks);
+    }
+
+    @Benchmark
+    public byte[] jsonEncodeLinks() throws Exception {
+        return objectMapper.writeValueAsBytes(views);
+    }
+
+    @Benchmark
+    public byte[] binaryEncodeLinks() {
+        return LinkWireCodec.encodeLinkViews(views);
+    }
+
+    @Benchmark
+    public ShortenRequest jsonDecodeRequest() throws Exception {
+        return objectMapper.readValue(jsonRequest, ShortenRequest.class);
+    }
+
+    @Benchmark
+    public ShortenRequest binaryDecodeRequest() {
+        return LinkWireCodec.decodeShortenRequest(binaryRequest);
+    }
+}
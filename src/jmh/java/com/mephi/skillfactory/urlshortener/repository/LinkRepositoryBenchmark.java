@@ -0,0 +1,100 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.StorageProperties;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of the same workload on every {@link LinkRepository}: redirect lookups, claim-and-delete writes and per-user
+ * listings over a pre-filled store. The tiered store keeps everything hot with the default idle time; the LSM store is
+ * flushed after filling, so lookups go through its cache and segments and writes through its log.
+ */
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class LinkRepositoryBenchmark {
+    @Param({"MEMORY", "TIERED", "LSM"})
+    StorageProperties.Type type;
+
+    @Param({"100000"})
+    int links;
+
+    private LinkRepository repository;
+    private UUID[] userIds;
+    private String[] codes;
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final var properties = new StorageProperties(type, Files.createTempDirectory("repository-bench").toString(), 3_600, 60, 32, 8,
+            1 << 30, 65_536, 2 * links, false);
+        repository = switch (type) {
+            case MEMORY -> new InMemoryLinkRepository();
+            case TIERED -> new TieredLinkRepository(properties);
+            case LSM -> new LsmLinkRepository(properties);
+        };
+        userIds = new UUID[links / 10];
+        for (var i = 0; i < userIds.length; i++) {
+            userIds[i] = UUID.randomUUID();
+        }
+        codes = new String[links];
+        for (var i = 0; i < links; i++) {
+            codes[i] = "c" + Integer.toString(i, 36);
+            repository.saveLink(new Link(codes[i], "https://example.com/" + i, userIds[i % userIds.length], 86_400, 0));
+        }
+        if (repository instanceof LsmLinkRepository lsm) {
+            lsm.flush();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (repository instanceof LsmLinkRepository lsm) {
+            lsm.stop();
+        }
+    }
+
+    @Benchmark
+    public Optional<Link> findByCode() {
+        return repository.findLinkByCode(codes[ThreadLocalRandom.current().nextInt(links)]);
+    }
+
+    @Benchmark
+    public boolean claimAndDelete() {
+        final var code = "w" + writes.incrementAndGet();
+        repository.saveLinkIfAbsent(new Link(code, "https://example.com/w", userIds[0], 86_400, 0));
+        return repository.deleteLinkByCode(code);
+    }
+
+    @Benchmark
+    public List<String> listUserCodes() {
+        return repository.findCodesByUserId(userIds[ThreadLocalRandom.current().nextInt(userIds.length)]);
+    }
+}
@@ -0,0 +1,76 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.StorageProperties;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency of a hot hit versus a cold-segment read (without promotion, via the per-user listing path).
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class TieredLinkRepositoryBenchmark {
+    @Param({"100000"})
+    int links;
+
+    @Param({"32"})
+    int sparseIndexInterval;
+
+    private TieredLinkRepository hotRepository;
+    private TieredLinkRepository coldRepository;
+    private UUID[] userIds;
+    private String[] codes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        hotRepository = repository();
+        coldRepository = repository();
+        userIds = new UUID[links];
+        codes = new String[links];
+        for (var i = 0; i < links; i++) {
+            userIds[i] = UUID.randomUUID();
+            codes[i] = "c" + Integer.toString(i, 36);
+            hotRepository.saveLink(new Link(codes[i], "https://example.com/" + i, userIds[i], 86_400, 10));
+            coldRepository.saveLink(new Link(codes[i], "https://example.com/" + i, userIds[i], 86_400, 10));
+        }
+        coldRepository.evictIdle();
+    }
+
+    @Benchmark
+    public Object hotLookup() {
+        return hotRepository.findLinkByCode(codes[ThreadLocalRandom.current().nextInt(links)]);
+    }
+
+    @Benchmark
+    public Object coldLookup() {
+        return coldRepository.findLinksByUserId(userIds[ThreadLocalRandom.current().nextInt(links)]);
+    }
+
+    private TieredLinkRepository repository() throws IOException {
+        final var directory = Files.createTempDirectory("tiered-bench");
+        return new TieredLinkRepository(new StorageProperties(StorageProperties.Type.TIERED, directory.toString(), 0, 60,
+            sparseIndexInterval, 8, 1 << 30, 65_536, 100_000, false));
+    }
+}
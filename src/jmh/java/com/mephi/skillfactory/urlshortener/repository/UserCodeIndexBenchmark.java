@@ -0,0 +1,113 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Save/delete contention on the per-user index: all threads hammer either a single hot user or a pool of users. The
+ * {@code legacy*} benchmarks reproduce the previous {@code compute + newKeySet} index as the baseline.
+ */
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserCodeIndexBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"1", "1024"})
+        int users;
+
+        UUID[] userIds;
+        UserCodeIndex index;
+        ConcurrentHashMap<UUID, Set<String>> legacyIndex;
+        final AtomicInteger threadIds = new AtomicInteger();
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            userIds = new UUID[users];
+            for (var i = 0; i < users; i++) {
+                userIds[i] = UUID.randomUUID();
+            }
+            index = new UserCodeIndex();
+            legacyIndex = new ConcurrentHashMap<>();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        String prefix;
+        long sequence;
+
+        @Setup
+        public void setUp(Shared shared) {
+            prefix = "t" + shared.threadIds.getAndIncrement() + "-";
+        }
+
+        String nextCode() {
+            return prefix + sequence++;
+        }
+    }
+
+    @Benchmark
+    public void addRemove(Shared shared, PerThread thread) {
+        final var userId = shared.userIds[ThreadLocalRandom.current().nextInt(shared.users)];
+        final var code = thread.nextCode();
+        shared.index.add(userId, code);
+        shared.index.remove(userId, code);
+    }
+
+    @Benchmark
+    public void legacyAddRemove(Shared shared, PerThread thread) {
+        final var userId = shared.userIds[ThreadLocalRandom.current().nextInt(shared.users)];
+        final var code = thread.nextCode();
+        shared.legacyIndex.compute(userId, (k, v) -> {
+            if (v == null) {
+                v = ConcurrentHashMap.newKeySet();
+            }
+            v.add(code);
+            return v;
+        });
+        final var codes = shared.legacyIndex.get(userId);
+        if (codes != null) {
+            codes.remove(code);
+        }
+    }
+
+    @Benchmark
+    public void addOnly(Shared shared, PerThread thread) {
+        shared.index.add(shared.userIds[ThreadLocalRandom.current().nextInt(shared.users)], thread.nextCode());
+    }
+
+    @Benchmark
+    public void legacyAddOnly(Shared shared, PerThread thread) {
+        final var code = thread.nextCode();
+        shared.legacyIndex.compute(shared.userIds[ThreadLocalRandom.current().nextInt(shared.users)], (k, v) -> {
+            if (v == null) {
+                v = ConcurrentHashMap.newKeySet();
+            }
+            v.add(code);
+            return v;
+        });
+    }
+}
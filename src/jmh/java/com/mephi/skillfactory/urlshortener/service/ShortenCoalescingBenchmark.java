@@ -0,0 +1,89 @@
+package com.mephi.skillfactory.urlshortener.service;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.AppProperties;
+import com.mephi.skillfactory.urlshortener.properties.KeyspaceProperties;
+import com.mephi.skillfactory.urlshortener.properties.LinkProperties;
+import com.mephi.skillfactory.urlshortener.service.exception.UniqueCodeException;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thundering herd on the shorten path: every {@code herd} consecutive calls across all threads shorten the same URL for the
+ * same user, as when a campaign link is submitted by many workers at once. Without coalescing each duplicate walks the code
+ * attempts (one SHA-256 each) and either stores another link or fails with {@link UniqueCodeException}; with coalescing the
+ * overlapping calls wait for the first one. The {@code failed} counter reports the duplicates that ran out of attempts.
+ */
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShortenCoalescingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"false", "true"})
+        boolean coalesce;
+
+        @Param({"16", "64"})
+        int herd;
+
+        final UUID userId = UUID.randomUUID();
+        final AtomicLong calls = new AtomicLong();
+        ShortLinkService service;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            service = ShortLinkServiceFixture.builder()
+                .appProperties(new AppProperties(3_600, 1 << 16))
+                .linkProperties(new LinkProperties("http://localhost/api", 900, 0, 7, 10, coalesce, Duration.ofSeconds(5)))
+                .keyspaceProperties(new KeyspaceProperties(false, 7, 7, 0.01, Duration.ofMinutes(1)))
+                .notificationService(accessLog -> new NotificationService(accessLog) {
+                    @Override
+                    public void notify(UUID user, String message) {
+                    }
+                })
+                .build()
+                .shortLinkService();
+            calls.set(0);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long failed;
+    }
+
+    @Benchmark
+    public Link shorten(Shared shared, Outcome outcome) {
+        final var launch = shared.calls.getAndIncrement() / shared.herd;
+        try {
+            return shared.service.createShortLink("https://example.com/launch/" + launch, shared.userId, null, null, null, null, null,
+                null, null);
+        } catch (UniqueCodeException e) {
+            outcome.failed++;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.mephi.skillfactory.urlshortener.service.routing;
+
+import com.mephi.skillfactory.urlshortener.domain.DeviceType;
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.domain.RouteTarget;
+import com.mephi.skillfactory.urlshortener.domain.RoutingRule;
+import com.mephi.skillfactory.urlshortener.domain.RoutingTable;
+import com.mephi.skillfactory.urlshortener.properties.RoutingProperties;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost routing adds to {@code GET /api/{code}}: profiling the client from its headers and evaluating the link's compiled rules,
+ * next to {@code plainTarget}, which is what a link without rules costs. {@code warm} cycles through a few dozen browser
+ * User-Agents, as real traffic does, so classification is a cache hit; {@code unique} sends a never-seen agent every time,
+ * the worst case of a parse plus cache churn. The rules are built so only the last one matches, which makes every
+ * evaluation scan the whole table.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RoutingBenchmark {
+    private static final String[] AGENTS = {
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Safari/605.1.15",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 17_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Mobile/15E148 Safari/604.1",
+        "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Mobile Safari/537.36",
+        "Mozilla/5.0 (Linux; Android 14; SM-X710) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36",
+        "Mozilla/5.0 (X11; Linux x86_64; rv:125.0) Gecko/20100101 Firefox/125.0",
+        "Mozilla/5.0 (iPad; CPU OS 17_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Mobile/15E148 Safari/604.1",
+        "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)"};
+    private static final String[] LANGUAGES = {"en-US,en;q=0.9", "ru-RU,ru;q=0.9,en-US;q=0.8,en;q=0.7", "de-DE,de;q=0.9,en;q=0.8", "fr-FR"};
+    private static final String[] COUNTRIES = {"US", "RU", "DE", "FR", "GB"};
+    private static final int REQUESTS = 1_024;
+
+    @Param({"0", "4", "16"})
+    int rules;
+
+    @Param({"warm", "unique"})
+    String agents;
+
+    private ClientProfileExtractor extractor;
+    private Link link;
+    private List<String[]> requests;
+    private int next;
+    private long unique;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final var properties = new RoutingProperties(10_000, 1_000, "CF-IPCountry");
+        extractor = new ClientProfileExtractor(properties, new UserAgentClassifier(properties));
+
+        final var routingRules = new ArrayList<RoutingRule>();
+        for (var i = 0; i < rules - 1; i++) {
+            routingRules.add(new RoutingRule(List.of(DeviceType.TABLET), List.of("xx-" + i), List.of("ZZ"),
+                List.of(new RouteTarget("https://example.com/never/" + i, 1))));
+        }
+        if (rules > 0) {
+            routingRules.add(new RoutingRule(List.of(), List.of(), List.of(),
+                List.of(new RouteTarget("https://a.example.com", 1), new RouteTarget("https://b.example.com", 1))));
+        }
+        link = new Link("bench", "https://example.com", UUID.randomUUID(), Instant.now(), 3_600, 0, 0, true, null, null,
+            RedirectPolicy.TEMPORARY, RoutingTable.compile(routingRules));
+
+        requests = new ArrayList<>(REQUESTS);
+        for (var i = 0; i < REQUESTS; i++) {
+            requests.add(new String[] {AGENTS[i % AGENTS.length], LANGUAGES[i % LANGUAGES.length], COUNTRIES[i % COUNTRIES.length],
+                "198.51.100." + i % 250});
+        }
+    }
+
+    @Benchmark
+    public String plainTarget() {
+        nextRequest();
+        return link.getTargetUrl();
+    }
+
+    @Benchmark
+    public String routedTarget() {
+        final var request = nextRequest();
+        // same shape as ShortLinkService#redirect: the client is only profiled for links with rules
+        return link.getRouting().isEmpty()
+            ? link.getTargetUrl()
+            : link.routeFor(extractor.extract(header -> switch (header) {
+                case "User-Agent" -> request[0];
+                case "Accept-Language" -> request[1];
+                case "CF-IPCountry" -> request[2];
+                default -> null;
+            }, request[3]));
+    }
+
+    private String[] nextRequest() {
+        final var request = requests.get(next++ & REQUESTS - 1);
+        if (agents.equals("unique")) {
+            return new String[] {request[0] + " build/" + unique++, request[1], request[2], request[3]};
+        }
+        return request;
+    }
+}
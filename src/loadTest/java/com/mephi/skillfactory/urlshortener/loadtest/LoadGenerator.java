@@ -0,0 +1,254 @@
+package com.mephi.skillfactory.urlshortener.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Open-model (constant arrival rate) HTTP load generator.
+ * <p>
+ * Requests are scheduled at fixed intended start times regardless of how fast earlier ones complete, and latency is
+ * measured from the intended start, so a stalled server shows up in the percentiles instead of silently lowering the
+ * offered load (coordinated omission).
+ */
+public final class LoadGenerator {
+    private static final Pattern CODE_PATTERN = Pattern.compile("\"code\"\\s*:\\s*\"([^\"]+)\"");
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final LoadTestConfig config;
+    private final String baseUrl;
+    private final HttpClient client;
+    private final UUID[] users;
+    private final String[] popularCodes;
+    private final ZipfianSampler sampler;
+    private final ConcurrentLinkedQueue<CreatedLink> deletable = new ConcurrentLinkedQueue<>();
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Operation, LongAdder> shed = new EnumMap<>(Operation.class);
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong urlSequence = new AtomicLong();
+    private volatile boolean recording;
+
+    public LoadGenerator(LoadTestConfig config, String baseUrl) {
+        this.config = config;
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        this.users = new UUID[config.users()];
+        for (var i = 0; i < users.length; i++) {
+            users[i] = UUID.randomUUID();
+        }
+        this.popularCodes = new String[config.initialLinks()];
+        this.sampler = new ZipfianSampler(config.initialLinks(), config.zipfExponent());
+        for (final var operation : Operation.values()) {
+            recorders.put(operation, new Recorder(MAX_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+            shed.put(operation, new LongAdder());
+        }
+    }
+
+    public void populate() {
+        final var pending = new ArrayList<CompletableFuture<Void>>();
+        for (var i = 0; i < popularCodes.length; i++) {
+            final var index = i;
+            pending.add(client.sendAsync(shortenRequest(users[i % users.length]), HttpResponse.BodyHandlers.ofString())
+                .thenAccept(response -> popularCodes[index] = extractCode(response)));
+            if (pending.size() >= 256) {
+                pending.forEach(CompletableFuture::join);
+                pending.clear();
+            }
+        }
+        pending.forEach(CompletableFuture::join);
+    }
+
+    public Result run(int seconds, boolean record) {
+        recording = record;
+        for (final var recorder : recorders.values()) {
+            recorder.reset();
+        }
+        errors.values().forEach(LongAdder::reset);
+        shed.values().forEach(LongAdder::reset);
+        rejected.reset();
+
+        final var intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) config.ratePerSecond();
+        final var start = System.nanoTime();
+        final var end = start + TimeUnit.SECONDS.toNanos(seconds);
+        var sent = 0L;
+        while (true) {
+            final var intended = start + (long) (sent * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            final var wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            dispatch(pickOperation(), intended);
+            sent++;
+        }
+
+        final var drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        final var elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        final var histograms = new EnumMap<Operation, Histogram>(Operation.class);
+        final var errorCounts = new EnumMap<Operation, Long>(Operation.class);
+        final var attempts = new EnumMap<Operation, Long>(Operation.class);
+        var shedTotal = 0L;
+        for (final var operation : Operation.values()) {
+            final var histogram = recorders.get(operation).getIntervalHistogram();
+            final var shedCount = shed.get(operation).sum();
+            histograms.put(operation, histogram);
+            errorCounts.put(operation, errors.get(operation).sum());
+            // shed requests are errors without a latency, so they only show up here
+            attempts.put(operation, histogram.getTotalCount() + shedCount);
+            shedTotal += shedCount;
+        }
+        recording = false;
+        return new Result(histograms, errorCounts, attempts, sent, shedTotal, rejected.sum(), elapsedSeconds);
+    }
+
+    // requests sent and not answered yet, one open connection each
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private Operation pickOperation() {
+        final var ticket = ThreadLocalRandom.current().nextInt(config.totalWeight());
+        if (ticket < config.shortenWeight()) {
+            return Operation.SHORTEN;
+        }
+        if (ticket < config.shortenWeight() + config.redirectWeight()) {
+            return Operation.REDIRECT;
+        }
+        if (ticket < config.shortenWeight() + config.redirectWeight() + config.listWeight()) {
+            return Operation.LIST;
+        }
+        return Operation.DELETE;
+    }
+
+    private void dispatch(Operation operation, long intendedStartNanos) {
+        if (inFlight.incrementAndGet() > config.maxInFlight()) {
+            // the generator itself is saturated: count it as a failure instead of queueing without bound
+            inFlight.decrementAndGet();
+            shed.get(operation).increment();
+            errors.get(operation).increment();
+            return;
+        }
+
+        final var random = ThreadLocalRandom.current();
+        final var user = users[random.nextInt(users.length)];
+        final HttpRequest request;
+        var expectedStatus = 200;
+        CreatedLink toDelete = null;
+        switch (operation) {
+            case SHORTEN -> request = shortenRequest(user);
+            case REDIRECT -> {
+                request = HttpRequest.newBuilder(URI.create(baseUrl + '/' + popularCodes[sampler.next()])).GET().build();
+                expectedStatus = 302;
+            }
+            case LIST -> request = HttpRequest.newBuilder(URI.create(baseUrl + "/links"))
+                .header(USER_ID_HEADER, user.toString())
+                .GET()
+                .build();
+            default -> {
+                toDelete = deletable.poll();
+                if (toDelete == null) {
+                    // nothing created yet: fall back to a listing so the arrival rate stays constant
+                    request = HttpRequest.newBuilder(URI.create(baseUrl + "/links"))
+                        .header(USER_ID_HEADER, user.toString())
+                        .GET()
+                        .build();
+                } else {
+                    request = HttpRequest.newBuilder(URI.create(baseUrl + "/links/" + toDelete.code()))
+                        .header(USER_ID_HEADER, toDelete.userId().toString())
+                        .DELETE()
+                        .build();
+                }
+            }
+        }
+
+        final var expected = expectedStatus;
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .whenComplete((response, error) -> {
+                final var latencyMicros = (System.nanoTime() - intendedStartNanos) / 1_000;
+                inFlight.decrementAndGet();
+                if (!recording) {
+                    return;
+                }
+                if (error == null && response.statusCode() == SERVICE_UNAVAILABLE) {
+                    // shed by the server's admission control: counted apart so the percentiles describe served requests
+                    rejected.increment();
+                    return;
+                }
+                recorders.get(operation).recordValue(Math.min(latencyMicros, MAX_TRACKABLE_MICROS));
+                if (error != null || response.statusCode() != expected) {
+                    errors.get(operation).increment();
+                    return;
+                }
+                if (operation == Operation.SHORTEN) {
+                    deletable.add(new CreatedLink(extractCode(response), UUID.fromString(response.request().headers()
+                        .firstValue(USER_ID_HEADER)
+                        .orElseThrow())));
+                }
+            });
+    }
+
+    private HttpRequest shortenRequest(UUID user) {
+        final var body = "{\"url\":\"https://example.com/load/%d\",\"maxClicks\":%d,\"ttlSeconds\":%d}"
+            .formatted(urlSequence.incrementAndGet(), Integer.MAX_VALUE, TimeUnit.DAYS.toSeconds(1));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/shorten"))
+            .header("Content-Type", "application/json")
+            .header(USER_ID_HEADER, user.toString())
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    }
+
+    private static String extractCode(HttpResponse<String> response) {
+        final var matcher = CODE_PATTERN.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected shorten response: " + response.statusCode() + ' ' + response.body());
+        }
+        return matcher.group(1);
+    }
+
+    private record CreatedLink(String code,
+                               UUID userId) {
+    }
+
+    public record Result(Map<Operation, Histogram> latencyMicros,
+                         Map<Operation, Long> errors,
+                         // answered (with a latency) plus shed by the generator; 503s from the server are excluded
+                         Map<Operation, Long> attempts,
+                         long sent,
+                         long shed,
+                         long rejected,
+                         double elapsedSeconds) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.mephi.skillfactory.urlshortener.loadtest;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public record LoadTestConfig(int ratePerSecond,
+                             int warmupSeconds,
+                             int durationSeconds,
+                             int shortenWeight,
+                             int redirectWeight,
+                             int listWeight,
+                             int deleteWeight,
+                             int users,
+                             int initialLinks,
+                             double zipfExponent,
+                             int maxInFlight,
+                             double regressionThreshold,
+                             boolean updateBaseline,
+                             String targetUrl,
+                             String mode,
+                             long threadStackBytes,
+                             Path baselineFile,
+                             Path reportFile) {
+
+    public static final String MODE_SERVLET = "servlet";
+    public static final String MODE_REACTIVE = "reactive";
+    public static final String MODE_COMPARE = "compare";
+    private static final String PREFIX = "loadtest.";
+
+    // servlet or reactive run one stack, compare runs both in turn against a fresh embedded server each
+    public LoadTestConfig {
+        if (!List.of(MODE_SERVLET, MODE_REACTIVE, MODE_COMPARE).contains(mode)) {
+            throw new IllegalArgumentException("loadtest.mode must be servlet, reactive or compare");
+        }
+        if (MODE_COMPARE.equals(mode) && !targetUrl.isBlank()) {
+            throw new IllegalArgumentException("loadtest.mode=compare needs the embedded server, unset loadtest.targetUrl");
+        }
+    }
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+            intProperty("rate", 1_000),
+            intProperty("warmupSeconds", 10),
+            intProperty("durationSeconds", 30),
+            intProperty("shortenWeight", 10),
+            intProperty("redirectWeight", 80),
+            intProperty("listWeight", 7),
+            intProperty("deleteWeight", 3),
+            intProperty("users", 1_000),
+            intProperty("initialLinks", 10_000),
+            Double.parseDouble(property("zipfExponent", "0.99")),
+            intProperty("maxInFlight", 10_000),
+            Double.parseDouble(property("regressionThreshold", "0.2")),
+            Boolean.parseBoolean(property("updateBaseline", "false")),
+            property("targetUrl", ""),
+            property("mode", MODE_SERVLET),
+            Long.parseLong(property("threadStackBytes", Long.toString(1024 * 1024))),
+            Path.of(property("baseline", "loadtest/baseline.properties")),
+            Path.of(property("report", "build/reports/loadtest/report.properties"))
+        );
+    }
+
+    public int totalWeight() {
+        return shortenWeight + redirectWeight + listWeight + deleteWeight;
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.parseInt(property(name, Integer.toString(defaultValue)));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+}
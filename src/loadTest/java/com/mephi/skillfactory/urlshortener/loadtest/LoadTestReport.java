@@ -0,0 +1,129 @@
+package com.mephi.skillfactory.urlshortener.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+public record LoadTestReport(Map<String, Double> metrics) {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+    // error ratio may grow by this much in absolute terms before it counts as a regression
+    private static final double ERROR_RATIO_TOLERANCE = 0.01;
+    private static final String[] COMPARED_METRICS = {"throughput", "rejected", "redirect.p99Micros", "shorten.p99Micros",
+        "list.p99Micros", "threads.peak", "connections.avg", "memory.bytesPerConnection"};
+
+    // resources is null when the target is a remote server
+    public static LoadTestReport from(LoadGenerator.Result result, ResourceSampler.Resources resources, long threadStackBytes) {
+        final var metrics = new TreeMap<String, Double>();
+        var completed = 0L;
+        for (final var operation : Operation.values()) {
+            final var histogram = result.latencyMicros().get(operation);
+            final var prefix = operation.name().toLowerCase(Locale.ROOT) + '.';
+            final var count = histogram.getTotalCount();
+            final var errors = result.errors().get(operation);
+            final var attempts = result.attempts().get(operation);
+            completed += count;
+            metrics.put(prefix + "count", (double) count);
+            metrics.put(prefix + "errorRatio", attempts == 0
+                ? 0.0
+                : (double) errors / attempts);
+            for (var i = 0; i < PERCENTILES.length; i++) {
+                metrics.put(prefix + PERCENTILE_NAMES[i] + "Micros", (double) histogram.getValueAtPercentile(PERCENTILES[i]));
+            }
+            metrics.put(prefix + "maxMicros", (double) histogram.getMaxValue());
+        }
+        metrics.put("throughput", completed / result.elapsedSeconds());
+        metrics.put("shed", (double) result.shed());
+        metrics.put("rejected", (double) result.rejected());
+        if (resources != null) {
+            metrics.put("threads.peak", (double) resources.peakThreads());
+            metrics.put("connections.avg", resources.avgConnections());
+            metrics.put("memory.bytesPerConnection", resources.bytesPerConnection(threadStackBytes));
+        }
+        return new LoadTestReport(metrics);
+    }
+
+    public static LoadTestReport read(Path file) throws IOException {
+        final var properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        final var metrics = new TreeMap<String, Double>();
+        for (final var name : properties.stringPropertyNames()) {
+            metrics.put(name, Double.parseDouble(properties.getProperty(name)));
+        }
+        return new LoadTestReport(metrics);
+    }
+
+    public void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        final var properties = new Properties();
+        metrics.forEach((name, value) -> properties.setProperty(name, String.format(Locale.ROOT, "%.3f", value)));
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            properties.store(writer, "url-shortener load test");
+        }
+    }
+
+    // p99/p999 growth and throughput drop beyond the threshold, or a noticeably higher error ratio, are regressions
+    public List<String> regressionsAgainst(LoadTestReport baseline, double threshold) {
+        final var regressions = new ArrayList<String>();
+        baseline.metrics.forEach((name, expected) -> {
+            final var actual = metrics.get(name);
+            if (actual == null) {
+                return;
+            }
+            if ((name.endsWith(".p99Micros") || name.endsWith(".p999Micros")) && actual > expected * (1 + threshold)) {
+                regressions.add("%s: %.0f µs, baseline %.0f µs".formatted(name, actual, expected));
+            } else if (name.equals("throughput") && actual < expected * (1 - threshold)) {
+                regressions.add("%s: %.1f req/s, baseline %.1f req/s".formatted(name, actual, expected));
+            } else if (name.endsWith(".errorRatio") && actual > expected + ERROR_RATIO_TOLERANCE) {
+                regressions.add("%s: %.4f, baseline %.4f".formatted(name, actual, expected));
+            }
+        });
+        return regressions;
+    }
+
+    public String toTable() {
+        final var sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-10s %10s %8s %10s %10s %10s %10s %10s%n", "operation", "count", "errors%", "p50 µs",
+            "p90 µs", "p99 µs", "p99.9 µs", "max µs"));
+        for (final var operation : Operation.values()) {
+            final var prefix = operation.name().toLowerCase(Locale.ROOT) + '.';
+            sb.append(String.format(Locale.ROOT, "%-10s %10.0f %8.2f %10.0f %10.0f %10.0f %10.0f %10.0f%n", operation,
+                metrics.get(prefix + "count"), metrics.get(prefix + "errorRatio") * 100, metrics.get(prefix + "p50Micros"),
+                metrics.get(prefix + "p90Micros"), metrics.get(prefix + "p99Micros"), metrics.get(prefix + "p999Micros"),
+                metrics.get(prefix + "maxMicros")));
+        }
+        sb.append(String.format(Locale.ROOT, "throughput: %.1f req/s, shed by generator: %.0f, rejected by server: %.0f%n",
+            metrics.get("throughput"), metrics.get("shed"), metrics.getOrDefault("rejected", 0.0)));
+        if (metrics.containsKey("memory.bytesPerConnection")) {
+            sb.append(String.format(Locale.ROOT, "threads: %.0f peak, connections: %.1f avg, memory: %.0f bytes/connection%n",
+                metrics.get("threads.peak"), metrics.get("connections.avg"), metrics.get("memory.bytesPerConnection")));
+        }
+        return sb.toString();
+    }
+
+    // one column per report, in the order given
+    public static String comparisonTable(Map<String, LoadTestReport> reports) {
+        final var sb = new StringBuilder(String.format(Locale.ROOT, "%-26s", "metric"));
+        reports.keySet().forEach(name -> sb.append(String.format(Locale.ROOT, " %14s", name)));
+        sb.append(System.lineSeparator());
+        for (final var metric : COMPARED_METRICS) {
+            sb.append(String.format(Locale.ROOT, "%-26s", metric));
+            reports.values().forEach(report -> sb.append(String.format(Locale.ROOT, " %14.1f", report.metrics.getOrDefault(metric,
+                Double.NaN))));
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
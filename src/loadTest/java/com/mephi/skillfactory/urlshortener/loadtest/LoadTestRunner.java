@@ -0,0 +1,100 @@
+package com.mephi.skillfactory.urlshortener.loadtest;
+
+import com.mephi.skillfactory.urlshortener.UrlShortenerApplication;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final var config = LoadTestConfig.fromSystemProperties();
+        if (LoadTestConfig.MODE_COMPARE.equals(config.mode())) {
+            final var reports = new LinkedHashMap<String, LoadTestReport>();
+            for (final var mode : new String[] {LoadTestConfig.MODE_SERVLET, LoadTestConfig.MODE_REACTIVE}) {
+                final var report = run(config, mode);
+                report.write(forMode(config.reportFile(), mode));
+                reports.put(mode, report);
+            }
+            System.out.print(LoadTestReport.comparisonTable(reports));
+            System.exit(0);
+        }
+
+        var exitCode = 0;
+        final var report = run(config, config.mode());
+        report.write(config.reportFile());
+        // each stack keeps its own baseline, the servlet one under the historical name
+        final var baselineFile = LoadTestConfig.MODE_SERVLET.equals(config.mode())
+            ? config.baselineFile()
+            : forMode(config.baselineFile(), config.mode());
+        if (config.updateBaseline()) {
+            report.write(baselineFile);
+            System.out.println("Baseline updated: " + baselineFile);
+        } else if (Files.exists(baselineFile)) {
+            final var regressions = report.regressionsAgainst(LoadTestReport.read(baselineFile), config.regressionThreshold());
+            if (!regressions.isEmpty()) {
+                System.out.printf("Regression beyond %.0f%% of baseline:%n", config.regressionThreshold() * 100);
+                regressions.forEach(regression -> System.out.println("  " + regression));
+                exitCode = 1;
+            }
+        } else {
+            System.out.println("No baseline at " + baselineFile + ", run with -PloadTest.updateBaseline=true to create one");
+        }
+        System.exit(exitCode);
+    }
+
+    private static LoadTestReport run(LoadTestConfig config, String mode) throws InterruptedException {
+        ConfigurableApplicationContext context = null;
+        var baseUrl = config.targetUrl();
+        if (baseUrl.isBlank()) {
+            context = SpringApplication.run(UrlShortenerApplication.class, "--server.port=0", "--logging.level.root=WARN",
+                "--spring.main.web-application-type=" + mode);
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+        }
+
+        try {
+            final var stack = context == null
+                ? "remote"
+                : mode;
+            System.out.printf("Load test against %s (%s): %d req/s, warmup %d s, measure %d s, mix shorten/redirect/list/delete = "
+                + "%d/%d/%d/%d%n", baseUrl, stack, config.ratePerSecond(), config.warmupSeconds(), config.durationSeconds(),
+                config.shortenWeight(), config.redirectWeight(), config.listWeight(), config.deleteWeight());
+
+            final var generator = new LoadGenerator(config, baseUrl);
+            generator.populate();
+            generator.run(config.warmupSeconds(), false);
+            // resources are only visible when the server runs in this JVM
+            final var sampler = context == null
+                ? null
+                : ResourceSampler.start(generator);
+            final var result = generator.run(config.durationSeconds(), true);
+            final var resources = sampler == null
+                ? null
+                : sampler.stop();
+            final var report = LoadTestReport.from(result, resources, config.threadStackBytes());
+            System.out.print(report.toTable());
+            return report;
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    // report.properties -> report-reactive.properties
+    private static Path forMode(Path file, String mode) {
+        final var name = file.getFileName().toString();
+        final var dot = name.lastIndexOf('.');
+        final var renamed = dot < 0
+            ? name + '-' + mode
+            : name.substring(0, dot) + '-' + mode + name.substring(dot);
+        return file.resolveSibling(renamed);
+    }
+}
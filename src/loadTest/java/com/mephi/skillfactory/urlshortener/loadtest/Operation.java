@@ -0,0 +1,8 @@
+package com.mephi.skillfactory.urlshortener.loadtest;
+
+public enum Operation {
+    SHORTEN,
+    REDIRECT,
+    LIST,
+    DELETE
+}
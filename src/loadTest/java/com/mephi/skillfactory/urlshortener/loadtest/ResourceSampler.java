@@ -0,0 +1,85 @@
+package com.mephi.skillfactory.urlshortener.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Samples heap, live threads and open connections of the load test JVM while the embedded server is measured.
+ * <p>
+ * The idle point is taken right before the measurement, after a GC, so the server's and the generator's own baseline is
+ * subtracted. The per-connection cost is then ((average heap - idle heap) + (peak threads - idle threads) * thread stack
+ * size) / average open connections. Server and generator share the JVM, so this is an estimate for comparing the two
+ * stacks under the same load, not an absolute footprint.
+ */
+final class ResourceSampler {
+    private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final LoadGenerator generator;
+    private final long idleHeapBytes;
+    private final int idleThreads;
+    private final Thread sampler;
+    private volatile boolean running = true;
+    private long samples;
+    private double heapSum;
+    private double inFlightSum;
+    private int peakThreads;
+
+    private ResourceSampler(LoadGenerator generator) {
+        this.generator = generator;
+        System.gc();
+        this.idleHeapBytes = memory.getHeapMemoryUsage().getUsed();
+        this.idleThreads = threads.getThreadCount();
+        this.peakThreads = idleThreads;
+        this.sampler = Thread.ofPlatform()
+            .name("loadtest-sampler")
+            .daemon()
+            .start(this::sample);
+    }
+
+    static ResourceSampler start(LoadGenerator generator) {
+        return new ResourceSampler(generator);
+    }
+
+    Resources stop() throws InterruptedException {
+        running = false;
+        sampler.join();
+        final var avgHeap = samples == 0
+            ? idleHeapBytes
+            : heapSum / samples;
+        final var avgInFlight = samples == 0
+            ? 0
+            : inFlightSum / samples;
+        return new Resources(idleHeapBytes, idleThreads, avgHeap, peakThreads, avgInFlight);
+    }
+
+    private void sample() {
+        while (running) {
+            LockSupport.parkNanos(INTERVAL_NANOS);
+            heapSum += memory.getHeapMemoryUsage().getUsed();
+            inFlightSum += generator.inFlight();
+            peakThreads = Math.max(peakThreads, threads.getThreadCount());
+            samples++;
+        }
+    }
+
+    record Resources(long idleHeapBytes,
+                     int idleThreads,
+                     double avgHeapBytes,
+                     int peakThreads,
+                     double avgConnections) {
+
+        double bytesPerConnection(long threadStackBytes) {
+            if (avgConnections < 1) {
+                return 0;
+            }
+            final var heap = Math.max(0, avgHeapBytes - idleHeapBytes);
+            final var stacks = (double) (peakThreads - idleThreads) * threadStackBytes;
+            return (heap + Math.max(0, stacks)) / avgConnections;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.mephi.skillfactory.urlshortener.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples ranks {@code 0..n-1} with probability proportional to {@code 1 / (rank + 1)^exponent}.
+ */
+public final class ZipfianSampler {
+    private final double[] cumulative;
+
+    public ZipfianSampler(int n, double exponent) {
+        cumulative = new double[n];
+        var sum = 0.0;
+        for (var rank = 0; rank < n; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (var rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    public int next() {
+        final var u = ThreadLocalRandom.current().nextDouble();
+        final var index = Arrays.binarySearch(cumulative, u);
+        final var rank = index >= 0
+            ? index
+            : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,41 @@
+package com.mephi.skillfactory.urlshortener.cli;
+
+import java.awt.Desktop;
+import java.awt.HeadlessException;
+import java.net.URI;
+
+/**
+ * Keeps every {@code java.awt} reference out of {@link CliRunner}, so AWT classes are loaded on the first {@code open}
+ * instead of while the runner bean is being verified during startup.
+ */
+final class BrowserLauncher {
+
+    private BrowserLauncher() {
+    }
+
+    static void open(String url) {
+        try {
+            if (!Desktop.isDesktopSupported()) {
+                System.out.println("Desktop is not supported in this environment");
+                System.out.println("Target URL: " + url);
+                return;
+            }
+
+            final var desktop = Desktop.getDesktop();
+            if (!desktop.isSupported(Desktop.Action.BROWSE)) {
+                System.out.println("Browse action is not supported");
+                System.out.println("Target URL: " + url);
+                return;
+            }
+
+            desktop.browse(new URI(url));
+            System.out.println("Opened in browser: " + url);
+        } catch (HeadlessException e) {
+            System.out.println("Headless environment detected. Cannot open browser automatically");
+            System.out.println("Target URL: " + url);
+        } catch (Exception e) {
+            System.out.println("Failed to open browser: " + e.getMessage());
+            System.out.println("Target URL: " + url);
+        }
+    }
+}
@@ -2,12 +2,14 @@ package com.mephi.skillfactory.urlshortener.cli;
 
 import com.mephi.skillfactory.urlshortener.service.NotificationService;
 import com.mephi.skillfactory.urlshortener.service.ShortLinkService;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.snapshot.SnapshotService;
 
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.awt.Desktop;
-import java.net.URI;
+import java.nio.file.Path;
 import java.util.Scanner;
 import java.util.UUID;
 
@@ -15,13 +17,18 @@ import lombok.RequiredArgsConstructor;
 
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "cli.enabled", havingValue = "true", matchIfMissing = true)
 public class CliRunner implements CommandLineRunner {
     private final ShortLinkService shortLinkService;
     private final NotificationService notificationService;
+    private final SnapshotService snapshotService;
+    private final BackgroundWorker backgroundWorker;
     private volatile UUID currentUserId;
 
     @Override
     public void run(String... args) {
+        notificationService.addListener((user, message) -> backgroundWorker.submit(() -> System.out.printf("NOTIFY %s: %s%n", user,
+            message)));
         final var cliThread = new Thread(this::cliInteractionLoop, "url-shortener-cli");
         cliThread.setDaemon(true);
         cliThread.start();
@@ -59,6 +66,8 @@ public class CliRunner implements CommandLineRunner {
                     case "list" -> listUserLinks();
                     case "delete" -> deleteLink(arg);
                     case "notifications" -> showNotifications();
+                    case "export" -> exportSnapshot(arg);
+                    case "import" -> importSnapshot(arg);
                     default -> System.out.println("Unknown command. Type 'help' for commands");
                 }
             } catch (Exception e) {
@@ -82,6 +91,8 @@ public class CliRunner implements CommandLineRunner {
               notifications     — list your notifications
               uid               — show current user id
               setuid <id|new>   — set current user id or generate new one
+              export <file>     — export all links to a snapshot file
+              import <file>     — replace all links with a snapshot file
             """);
     }
 
@@ -118,9 +129,10 @@ public class CliRunner implements CommandLineRunner {
 
         Integer maxClicks = null;
         Long ttlSeconds = null;
+        String alias = null;
 
         try {
-            System.out.print("Max clicks (enter for default): ");
+            System.out.print("Max clicks (enter for default, 0 for unlimited): ");
             final var sMax = sc.nextLine().trim();
             if (!sMax.isEmpty()) {
                 maxClicks = Integer.parseInt(sMax);
@@ -131,13 +143,19 @@ public class CliRunner implements CommandLineRunner {
             if (!sTtl.isEmpty()) {
                 ttlSeconds = Long.parseLong(sTtl);
             }
+
+            System.out.print("Alias, e.g. summer-sale (enter for generated code): ");
+            final var sAlias = sc.nextLine().trim();
+            if (!sAlias.isEmpty()) {
+                alias = sAlias;
+            }
         } catch (NumberFormatException e) {
             System.out.printf("Invalid number: %s. Aborting creation%n", e.getMessage());
             return;
         }
 
         try {
-            final var shortLink = shortLinkService.createShortLink(url, currentUserId, maxClicks, ttlSeconds);
+            final var shortLink = shortLinkService.createShortLink(url, currentUserId, maxClicks, ttlSeconds, alias, null, null, null, null);
             final var userId = shortLink.getUserId();
             if (currentUserId == null) {
                 currentUserId = userId;
@@ -163,31 +181,7 @@ public class CliRunner implements CommandLineRunner {
             return;
         }
 
-        final var url = linkOptional.get().getTargetUrl();
-
-        try {
-            if (!Desktop.isDesktopSupported()) {
-                System.out.println("Desktop is not supported in this environment");
-                System.out.println("Target URL: " + url);
-                return;
-            }
-
-            final var desktop = Desktop.getDesktop();
-            if (!desktop.isSupported(Desktop.Action.BROWSE)) {
-                System.out.println("Browse action is not supported");
-                System.out.println("Target URL: " + url);
-                return;
-            }
-
-            desktop.browse(new URI(url));
-            System.out.println("Opened in browser: " + url);
-        } catch (java.awt.HeadlessException e) {
-            System.out.println("Headless environment detected. Cannot open browser automatically");
-            System.out.println("Target URL: " + url);
-        } catch (Exception e) {
-            System.out.println("Failed to open browser: " + e.getMessage());
-            System.out.println("Target URL: " + url);
-        }
+        BrowserLauncher.open(linkOptional.get().getTargetUrl());
     }
 
     private void listUserLinks() {
@@ -256,4 +250,32 @@ public class CliRunner implements CommandLineRunner {
             System.out.println("Failed to fetch notifications: " + e.getMessage());
         }
     }
+
+    private void exportSnapshot(String file) {
+        if (file == null || file.isBlank()) {
+            System.out.println("Usage: export <file>");
+            return;
+        }
+
+        try {
+            final var count = snapshotService.exportTo(Path.of(file));
+            System.out.printf("Exported %d links to %s%n", count, file);
+        } catch (Exception e) {
+            System.out.println("Failed to export: " + e.getMessage());
+        }
+    }
+
+    private void importSnapshot(String file) {
+        if (file == null || file.isBlank()) {
+            System.out.println("Usage: import <file>");
+            return;
+        }
+
+        try {
+            final var count = snapshotService.importFrom(Path.of(file));
+            System.out.printf("Imported %d links from %s%n", count, file);
+        } catch (Exception e) {
+            System.out.println("Failed to import: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,28 @@
+package com.mephi.skillfactory.urlshortener.config;
+
+import com.mephi.skillfactory.urlshortener.controller.codec.BinaryLinkDecoder;
+import com.mephi.skillfactory.urlshortener.controller.codec.BinaryLinkEncoder;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    // with the servlet starter on the classpath Boot would run the reactive stack on Tomcat, serve it from Netty event loops instead
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(new BinaryLinkDecoder());
+        configurer.customCodecs().register(new BinaryLinkEncoder());
+    }
+}
@@ -0,0 +1,63 @@
+package com.mephi.skillfactory.urlshortener.controller;
+
+import com.mephi.skillfactory.urlshortener.properties.AdminProperties;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.stats.AdminStatsService;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdminController {
+    private static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+    private final AdminProperties adminProperties;
+    private final AdminStatsService adminStatsService;
+
+    @GetMapping("/events/consumers")
+    public ResponseEntity<List<LinkEventLog.SubscriptionStats>> eventConsumers(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        checkToken(token);
+        return ResponseEntity.ok(adminStatsService.eventConsumers());
+    }
+
+    @GetMapping("/replication")
+    public ResponseEntity<Map<String, Object>> replication(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        checkToken(token);
+        return ResponseEntity.ok(adminStatsService.replication());
+    }
+
+    @GetMapping("/storage")
+    public ResponseEntity<Map<String, Object>> storage(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        checkToken(token);
+        return ResponseEntity.ok(adminStatsService.storage());
+    }
+
+    @GetMapping("/quota")
+    public ResponseEntity<Map<String, Object>> quota(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        checkToken(token);
+        return ResponseEntity.ok(adminStatsService.quota());
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token,
+                                                     @RequestParam(defaultValue = "20") int top) {
+        checkToken(token);
+        return ResponseEntity.ok(adminStatsService.all(top));
+    }
+
+    private void checkToken(String token) {
+        ApiResponses.checkAdminToken(adminProperties, token);
+    }
+}
@@ -0,0 +1,47 @@
+package com.mephi.skillfactory.urlshortener.controller;
+
+import com.mephi.skillfactory.urlshortener.properties.AdminProperties;
+import com.mephi.skillfactory.urlshortener.service.snapshot.SnapshotService;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.Map;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdminSnapshotController {
+    private static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+    private final AdminProperties adminProperties;
+    private final SnapshotService snapshotService;
+
+    @GetMapping(value = "/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportSnapshot(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        ApiResponses.checkAdminToken(adminProperties, token);
+        final StreamingResponseBody body = snapshotService::exportTo;
+        return ResponseEntity.ok()
+            .header("Content-Disposition", "attachment; filename=\"links.snapshot\"")
+            .body(body);
+    }
+
+    @PutMapping(value = "/snapshot", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Integer>> importSnapshot(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token,
+                                                               HttpServletRequest request) throws IOException {
+        ApiResponses.checkAdminToken(adminProperties, token);
+        final var imported = snapshotService.importFrom(request.getInputStream());
+        return ResponseEntity.ok(Map.of("imported", imported));
+    }
+}
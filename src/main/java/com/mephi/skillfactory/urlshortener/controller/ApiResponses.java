@@ -0,0 +1,54 @@
+package com.mephi.skillfactory.urlshortener.controller;
+
+import com.mephi.skillfactory.urlshortener.properties.AdminProperties;
+import com.mephi.skillfactory.urlshortener.service.bulk.BulkJobStatus;
+import com.mephi.skillfactory.urlshortener.service.routing.Redirect;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+import java.time.Instant;
+
+// responses shared by the servlet and the reactive controllers
+final class ApiResponses {
+
+    private ApiResponses() {
+    }
+
+    static ResponseEntity<?> redirect(Redirect redirect) {
+        final var uri = URI.create(redirect.targetUrl());
+        final var cacheableFor = redirect.link().cacheableFor(Instant.now());
+        if (cacheableFor.toSeconds() > 0) {
+            return ResponseEntity
+                .status(HttpStatus.MOVED_PERMANENTLY)
+                .location(uri)
+                .cacheControl(CacheControl.maxAge(cacheableFor.withNanos(0)).cachePublic())
+                .build();
+        }
+        return ResponseEntity
+            .status(HttpStatus.FOUND)
+            .location(uri)
+            .cacheControl(CacheControl.noStore())
+            .build();
+    }
+
+    static ResponseEntity<?> linkNotFound() {
+        return ResponseEntity
+            .status(HttpStatus.NOT_FOUND)
+            .body("Link not found or inactive/expired");
+    }
+
+    static ResponseEntity<BulkJobStatus> accepted(BulkJobStatus status) {
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/jobs/" + status.id()))
+            .body(status);
+    }
+
+    static void checkAdminToken(AdminProperties adminProperties, String token) {
+        if (!adminProperties.matches(token)) {
+            throw new SecurityException("Admin token is missing or invalid");
+        }
+    }
+}
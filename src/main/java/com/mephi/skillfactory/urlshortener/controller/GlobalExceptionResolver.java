@@ -1,9 +1,23 @@
 package com.mephi.skillfactory.urlshortener.controller;
 
+import com.mephi.skillfactory.urlshortener.service.exception.AliasTakenException;
+import com.mephi.skillfactory.urlshortener.service.exception.CoalescedCallException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidActivationWindowException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidAliasException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidMaxClicksException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidRedirectPolicyException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidRoutingRulesException;
+import com.mephi.skillfactory.urlshortener.service.exception.QuotaExceededException;
+import com.mephi.skillfactory.urlshortener.service.exception.ReplicaException;
+import com.mephi.skillfactory.urlshortener.service.exception.ScheduleCapacityException;
+import com.mephi.skillfactory.urlshortener.service.exception.SnapshotFormatException;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +35,111 @@ public class GlobalExceptionResolver {
             .body(e.getMessage());
     }
 
+    @ExceptionHandler(SnapshotFormatException.class)
+    public ResponseEntity<?> handleSnapshotFormatException(SnapshotFormatException e) {
+        log.debug("Handled SnapshotFormatException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidAliasException.class)
+    public ResponseEntity<?> handleInvalidAliasException(InvalidAliasException e) {
+        log.debug("Handled InvalidAliasException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidActivationWindowException.class)
+    public ResponseEntity<?> handleInvalidActivationWindowException(InvalidActivationWindowException e) {
+        log.debug("Handled InvalidActivationWindowException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidMaxClicksException.class)
+    public ResponseEntity<?> handleInvalidMaxClicksException(InvalidMaxClicksException e) {
+        log.debug("Handled InvalidMaxClicksException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidRedirectPolicyException.class)
+    public ResponseEntity<?> handleInvalidRedirectPolicyException(InvalidRedirectPolicyException e) {
+        log.debug("Handled InvalidRedirectPolicyException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidRoutingRulesException.class)
+    public ResponseEntity<?> handleInvalidRoutingRulesException(InvalidRoutingRulesException e) {
+        log.debug("Handled InvalidRoutingRulesException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(AliasTakenException.class)
+    public ResponseEntity<?> handleAliasTakenException(AliasTakenException e) {
+        log.debug("Handled AliasTakenException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.CONFLICT)
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(QuotaExceededException.class)
+    public ResponseEntity<?> handleQuotaExceededException(QuotaExceededException e) {
+        log.debug("Handled QuotaExceededException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.TOO_MANY_REQUESTS)
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<?> handleHttpMessageNotReadableException(HttpMessageNotReadableException e) {
+        log.debug("Handled HttpMessageNotReadableException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(e.getMessage());
+    }
+
+    // in the reactive mode unreadable bodies and missing headers or parameters arrive as ServerWebInputException
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<?> handleResponseStatusException(ResponseStatusException e) {
+        log.debug("Handled ResponseStatusException: {}", e.getMessage());
+        return ResponseEntity
+            .status(e.getStatusCode())
+            .body(e.getReason());
+    }
+
+    @ExceptionHandler(ReplicaException.class)
+    public ResponseEntity<?> handleReplicaException(ReplicaException e) {
+        log.debug("Handled ReplicaException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(ScheduleCapacityException.class)
+    public ResponseEntity<?> handleScheduleCapacityException(ScheduleCapacityException e) {
+        log.warn("Handled ScheduleCapacityException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(CoalescedCallException.class)
+    public ResponseEntity<?> handleCoalescedCallException(CoalescedCallException e) {
+        log.warn("Handled CoalescedCallException: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(e.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleException(Exception e) {
         log.error("Handled HTTP 500 Bad Request: {}", e.getMessage());
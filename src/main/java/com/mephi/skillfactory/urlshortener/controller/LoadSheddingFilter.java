@@ -0,0 +1,57 @@
+package com.mephi.skillfactory.urlshortener.controller;
+
+import com.mephi.skillfactory.urlshortener.properties.ReactiveProperties;
+import com.mephi.skillfactory.urlshortener.service.reactive.AdmissionLimiter;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import java.nio.charset.StandardCharsets;
+
+import reactor.core.publisher.Mono;
+
+// admin endpoints are not limited, so an overloaded instance can still be inspected and restored
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class LoadSheddingFilter implements WebFilter {
+    private static final byte[] REJECTED_BODY = "Server is overloaded, try again later".getBytes(StandardCharsets.UTF_8);
+    private final AdmissionLimiter admissionLimiter;
+    private final String retryAfterSeconds;
+
+    public LoadSheddingFilter(AdmissionLimiter admissionLimiter, ReactiveProperties reactiveProperties) {
+        this.admissionLimiter = admissionLimiter;
+        this.retryAfterSeconds = Long.toString(Math.max(1, reactiveProperties.retryAfter().toSeconds()));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        final var path = exchange.getRequest()
+            .getPath()
+            .value();
+        if (!path.startsWith("/api/") || path.startsWith("/api/admin/")) {
+            return chain.filter(exchange);
+        }
+        if (!admissionLimiter.tryAcquire()) {
+            return reject(exchange);
+        }
+        return Mono.defer(() -> chain.filter(exchange))
+            .doFinally(signal -> admissionLimiter.release());
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange) {
+        final var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(REJECTED_BODY)));
+    }
+}
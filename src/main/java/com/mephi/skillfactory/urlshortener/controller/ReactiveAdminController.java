@@ -0,0 +1,73 @@
+package com.mephi.skillfactory.urlshortener.controller;
+
+import com.mephi.skillfactory.urlshortener.properties.AdminProperties;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.reactive.ReactiveLinkService;
+import com.mephi.skillfactory.urlshortener.service.stats.AdminStatsService;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+// the endpoints of AdminController for the reactive mode; storage stats can hit the disk, so every call runs on the worker pool
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAdminController {
+    private static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+    private final AdminProperties adminProperties;
+    private final AdminStatsService adminStatsService;
+    private final ReactiveLinkService reactiveLinkService;
+
+    @GetMapping("/events/consumers")
+    public Mono<ResponseEntity<List<LinkEventLog.SubscriptionStats>>> eventConsumers(@RequestHeader(value = ADMIN_TOKEN_HEADER,
+        required = false) String token) {
+        checkToken(token);
+        return reactiveLinkService.call(adminStatsService::eventConsumers)
+            .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/replication")
+    public Mono<ResponseEntity<Map<String, Object>>> replication(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        checkToken(token);
+        return reactiveLinkService.call(adminStatsService::replication)
+            .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/storage")
+    public Mono<ResponseEntity<Map<String, Object>>> storage(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        checkToken(token);
+        return reactiveLinkService.call(adminStatsService::storage)
+            .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/quota")
+    public Mono<ResponseEntity<Map<String, Object>>> quota(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        checkToken(token);
+        return reactiveLinkService.call(adminStatsService::quota)
+            .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<Map<String, Object>>> stats(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token,
+                                                           @RequestParam(defaultValue = "20") int top) {
+        checkToken(token);
+        return reactiveLinkService.call(() -> adminStatsService.all(top))
+            .map(ResponseEntity::ok);
+    }
+
+    private void checkToken(String token) {
+        ApiResponses.checkAdminToken(adminProperties, token);
+    }
+}
@@ -0,0 +1,64 @@
+package com.mephi.skillfactory.urlshortener.controller;
+
+import com.mephi.skillfactory.urlshortener.properties.AdminProperties;
+import com.mephi.skillfactory.urlshortener.service.reactive.ReactiveLinkService;
+import com.mephi.skillfactory.urlshortener.service.snapshot.SnapshotService;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// snapshot export and import stream through a blocking codec, so both copy on the reactive worker pool
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAdminSnapshotController {
+    private static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+    private static final int IMPORT_DEMAND = 16;
+    private final AdminProperties adminProperties;
+    private final SnapshotService snapshotService;
+    private final ReactiveLinkService reactiveLinkService;
+
+    @GetMapping(value = "/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Flux<DataBuffer>> exportSnapshot(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token,
+                                                           ServerHttpResponse response) {
+        ApiResponses.checkAdminToken(adminProperties, token);
+        final var body = DataBufferUtils.outputStreamPublisher(out -> {
+            try {
+                snapshotService.exportTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, response.bufferFactory(), reactiveLinkService.executor());
+        return ResponseEntity.ok()
+            .header("Content-Disposition", "attachment; filename=\"links.snapshot\"")
+            .body(Flux.from(body));
+    }
+
+    @PutMapping(value = "/snapshot", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<ResponseEntity<Map<String, Integer>>> importSnapshot(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token,
+                                                                     ServerHttpRequest request) {
+        ApiResponses.checkAdminToken(adminProperties, token);
+        return reactiveLinkService.call(() -> snapshotService.importFrom(DataBufferUtils.subscriberInputStream(request.getBody(),
+                IMPORT_DEMAND)))
+            .map(imported -> ResponseEntity.ok(Map.of("imported", imported)));
+    }
+}
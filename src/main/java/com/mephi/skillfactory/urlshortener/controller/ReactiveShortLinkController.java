@@ -0,0 +1,119 @@
+package com.mephi.skillfactory.urlshortener.controller;
+
+import com.mephi.skillfactory.urlshortener.controller.dto.BulkLinksRequest;
+import com.mephi.skillfactory.urlshortener.controller.dto.LinkView;
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenRequest;
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenResponse;
+import com.mephi.skillfactory.urlshortener.service.bulk.BulkAction;
+import com.mephi.skillfactory.urlshortener.service.bulk.BulkJobStatus;
+import com.mephi.skillfactory.urlshortener.service.reactive.ReactiveLinkService;
+import com.mephi.skillfactory.urlshortener.service.routing.ClientProfileExtractor;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+// the API of ShortLinkController for the reactive mode, every call goes through ReactiveLinkService
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveShortLinkController {
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private final ReactiveLinkService reactiveLinkService;
+    private final ClientProfileExtractor clientProfileExtractor;
+
+    @PostMapping("/shorten")
+    public Mono<ResponseEntity<ShortenResponse>> shorten(@RequestBody ShortenRequest request,
+                                                         @RequestHeader(value = USER_ID_HEADER, required = false) UUID userId) {
+        return reactiveLinkService.createShortLink(request.url(), userId, request.maxClicks(), request.ttlSeconds(), request.alias(),
+                request.activeFrom(), request.activeUntil(), request.redirectPolicy(), request.rules())
+            .map(shortLink -> ResponseEntity.ok(new ShortenResponse(shortLink.getCode(), reactiveLinkService.constructShortLinkUrl(shortLink),
+                shortLink.getUserId().toString())));
+    }
+
+    @GetMapping("/{code}")
+    public Mono<ResponseEntity<?>> redirect(@PathVariable String code, ServerHttpRequest request) {
+        final var headers = request.getHeaders();
+        final var remoteAddress = request.getRemoteAddress() == null
+            ? null
+            : request.getRemoteAddress().getHostString();
+        return reactiveLinkService.redirect(code, () -> clientProfileExtractor.extract(headers::getFirst, remoteAddress))
+            .<ResponseEntity<?>>map(ApiResponses::redirect)
+            .defaultIfEmpty(ApiResponses.linkNotFound());
+    }
+
+    @GetMapping("/notifications")
+    public Mono<ResponseEntity<List<String>>> notifications(@RequestHeader(USER_ID_HEADER) UUID user) {
+        return reactiveLinkService.getNotifications(user)
+            .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/usage")
+    public Mono<ResponseEntity<Map<String, Object>>> usage(@RequestHeader(USER_ID_HEADER) UUID user) {
+        return reactiveLinkService.usage(user)
+            .map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/links/{code}")
+    public Mono<ResponseEntity<Void>> delete(@PathVariable String code, @RequestHeader(USER_ID_HEADER) UUID user) {
+        return reactiveLinkService.deleteLink(code, user)
+            .map(isDeleted -> isDeleted
+                ? ResponseEntity.ok().<Void>build()
+                : ResponseEntity.notFound().<Void>build());
+    }
+
+    @DeleteMapping("/links")
+    public Mono<ResponseEntity<BulkJobStatus>> deleteAll(@RequestParam("user") UUID owner, @RequestHeader(USER_ID_HEADER) UUID user) {
+        if (!owner.equals(user)) {
+            return Mono.error(new SecurityException("Only owner can delete links"));
+        }
+        return reactiveLinkService.submitBulk(user, BulkAction.DELETE, null)
+            .map(ApiResponses::accepted);
+    }
+
+    @PostMapping("/links/bulk")
+    public Mono<ResponseEntity<BulkJobStatus>> bulk(@RequestBody BulkLinksRequest request, @RequestHeader(USER_ID_HEADER) UUID user) {
+        final var action = request.action() == null
+            ? BulkAction.DELETE
+            : request.action();
+        return reactiveLinkService.submitBulk(user, action, request.codes())
+            .map(ApiResponses::accepted);
+    }
+
+    @GetMapping("/jobs/{id}")
+    public Mono<ResponseEntity<BulkJobStatus>> job(@PathVariable UUID id, @RequestHeader(USER_ID_HEADER) UUID user) {
+        return reactiveLinkService.bulkStatus(id, user)
+            .map(ResponseEntity::ok)
+            .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/links")
+    public Mono<ResponseEntity<List<LinkView>>> list(@RequestHeader(USER_ID_HEADER) UUID user) {
+        return reactiveLinkService.listByUserId(user)
+            .map(links -> {
+                final var views = new ArrayList<LinkView>(links.size());
+                for (final var link : links) {
+                    views.add(LinkView.of(link));
+                }
+                return ResponseEntity.ok(views);
+            });
+    }
+}
@@ -1,12 +1,17 @@
 package com.mephi.skillfactory.urlshortener.controller;
 
+import com.mephi.skillfactory.urlshortener.controller.dto.BulkLinksRequest;
+import com.mephi.skillfactory.urlshortener.controller.dto.LinkView;
 import com.mephi.skillfactory.urlshortener.controller.dto.ShortenRequest;
 import com.mephi.skillfactory.urlshortener.controller.dto.ShortenResponse;
-import com.mephi.skillfactory.urlshortener.domain.Link;
 import com.mephi.skillfactory.urlshortener.service.NotificationService;
 import com.mephi.skillfactory.urlshortener.service.ShortLinkService;
+import com.mephi.skillfactory.urlshortener.service.bulk.BulkAction;
+import com.mephi.skillfactory.urlshortener.service.bulk.BulkJobStatus;
+import com.mephi.skillfactory.urlshortener.service.bulk.BulkLinkService;
+import com.mephi.skillfactory.urlshortener.service.routing.ClientProfileExtractor;
 
-import org.springframework.http.HttpStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,46 +20,45 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ShortLinkController {
     private static final String USER_ID_HEADER = "X-User-Id";
     private final ShortLinkService shortLinkService;
     private final NotificationService notificationService;
+    private final BulkLinkService bulkLinkService;
+    private final ClientProfileExtractor clientProfileExtractor;
 
     @PostMapping("/shorten")
     public ResponseEntity<ShortenResponse> shorten(@RequestBody ShortenRequest request,
                                                    @RequestHeader(value = USER_ID_HEADER, required = false) UUID userId) {
-        final var shortLink = shortLinkService.createShortLink(request.url(), userId, request.maxClicks(), request.ttlSeconds());
+        final var shortLink = shortLinkService.createShortLink(request.url(), userId, request.maxClicks(), request.ttlSeconds(),
+            request.alias(), request.activeFrom(), request.activeUntil(), request.redirectPolicy(), request.rules());
         final var shortLinkUrl = shortLinkService.constructShortLinkUrl(shortLink);
         final var responseBody = new ShortenResponse(shortLink.getCode(), shortLinkUrl, shortLink.getUserId().toString());
         return ResponseEntity.ok(responseBody);
     }
 
     @GetMapping("/{code}")
-    public ResponseEntity<?> redirect(@PathVariable String code) {
-        final var shortLinkOptional = shortLinkService.getShortLink(code);
-        if (shortLinkOptional.isEmpty()) {
-            return ResponseEntity
-                .status(HttpStatus.NOT_FOUND)
-                .body("Link not found or inactive/expired");
-        }
-
-        final var shortLink = shortLinkOptional.get();
-        final var uri = URI.create(shortLink.getTargetUrl());
-        return ResponseEntity
-            .status(HttpStatus.FOUND)
-            .location(uri)
-            .build();
+    public ResponseEntity<?> redirect(@PathVariable String code, HttpServletRequest request) {
+        final var redirectOptional = shortLinkService.redirect(code, () -> clientProfileExtractor.extract(request::getHeader,
+            request.getRemoteAddr()));
+        return redirectOptional.isEmpty()
+            ? ApiResponses.linkNotFound()
+            : ApiResponses.redirect(redirectOptional.get());
     }
 
     @GetMapping("/notifications")
@@ -62,6 +66,11 @@ public class ShortLinkController {
         return ResponseEntity.ok(notificationService.getNotifications(user));
     }
 
+    @GetMapping("/usage")
+    public ResponseEntity<Map<String, Object>> usage(@RequestHeader(USER_ID_HEADER) UUID user) {
+        return ResponseEntity.ok(shortLinkService.usage(user));
+    }
+
     @DeleteMapping("/links/{code}")
     public ResponseEntity<?> delete(@PathVariable String code, @RequestHeader(USER_ID_HEADER) UUID user) {
         final var isDeleted = shortLinkService.deleteLink(code, user);
@@ -72,8 +81,34 @@ public class ShortLinkController {
         return ResponseEntity.ok().build();
     }
 
+    @DeleteMapping("/links")
+    public ResponseEntity<BulkJobStatus> deleteAll(@RequestParam("user") UUID owner, @RequestHeader(USER_ID_HEADER) UUID user) {
+        if (!owner.equals(user)) {
+            throw new SecurityException("Only owner can delete links");
+        }
+        return ApiResponses.accepted(bulkLinkService.submit(user, BulkAction.DELETE, null));
+    }
+
+    @PostMapping("/links/bulk")
+    public ResponseEntity<BulkJobStatus> bulk(@RequestBody BulkLinksRequest request, @RequestHeader(USER_ID_HEADER) UUID user) {
+        final var action = request.action() == null
+            ? BulkAction.DELETE
+            : request.action();
+        return ApiResponses.accepted(bulkLinkService.submit(user, action, request.codes()));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<BulkJobStatus> job(@PathVariable UUID id, @RequestHeader(USER_ID_HEADER) UUID user) {
+        return ResponseEntity.of(bulkLinkService.status(id, user));
+    }
+
     @GetMapping("/links")
-    public ResponseEntity<List<Link>> list(@RequestHeader(USER_ID_HEADER) UUID user) {
-        return ResponseEntity.ok(shortLinkService.listByUserId(user));
+    public ResponseEntity<List<LinkView>> list(@RequestHeader(USER_ID_HEADER) UUID user) {
+        final var links = shortLinkService.listByUserId(user);
+        final var views = new ArrayList<LinkView>(links.size());
+        for (final var link : links) {
+            views.add(LinkView.of(link));
+        }
+        return ResponseEntity.ok(views);
     }
 }
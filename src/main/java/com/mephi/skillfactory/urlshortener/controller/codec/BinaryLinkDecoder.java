@@ -0,0 +1,38 @@
+package com.mephi.skillfactory.urlshortener.controller.codec;
+
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenRequest;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+
+import java.util.Map;
+
+// the reactive counterpart of BinaryLinkMessageConverter for reading a shorten request
+public class BinaryLinkDecoder extends AbstractDataBufferDecoder<Object> {
+
+    public BinaryLinkDecoder() {
+        super(BinaryLinkMessageConverter.MEDIA_TYPE);
+        setMaxInMemorySize(BinaryLinkMessageConverter.MAX_REQUEST_BYTES);
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        return elementType.toClass() == ShortenRequest.class && super.canDecode(elementType, mimeType);
+    }
+
+    @Override
+    public Object decode(DataBuffer buffer, ResolvableType targetType, MimeType mimeType, Map<String, Object> hints) {
+        final var bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        try {
+            return LinkWireCodec.decodeShortenRequest(bytes);
+        } catch (IllegalArgumentException e) {
+            throw new DecodingException("Malformed " + BinaryLinkMessageConverter.MEDIA_TYPE_VALUE + " body: " + e.getMessage(), e);
+        }
+    }
+}
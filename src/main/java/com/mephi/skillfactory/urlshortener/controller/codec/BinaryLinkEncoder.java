@@ -0,0 +1,48 @@
+package com.mephi.skillfactory.urlshortener.controller.codec;
+
+import com.mephi.skillfactory.urlshortener.controller.dto.LinkView;
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenResponse;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.util.MimeType;
+
+import java.util.List;
+import java.util.Map;
+
+import reactor.core.publisher.Flux;
+
+// the reactive counterpart of BinaryLinkMessageConverter for writing the shorten response and the link list
+public class BinaryLinkEncoder extends AbstractEncoder<Object> {
+
+    public BinaryLinkEncoder() {
+        super(BinaryLinkMessageConverter.MEDIA_TYPE);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        final var type = elementType.toClass();
+        return (type == ShortenResponse.class || type == List.class && elementType.getGeneric(0).toClass() == LinkView.class)
+            && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType, MimeType mimeType,
+                                   Map<String, Object> hints) {
+        return Flux.from(inputStream)
+            .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType, MimeType mimeType,
+                                  Map<String, Object> hints) {
+        final var bytes = value instanceof ShortenResponse response
+            ? LinkWireCodec.encodeShortenResponse(response)
+            : LinkWireCodec.encodeLinkViews((List<LinkView>) value);
+        return bufferFactory.wrap(bytes);
+    }
+}
@@ -0,0 +1,86 @@
+package com.mephi.skillfactory.urlshortener.controller.codec;
+
+import com.mephi.skillfactory.urlshortener.controller.dto.LinkView;
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenRequest;
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenResponse;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Serves {@link #MEDIA_TYPE} through {@link LinkWireCodec} for the shorten request/response and the link list. Other types
+ * are not claimed, so JSON stays the default for everything else.
+ */
+@Component
+public class BinaryLinkMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final String MEDIA_TYPE_VALUE = "application/x-protobuf";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+    static final int MAX_REQUEST_BYTES = 64 * 1024;
+
+    public BinaryLinkMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == ShortenRequest.class || clazz == ShortenResponse.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return type == ShortenRequest.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (type == null
+            ? supports(clazz)
+            : type == ShortenResponse.class || isLinkViewList(type)) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal(ShortenRequest.class, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        final var bytes = inputMessage.getBody().readNBytes(MAX_REQUEST_BYTES + 1);
+        if (bytes.length > MAX_REQUEST_BYTES) {
+            throw new HttpMessageNotReadableException("Request body exceeds " + MAX_REQUEST_BYTES + " bytes", null, inputMessage);
+        }
+        try {
+            return LinkWireCodec.decodeShortenRequest(bytes);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("Malformed " + MEDIA_TYPE_VALUE + " body: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        final var writer = new ProtoWriter(1024);
+        if (body instanceof ShortenResponse response) {
+            LinkWireCodec.writeShortenResponse(writer, response);
+        } else {
+            LinkWireCodec.writeLinkViews(writer, (List<LinkView>) body);
+        }
+        outputMessage.getHeaders().setContentLength(writer.size());
+        writer.writeTo(outputMessage.getBody());
+    }
+
+    private static boolean isLinkViewList(Type type) {
+        return type instanceof ParameterizedType parameterized
+            && parameterized.getRawType() == List.class
+            && parameterized.getActualTypeArguments()[0] == LinkView.class;
+    }
+}
@@ -0,0 +1,321 @@
+package com.mephi.skillfactory.urlshortener.controller.codec;
+
+import com.mephi.skillfactory.urlshortener.controller.dto.LinkView;
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenRequest;
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenResponse;
+import com.mephi.skillfactory.urlshortener.domain.DeviceType;
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.domain.RouteTarget;
+import com.mephi.skillfactory.urlshortener.domain.RoutingRule;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written protobuf codecs for the API DTOs, field numbers as in the schema from the README:
+ *
+ * <pre>
+ * message ShortenRequest  { string url = 1; optional int32 max_clicks = 2; optional int64 ttl_seconds = 3; optional string alias = 4;
+ *                           optional int64 active_from_millis = 5; optional int64 active_until_millis = 6;
+ *                           optional RedirectPolicy redirect_policy = 7; repeated RoutingRule rules = 8; }
+ * message ShortenResponse { string code = 1; string short_url = 2; string user_id = 3; }
+ * message LinkView        { string code = 1; string target_url = 2; int64 created_at_millis = 3; int64 ttl_seconds = 4;
+ *                           int32 click_count = 5; int32 max_clicks = 6; bool active = 7; optional int64 active_from_millis = 8;
+ *                           optional int64 active_until_millis = 9; RedirectPolicy redirect_policy = 10; repeated RoutingRule rules = 11; }
+ * message LinkList        { repeated LinkView links = 1; }
+ * message RoutingRule     { repeated DeviceType devices = 1 [packed = false]; repeated string languages = 2; repeated string countries = 3;
+ *                           repeated RouteTarget targets = 4; }
+ * message RouteTarget     { string url = 1; optional int32 weight = 2; }
+ * enum RedirectPolicy     { TEMPORARY = 0; PERMANENT = 1; }
+ * enum DeviceType         { DESKTOP = 0; MOBILE = 1; TABLET = 2; BOT = 3; OTHER = 4; }
+ * </pre>
+ */
+public final class LinkWireCodec {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private LinkWireCodec() {
+    }
+
+    public static byte[] encodeShortenRequest(ShortenRequest request) {
+        final var writer = new ProtoWriter(INITIAL_CAPACITY);
+        if (request.url() != null) {
+            writer.writeStringField(1, request.url());
+        }
+        if (request.maxClicks() != null) {
+            writer.writeVarintField(2, request.maxClicks());
+        }
+        if (request.ttlSeconds() != null) {
+            writer.writeVarintField(3, request.ttlSeconds());
+        }
+        if (request.alias() != null) {
+            writer.writeStringField(4, request.alias());
+        }
+        if (request.activeFrom() != null) {
+            writer.writeVarintField(5, request.activeFrom().toEpochMilli());
+        }
+        if (request.activeUntil() != null) {
+            writer.writeVarintField(6, request.activeUntil().toEpochMilli());
+        }
+        if (request.redirectPolicy() != null) {
+            writer.writeVarintField(7, request.redirectPolicy().ordinal());
+        }
+        if (request.rules() != null) {
+            writeRules(writer, 8, request.rules());
+        }
+        return writer.toByteArray();
+    }
+
+    public static ShortenRequest decodeShortenRequest(byte[] bytes) {
+        final var reader = new ProtoReader(bytes);
+        String url = null;
+        Integer maxClicks = null;
+        Long ttlSeconds = null;
+        String alias = null;
+        Instant activeFrom = null;
+        Instant activeUntil = null;
+        RedirectPolicy redirectPolicy = null;
+        List<RoutingRule> rules = null;
+        while (reader.hasNext()) {
+            final var tag = reader.readTag();
+            switch (ProtoReader.field(tag)) {
+                case 1 -> url = reader.readString(tag);
+                case 2 -> maxClicks = (int) reader.readVarint(tag);
+                case 3 -> ttlSeconds = reader.readVarint(tag);
+                case 4 -> alias = reader.readString(tag);
+                case 5 -> activeFrom = Instant.ofEpochMilli(reader.readVarint(tag));
+                case 6 -> activeUntil = Instant.ofEpochMilli(reader.readVarint(tag));
+                case 7 -> redirectPolicy = redirectPolicy(reader.readVarint(tag));
+                case 8 -> {
+                    if (rules == null) {
+                        rules = new ArrayList<>();
+                    }
+                    rules.add(readRule(reader.readMessage(tag)));
+                }
+                default -> reader.skip(tag);
+            }
+        }
+        return new ShortenRequest(url, maxClicks, ttlSeconds, alias, activeFrom, activeUntil, redirectPolicy, rules);
+    }
+
+    public static byte[] encodeShortenResponse(ShortenResponse response) {
+        final var writer = new ProtoWriter(INITIAL_CAPACITY);
+        writeShortenResponse(writer, response);
+        return writer.toByteArray();
+    }
+
+    public static ShortenResponse decodeShortenResponse(byte[] bytes) {
+        final var reader = new ProtoReader(bytes);
+        String code = null;
+        String shortUrl = null;
+        String userId = null;
+        while (reader.hasNext()) {
+            final var tag = reader.readTag();
+            switch (ProtoReader.field(tag)) {
+                case 1 -> code = reader.readString(tag);
+                case 2 -> shortUrl = reader.readString(tag);
+                case 3 -> userId = reader.readString(tag);
+                default -> reader.skip(tag);
+            }
+        }
+        return new ShortenResponse(code, shortUrl, userId);
+    }
+
+    public static byte[] encodeLinkViews(List<LinkView> links) {
+        final var writer = new ProtoWriter(INITIAL_CAPACITY * Math.max(1, links.size()));
+        writeLinkViews(writer, links);
+        return writer.toByteArray();
+    }
+
+    public static List<LinkView> decodeLinkViews(byte[] bytes) {
+        final var reader = new ProtoReader(bytes);
+        final var links = new ArrayList<LinkView>();
+        while (reader.hasNext()) {
+            final var tag = reader.readTag();
+            if (ProtoReader.field(tag) == 1) {
+                links.add(readLinkView(reader.readMessage(tag)));
+            } else {
+                reader.skip(tag);
+            }
+        }
+        return links;
+    }
+
+    static void writeShortenResponse(ProtoWriter writer, ShortenResponse response) {
+        if (response.code() != null) {
+            writer.writeStringField(1, response.code());
+        }
+        if (response.shortUrl() != null) {
+            writer.writeStringField(2, response.shortUrl());
+        }
+        if (response.userId() != null) {
+            writer.writeStringField(3, response.userId());
+        }
+    }
+
+    static void writeLinkViews(ProtoWriter writer, List<LinkView> links) {
+        final var item = new ProtoWriter(INITIAL_CAPACITY);
+        for (final var link : links) {
+            item.reset();
+            writeLinkView(item, link);
+            writer.writeMessageField(1, item);
+        }
+    }
+
+    private static void writeLinkView(ProtoWriter writer, LinkView link) {
+        writer.writeStringField(1, link.code());
+        writer.writeStringField(2, link.targetUrl());
+        writer.writeVarintField(3, link.createdAt().toEpochMilli());
+        if (link.ttlSeconds() != 0) {
+            writer.writeVarintField(4, link.ttlSeconds());
+        }
+        if (link.clickCount() != 0) {
+            writer.writeVarintField(5, link.clickCount());
+        }
+        if (link.maxClicks() != 0) {
+            writer.writeVarintField(6, link.maxClicks());
+        }
+        if (link.active()) {
+            writer.writeBoolField(7, true);
+        }
+        if (link.activeFrom() != null) {
+            writer.writeVarintField(8, link.activeFrom().toEpochMilli());
+        }
+        if (link.activeUntil() != null) {
+            writer.writeVarintField(9, link.activeUntil().toEpochMilli());
+        }
+        if (link.redirectPolicy() != null && link.redirectPolicy() != RedirectPolicy.TEMPORARY) {
+            writer.writeVarintField(10, link.redirectPolicy().ordinal());
+        }
+        if (link.rules() != null) {
+            writeRules(writer, 11, link.rules());
+        }
+    }
+
+    private static LinkView readLinkView(ProtoReader reader) {
+        String code = null;
+        String targetUrl = null;
+        var createdAtMillis = 0L;
+        var ttlSeconds = 0L;
+        var clickCount = 0;
+        var maxClicks = 0;
+        var active = false;
+        Instant activeFrom = null;
+        Instant activeUntil = null;
+        var redirectPolicy = RedirectPolicy.TEMPORARY;
+        final var rules = new ArrayList<RoutingRule>();
+        while (reader.hasNext()) {
+            final var tag = reader.readTag();
+            switch (ProtoReader.field(tag)) {
+                case 1 -> code = reader.readString(tag);
+                case 2 -> targetUrl = reader.readString(tag);
+                case 3 -> createdAtMillis = reader.readVarint(tag);
+                case 4 -> ttlSeconds = reader.readVarint(tag);
+                case 5 -> clickCount = (int) reader.readVarint(tag);
+                case 6 -> maxClicks = (int) reader.readVarint(tag);
+                case 7 -> active = reader.readVarint(tag) != 0;
+                case 8 -> activeFrom = Instant.ofEpochMilli(reader.readVarint(tag));
+                case 9 -> activeUntil = Instant.ofEpochMilli(reader.readVarint(tag));
+                case 10 -> redirectPolicy = redirectPolicy(reader.readVarint(tag));
+                case 11 -> rules.add(readRule(reader.readMessage(tag)));
+                default -> reader.skip(tag);
+            }
+        }
+        return new LinkView(code, targetUrl, Instant.ofEpochMilli(createdAtMillis), ttlSeconds, clickCount, maxClicks, active, activeFrom,
+            activeUntil, redirectPolicy, List.copyOf(rules));
+    }
+
+    private static void writeRules(ProtoWriter writer, int field, List<RoutingRule> rules) {
+        final var rule = new ProtoWriter(INITIAL_CAPACITY);
+        final var target = new ProtoWriter(INITIAL_CAPACITY);
+        for (final var routingRule : rules) {
+            rule.reset();
+            if (routingRule.devices() != null) {
+                for (final var device : routingRule.devices()) {
+                    rule.writeVarintField(1, device.ordinal());
+                }
+            }
+            if (routingRule.languages() != null) {
+                for (final var language : routingRule.languages()) {
+                    rule.writeStringField(2, language);
+                }
+            }
+            if (routingRule.countries() != null) {
+                for (final var country : routingRule.countries()) {
+                    rule.writeStringField(3, country);
+                }
+            }
+            if (routingRule.targets() != null) {
+                for (final var routeTarget : routingRule.targets()) {
+                    target.reset();
+                    if (routeTarget.url() != null) {
+                        target.writeStringField(1, routeTarget.url());
+                    }
+                    if (routeTarget.weight() != null) {
+                        target.writeVarintField(2, routeTarget.weight());
+                    }
+                    rule.writeMessageField(4, target);
+                }
+            }
+            writer.writeMessageField(field, rule);
+        }
+    }
+
+    private static RoutingRule readRule(ProtoReader reader) {
+        final var devices = new ArrayList<DeviceType>();
+        final var languages = new ArrayList<String>();
+        final var countries = new ArrayList<String>();
+        final var targets = new ArrayList<RouteTarget>();
+        while (reader.hasNext()) {
+            final var tag = reader.readTag();
+            switch (ProtoReader.field(tag)) {
+                case 1 -> {
+                    // proto3 writers pack repeated enums by default
+                    if (ProtoReader.wireType(tag) == ProtoWriter.WIRE_LENGTH_DELIMITED) {
+                        final var packed = reader.readMessage(tag);
+                        while (packed.hasNext()) {
+                            devices.add(deviceType(packed.readVarint()));
+                        }
+                    } else {
+                        devices.add(deviceType(reader.readVarint(tag)));
+                    }
+                }
+                case 2 -> languages.add(reader.readString(tag));
+                case 3 -> countries.add(reader.readString(tag));
+                case 4 -> targets.add(readTarget(reader.readMessage(tag)));
+                default -> reader.skip(tag);
+            }
+        }
+        return new RoutingRule(List.copyOf(devices), List.copyOf(languages), List.copyOf(countries), List.copyOf(targets));
+    }
+
+    private static RouteTarget readTarget(ProtoReader reader) {
+        String url = null;
+        Integer weight = null;
+        while (reader.hasNext()) {
+            final var tag = reader.readTag();
+            switch (ProtoReader.field(tag)) {
+                case 1 -> url = reader.readString(tag);
+                case 2 -> weight = (int) reader.readVarint(tag);
+                default -> reader.skip(tag);
+            }
+        }
+        return new RouteTarget(url, weight);
+    }
+
+    private static DeviceType deviceType(long value) {
+        final var values = DeviceType.values();
+        if (value < 0 || value >= values.length) {
+            throw new IllegalArgumentException("Unknown device type: " + value);
+        }
+        return values[(int) value];
+    }
+
+    private static RedirectPolicy redirectPolicy(long value) {
+        final var values = RedirectPolicy.values();
+        if (value < 0 || value >= values.length) {
+            throw new IllegalArgumentException("Unknown redirect policy: " + value);
+        }
+        return values[(int) value];
+    }
+}
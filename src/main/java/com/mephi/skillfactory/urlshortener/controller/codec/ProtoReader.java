@@ -0,0 +1,122 @@
+package com.mephi.skillfactory.urlshortener.controller.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protobuf wire-format decoder over a byte range. Unknown fields are skipped, so older servers accept messages from newer
+ * clients; a known field sent with a wire type other than its declared one is rejected.
+ */
+final class ProtoReader {
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_FIXED32 = 5;
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    ProtoReader(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    private ProtoReader(byte[] buffer, int offset, int limit) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    boolean hasNext() {
+        return position < limit;
+    }
+
+    int readTag() {
+        final var tag = readVarint();
+        if (tag >>> 3 == 0 || tag > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid field tag " + tag);
+        }
+        return (int) tag;
+    }
+
+    long readVarint() {
+        var result = 0L;
+        for (var shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) {
+                throw new IllegalArgumentException("Truncated varint");
+            }
+            final var b = buffer[position++];
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    // field reads: the tag's wire type must match the field's declared one
+    long readVarint(int tag) {
+        expectWireType(tag, ProtoWriter.WIRE_VARINT);
+        return readVarint();
+    }
+
+    String readString(int tag) {
+        expectWireType(tag, ProtoWriter.WIRE_LENGTH_DELIMITED);
+        return readString();
+    }
+
+    ProtoReader readMessage(int tag) {
+        expectWireType(tag, ProtoWriter.WIRE_LENGTH_DELIMITED);
+        return readMessage();
+    }
+
+    private String readString() {
+        final var length = readLength();
+        final var value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private ProtoReader readMessage() {
+        final var length = readLength();
+        final var message = new ProtoReader(buffer, position, position + length);
+        position += length;
+        return message;
+    }
+
+    void skip(int tag) {
+        switch (wireType(tag)) {
+            case ProtoWriter.WIRE_VARINT -> readVarint();
+            case WIRE_FIXED64 -> advance(8);
+            case ProtoWriter.WIRE_LENGTH_DELIMITED -> advance(readLength());
+            case WIRE_FIXED32 -> advance(4);
+            default -> throw new IllegalArgumentException("Unsupported wire type " + wireType(tag));
+        }
+    }
+
+    static int field(int tag) {
+        return tag >>> 3;
+    }
+
+    static int wireType(int tag) {
+        return tag & 7;
+    }
+
+    private static void expectWireType(int tag, int wireType) {
+        if (wireType(tag) != wireType) {
+            throw new IllegalArgumentException("Field " + field(tag) + " has wire type " + wireType(tag) + ", expected " + wireType);
+        }
+    }
+
+    private int readLength() {
+        final var length = readVarint();
+        if (length < 0 || length > limit - position) {
+            throw new IllegalArgumentException("Length " + length + " exceeds message bounds");
+        }
+        return (int) length;
+    }
+
+    private void advance(int count) {
+        if (count > limit - position) {
+            throw new IllegalArgumentException("Truncated field");
+        }
+        position += count;
+    }
+}
@@ -0,0 +1,9 @@
+package com.mephi.skillfactory.urlshortener.controller.dto;
+
+import com.mephi.skillfactory.urlshortener.service.bulk.BulkAction;
+
+import java.util.List;
+
+public record BulkLinksRequest(BulkAction action,
+                               List<String> codes) {
+}
@@ -0,0 +1,27 @@
+package com.mephi.skillfactory.urlshortener.controller.dto;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.domain.RoutingRule;
+
+import java.time.Instant;
+import java.util.List;
+
+public record LinkView(String code,
+                       String targetUrl,
+                       Instant createdAt,
+                       long ttlSeconds,
+                       int clickCount,
+                       int maxClicks,
+                       boolean active,
+                       Instant activeFrom,
+                       Instant activeUntil,
+                       RedirectPolicy redirectPolicy,
+                       List<RoutingRule> rules) {
+
+    public static LinkView of(Link link) {
+        return new LinkView(link.getCode(), link.getTargetUrl(), link.getCreatedAt(), link.getTtlSeconds(), link.getClickCount().get(),
+            link.getMaxClicks(), link.isActive(), link.getActiveFrom(), link.getActiveUntil(),
+            link.getRedirectPolicy(), link.getRouting().rules());
+    }
+}
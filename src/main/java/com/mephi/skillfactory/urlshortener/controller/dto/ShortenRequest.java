@@ -1,6 +1,17 @@
 package com.mephi.skillfactory.urlshortener.controller.dto;
 
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.domain.RoutingRule;
+
+import java.time.Instant;
+import java.util.List;
+
 public record ShortenRequest(String url,
                              Integer maxClicks,
-                             Long ttlSeconds) {
+                             Long ttlSeconds,
+                             String alias,
+                             Instant activeFrom,
+                             Instant activeUntil,
+                             RedirectPolicy redirectPolicy,
+                             List<RoutingRule> rules) {
 }
@@ -0,0 +1,12 @@
+package com.mephi.skillfactory.urlshortener.domain;
+
+import java.util.List;
+
+// languages hold lowercase tags in preference order, each full tag followed by its primary subtag ("en-us", "en")
+public record ClientProfile(DeviceType device,
+                            List<String> languages,
+                            String country,
+                            int visitorHash) {
+
+    public static final ClientProfile UNKNOWN = new ClientProfile(DeviceType.OTHER, List.of(), null, 0);
+}
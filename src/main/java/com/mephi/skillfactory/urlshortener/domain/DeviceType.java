@@ -0,0 +1,10 @@
+package com.mephi.skillfactory.urlshortener.domain;
+
+public enum DeviceType {
+    DESKTOP,
+    MOBILE,
+    TABLET,
+    BOT,
+    // no or empty User-Agent
+    OTHER
+}
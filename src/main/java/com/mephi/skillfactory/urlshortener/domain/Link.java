@@ -1,41 +1,120 @@
 package com.mephi.skillfactory.urlshortener.domain;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import lombok.Getter;
 
 @Getter
 public class Link {
+    // maxClicks of a link that may be followed any number of times until it expires
+    public static final int UNLIMITED_CLICKS = -1;
+
     private final String code;
     private final String targetUrl;
     private final UUID userId;
     private final Instant createdAt;
     private final long ttlSeconds;
-    private final AtomicInteger clickCount = new AtomicInteger(0);
+    private final AtomicInteger clickCount;
     private final int maxClicks;
-    private volatile boolean active = true;
+    private final Instant activeFrom;
+    private final Instant activeUntil;
+    private final RedirectPolicy redirectPolicy;
+    private final RoutingTable routing;
+    private final AtomicBoolean active;
 
     public Link(String code, String targetUrl, UUID userId, long ttlSeconds, int maxClicks) {
+        this(code, targetUrl, userId, Instant.now(), ttlSeconds, maxClicks, 0, true);
+    }
+
+    public Link(String code, String targetUrl, UUID userId, Instant createdAt, long ttlSeconds, int maxClicks, int clickCount, boolean active) {
+        this(code, targetUrl, userId, createdAt, ttlSeconds, maxClicks, clickCount, active, null, null);
+    }
+
+    public Link(String code, String targetUrl, UUID userId, Instant createdAt, long ttlSeconds, int maxClicks, int clickCount, boolean active,
+                Instant activeFrom, Instant activeUntil) {
+        this(code, targetUrl, userId, createdAt, ttlSeconds, maxClicks, clickCount, active, activeFrom, activeUntil, RedirectPolicy.TEMPORARY);
+    }
+
+    public Link(String code, String targetUrl, UUID userId, Instant createdAt, long ttlSeconds, int maxClicks, int clickCount, boolean active,
+                Instant activeFrom, Instant activeUntil, RedirectPolicy redirectPolicy) {
+        this(code, targetUrl, userId, createdAt, ttlSeconds, maxClicks, clickCount, active, activeFrom, activeUntil, redirectPolicy,
+            RoutingTable.EMPTY);
+    }
+
+    public Link(String code, String targetUrl, UUID userId, Instant createdAt, long ttlSeconds, int maxClicks, int clickCount, boolean active,
+                Instant activeFrom, Instant activeUntil, RedirectPolicy redirectPolicy, RoutingTable routing) {
         this.code = code;
         this.targetUrl = targetUrl;
         this.userId = userId;
-        this.createdAt = Instant.now();
+        this.createdAt = createdAt;
         this.ttlSeconds = ttlSeconds;
+        this.clickCount = new AtomicInteger(clickCount);
         this.maxClicks = maxClicks;
+        this.active = new AtomicBoolean(active);
+        this.activeFrom = activeFrom;
+        this.activeUntil = activeUntil;
+        this.redirectPolicy = redirectPolicy;
+        this.routing = routing;
+    }
+
+    // detached copy with the current counters, for readers that must not see later changes
+    public Link copy() {
+        return new Link(code, targetUrl, userId, createdAt, ttlSeconds, maxClicks, clickCount.get(), active.get(), activeFrom,
+            activeUntil, redirectPolicy, routing);
     }
 
     public int incrementAndGetClicks() {
         return clickCount.incrementAndGet();
     }
 
-    public void deactivate() {
-        this.active = false;
+    public boolean isActive() {
+        return active.get();
+    }
+
+    // activate and deactivate return whether this call made the transition, so concurrent callers publish it once
+    public boolean activate() {
+        if (isClickLimited() && clickCount.get() >= maxClicks) {
+            return false;
+        }
+        return active.compareAndSet(false, true);
+    }
+
+    public boolean deactivate() {
+        return active.compareAndSet(true, false);
+    }
+
+    // 0 keeps its original meaning, as in stored links created before the sentinel: the first click deactivates the link
+    public boolean isClickLimited() {
+        return maxClicks != UNLIMITED_CLICKS;
     }
 
     public boolean isExpired() {
         return Instant.now()
-            .isAfter(createdAt.plusSeconds(ttlSeconds));
+            .isAfter(getExpiresAt());
+    }
+
+    public Instant getExpiresAt() {
+        return createdAt.plusSeconds(ttlSeconds);
+    }
+
+    public String routeFor(ClientProfile client) {
+        return routing.route(client, targetUrl);
+    }
+
+    // how long a cached redirect stays correct: until expiry or the end of the activation window, whichever comes first
+    public Duration cacheableFor(Instant now) {
+        if (redirectPolicy != RedirectPolicy.PERMANENT || isClickLimited() || !routing.isEmpty()) {
+            return Duration.ZERO;
+        }
+        final var until = activeUntil != null && activeUntil.isBefore(getExpiresAt())
+            ? activeUntil
+            : getExpiresAt();
+        return until.isAfter(now)
+            ? Duration.between(now, until)
+            : Duration.ZERO;
     }
 }
@@ -0,0 +1,8 @@
+package com.mephi.skillfactory.urlshortener.domain;
+
+public enum RedirectPolicy {
+    // 302 with Cache-Control: no-store, every visit reaches the service and is counted
+    TEMPORARY,
+    // 301 cacheable by browsers and shared caches until the link expires, only for links without a click limit
+    PERMANENT
+}
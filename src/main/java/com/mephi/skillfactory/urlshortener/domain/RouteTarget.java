@@ -0,0 +1,6 @@
+package com.mephi.skillfactory.urlshortener.domain;
+
+// weight is relative to the other targets of the same rule, null means 1
+public record RouteTarget(String url,
+                          Integer weight) {
+}
@@ -0,0 +1,10 @@
+package com.mephi.skillfactory.urlshortener.domain;
+
+import java.util.List;
+
+// an empty or missing condition matches every client; targets are split by weight (A/B)
+public record RoutingRule(List<DeviceType> devices,
+                          List<String> languages,
+                          List<String> countries,
+                          List<RouteTarget> targets) {
+}
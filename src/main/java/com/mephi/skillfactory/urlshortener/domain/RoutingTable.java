@@ -0,0 +1,247 @@
+package com.mephi.skillfactory.urlshortener.domain;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Routing rules of one link compiled once, when the link is created or loaded, into flat arrays.
+ * <p>
+ * Languages and countries named by the rules are numbered per link, so every rule becomes three bit masks (devices,
+ * languages, countries; an unrestricted condition matches everything) and a slice of cumulative target weights. Routing a
+ * visit builds the client's masks once and scans the rules in order: the first rule whose masks all intersect the client's
+ * wins, and the client's visitor hash picks one of its targets in proportion to the weights, so a returning visitor keeps
+ * landing in the same A/B bucket. When no rule matches the link's own target is used.
+ */
+public final class RoutingTable {
+    public static final int MAX_RULES = 32;
+    public static final int MAX_TARGETS_PER_RULE = 16;
+    public static final int MAX_WEIGHT = 1_000_000;
+    public static final RoutingTable EMPTY = new RoutingTable(List.of(), new String[0], new String[0], new int[0], new long[0],
+        new long[0], new int[] {0}, new String[0], new int[0]);
+    private static final int ALL_DEVICES = (1 << DeviceType.values().length) - 1;
+    private static final long ANY = 0;
+
+    private final List<RoutingRule> rules;
+    private final String[] languages;
+    private final String[] countries;
+    private final int[] deviceMasks;
+    private final long[] languageMasks;
+    private final long[] countryMasks;
+    // targets of rule i are [targetOffsets[i], targetOffsets[i + 1])
+    private final int[] targetOffsets;
+    private final String[] targetUrls;
+    private final int[] cumulativeWeights;
+
+    private RoutingTable(List<RoutingRule> rules, String[] languages, String[] countries, int[] deviceMasks, long[] languageMasks,
+                         long[] countryMasks, int[] targetOffsets, String[] targetUrls, int[] cumulativeWeights) {
+        this.rules = rules;
+        this.languages = languages;
+        this.countries = countries;
+        this.deviceMasks = deviceMasks;
+        this.languageMasks = languageMasks;
+        this.countryMasks = countryMasks;
+        this.targetOffsets = targetOffsets;
+        this.targetUrls = targetUrls;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    public static RoutingTable compile(List<RoutingRule> rules) {
+        if (rules == null || rules.isEmpty()) {
+            return EMPTY;
+        }
+        if (rules.size() > MAX_RULES) {
+            throw new IllegalArgumentException("At most %d routing rules per link".formatted(MAX_RULES));
+        }
+
+        final var normalized = new ArrayList<RoutingRule>(rules.size());
+        final var languageIndex = new LinkedHashMap<String, Integer>();
+        final var countryIndex = new LinkedHashMap<String, Integer>();
+        final var deviceMasks = new int[rules.size()];
+        final var languageMasks = new long[rules.size()];
+        final var countryMasks = new long[rules.size()];
+        final var targetOffsets = new int[rules.size() + 1];
+        final var targetUrls = new ArrayList<String>();
+        final var cumulativeWeights = new ArrayList<Integer>();
+        for (var i = 0; i < rules.size(); i++) {
+            final var rule = rules.get(i);
+            if (rule == null) {
+                throw new IllegalArgumentException("Routing rule %d is empty".formatted(i + 1));
+            }
+            final var devices = rule.devices() == null
+                ? List.<DeviceType>of()
+                : List.copyOf(rule.devices());
+            deviceMasks[i] = devices.isEmpty()
+                ? ALL_DEVICES
+                : deviceMask(devices);
+            final var ruleLanguages = normalize(rule.languages(), false);
+            languageMasks[i] = index(ruleLanguages, languageIndex, "languages");
+            final var ruleCountries = normalize(rule.countries(), true);
+            countryMasks[i] = index(ruleCountries, countryIndex, "countries");
+
+            final var targets = rule.targets();
+            if (targets == null || targets.isEmpty() || targets.size() > MAX_TARGETS_PER_RULE) {
+                throw new IllegalArgumentException("Routing rule %d must have 1 to %d targets".formatted(i + 1, MAX_TARGETS_PER_RULE));
+            }
+            final var ruleTargets = new ArrayList<RouteTarget>(targets.size());
+            var total = 0;
+            for (final var target : targets) {
+                final var compiled = compileTarget(target, i + 1);
+                total += compiled.weight();
+                targetUrls.add(compiled.url());
+                cumulativeWeights.add(total);
+                ruleTargets.add(compiled);
+            }
+            targetOffsets[i + 1] = targetUrls.size();
+            normalized.add(new RoutingRule(devices, ruleLanguages, ruleCountries, List.copyOf(ruleTargets)));
+        }
+
+        return new RoutingTable(List.copyOf(normalized), languageIndex.keySet().toArray(String[]::new),
+            countryIndex.keySet().toArray(String[]::new), deviceMasks, languageMasks, countryMasks, targetOffsets,
+            targetUrls.toArray(String[]::new), cumulativeWeights.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public boolean isEmpty() {
+        return deviceMasks.length == 0;
+    }
+
+    // the rules as normalized by compile: lowercase languages, uppercase countries, explicit weights
+    public List<RoutingRule> rules() {
+        return rules;
+    }
+
+    public String route(ClientProfile client, String fallback) {
+        if (deviceMasks.length == 0) {
+            return fallback;
+        }
+        final var device = 1 << client.device().ordinal();
+        final var clientLanguages = languageMask(client.languages());
+        final var clientCountry = countryMask(client.country());
+        for (var rule = 0; rule < deviceMasks.length; rule++) {
+            if ((deviceMasks[rule] & device) != 0 && matches(languageMasks[rule], clientLanguages)
+                && matches(countryMasks[rule], clientCountry)) {
+                return pick(rule, client.visitorHash());
+            }
+        }
+        return fallback;
+    }
+
+    private String pick(int rule, int visitorHash) {
+        final var from = targetOffsets[rule];
+        final var to = targetOffsets[rule + 1];
+        if (to - from == 1) {
+            return targetUrls[from];
+        }
+        final var point = Math.floorMod(visitorHash, cumulativeWeights[to - 1]);
+        for (var i = from; i < to - 1; i++) {
+            if (point < cumulativeWeights[i]) {
+                return targetUrls[i];
+            }
+        }
+        return targetUrls[to - 1];
+    }
+
+    private long languageMask(List<String> clientLanguages) {
+        var mask = 0L;
+        if (languages.length == 0) {
+            return mask;
+        }
+        for (final var language : clientLanguages) {
+            for (var bit = 0; bit < languages.length; bit++) {
+                if (languages[bit].equals(language)) {
+                    mask |= 1L << bit;
+                }
+            }
+        }
+        return mask;
+    }
+
+    private long countryMask(String country) {
+        if (country == null) {
+            return 0;
+        }
+        for (var bit = 0; bit < countries.length; bit++) {
+            if (countries[bit].equals(country)) {
+                return 1L << bit;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean matches(long ruleMask, long clientMask) {
+        return ruleMask == ANY || (ruleMask & clientMask) != 0;
+    }
+
+    private static int deviceMask(List<DeviceType> devices) {
+        var mask = 0;
+        for (final var device : devices) {
+            if (device == null) {
+                throw new IllegalArgumentException("Unknown device type in routing rule");
+            }
+            mask |= 1 << device.ordinal();
+        }
+        return mask;
+    }
+
+    private static List<String> normalize(List<String> values, boolean upperCase) {
+        if (values == null || values.isEmpty()) {
+            return List.of();
+        }
+        final var out = new ArrayList<String>(values.size());
+        for (final var value : values) {
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("Routing rule conditions must not be blank");
+            }
+            final var trimmed = value.trim();
+            final var normalized = upperCase
+                ? trimmed.toUpperCase(Locale.ROOT)
+                : trimmed.toLowerCase(Locale.ROOT);
+            if (!out.contains(normalized)) {
+                out.add(normalized);
+            }
+        }
+        return List.copyOf(out);
+    }
+
+    private static long index(List<String> values, Map<String, Integer> dictionary, String name) {
+        var mask = ANY;
+        for (final var value : values) {
+            final var bit = dictionary.computeIfAbsent(value, key -> dictionary.size());
+            if (bit >= Long.SIZE) {
+                throw new IllegalArgumentException("Routing rules of one link may name at most %d %s".formatted(Long.SIZE, name));
+            }
+            mask |= 1L << bit;
+        }
+        return mask;
+    }
+
+    private static RouteTarget compileTarget(RouteTarget target, int rule) {
+        if (target == null || target.url() == null || target.url().isBlank()) {
+            throw new IllegalArgumentException("Routing rule %d has a target without url".formatted(rule));
+        }
+        final var url = target.url().trim();
+        if (!isHttpUrl(url)) {
+            throw new IllegalArgumentException("Routing target must be an absolute http or https URL: " + url);
+        }
+        final var weight = target.weight() == null
+            ? 1
+            : target.weight();
+        if (weight < 1 || weight > MAX_WEIGHT) {
+            throw new IllegalArgumentException("Routing target weight must be between 1 and %d".formatted(MAX_WEIGHT));
+        }
+        return new RouteTarget(url, weight);
+    }
+
+    // javascript:, data: and other schemes would turn a redirect into script execution or content injection
+    private static boolean isHttpUrl(String url) {
+        try {
+            final var uri = URI.create(url);
+            return ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme())) && uri.getHost() != null;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
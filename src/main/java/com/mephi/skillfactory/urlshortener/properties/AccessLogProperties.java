@@ -0,0 +1,23 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "access-log")
+public record AccessLogProperties(boolean enabled,
+                                  String directory,
+                                  int queueCapacity,
+                                  int batchSize,
+                                  long maxFileBytes,
+                                  int maxFiles,
+                                  OverflowPolicy redirectOverflow,
+                                  OverflowPolicy auditOverflow,
+                                  Duration blockTimeout,
+                                  boolean fsync) {
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+}
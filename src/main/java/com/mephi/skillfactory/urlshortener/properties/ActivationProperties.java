@@ -0,0 +1,9 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "activation")
+public record ActivationProperties(long tickMillis,
+                                   int wheelSize,
+                                   long maxScheduled) {
+}
@@ -0,0 +1,20 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@ConfigurationProperties(prefix = "admin")
+public record AdminProperties(String token) {
+
+    public boolean isEnabled() {
+        return token != null && !token.isBlank();
+    }
+
+    // constant-time, so response timing does not reveal how much of a guess was right
+    public boolean matches(String candidate) {
+        return isEnabled() && candidate != null
+            && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), candidate.getBytes(StandardCharsets.UTF_8));
+    }
+}
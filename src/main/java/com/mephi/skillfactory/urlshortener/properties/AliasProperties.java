@@ -0,0 +1,11 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "alias")
+public record AliasProperties(int minLength,
+                              int maxLength,
+                              List<String> reservedWords) {
+}
@@ -3,5 +3,6 @@ package com.mephi.skillfactory.urlshortener.properties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "app")
-public record AppProperties(long cleanupIntervalSeconds) {
+public record AppProperties(long cleanupIntervalSeconds,
+                            int eventLogCapacity) {
 }
@@ -0,0 +1,8 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "background")
+public record BackgroundProperties(int queueCapacity,
+                                   long drainTimeoutMillis) {
+}
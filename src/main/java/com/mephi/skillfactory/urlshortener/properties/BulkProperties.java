@@ -0,0 +1,12 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "bulk")
+public record BulkProperties(int parallelism,
+                             int batchSize,
+                             int maxActiveJobs,
+                             Duration retention) {
+}
@@ -0,0 +1,13 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "keyspace")
+public record KeyspaceProperties(boolean adaptive,
+                                 int minCodeLength,
+                                 int maxCodeLength,
+                                 double maxCollisionRate,
+                                 Duration window) {
+}
@@ -2,10 +2,14 @@ package com.mephi.skillfactory.urlshortener.properties;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "link")
 public record LinkProperties(String baseUrl,
                              long defaultTtlSeconds,
                              int defaultMaxClicks,
                              int codeLength,
-                             int maxShortGenAttempts) {
+                             int maxShortGenAttempts,
+                             boolean coalesceShortens,
+                             Duration coalesceWait) {
 }
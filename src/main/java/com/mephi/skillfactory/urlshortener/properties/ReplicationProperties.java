@@ -0,0 +1,19 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "replication")
+public record ReplicationProperties(Role role,
+                                    String host,
+                                    int port,
+                                    String sharedSecret,
+                                    int batchSize,
+                                    long heartbeatIntervalMillis,
+                                    long maxStalenessMillis) {
+
+    public enum Role {
+        NONE,
+        PRIMARY,
+        FOLLOWER
+    }
+}
@@ -0,0 +1,9 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "routing")
+public record RoutingProperties(int userAgentCacheSize,
+                                int acceptLanguageCacheSize,
+                                String countryHeader) {
+}
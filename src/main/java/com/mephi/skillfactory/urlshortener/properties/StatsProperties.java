@@ -0,0 +1,11 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "stats")
+public record StatsProperties(int heavyHitters,
+                              Duration window,
+                              int eventBatchSize) {
+}
@@ -0,0 +1,22 @@
+package com.mephi.skillfactory.urlshortener.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "storage")
+public record StorageProperties(Type type,
+                                String directory,
+                                long idleSeconds,
+                                long evictionIntervalSeconds,
+                                int sparseIndexInterval,
+                                int maxColdSegments,
+                                long maxSegmentBytes,
+                                int memtableMaxEntries,
+                                int cacheMaxEntries,
+                                boolean walFsync) {
+
+    public enum Type {
+        MEMORY,
+        TIERED,
+        LSM
+    }
+}
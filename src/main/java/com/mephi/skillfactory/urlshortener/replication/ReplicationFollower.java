@@ -0,0 +1,306 @@
+package com.mephi.skillfactory.urlshortener.replication;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.ReplicationProperties;
+import com.mephi.skillfactory.urlshortener.repository.LinkRepository;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventType;
+import com.mephi.skillfactory.urlshortener.service.exception.SnapshotFormatException;
+import com.mephi.skillfactory.urlshortener.service.quota.UsageTracker;
+import com.mephi.skillfactory.urlshortener.service.snapshot.LinkSnapshotCodec;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.BATCH;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.CLICKS;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.HEARTBEAT;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.OP_ACTIVATE;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.OP_CLICKS;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.OP_CREATE;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.OP_DEACTIVATE;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.OP_DELETE;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.SNAPSHOT_CHUNK;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "replication.role", havingValue = "follower")
+public class ReplicationFollower implements SmartLifecycle, ReplicationNode {
+    private static final long RECONNECT_DELAY_MILLIS = 1_000;
+    private static final long CLICK_FORWARD_INTERVAL_MILLIS = 100;
+
+    private final ReplicationProperties replicationProperties;
+    private final LinkRepository linkRepository;
+    private final ReplicationState replicationState;
+    private final UsageTracker usageTracker;
+    // applied changes are published locally so that consumers such as the statistics see replicated links
+    private final LinkEventLog linkEventLog;
+    private final byte[] secretKey;
+    // clicks served here and not yet sent to the primary, per code
+    private final ConcurrentHashMap<String, Integer> pendingClicks = new ConcurrentHashMap<>();
+    private final AtomicLong clicksForwarded = new AtomicLong();
+    private final long startedAtNanos = System.nanoTime();
+    private final AtomicLong recordsApplied = new AtomicLong();
+    private final AtomicLong batchesApplied = new AtomicLong();
+    private final AtomicLong snapshotsLoaded = new AtomicLong();
+    private volatile long appliedSequence;
+    private volatile long primaryHeadSequence;
+    private volatile long lastBatchDelayMillis;
+    private volatile boolean connected;
+    private volatile boolean running;
+    private volatile SocketChannel channel;
+    // set once the primary is authenticated, only the click forwarder writes to it
+    private volatile SocketChannel authenticatedChannel;
+
+    public ReplicationFollower(ReplicationProperties replicationProperties, LinkRepository linkRepository,
+                               ReplicationState replicationState, UsageTracker usageTracker, LinkEventLog linkEventLog) {
+        this.replicationProperties = replicationProperties;
+        this.linkRepository = linkRepository;
+        this.replicationState = replicationState;
+        this.usageTracker = usageTracker;
+        this.linkEventLog = linkEventLog;
+        this.secretKey = ReplicationProtocol.secretKey(replicationProperties);
+        replicationState.register(this);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        final var thread = new Thread(this::connectLoop, "replication-follower");
+        thread.setDaemon(true);
+        thread.start();
+        final var forwarder = new Thread(this::forwardLoop, "replication-click-forwarder");
+        forwarder.setDaemon(true);
+        forwarder.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        final var current = channel;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.debug("Failed to close replication channel: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void forwardClick(String code) {
+        pendingClicks.merge(code, 1, Integer::sum);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        final var seconds = Math.max(1e-3, (System.nanoTime() - startedAtNanos) / 1e9);
+        final var stats = new LinkedHashMap<String, Object>();
+        stats.put("role", ReplicationProperties.Role.FOLLOWER);
+        stats.put("connected", connected);
+        stats.put("appliedSequence", appliedSequence);
+        stats.put("primaryHeadSequence", primaryHeadSequence);
+        stats.put("lagEvents", Math.max(0, primaryHeadSequence - appliedSequence));
+        stats.put("lastBatchDelayMillis", lastBatchDelayMillis);
+        stats.put("stalenessMillis", replicationState.stalenessMillis());
+        stats.put("batchesApplied", batchesApplied.get());
+        stats.put("recordsApplied", recordsApplied.get());
+        stats.put("recordsPerSecond", recordsApplied.get() / seconds);
+        stats.put("snapshotsLoaded", snapshotsLoaded.get());
+        stats.put("clicksForwarded", clicksForwarded.get());
+        return stats;
+    }
+
+    private void connectLoop() {
+        while (running) {
+            try (var socketChannel = SocketChannel.open(new InetSocketAddress(replicationProperties.host(), replicationProperties.port()))) {
+                channel = socketChannel;
+                ReplicationProtocol.authenticatePrimary(socketChannel, secretKey);
+                authenticatedChannel = socketChannel;
+                connected = true;
+                log.info("Connected to replication primary {}:{}", replicationProperties.host(), replicationProperties.port());
+                readLoop(socketChannel);
+            } catch (IOException | SnapshotFormatException e) {
+                if (running) {
+                    log.warn("Replication connection failed: {}", e.getMessage());
+                }
+            } finally {
+                authenticatedChannel = null;
+                connected = false;
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void readLoop(SocketChannel socketChannel) throws IOException {
+        while (running) {
+            final var frame = ReplicationProtocol.readFrame(socketChannel);
+            switch (frame.type()) {
+                case SNAPSHOT_CHUNK -> loadSnapshot(socketChannel, frame.payload());
+                case BATCH -> applyBatch(new DataInputStream(new ByteArrayInputStream(frame.payload())));
+                case HEARTBEAT -> {
+                    final var in = new DataInputStream(new ByteArrayInputStream(frame.payload()));
+                    appliedSequence = in.readLong();
+                    primaryHeadSequence = in.readLong();
+                    replicationState.markPrimaryContact();
+                }
+                default -> throw new IOException("Unknown replication frame type: " + frame.type());
+            }
+        }
+    }
+
+    // links are saved as they are decoded, only their codes are held on the side; reads see a mix of old and new state until
+    // the snapshot is complete, then codes it did not contain, deleted on the primary meanwhile, are removed
+    private void loadSnapshot(SocketChannel socketChannel, byte[] firstChunk) throws IOException {
+        final var codes = new HashSet<String>();
+        final var chunks = new ReplicationProtocol.ChunkedInputStream(socketChannel, firstChunk);
+        LinkSnapshotCodec.read(chunks, link -> {
+            final var previous = linkRepository.findLinkByCode(link.getCode());
+            linkRepository.saveLink(link);
+            if (previous.isEmpty() || !previous.get().getUserId().equals(link.getUserId())) {
+                previous.ifPresent(replaced -> usageTracker.releaseLink(replaced.getUserId()));
+                usageTracker.linkAdded(link.getUserId());
+            }
+            if (previous.isEmpty() || !previous.get().getExpiresAt().equals(link.getExpiresAt())) {
+                previous.ifPresent(replaced -> linkEventLog.publish(LinkEventType.DELETED, replaced));
+                linkEventLog.publish(LinkEventType.CREATED, link);
+            }
+            codes.add(link.getCode());
+        });
+        final var in = new DataInputStream(new ByteArrayInputStream(chunks.end().payload()));
+        final var nextSequence = in.readLong();
+
+        final var removed = new ArrayList<Link>();
+        linkRepository.forEachLink(link -> {
+            if (!codes.contains(link.getCode())) {
+                removed.add(link);
+            }
+        });
+        removed.forEach(this::removeLink);
+
+        appliedSequence = nextSequence;
+        snapshotsLoaded.incrementAndGet();
+        replicationState.markPrimaryContact();
+        log.info("Loaded replication snapshot of {} links", codes.size());
+    }
+
+    private void forwardLoop() {
+        while (running) {
+            try {
+                Thread.sleep(CLICK_FORWARD_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            final var current = authenticatedChannel;
+            if (current != null && !pendingClicks.isEmpty()) {
+                forwardClicks(current);
+            }
+        }
+    }
+
+    // clicks that could not be sent go back to the pending map and are retried on the next connection
+    private void forwardClicks(SocketChannel socketChannel) {
+        final var batch = new LinkedHashMap<String, Integer>();
+        for (final var code : pendingClicks.keySet()) {
+            final var clicks = pendingClicks.remove(code);
+            if (clicks != null) {
+                batch.put(code, clicks);
+            }
+        }
+        try {
+            final var payload = new ByteArrayOutputStream(batch.size() * 16);
+            final var data = new DataOutputStream(payload);
+            LinkSnapshotCodec.writeVarLong(data, batch.size());
+            for (final var entry : batch.entrySet()) {
+                LinkSnapshotCodec.writeString(data, entry.getKey());
+                LinkSnapshotCodec.writeVarLong(data, entry.getValue());
+            }
+            ReplicationProtocol.writeFrame(socketChannel, CLICKS, payload.toByteArray(), payload.size());
+            batch.values().forEach(clicks -> clicksForwarded.addAndGet(clicks));
+        } catch (IOException e) {
+            batch.forEach((code, clicks) -> pendingClicks.merge(code, clicks, Integer::sum));
+            log.debug("Failed to forward clicks to the primary: {}", e.getMessage());
+        }
+    }
+
+    private void applyBatch(DataInputStream in) throws IOException {
+        final var nextSequence = in.readLong();
+        final var headSequence = in.readLong();
+        final var sentAtMillis = in.readLong();
+        final var count = LinkSnapshotCodec.readVarLong(in);
+
+        for (var i = 0; i < count; i++) {
+            final var op = in.readByte();
+            switch (op) {
+                case OP_CREATE -> {
+                    final var link = LinkSnapshotCodec.readLink(in);
+                    if (linkRepository.saveLinkIfAbsent(link)) {
+                        usageTracker.linkAdded(link.getUserId());
+                        linkEventLog.publish(LinkEventType.CREATED, link);
+                    }
+                }
+                case OP_DELETE -> linkRepository.findLinkByCode(LinkSnapshotCodec.readString(in)).ifPresent(this::removeLink);
+                case OP_ACTIVATE -> linkRepository.updateLink(LinkSnapshotCodec.readString(in), link -> link.activate()
+                    ? link
+                    : null)
+                    .ifPresent(link -> linkEventLog.publish(LinkEventType.ACTIVATED, link));
+                case OP_DEACTIVATE -> linkRepository.updateLink(LinkSnapshotCodec.readString(in), link -> link.deactivate()
+                    ? link
+                    : null)
+                    .ifPresent(link -> linkEventLog.publish(LinkEventType.DEACTIVATED, link));
+                case OP_CLICKS -> {
+                    final var code = LinkSnapshotCodec.readString(in);
+                    final var clicks = (int) LinkSnapshotCodec.readVarLong(in);
+                    linkRepository.updateLink(code, link -> link.getClickCount().accumulateAndGet(clicks, Math::max));
+                }
+                default -> throw new IOException("Unknown replication record: " + op);
+            }
+        }
+
+        appliedSequence = nextSequence;
+        primaryHeadSequence = headSequence;
+        lastBatchDelayMillis = System.currentTimeMillis() - sentAtMillis;
+        batchesApplied.incrementAndGet();
+        recordsApplied.addAndGet(count);
+        replicationState.markPrimaryContact();
+    }
+
+    // only whoever actually removed the link releases it, the local cleaner may have expired it first
+    private void removeLink(Link link) {
+        if (linkRepository.deleteLinkByCode(link.getCode())) {
+            usageTracker.releaseLink(link.getUserId());
+            linkEventLog.publish(LinkEventType.DELETED, link);
+        }
+    }
+}
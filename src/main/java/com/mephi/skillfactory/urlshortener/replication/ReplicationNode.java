@@ -0,0 +1,12 @@
+package com.mephi.skillfactory.urlshortener.replication;
+
+import java.util.Map;
+
+interface ReplicationNode {
+
+    Map<String, Object> stats();
+
+    // only followers serve clicks that belong to another node
+    default void forwardClick(String code) {
+    }
+}
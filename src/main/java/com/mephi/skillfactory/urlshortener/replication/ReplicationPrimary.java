@@ -0,0 +1,377 @@
+package com.mephi.skillfactory.urlshortener.replication;
+
+import com.mephi.skillfactory.urlshortener.properties.ReplicationProperties;
+import com.mephi.skillfactory.urlshortener.repository.LinkRepository;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEvent;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventType;
+import com.mephi.skillfactory.urlshortener.service.exception.QuotaExceededException;
+import com.mephi.skillfactory.urlshortener.service.quota.UsageTracker;
+import com.mephi.skillfactory.urlshortener.service.snapshot.LinkSnapshotCodec;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.BATCH;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.CLICKS;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.HEARTBEAT;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.OP_ACTIVATE;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.OP_CLICKS;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.OP_CREATE;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.OP_DEACTIVATE;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.OP_DELETE;
+import static com.mephi.skillfactory.urlshortener.replication.ReplicationProtocol.SNAPSHOT_END;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "replication.role", havingValue = "primary")
+public class ReplicationPrimary implements SmartLifecycle, ReplicationNode {
+    // a connection that has not proven the secret by then is dropped, so a silent peer cannot hold a thread
+    static final int HANDSHAKE_TIMEOUT_MILLIS = 5_000;
+    // connections past this many unauthenticated ones are closed at once instead of getting a thread
+    static final int MAX_PENDING_HANDSHAKES = 16;
+    private final ReplicationProperties replicationProperties;
+    private final LinkRepository linkRepository;
+    private final LinkEventLog linkEventLog;
+    private final UsageTracker usageTracker;
+    private final byte[] secretKey;
+    private final AtomicInteger sessionIds = new AtomicInteger();
+    private final Map<String, FollowerSession> sessions = new ConcurrentHashMap<>();
+    private final Set<FollowerSession> handshakes = ConcurrentHashMap.newKeySet();
+    private final AtomicLong rejectedConnections = new AtomicLong();
+    private volatile ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    public ReplicationPrimary(ReplicationProperties replicationProperties, LinkRepository linkRepository,
+                              LinkEventLog linkEventLog, ReplicationState replicationState, UsageTracker usageTracker) {
+        this.replicationProperties = replicationProperties;
+        this.linkRepository = linkRepository;
+        this.linkEventLog = linkEventLog;
+        this.usageTracker = usageTracker;
+        this.secretKey = ReplicationProtocol.secretKey(replicationProperties);
+        replicationState.register(this);
+    }
+
+    @Override
+    public void start() {
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(replicationProperties.host(), replicationProperties.port()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open replication port " + replicationProperties.port(), e);
+        }
+        running = true;
+        final var acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Replication primary listening on {}", localPort());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        final var current = serverChannel;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (IOException e) {
+            log.debug("Failed to close replication server channel: {}", e.getMessage());
+        }
+        // a closed channel ends both the sending and the click reading thread of a session
+        handshakes.forEach(FollowerSession::close);
+        sessions.values().forEach(FollowerSession::shutdown);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int localPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        final var followers = new ArrayList<Map<String, Object>>();
+        for (final var session : sessions.values()) {
+            followers.add(session.stats());
+        }
+        return Map.of("role", ReplicationProperties.Role.PRIMARY, "headSequence", linkEventLog.nextSequence(), "followers", followers,
+            "pendingHandshakes", handshakes.size(), "rejectedConnections", rejectedConnections.get());
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                final var channel = serverChannel.accept();
+                if (handshakes.size() >= MAX_PENDING_HANDSHAKES) {
+                    rejectedConnections.incrementAndGet();
+                    log.warn("Rejected replication connection from {}: {} handshakes pending", channel.getRemoteAddress(),
+                        MAX_PENDING_HANDSHAKES);
+                    channel.close();
+                    continue;
+                }
+                final var session = new FollowerSession("replication-" + sessionIds.incrementAndGet(), channel);
+                handshakes.add(session);
+                final var thread = new Thread(session::run, session.name);
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.error("Replication accept failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private final class FollowerSession {
+        private final String name;
+        private final SocketChannel channel;
+        private final String remoteAddress;
+        private final long connectedAtNanos = System.nanoTime();
+        private final AtomicLong batchesSent = new AtomicLong();
+        private final AtomicLong recordsSent = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong snapshotsSent = new AtomicLong();
+        private final AtomicLong clicksReceived = new AtomicLong();
+        private final AtomicLong clicksOverQuota = new AtomicLong();
+        private volatile LinkEventLog.Subscription subscription;
+        private long lastFrameSentAtMillis;
+
+        private FollowerSession(String name, SocketChannel channel) throws IOException {
+            this.name = name;
+            this.channel = channel;
+            this.remoteAddress = String.valueOf(channel.getRemoteAddress());
+        }
+
+        void run() {
+            try (channel) {
+                final boolean authenticated;
+                try {
+                    authenticated = ReplicationProtocol.authenticateFollower(channel, secretKey, HANDSHAKE_TIMEOUT_MILLIS);
+                } finally {
+                    handshakes.remove(this);
+                }
+                if (!authenticated) {
+                    log.warn("Rejected replication connection from {}: authentication failed", remoteAddress);
+                    return;
+                }
+                sessions.put(name, this);
+                log.info("Follower {} connected as {}", remoteAddress, name);
+                final var clickReader = new Thread(this::readClicks, name + "-clicks");
+                clickReader.setDaemon(true);
+                clickReader.start();
+                sendSnapshot();
+                while (running) {
+                    final var batch = subscription.poll(replicationProperties.batchSize());
+                    if (subscription.dropped() > 0) {
+                        log.warn("Follower {} fell more than {} events behind, resending snapshot", name, linkEventLog.capacity());
+                        subscription.close();
+                        sendSnapshot();
+                        continue;
+                    }
+                    final var idleMillis = replicationProperties.heartbeatIntervalMillis() - (System.currentTimeMillis() - lastFrameSentAtMillis);
+                    if (!batch.isEmpty()) {
+                        sendBatch(batch);
+                    } else if (idleMillis <= 0) {
+                        sendHeartbeat();
+                    } else {
+                        subscription.awaitEvents(idleMillis * 1_000_000);
+                    }
+                }
+            } catch (IOException e) {
+                log.info("Follower {} disconnected: {}", name, e.getMessage());
+            } finally {
+                if (subscription != null) {
+                    subscription.close();
+                }
+                sessions.remove(name);
+            }
+        }
+
+        // subscribe first: events racing with the export are replayed on top of the snapshot, the follower applies them idempotently
+        private void sendSnapshot() throws IOException {
+            subscription = linkEventLog.subscribe(name);
+            final var out = new ReplicationProtocol.ChunkedOutputStream(channel);
+            final var count = LinkSnapshotCodec.write(linkRepository, Instant.now(), out);
+            out.flush();
+
+            final var payload = new ByteArrayOutputStream(16);
+            final var data = new DataOutputStream(payload);
+            data.writeLong(subscription.cursor());
+            data.writeLong(count);
+            send(SNAPSHOT_END, payload);
+            snapshotsSent.incrementAndGet();
+            bytesSent.addAndGet(out.bytesWritten());
+            log.info("Sent snapshot of {} links ({} bytes) to {}", count, out.bytesWritten(), name);
+        }
+
+        private void sendBatch(List<LinkEvent> events) throws IOException {
+            final var payload = new ByteArrayOutputStream(events.size() * 64);
+            final var data = new DataOutputStream(payload);
+            final var last = events.getLast();
+            data.writeLong(last.sequence() + 1);
+            data.writeLong(linkEventLog.nextSequence());
+            data.writeLong(System.currentTimeMillis());
+
+            // clicks are coalesced per code and shipped as the latest counter value, which keeps re-applying idempotent
+            final var clicks = new LinkedHashMap<String, Integer>();
+            final var records = new ByteArrayOutputStream(events.size() * 64);
+            final var recordData = new DataOutputStream(records);
+            var count = 0;
+            for (final var event : events) {
+                switch (event.type()) {
+                    case CREATED -> {
+                        recordData.writeByte(OP_CREATE);
+                        LinkSnapshotCodec.writeLink(recordData, event.link());
+                        count++;
+                    }
+                    case DELETED, EXPIRED -> {
+                        clicks.remove(event.code());
+                        recordData.writeByte(OP_DELETE);
+                        LinkSnapshotCodec.writeString(recordData, event.code());
+                        count++;
+                    }
+                    case ACTIVATED -> {
+                        recordData.writeByte(OP_ACTIVATE);
+                        LinkSnapshotCodec.writeString(recordData, event.code());
+                        count++;
+                    }
+                    case DEACTIVATED -> {
+                        recordData.writeByte(OP_DEACTIVATE);
+                        LinkSnapshotCodec.writeString(recordData, event.code());
+                        count++;
+                    }
+                    case CLICKED -> clicks.put(event.code(), event.clickCount());
+                }
+            }
+            for (final var entry : clicks.entrySet()) {
+                recordData.writeByte(OP_CLICKS);
+                LinkSnapshotCodec.writeString(recordData, entry.getKey());
+                LinkSnapshotCodec.writeVarLong(recordData, entry.getValue());
+                count++;
+            }
+
+            LinkSnapshotCodec.writeVarLong(data, count);
+            records.writeTo(data);
+            send(BATCH, payload);
+            batchesSent.incrementAndGet();
+            recordsSent.addAndGet(count);
+        }
+
+        // runs next to the sending thread; the channel supports one reader and one writer at a time
+        private void readClicks() {
+            try {
+                while (running) {
+                    final var frame = ReplicationProtocol.readFrame(channel);
+                    if (frame.type() != CLICKS) {
+                        throw new IOException("Unexpected frame type from follower: " + frame.type());
+                    }
+                    applyClicks(new DataInputStream(new ByteArrayInputStream(frame.payload())));
+                }
+            } catch (IOException e) {
+                log.debug("Stopped reading clicks from {}: {}", name, e.getMessage());
+                close();
+            }
+        }
+
+        // followers only forward clicks of links without a click limit, so there is no limit to enforce here; the owner's click
+        // quota is, but the redirects are already served, so clicks over it are only counted
+        private void applyClicks(DataInputStream in) throws IOException {
+            final var count = LinkSnapshotCodec.readVarLong(in);
+            for (var i = 0; i < count; i++) {
+                final var code = LinkSnapshotCodec.readString(in);
+                final var clicks = (int) LinkSnapshotCodec.readVarLong(in);
+                if (clicks > 0) {
+                    linkRepository.updateLink(code, link -> {
+                        for (var click = 0; click < clicks; click++) {
+                            try {
+                                usageTracker.recordClick(link.getUserId());
+                            } catch (QuotaExceededException e) {
+                                clicksOverQuota.incrementAndGet();
+                            }
+                        }
+                        link.getClickCount().addAndGet(clicks);
+                        linkEventLog.publish(LinkEventType.CLICKED, link);
+                        return clicksReceived.addAndGet(clicks);
+                    });
+                }
+            }
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Failed to close replication channel: {}", e.getMessage());
+            }
+        }
+
+        // on stop only: the closed subscription wakes the sending thread, which then sees the primary is no longer running
+        private void shutdown() {
+            close();
+            final var current = subscription;
+            if (current != null) {
+                current.close();
+            }
+        }
+
+        private void sendHeartbeat() throws IOException {
+            final var payload = new ByteArrayOutputStream(24);
+            final var data = new DataOutputStream(payload);
+            data.writeLong(subscription.cursor());
+            data.writeLong(linkEventLog.nextSequence());
+            data.writeLong(System.currentTimeMillis());
+            send(HEARTBEAT, payload);
+        }
+
+        private void send(byte type, ByteArrayOutputStream payload) throws IOException {
+            ReplicationProtocol.writeFrame(channel, type, payload.toByteArray(), payload.size());
+            bytesSent.addAndGet(payload.size());
+            lastFrameSentAtMillis = System.currentTimeMillis();
+        }
+
+        Map<String, Object> stats() {
+            final var current = subscription;
+            final var seconds = Math.max(1e-3, (System.nanoTime() - connectedAtNanos) / 1e9);
+            return Map.of(
+                "name", name,
+                "remoteAddress", remoteAddress,
+                "lagEvents", current == null
+                    ? 0
+                    : current.lag(),
+                "batchesSent", batchesSent.get(),
+                "recordsSent", recordsSent.get(),
+                "recordsPerSecond", recordsSent.get() / seconds,
+                "bytesSent", bytesSent.get(),
+                "snapshotsSent", snapshotsSent.get(),
+                "clicksReceived", clicksReceived.get(),
+                "clicksOverQuota", clicksOverQuota.get()
+            );
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.mephi.skillfactory.urlshortener.replication;
+
+import com.mephi.skillfactory.urlshortener.properties.ReplicationProperties;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Length-prefixed frames over a socket channel: {@code int payloadLength, byte type, payload}.
+ * <p>
+ * A connection starts with a mutual challenge-response over the shared secret: the primary sends a nonce, the follower
+ * answers with an HMAC of it and a nonce of its own, and the primary answers that one. Either side closes the connection on a
+ * wrong proof, and nothing else is read or sent before. The channel itself is not encrypted.
+ */
+final class ReplicationProtocol {
+    static final byte SNAPSHOT_CHUNK = 1;
+    static final byte SNAPSHOT_END = 2;
+    static final byte BATCH = 3;
+    static final byte HEARTBEAT = 4;
+    static final byte AUTH_CHALLENGE = 5;
+    static final byte AUTH_PROOF = 6;
+    // follower to primary: clicks served by the follower
+    static final byte CLICKS = 7;
+
+    static final byte OP_CREATE = 1;
+    static final byte OP_DELETE = 2;
+    static final byte OP_CLICKS = 3;
+    static final byte OP_DEACTIVATE = 4;
+    static final byte OP_ACTIVATE = 5;
+
+    static final int SNAPSHOT_CHUNK_SIZE = 64 * 1024;
+    private static final int HEADER_SIZE = 5;
+    private static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+    // frames read before the peer is authenticated
+    private static final int MAX_AUTH_FRAME_SIZE = 256;
+    private static final int NONCE_SIZE = 32;
+    private static final String HMAC = "HmacSHA256";
+    private static final byte PRIMARY_PROOF = 'P';
+    private static final byte FOLLOWER_PROOF = 'F';
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeFrame(SocketChannel channel, byte type, byte[] payload, int length) throws IOException {
+        final var header = ByteBuffer.allocate(HEADER_SIZE).putInt(length).put(type).flip();
+        final var body = ByteBuffer.wrap(payload, 0, length);
+        final var buffers = new ByteBuffer[] {header, body};
+        while (header.hasRemaining() || body.hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    static Frame readFrame(SocketChannel channel) throws IOException {
+        return readFrame(channel, MAX_FRAME_SIZE);
+    }
+
+    private static Frame readFrame(SocketChannel channel, int maxLength) throws IOException {
+        final var header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header);
+        final var length = header.getInt(0);
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        final var payload = ByteBuffer.allocate(length);
+        readFully(channel, payload);
+        return new Frame(header.get(4), payload.array());
+    }
+
+    // reads exactly one frame, the stream must not buffer ahead of it
+    private static Frame readFrame(DataInputStream in, int maxLength) throws IOException {
+        final var length = in.readInt();
+        final var type = in.readByte();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        final var payload = new byte[length];
+        in.readFully(payload);
+        return new Frame(type, payload);
+    }
+
+    static byte[] secretKey(ReplicationProperties replicationProperties) {
+        final var secret = replicationProperties.sharedSecret();
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("replication.shared-secret is required when replication.role is "
+                + replicationProperties.role().name().toLowerCase());
+        }
+        return secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // primary side of the handshake, returns false if the follower does not know the secret; a follower that does not answer
+    // within the timeout fails it with SocketTimeoutException. Channel reads ignore SO_TIMEOUT, the socket's stream honours it
+    static boolean authenticateFollower(SocketChannel channel, byte[] key, int timeoutMillis) throws IOException {
+        final var challenge = nonce();
+        writeFrame(channel, AUTH_CHALLENGE, challenge, challenge.length);
+        final var socket = channel.socket();
+        final Frame answer;
+        socket.setSoTimeout(timeoutMillis);
+        try {
+            answer = readFrame(new DataInputStream(socket.getInputStream()), MAX_AUTH_FRAME_SIZE);
+        } finally {
+            socket.setSoTimeout(0);
+        }
+        if (answer.type() != AUTH_PROOF || answer.payload().length != 2 * NONCE_SIZE) {
+            return false;
+        }
+        final var payload = answer.payload();
+        if (!MessageDigest.isEqual(proof(key, FOLLOWER_PROOF, challenge), Arrays.copyOf(payload, NONCE_SIZE))) {
+            return false;
+        }
+        final var proof = proof(key, PRIMARY_PROOF, Arrays.copyOfRange(payload, NONCE_SIZE, payload.length));
+        writeFrame(channel, AUTH_PROOF, proof, proof.length);
+        return true;
+    }
+
+    // follower side of the handshake, fails if the primary does not know the secret
+    static void authenticatePrimary(SocketChannel channel, byte[] key) throws IOException {
+        final var challenge = readFrame(channel, MAX_AUTH_FRAME_SIZE);
+        if (challenge.type() != AUTH_CHALLENGE || challenge.payload().length != NONCE_SIZE) {
+            throw new IOException("Replication primary did not send an authentication challenge");
+        }
+        final var ownChallenge = nonce();
+        final var answer = new byte[2 * NONCE_SIZE];
+        System.arraycopy(proof(key, FOLLOWER_PROOF, challenge.payload()), 0, answer, 0, NONCE_SIZE);
+        System.arraycopy(ownChallenge, 0, answer, NONCE_SIZE, NONCE_SIZE);
+        writeFrame(channel, AUTH_PROOF, answer, answer.length);
+
+        final var proof = readFrame(channel, MAX_AUTH_FRAME_SIZE);
+        if (proof.type() != AUTH_PROOF || !MessageDigest.isEqual(proof(key, PRIMARY_PROOF, ownChallenge), proof.payload())) {
+            throw new IOException("Replication primary failed authentication");
+        }
+    }
+
+    private static byte[] nonce() {
+        final var nonce = new byte[NONCE_SIZE];
+        RANDOM.nextBytes(nonce);
+        return nonce;
+    }
+
+    // the role byte keeps one side's proof from being replayed as the other's
+    private static byte[] proof(byte[] key, byte role, byte[] challenge) {
+        try {
+            final var mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(key, HMAC));
+            mac.update(role);
+            return mac.doFinal(challenge);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " is not available", e);
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Replication channel closed");
+            }
+        }
+    }
+
+    record Frame(byte type, byte[] payload) {
+    }
+
+    // cuts a snapshot stream into SNAPSHOT_CHUNK frames
+    static final class ChunkedOutputStream extends OutputStream {
+        private final SocketChannel channel;
+        private final byte[] chunk = new byte[SNAPSHOT_CHUNK_SIZE];
+        private int position;
+        private long bytesWritten;
+
+        ChunkedOutputStream(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (position == chunk.length) {
+                flush();
+            }
+            chunk[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (position == chunk.length) {
+                    flush();
+                }
+                final var n = Math.min(len, chunk.length - position);
+                System.arraycopy(b, off, chunk, position, n);
+                position += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (position > 0) {
+                writeFrame(channel, SNAPSHOT_CHUNK, chunk, position);
+                bytesWritten += position;
+                position = 0;
+            }
+        }
+
+        long bytesWritten() {
+            return bytesWritten;
+        }
+    }
+
+    // reads SNAPSHOT_CHUNK frames as one stream until SNAPSHOT_END, which is kept for the caller
+    static final class ChunkedInputStream extends InputStream {
+        private final SocketChannel channel;
+        private byte[] chunk;
+        private int position;
+        private Frame end;
+
+        ChunkedInputStream(SocketChannel channel, byte[] firstChunk) {
+            this.channel = channel;
+            this.chunk = firstChunk;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return chunk[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            final var n = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private boolean fill() throws IOException {
+            while (end == null && position == chunk.length) {
+                final var frame = readFrame(channel);
+                switch (frame.type()) {
+                    case SNAPSHOT_CHUNK -> {
+                        chunk = frame.payload();
+                        position = 0;
+                    }
+                    case SNAPSHOT_END -> end = frame;
+                    default -> throw new IOException("Unexpected frame type inside a snapshot: " + frame.type());
+                }
+            }
+            return end == null;
+        }
+
+        // the SNAPSHOT_END frame, reading on until it if the snapshot was not consumed to the end
+        Frame end() throws IOException {
+            while (fill()) {
+                position = chunk.length;
+            }
+            return end;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.mephi.skillfactory.urlshortener.replication;
+
+import com.mephi.skillfactory.urlshortener.properties.ReplicationProperties;
+import com.mephi.skillfactory.urlshortener.service.exception.ReplicaException;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+public class ReplicationState {
+    private final ReplicationProperties replicationProperties;
+    private volatile long lastPrimaryContactMillis;
+    private volatile ReplicationNode node;
+
+    public ReplicationState(ReplicationProperties replicationProperties) {
+        this.replicationProperties = replicationProperties;
+    }
+
+    public boolean isFollower() {
+        return replicationProperties.role() == ReplicationProperties.Role.FOLLOWER;
+    }
+
+    public void checkWritable() {
+        if (isFollower()) {
+            throw new ReplicaException("This node is a read-only replica");
+        }
+    }
+
+    public void checkReadable() {
+        if (isFollower() && stalenessMillis() > replicationProperties.maxStalenessMillis()) {
+            throw new ReplicaException("Replica is stale for %d ms".formatted(stalenessMillis()));
+        }
+    }
+
+    // hands a click served by this follower to the primary, which owns the counter
+    public void forwardClick(String code) {
+        final var current = node;
+        if (current != null) {
+            current.forwardClick(code);
+        }
+    }
+
+    public long stalenessMillis() {
+        final var lastContact = lastPrimaryContactMillis;
+        return lastContact == 0
+            ? Long.MAX_VALUE
+            : System.currentTimeMillis() - lastContact;
+    }
+
+    public Map<String, Object> stats() {
+        final var current = node;
+        return current == null
+            ? Map.of("role", replicationProperties.role())
+            : current.stats();
+    }
+
+    void markPrimaryContact() {
+        lastPrimaryContactMillis = System.currentTimeMillis();
+    }
+
+    void register(ReplicationNode node) {
+        this.node = node;
+    }
+}
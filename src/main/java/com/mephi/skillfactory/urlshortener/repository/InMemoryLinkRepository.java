@@ -1,50 +1,89 @@
 package com.mephi.skillfactory.urlshortener.repository;
 
 import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.StorageProperties;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 @Repository
+@ConditionalOnProperty(name = "storage.type", havingValue = "memory", matchIfMissing = true)
 public class InMemoryLinkRepository implements LinkRepository {
-    private final ConcurrentHashMap<String, Link> linkByCode = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<UUID, Set<String>> codesByUserId = new ConcurrentHashMap<>();
+    // writers share the read lock, replaceAll takes the write lock only to copy the last racing writes and swap the store
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Store store = new Store(new ConcurrentHashMap<>(), new UserCodeIndex());
+    // codes written to the old store while replaceAll builds the fresh one, null when no replace is running
+    private volatile Set<String> touchedDuringReplace;
 
     @Override
     public Optional<Link> findLinkByCode(String code) {
-        return Optional.ofNullable(linkByCode.get(code));
+        return Optional.ofNullable(store.linkByCode.get(code));
     }
 
     @Override
     public void saveLink(Link link) {
-        linkByCode.put(link.getCode(), link);
-        codesByUserId.compute(link.getUserId(), (k, v) -> {
-            if (v == null) {
-                v = ConcurrentHashMap.newKeySet();
+        swapLock.readLock().lock();
+        try {
+            store.save(link);
+            touched(link.getCode());
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean saveLinkIfAbsent(Link link) {
+        swapLock.readLock().lock();
+        try {
+            final var saved = store.saveIfAbsent(link);
+            if (saved) {
+                touched(link.getCode());
             }
-            v.add(link.getCode());
-            return v;
-        });
+            return saved;
+        } finally {
+            swapLock.readLock().unlock();
+        }
     }
 
     @Override
     public List<Link> findAll() {
-        return new ArrayList<>(linkByCode.values());
+        return new ArrayList<>(store.linkByCode.values());
+    }
+
+    @Override
+    public void forEachLink(Consumer<? super Link> action) {
+        store.linkByCode.values().forEach(action);
+    }
+
+    @Override
+    public List<Link> findExpiredLinks() {
+        final var out = new ArrayList<Link>();
+        for (final var link : store.linkByCode.values()) {
+            if (link.isExpired()) {
+                out.add(link);
+            }
+        }
+        return out;
     }
 
     @Override
     public List<Link> findLinksByUserId(UUID userId) {
-        final var codes = codesByUserId.getOrDefault(userId, Collections.emptySet());
+        final var current = store;
+        final var codes = current.codesByUserId.codes(userId);
         final var out = new ArrayList<Link>();
         for (String code : codes) {
-            final var link = linkByCode.get(code);
+            final var link = current.linkByCode.get(code);
             if (link != null) {
                 out.add(link);
             }
@@ -53,12 +92,121 @@ public class InMemoryLinkRepository implements LinkRepository {
     }
 
     @Override
-    public void deleteLinkByCode(String code) {
-        final var removed = linkByCode.remove(code);
-        if (removed != null) {
-            final var codes = codesByUserId.get(removed.getUserId());
-            if (codes != null) {
-                codes.remove(code);
+    public List<String> findCodesByUserId(UUID userId) {
+        return List.copyOf(store.codesByUserId.codes(userId));
+    }
+
+    @Override
+    public boolean deleteLinkByCode(String code) {
+        swapLock.readLock().lock();
+        try {
+            final var current = store;
+            final var removed = current.linkByCode.remove(code);
+            if (removed == null) {
+                return false;
+            }
+            current.codesByUserId.remove(removed.getUserId(), code);
+            touched(code);
+            return true;
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Link> deleteLinksByCodes(UUID userId, Collection<String> codes) {
+        swapLock.readLock().lock();
+        try {
+            final var current = store;
+            final var removed = new ArrayList<Link>(codes.size());
+            final var removedCodes = new ArrayList<String>(codes.size());
+            for (final var code : codes) {
+                final var link = current.linkByCode.get(code);
+                if (link != null && link.getUserId().equals(userId) && current.linkByCode.remove(code, link)) {
+                    removed.add(link);
+                    removedCodes.add(code);
+                }
+            }
+            // one index update for the whole batch instead of one per code
+            current.codesByUserId.removeAll(userId, removedCodes);
+            removedCodes.forEach(this::touched);
+            return removed;
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    // the fresh store is built while writers keep going to the old one; the codes they touch are copied over, once without the
+    // lock and then under it, so the write lock waits only for the writes that landed during the first copy. A write that
+    // started before the replace counts as older than the snapshot and is replaced like any other link
+    @Override
+    public synchronized void replaceAll(Collection<Link> links) {
+        final var touched = ConcurrentHashMap.<String>newKeySet();
+        touchedDuringReplace = touched;
+        final var fresh = new Store(new ConcurrentHashMap<>(Math.max(16, links.size() * 4 / 3 + 1)), new UserCodeIndex());
+        links.parallelStream().forEach(fresh::save);
+        copyTouched(touched, fresh);
+        swapLock.writeLock().lock();
+        try {
+            copyTouched(touched, fresh);
+            store = fresh;
+            touchedDuringReplace = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        final var current = store;
+        return Map.of(
+            "type", StorageProperties.Type.MEMORY,
+            "links", current.linkByCode.size(),
+            "users", current.codesByUserId.userCount()
+        );
+    }
+
+    private void touched(String code) {
+        final var touched = touchedDuringReplace;
+        if (touched != null) {
+            touched.add(code);
+        }
+    }
+
+    // a code is taken off the set before its state is read, so a write after the read adds it again for the next pass
+    private void copyTouched(Set<String> touched, Store fresh) {
+        final var current = store;
+        for (final var code : touched) {
+            touched.remove(code);
+            fresh.copy(code, current.linkByCode.get(code));
+        }
+    }
+
+    private record Store(ConcurrentHashMap<String, Link> linkByCode, UserCodeIndex codesByUserId) {
+
+        void save(Link link) {
+            linkByCode.put(link.getCode(), link);
+            codesByUserId.add(link.getUserId(), link.getCode());
+        }
+
+        boolean saveIfAbsent(Link link) {
+            if (linkByCode.putIfAbsent(link.getCode(), link) != null) {
+                return false;
+            }
+            codesByUserId.add(link.getUserId(), link.getCode());
+            return true;
+        }
+
+        // makes the code hold the given link, or nothing when it is null
+        void copy(String code, Link link) {
+            final var previous = link == null
+                ? linkByCode.remove(code)
+                : linkByCode.put(code, link);
+            if (previous != null && (link == null || !previous.getUserId().equals(link.getUserId()))) {
+                codesByUserId.remove(previous.getUserId(), code);
+            }
+            if (link != null) {
+                codesByUserId.add(link.getUserId(), code);
             }
         }
     }
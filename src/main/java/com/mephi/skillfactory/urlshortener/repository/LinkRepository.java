@@ -2,19 +2,44 @@ package com.mephi.skillfactory.urlshortener.repository;
 
 import com.mephi.skillfactory.urlshortener.domain.Link;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public interface LinkRepository {
 
     Optional<Link> findLinkByCode(String code);
 
+    // clicks and activation change the stored link in place; a repository that evicts links keeps this one until the change
+    // returns, so it is never made on a copy the repository no longer tracks. A null result reads as empty.
+    default <T> Optional<T> updateLink(String code, Function<? super Link, ? extends T> change) {
+        return findLinkByCode(code).map(change);
+    }
+
     void saveLink(Link link);
 
+    boolean saveLinkIfAbsent(Link link);
+
     List<Link> findAll();
 
+    void forEachLink(Consumer<? super Link> action);
+
+    List<Link> findExpiredLinks();
+
     List<Link> findLinksByUserId(UUID userId);
 
-    void deleteLinkByCode(String code);
+    List<String> findCodesByUserId(UUID userId);
+
+    boolean deleteLinkByCode(String code);
+
+    // removes the listed links that belong to the user; returns only the links this call removed
+    List<Link> deleteLinksByCodes(UUID userId, Collection<String> codes);
+
+    void replaceAll(Collection<Link> links);
+
+    Map<String, Object> stats();
 }
@@ -0,0 +1,1065 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.StorageProperties;
+import com.mephi.skillfactory.urlshortener.service.snapshot.LinkSnapshotCodec;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Log-structured repository that survives restarts, built from the same {@link SortedLinkSegment}s as the cold tier.
+ * <p>
+ * Links live under {@code l/<code>} and the per-user index under {@code u/<userId>/<code>}, so listing a user is a prefix
+ * scan. Writes go to a {@link WriteAheadLog} and a sorted memtable; a full memtable is frozen and flushed into a new segment
+ * listed in the {@code MANIFEST}. Once there are too many segments, the newest ones of similar size are merged (size-tiered),
+ * so a record is rewritten a logarithmic number of times instead of on every compaction. Deletes are tombstones until a merge
+ * that reaches the oldest segment. Links read from segments are kept in a bounded cache, so a popular link is decoded once and
+ * its clicks are counted on a single object. Click counts and the active flag are changed in place and never logged: every
+ * flush also writes the cached links that changed since they were last persisted, so a crash loses at most one maintenance
+ * interval of clicks. An update pins the link's cache entry, which the flush carries over from the memtable, so eviction
+ * never drops a link while a change to it is in progress.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "storage.type", havingValue = "lsm")
+public class LsmLinkRepository implements LinkRepository, SmartLifecycle {
+    // same slot as the tiered repository: up before and down after the background worker
+    static final int PHASE = TieredLinkRepository.PHASE;
+    private static final String LINK_PREFIX = "l/";
+    private static final String USER_PREFIX = "u/";
+    private static final String MANIFEST = "MANIFEST";
+    private static final Pattern DATA_FILE = Pattern.compile("lsm-(\\d+)\\.(sst|wal)");
+    private static final byte[] PRESENT = {1};
+    private static final byte[] TOMBSTONE = {};
+    private static final Value DELETED = new Value(null, null);
+    private static final int LOCK_STRIPES = 64;
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    private final StorageProperties storageProperties;
+    private final Path directory;
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor();
+    // serializes flush, compaction and bulk replace, which are the only writers of the segment list
+    private final Object maintenanceLock = new Object();
+    // writers share it to log and apply a change atomically with respect to a memtable switch
+    private final ReentrantReadWriteLock memtableLock = new ReentrantReadWriteLock();
+    // per-code locks make check-then-write (claim, delete) and cache fills atomic for one code
+    private final Object[] codeLocks = new Object[LOCK_STRIPES];
+    private final ConcurrentHashMap<String, CachedLink> cache = new ConcurrentHashMap<>();
+    // logs of memtables frozen by a flush that has not reached a segment yet, guarded by maintenanceLock
+    private final List<WriteAheadLog> unflushedLogs = new ArrayList<>();
+    private final AtomicLong fileIds = new AtomicLong();
+    private final AtomicInteger memtableEntries = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile Tables tables = new Tables(new ConcurrentSkipListMap<>(), null, List.of());
+    private volatile WriteAheadLog wal;
+    private volatile long generation;
+    private volatile boolean running;
+
+    private final LongAdder memtableHits = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder segmentHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder segmentLookups = new LongAdder();
+    private final LongAdder segmentLookupNanos = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    public LsmLinkRepository(StorageProperties storageProperties) {
+        this.storageProperties = storageProperties;
+        this.directory = Path.of(storageProperties.directory());
+        for (var i = 0; i < codeLocks.length; i++) {
+            codeLocks[i] = new Object();
+        }
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open storage directory " + directory, e);
+        }
+    }
+
+    @Override
+    public Optional<Link> findLinkByCode(String code) {
+        final var key = LINK_PREFIX + code;
+        final var inMemory = inMemtables(tables, key);
+        if (inMemory != null) {
+            memtableHits.increment();
+            return Optional.ofNullable(inMemory.link());
+        }
+        final var cached = cache.get(code);
+        if (cached != null) {
+            cached.touch();
+            cacheHits.increment();
+            return Optional.of(cached.link);
+        }
+
+        synchronized (lockFor(code)) {
+            final var observedGeneration = generation;
+            final var current = tables;
+            final var raced = inMemtables(current, key);
+            if (raced != null) {
+                return Optional.ofNullable(raced.link());
+            }
+            final var filled = cache.get(code);
+            if (filled != null) {
+                return Optional.of(filled.link);
+            }
+            final var body = inSegments(current, key);
+            if (body == null || body.length == 0) {
+                misses.increment();
+                return Optional.empty();
+            }
+            segmentHits.increment();
+            final var entry = CachedLink.persisted(SortedLinkSegment.decode(body));
+            cache.put(code, entry);
+            if (generation != observedGeneration) {
+                // everything was replaced while the segment was read, the copy must not outlive the old data
+                cache.remove(code, entry);
+            }
+            return Optional.of(entry.link);
+        }
+    }
+
+    @Override
+    public <T> Optional<T> updateLink(String code, Function<? super Link, ? extends T> change) {
+        final var key = LINK_PREFIX + code;
+        while (true) {
+            final var inMemory = inMemtables(tables, key);
+            final var entry = inMemory != null
+                ? inMemory.entry()
+                : cache.get(code);
+            if (entry == null) {
+                if (inMemory != null) {
+                    // deleted
+                    return Optional.empty();
+                }
+                // fills the cache from the segments, the next round pins the entry
+                if (findLinkByCode(code).isEmpty()) {
+                    return Optional.empty();
+                }
+                continue;
+            }
+            if (!entry.pin()) {
+                // being evicted: the next round reads the segment, which has every change made before
+                Thread.onSpinWait();
+                continue;
+            }
+            try {
+                entry.touch();
+                return Optional.ofNullable(change.apply(entry.link));
+            } finally {
+                entry.unpin();
+            }
+        }
+    }
+
+    @Override
+    public void saveLink(Link link) {
+        synchronized (lockFor(link.getCode())) {
+            logAndApply(WriteAheadLog.PUT, encode(link), () -> applySave(link));
+        }
+        requestFlushIfFull();
+    }
+
+    @Override
+    public boolean saveLinkIfAbsent(Link link) {
+        synchronized (lockFor(link.getCode())) {
+            if (current(tables, link.getCode()) != null) {
+                return false;
+            }
+            logAndApply(WriteAheadLog.PUT, encode(link), () -> applySave(link));
+        }
+        requestFlushIfFull();
+        return true;
+    }
+
+    @Override
+    public List<Link> findAll() {
+        final var out = new ArrayList<Link>();
+        forEachLink(out::add);
+        return out;
+    }
+
+    @Override
+    public void forEachLink(Consumer<? super Link> action) {
+        scan(tables, LINK_PREFIX, source -> action.accept(liveLink(source)));
+    }
+
+    @Override
+    public List<Link> findExpiredLinks() {
+        final var now = Instant.now().getEpochSecond();
+        final var current = tables;
+        final var out = new ArrayList<Link>();
+        // the memtables are bounded, a newer one shadows the frozen one
+        addExpired(current.memtable(), null, now, out);
+        if (current.flushing() != null) {
+            addExpired(current.flushing(), current.memtable(), now, out);
+        }
+
+        // only records that expired since the last call are read; they are retired once a newer version or tombstone shadows them
+        final var segments = current.segments();
+        for (var i = 0; i < segments.size(); i++) {
+            final var newer = segments.subList(0, i);
+            segments.get(i).visitExpired(now, cursor -> {
+                final var key = cursor.code();
+                if (inMemtables(current, key) != null || newer.stream().anyMatch(segment -> segment.contains(key))) {
+                    return true;
+                }
+                final var cached = cache.get(key.substring(LINK_PREFIX.length()));
+                out.add(cached == null
+                    ? cursor.link()
+                    : cached.link);
+                return false;
+            });
+        }
+        return out;
+    }
+
+    private static void addExpired(NavigableMap<String, Value> memtable, NavigableMap<String, Value> newer, long now, List<Link> out) {
+        for (final var entry : memtable.tailMap(LINK_PREFIX).entrySet()) {
+            if (!entry.getKey().startsWith(LINK_PREFIX)) {
+                return;
+            }
+            final var link = entry.getValue().link();
+            if (link != null && link.getExpiresAt().getEpochSecond() < now && (newer == null || !newer.containsKey(entry.getKey()))) {
+                out.add(link);
+            }
+        }
+    }
+
+    @Override
+    public List<Link> findLinksByUserId(UUID userId) {
+        final var current = tables;
+        final var out = new ArrayList<Link>();
+        // listing must not pull the whole account into the cache
+        for (final var code : findCodesByUserId(userId)) {
+            final var link = current(current, code);
+            if (link != null) {
+                out.add(link);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public List<String> findCodesByUserId(UUID userId) {
+        final var prefix = USER_PREFIX + userId + '/';
+        final var out = new ArrayList<String>();
+        scan(tables, prefix, source -> out.add(source.key()
+            .substring(prefix.length())));
+        return out;
+    }
+
+    @Override
+    public boolean deleteLinkByCode(String code) {
+        return delete(code, null) != null;
+    }
+
+    @Override
+    public List<Link> deleteLinksByCodes(UUID userId, Collection<String> codes) {
+        final var removed = new ArrayList<Link>(codes.size());
+        for (final var code : codes) {
+            final var link = delete(code, userId);
+            if (link != null) {
+                removed.add(link);
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public void replaceAll(Collection<Link> links) {
+        synchronized (maintenanceLock) {
+            memtableLock.writeLock()
+                .lock();
+            try {
+                final var records = new TreeMap<String, Value>();
+                for (final var link : links) {
+                    records.put(LINK_PREFIX + link.getCode(), Value.indexed(link));
+                    records.put(userKey(link.getUserId(), link.getCode()), Value.indexed(link));
+                }
+                final var written = SortedLinkSegment.write(() -> nextFile("sst"), () -> records.entrySet()
+                    .stream()
+                    .map(entry -> record(entry.getKey(), entry.getValue(), null))
+                    .iterator(), storageProperties.sparseIndexInterval(), storageProperties.maxSegmentBytes());
+                sync(written);
+                writeManifest(written);
+
+                final var previous = tables;
+                unflushedLogs.add(wal);
+                wal = WriteAheadLog.create(nextFile("wal"), storageProperties.walFsync());
+                memtableEntries.set(0);
+                tables = new Tables(new ConcurrentSkipListMap<>(), null, written);
+                // a reader that filled the cache from the old tables either sees the new generation or is wiped by the clear
+                generation++;
+                cache.clear();
+                for (final var unflushed : unflushedLogs) {
+                    unflushed.delete();
+                }
+                unflushedLogs.clear();
+                previous.segments()
+                    .forEach(SortedLinkSegment::delete);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot replace stored links", e);
+            } finally {
+                memtableLock.writeLock()
+                    .unlock();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        final var current = tables;
+        final var memtable = memtableHits.sum();
+        final var cached = cacheHits.sum();
+        final var stored = segmentHits.sum();
+        final var lookups = memtable + cached + stored + misses.sum();
+        final var segmentLookupCount = segmentLookups.sum();
+        final var stats = new LinkedHashMap<String, Object>();
+        stats.put("type", StorageProperties.Type.LSM);
+        stats.put("memtableEntries", memtableEntries.get());
+        stats.put("flushing", current.flushing() != null);
+        stats.put("segments", current.segments()
+            .size());
+        stats.put("segmentRecords", current.segments()
+            .stream()
+            .mapToLong(SortedLinkSegment::recordCount)
+            .sum());
+        stats.put("walBytes", wal.size());
+        stats.put("cachedLinks", cache.size());
+        stats.put("memoryHitRate", lookups == 0
+            ? 0.0
+            : (double) (memtable + cached) / lookups);
+        stats.put("segmentHits", stored);
+        stats.put("misses", misses.sum());
+        stats.put("segmentLookupAvgMicros", segmentLookupCount == 0
+            ? 0.0
+            : segmentLookupNanos.sum() / 1_000.0 / segmentLookupCount);
+        stats.put("flushes", flushes.sum());
+        stats.put("compactions", compactions.sum());
+        return stats;
+    }
+
+    @Override
+    public void start() {
+        maintenance.scheduleWithFixedDelay(this::maintain, storageProperties.evictionIntervalSeconds(),
+            storageProperties.evictionIntervalSeconds(), TimeUnit.SECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        // no interrupt: it would close the file channels under a running flush or compaction, so it is let to finish
+        maintenance.shutdown();
+        try {
+            if (!maintenance.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Storage maintenance did not finish within {} s, the final flush waits for it", STOP_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        }
+        try {
+            // the last clicks of cached links only reach the disk with a flush
+            flush();
+        } catch (UncheckedIOException e) {
+            log.error("Final storage flush failed, logged writes are replayed on the next start: {}", e.getMessage());
+        } finally {
+            try {
+                wal.close();
+            } catch (IOException e) {
+                log.error("Cannot close the write-ahead log: {}", e.getMessage());
+            }
+            running = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    void flush() {
+        synchronized (maintenanceLock) {
+            flushRequested.set(false);
+            final Tables frozen;
+            memtableLock.writeLock()
+                .lock();
+            try {
+                final var current = tables;
+                if (current.memtable()
+                    .isEmpty() && cache.values()
+                    .stream()
+                    .noneMatch(CachedLink::isDirty)) {
+                    return;
+                }
+                final var frozenWal = wal;
+                wal = WriteAheadLog.create(nextFile("wal"), storageProperties.walFsync());
+                frozen = new Tables(new ConcurrentSkipListMap<>(), current.memtable(), current.segments());
+                memtableEntries.set(0);
+                tables = frozen;
+                unflushedLogs.add(frozenWal);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot start a new write-ahead log", e);
+            } finally {
+                memtableLock.writeLock()
+                    .unlock();
+            }
+
+            try {
+                final var flushing = frozen.flushing();
+                final var pending = new TreeMap<String, Value>(flushing);
+                cache.forEach((code, cached) -> {
+                    if (cached.isDirty() && !flushing.containsKey(LINK_PREFIX + code)) {
+                        pending.put(LINK_PREFIX + code, new Value(cached.link, cached));
+                    }
+                });
+                final var written = new HashMap<String, Persisted>();
+                final var flushed = SortedLinkSegment.write(() -> nextFile("sst"), () -> pending.entrySet()
+                    .stream()
+                    .map(entry -> record(entry.getKey(), entry.getValue(), written))
+                    .iterator(), storageProperties.sparseIndexInterval(), storageProperties.maxSegmentBytes());
+                sync(flushed);
+                final var segments = new ArrayList<SortedLinkSegment>(frozen.segments()
+                    .size() + flushed.size());
+                segments.addAll(flushed);
+                segments.addAll(frozen.segments());
+                writeManifest(segments);
+
+                // flushed links stay reachable through the cache before the frozen memtable is dropped
+                written.forEach((code, persisted) -> {
+                    synchronized (lockFor(code)) {
+                        if (tables.memtable()
+                            .containsKey(LINK_PREFIX + code)) {
+                            return;
+                        }
+                        // the memtable's entry moves into the cache, so updates that pinned it keep it there
+                        final var entry = persisted.entry();
+                        final var cached = cache.get(code);
+                        if (cached == null || cached == entry) {
+                            entry.markPersisted(persisted.clicks(), persisted.active());
+                            cache.put(code, entry);
+                        }
+                    }
+                });
+                tables = new Tables(tables.memtable(), null, List.copyOf(segments));
+                for (final var unflushed : unflushedLogs) {
+                    unflushed.delete();
+                }
+                unflushedLogs.clear();
+                flushes.increment();
+                log.debug("Flushed {} records into {} segments", pending.size(), flushed.size());
+
+                if (segments.size() > storageProperties.maxColdSegments()) {
+                    compact();
+                }
+            } catch (IOException e) {
+                // the frozen writes go back to the memtable and their log stays on disk, so the next flush retries them
+                restoreFrozen(frozen);
+                throw new UncheckedIOException("Memtable flush failed", e);
+            }
+        }
+    }
+
+    void evictCache() {
+        final var idleThreshold = System.nanoTime() - TimeUnit.SECONDS.toNanos(storageProperties.idleSeconds());
+        // access times keep moving under readers, so the candidates are ordered by a snapshot of them
+        final var clean = new ArrayList<EvictionCandidate>();
+        cache.forEach((code, cached) -> {
+            if (!cached.isDirty()) {
+                clean.add(new EvictionCandidate(code, cached, cached.lastAccessNanos));
+            }
+        });
+        clean.sort(Comparator.comparingLong(EvictionCandidate::lastAccessNanos));
+        // idle links go first, then the least recently used ones while the cache is over its bound
+        for (final var candidate : clean) {
+            final var idle = candidate.lastAccessNanos() - idleThreshold < 0;
+            if (!idle && cache.size() <= storageProperties.cacheMaxEntries()) {
+                break;
+            }
+            final var cached = candidate.cached();
+            synchronized (lockFor(candidate.code())) {
+                // pinned by an update in progress: still in use
+                if (!cached.freeze()) {
+                    continue;
+                }
+                // frozen, nobody can change it any more: a clean entry matches the segments and can go
+                if (cached.isDirty() || !cache.remove(candidate.code(), cached)) {
+                    cached.unfreeze();
+                }
+            }
+        }
+    }
+
+    private void maintain() {
+        try {
+            flush();
+            evictCache();
+        } catch (Exception e) {
+            log.error("Storage maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void compact() throws IOException {
+        final var current = tables.segments();
+        final var run = mergeRun(current.stream().mapToLong(SortedLinkSegment::recordCount).toArray(), storageProperties.maxColdSegments());
+        final var merging = current.subList(0, run);
+        final var older = current.subList(run, current.size());
+        final var merged = SortedLinkSegment.merge(() -> nextFile("sst"), merging, key -> true, !older.isEmpty(),
+            storageProperties.sparseIndexInterval(), storageProperties.maxSegmentBytes());
+        sync(merged);
+        final var segments = new ArrayList<SortedLinkSegment>(merged.size() + older.size());
+        segments.addAll(merged);
+        segments.addAll(older);
+        writeManifest(segments);
+        tables = new Tables(tables.memtable(), tables.flushing(), List.copyOf(segments));
+        merging.forEach(SortedLinkSegment::delete);
+        compactions.increment();
+        log.debug("Compacted {} of {} segments into {}", run, current.size(), merged.size());
+    }
+
+    /**
+     * Number of newest segments to merge, given their record counts newest first. The run grows while the next older segment
+     * holds no more records than the run so far, so small fresh segments are merged among themselves and a large old one is
+     * only rewritten once the newer data has caught up with it. The run is stretched when that alone would leave more than
+     * maxSegments segments.
+     */
+    static int mergeRun(long[] recordCountsNewestFirst, int maxSegments) {
+        var run = 1;
+        var records = recordCountsNewestFirst[0];
+        while (run < recordCountsNewestFirst.length && recordCountsNewestFirst[run] <= records) {
+            records += recordCountsNewestFirst[run];
+            run++;
+        }
+        return Math.min(recordCountsNewestFirst.length, Math.max(Math.max(run, 2), recordCountsNewestFirst.length - maxSegments + 1));
+    }
+
+    private void restoreFrozen(Tables frozen) {
+        memtableLock.writeLock()
+            .lock();
+        try {
+            // newer writes win over the frozen ones they shadow
+            final var merged = new ConcurrentSkipListMap<String, Value>(frozen.flushing());
+            merged.putAll(tables.memtable());
+            memtableEntries.set(merged.size());
+            tables = new Tables(merged, null, tables.segments());
+        } finally {
+            memtableLock.writeLock()
+                .unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        final var manifest = directory.resolve(MANIFEST);
+        final var live = new HashSet<String>();
+        final var segments = new ArrayList<SortedLinkSegment>();
+        if (Files.exists(manifest)) {
+            for (final var name : Files.readAllLines(manifest)) {
+                if (!name.isBlank()) {
+                    live.add(name);
+                    segments.add(SortedLinkSegment.open(directory.resolve(name), storageProperties.sparseIndexInterval()));
+                }
+            }
+        }
+
+        final var logs = new TreeMap<Long, Path>();
+        try (var files = Files.list(directory)) {
+            for (final var file : files.toList()) {
+                final var matcher = DATA_FILE.matcher(file.getFileName()
+                    .toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                final var id = Long.parseLong(matcher.group(1));
+                fileIds.accumulateAndGet(id, Math::max);
+                if (matcher.group(2)
+                    .equals("wal")) {
+                    logs.put(id, file);
+                } else if (!live.contains(file.getFileName()
+                    .toString())) {
+                    // written by a flush or compaction that crashed before the manifest named it
+                    Files.delete(file);
+                }
+            }
+        }
+
+        tables = new Tables(new ConcurrentSkipListMap<>(), null, List.copyOf(segments));
+        var replayed = 0;
+        for (final var file : logs.values()) {
+            replayed += WriteAheadLog.replay(file, this::replay);
+        }
+        wal = WriteAheadLog.create(nextFile("wal"), storageProperties.walFsync());
+        // the replayed memtable goes straight into a segment, so at most one log exists while running
+        flush();
+        for (final var file : logs.values()) {
+            Files.delete(file);
+        }
+        log.info("Opened {} with {} segments, replayed {} logged writes", directory, tables.segments()
+            .size(), replayed);
+    }
+
+    private void replay(byte op, byte[] payload) throws IOException {
+        if (op == WriteAheadLog.PUT) {
+            applySave(SortedLinkSegment.decode(payload));
+            return;
+        }
+        if (op == WriteAheadLog.DELETE) {
+            final var in = new DataInputStream(new ByteArrayInputStream(payload));
+            final var code = LinkSnapshotCodec.readString(in);
+            applyDelete(code, new UUID(in.readLong(), in.readLong()));
+        }
+    }
+
+    // the caller holds the code's lock
+    private void applySave(Link link) {
+        final var current = tables;
+        final var previous = current(current, link.getCode());
+        final var memtable = current.memtable();
+        memtable.put(LINK_PREFIX + link.getCode(), new Value(link, CachedLink.unpersisted(link)));
+        memtable.put(userKey(link.getUserId(), link.getCode()), Value.indexed(link));
+        if (previous != null && !previous.getUserId()
+            .equals(link.getUserId())) {
+            memtable.put(userKey(previous.getUserId(), link.getCode()), DELETED);
+        }
+        memtableEntries.addAndGet(2);
+        cache.remove(link.getCode());
+    }
+
+    // the caller holds the code's lock
+    private void applyDelete(String code, UUID userId) {
+        final var memtable = tables.memtable();
+        memtable.put(LINK_PREFIX + code, DELETED);
+        memtable.put(userKey(userId, code), DELETED);
+        memtableEntries.addAndGet(2);
+        cache.remove(code);
+    }
+
+    // returns the removed link only to the caller that won the removal; owner == null removes any link
+    private Link delete(String code, UUID owner) {
+        final Link link;
+        synchronized (lockFor(code)) {
+            link = current(tables, code);
+            if (link == null || owner != null && !owner.equals(link.getUserId())) {
+                return null;
+            }
+            logAndApply(WriteAheadLog.DELETE, encodeDelete(link), () -> applyDelete(code, link.getUserId()));
+        }
+        requestFlushIfFull();
+        return link;
+    }
+
+    private void logAndApply(byte op, byte[] payload, Runnable apply) {
+        memtableLock.readLock()
+            .lock();
+        try {
+            wal.append(op, payload);
+            apply.run();
+        } finally {
+            memtableLock.readLock()
+                .unlock();
+        }
+    }
+
+    private void requestFlushIfFull() {
+        if (memtableEntries.get() >= storageProperties.memtableMaxEntries() && flushRequested.compareAndSet(false, true)) {
+            try {
+                maintenance.execute(this::maintain);
+            } catch (RejectedExecutionException e) {
+                // stopping: the final flush in stop() takes the memtable
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    // newest live version of the code, not added to the cache
+    private Link current(Tables current, String code) {
+        final var key = LINK_PREFIX + code;
+        final var inMemory = inMemtables(current, key);
+        if (inMemory != null) {
+            return inMemory.link();
+        }
+        final var cached = cache.get(code);
+        if (cached != null) {
+            return cached.link;
+        }
+        final var body = inSegments(current, key);
+        return body == null || body.length == 0
+            ? null
+            : SortedLinkSegment.decode(body);
+    }
+
+    // newest in-memory version of the key (DELETED for a tombstone), null when neither memtable has it
+    private static Value inMemtables(Tables current, String key) {
+        final var value = current.memtable()
+            .get(key);
+        return value != null || current.flushing() == null
+            ? value
+            : current.flushing()
+                .get(key);
+    }
+
+    // body of the newest segment record of the key (empty for a tombstone), null when no segment has it
+    private byte[] inSegments(Tables current, String key) {
+        if (current.segments()
+            .isEmpty()) {
+            return null;
+        }
+        final var startedAt = System.nanoTime();
+        try {
+            for (final var segment : current.segments()) {
+                final var body = segment.findBody(key);
+                if (body != null) {
+                    return body;
+                }
+            }
+            return null;
+        } finally {
+            segmentLookups.increment();
+            segmentLookupNanos.add(System.nanoTime() - startedAt);
+        }
+    }
+
+    // visits the newest live version of every key under the prefix in key order
+    private void scan(Tables current, String prefix, Consumer<Source> visitor) {
+        final var sources = new ArrayList<Source>();
+        addSource(sources, new MemtableSource(current.memtable()
+            .tailMap(prefix)));
+        if (current.flushing() != null) {
+            addSource(sources, new MemtableSource(current.flushing()
+                .tailMap(prefix)));
+        }
+        for (final var segment : current.segments()) {
+            addSource(sources, new SegmentSource(segment.seek(prefix)));
+        }
+
+        while (!sources.isEmpty()) {
+            // sources are ordered newest first, so the first one holding the smallest key has its newest version
+            var newest = sources.getFirst();
+            for (final var source : sources) {
+                if (source.key()
+                    .compareTo(newest.key()) < 0) {
+                    newest = source;
+                }
+            }
+            final var key = newest.key();
+            if (!key.startsWith(prefix)) {
+                return;
+            }
+            if (!newest.isTombstone()) {
+                visitor.accept(newest);
+            }
+            final var iterator = sources.iterator();
+            while (iterator.hasNext()) {
+                final var source = iterator.next();
+                if (source.key()
+                    .equals(key) && !source.advance()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static void addSource(List<Source> sources, Source source) {
+        if (source.advance()) {
+            sources.add(source);
+        }
+    }
+
+    // the cached object carries clicks the segment copy may not have yet
+    private Link liveLink(Source source) {
+        final var link = source.link();
+        final var cached = cache.get(link.getCode());
+        return cached == null
+            ? link
+            : cached.link;
+    }
+
+    private SortedLinkSegment.Record record(String key, Value value, Map<String, Persisted> written) {
+        final var link = value.link();
+        if (link == null) {
+            return new SortedLinkSegment.Record(key, Long.MAX_VALUE, TOMBSTONE);
+        }
+        if (key.startsWith(USER_PREFIX)) {
+            return new SortedLinkSegment.Record(key, Long.MAX_VALUE, PRESENT);
+        }
+        if (written != null) {
+            // taken before encoding: a click landing in between leaves the link dirty for the next flush
+            written.put(link.getCode(), new Persisted(value.entry(), link.getClickCount().get(), link.isActive()));
+        }
+        return new SortedLinkSegment.Record(key, link.getExpiresAt()
+            .getEpochSecond(), encode(link));
+    }
+
+    private void writeManifest(List<SortedLinkSegment> segments) throws IOException {
+        final var temp = directory.resolve(MANIFEST + ".tmp");
+        Files.write(temp, segments.stream()
+            .map(segment -> segment.file()
+                .getFileName()
+                .toString())
+            .toList());
+        sync(temp);
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void sync(List<SortedLinkSegment> segments) throws IOException {
+        for (final var segment : segments) {
+            sync(segment.file());
+        }
+    }
+
+    private void sync(Path file) throws IOException {
+        if (!storageProperties.walFsync()) {
+            return;
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private Path nextFile(String extension) {
+        return directory.resolve("lsm-%06d.%s".formatted(fileIds.incrementAndGet(), extension));
+    }
+
+    private Object lockFor(String code) {
+        final var hash = code.hashCode();
+        return codeLocks[(hash ^ hash >>> 16) & (LOCK_STRIPES - 1)];
+    }
+
+    private static String userKey(UUID userId, String code) {
+        return USER_PREFIX + userId + '/' + code;
+    }
+
+    private static byte[] encode(Link link) {
+        final var bytes = new ByteArrayOutputStream(128);
+        try {
+            LinkSnapshotCodec.writeLink(new DataOutputStream(bytes), link);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDelete(Link link) {
+        final var bytes = new ByteArrayOutputStream(64);
+        final var out = new DataOutputStream(bytes);
+        try {
+            LinkSnapshotCodec.writeString(out, link.getCode());
+            out.writeLong(link.getUserId()
+                .getMostSignificantBits());
+            out.writeLong(link.getUserId()
+                .getLeastSignificantBits());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // link == null is a tombstone; index keys hold the link they point to, link keys also the entry updates pin
+    private record Value(Link link, CachedLink entry) {
+
+        static Value indexed(Link link) {
+            return new Value(link, null);
+        }
+    }
+
+    // state of a link as it was written by a flush
+    private record Persisted(CachedLink entry, int clicks, boolean active) {
+    }
+
+    // flushing is the frozen memtable being written to a segment; segments are ordered newest first
+    private record Tables(ConcurrentSkipListMap<String, Value> memtable, ConcurrentSkipListMap<String, Value> flushing,
+                          List<SortedLinkSegment> segments) {
+    }
+
+    private record EvictionCandidate(String code, CachedLink cached, long lastAccessNanos) {
+    }
+
+    private interface Source {
+
+        boolean advance();
+
+        String key();
+
+        boolean isTombstone();
+
+        Link link();
+    }
+
+    private static final class MemtableSource implements Source {
+        private final Iterator<Map.Entry<String, Value>> iterator;
+        private Map.Entry<String, Value> current;
+
+        private MemtableSource(NavigableMap<String, Value> tail) {
+            this.iterator = tail.entrySet()
+                .iterator();
+        }
+
+        @Override
+        public boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            current = iterator.next();
+            return true;
+        }
+
+        @Override
+        public String key() {
+            return current.getKey();
+        }
+
+        @Override
+        public boolean isTombstone() {
+            return current.getValue()
+                .link() == null;
+        }
+
+        @Override
+        public Link link() {
+            return current.getValue()
+                .link();
+        }
+    }
+
+    private record SegmentSource(SortedLinkSegment.Cursor cursor) implements Source {
+
+        @Override
+        public boolean advance() {
+            return cursor.advance();
+        }
+
+        @Override
+        public String key() {
+            return cursor.code();
+        }
+
+        @Override
+        public boolean isTombstone() {
+            return cursor.isTombstone();
+        }
+
+        @Override
+        public Link link() {
+            return cursor.link();
+        }
+    }
+
+    private static final class CachedLink {
+        // coarse enough for idle detection, avoids a shared write on every hit of a popular link
+        private static final long TOUCH_GRANULARITY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+        private static final int FROZEN = -1;
+        private final Link link;
+        // updates in progress, or FROZEN while the evictor decides
+        private final AtomicInteger pins = new AtomicInteger();
+        private volatile int persistedClicks;
+        private volatile boolean persistedActive;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private CachedLink(Link link, int persistedClicks, boolean persistedActive) {
+            this.link = link;
+            this.persistedClicks = persistedClicks;
+            this.persistedActive = persistedActive;
+        }
+
+        static CachedLink persisted(Link link) {
+            return new CachedLink(link, link.getClickCount()
+                .get(), link.isActive());
+        }
+
+        // a memtable link is dirty until a flush writes it
+        static CachedLink unpersisted(Link link) {
+            return new CachedLink(link, -1, link.isActive());
+        }
+
+        boolean isDirty() {
+            return link.getClickCount()
+                .get() != persistedClicks || link.isActive() != persistedActive;
+        }
+
+        void markPersisted(int clicks, boolean active) {
+            persistedClicks = clicks;
+            persistedActive = active;
+        }
+
+        void touch() {
+            final var now = System.nanoTime();
+            if (now - lastAccessNanos > TOUCH_GRANULARITY_NANOS) {
+                lastAccessNanos = now;
+            }
+        }
+
+        boolean pin() {
+            while (true) {
+                final var current = pins.get();
+                if (current == FROZEN) {
+                    return false;
+                }
+                if (pins.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void unpin() {
+            pins.decrementAndGet();
+        }
+
+        boolean freeze() {
+            return pins.compareAndSet(0, FROZEN);
+        }
+
+        void unfreeze() {
+            pins.set(0);
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.service.snapshot.LinkSnapshotCodec;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Immutable on-disk run of links sorted by code, memory-mapped for reads.
+ * <p>
+ * Record layout: {@code int codeLength, code, long expiresAtEpochSecond, int bodyLength, body}, where body is a
+ * {@link LinkSnapshotCodec} link record. Every {@code indexInterval}-th code is kept on heap with its offset, so a
+ * lookup is a binary search over the sparse index followed by a short forward scan. A Bloom filter over all codes, built
+ * when the segment is opened, answers most lookups of absent codes without touching the file.
+ * <p>
+ * A single mapping addresses at most 2 GB, so writers start a new file once a segment reaches the size cap and return
+ * every segment they wrote; the segments of one write cover disjoint key ranges. Records that expire are also kept in an
+ * on-heap expiry index (8 bytes each), so the cleaner reads only the records that expired since it last looked.
+ * <p>
+ * The key does not have to be a bare code: {@link LsmLinkRepository} stores prefixed keys with arbitrary bodies, where an
+ * empty body is a tombstone shadowing the key in older segments.
+ */
+final class SortedLinkSegment {
+    private static final int MAGIC = 0x55534547; // "USEG"
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    // ~1% false positives
+    private static final int BLOOM_BITS_PER_KEY = 10;
+    private static final int BLOOM_HASHES = 7;
+    // a mapped buffer cannot be larger
+    static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+    private static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int recordCount;
+    private final long minExpiresAtEpochSecond;
+    private final String[] indexCodes;
+    private final int[] indexOffsets;
+    private final int indexInterval;
+    private final long[] bloom;
+    // (expiresAt - minExpiresAt, capped to an int) << 32 | record offset, sorted; records that never expire are left out
+    private final long[] expiryIndex;
+    // expiry index entries before it belong to records retired by visitExpired
+    private volatile int retiredExpiries;
+
+    private SortedLinkSegment(Path file, MappedByteBuffer buffer, int indexInterval) {
+        this.file = file;
+        this.buffer = buffer;
+        this.indexInterval = indexInterval;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a link segment: " + file);
+        }
+        this.recordCount = buffer.getInt(4);
+        this.minExpiresAtEpochSecond = buffer.getLong(8);
+
+        final var codes = new ArrayList<String>(recordCount / indexInterval + 1);
+        final var offsets = new int[recordCount / indexInterval + 1];
+        final var expiries = new long[recordCount];
+        var expiring = 0;
+        this.bloom = new long[Math.max(1, Integer.highestOneBit(Math.max(1, recordCount * BLOOM_BITS_PER_KEY / Long.SIZE)) << 1)];
+        var scratch = new byte[64];
+        var offset = HEADER_SIZE;
+        for (var i = 0; i < recordCount; i++) {
+            if (i % indexInterval == 0) {
+                offsets[codes.size()] = offset;
+                codes.add(codeAt(offset));
+            }
+            final var length = buffer.getInt(offset);
+            if (scratch.length < length) {
+                scratch = new byte[Integer.highestOneBit(length) << 1];
+            }
+            buffer.get(offset + 4, scratch, 0, length);
+            addToBloom(hash(scratch, length));
+            final var expiresAt = buffer.getLong(offset + 4 + length);
+            if (expiresAt != NEVER_EXPIRES) {
+                expiries[expiring++] = Math.min(expiresAt - minExpiresAtEpochSecond, Integer.MAX_VALUE) << 32 | offset;
+            }
+            offset = nextRecord(offset);
+        }
+        this.indexCodes = codes.toArray(String[]::new);
+        this.indexOffsets = Arrays.copyOf(offsets, indexCodes.length);
+        this.expiryIndex = Arrays.copyOf(expiries, expiring);
+        Arrays.sort(expiryIndex);
+    }
+
+    static List<SortedLinkSegment> write(Supplier<Path> files, List<Link> linksSortedByCode, int indexInterval,
+                                         long maxSegmentBytes) throws IOException {
+        final var body = new ByteArrayOutputStream(256);
+        final var bodyData = new DataOutputStream(body);
+        return write(files, () -> linksSortedByCode.stream()
+            .map(link -> {
+                body.reset();
+                try {
+                    LinkSnapshotCodec.writeLink(bodyData, link);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return new Record(link.getCode(), link.getExpiresAt().getEpochSecond(), body.toByteArray());
+            })
+            .iterator(), indexInterval, maxSegmentBytes);
+    }
+
+    // records are consumed one by one, so a lazily encoding iterable keeps only one body in memory
+    static List<SortedLinkSegment> write(Supplier<Path> files, Iterable<Record> recordsSortedByKey, int indexInterval,
+                                         long maxSegmentBytes) throws IOException {
+        try (var writer = new Writer(files, indexInterval, maxSegmentBytes)) {
+            for (final var record : recordsSortedByKey) {
+                writer.add(record.key().getBytes(StandardCharsets.UTF_8), record.expiresAt(), record.body());
+            }
+            return writer.finish();
+        }
+    }
+
+    // k-way merge of segments (newest first): the newest record per code wins, codes rejected by the filter are dropped
+    static List<SortedLinkSegment> merge(Supplier<Path> files, List<SortedLinkSegment> newestFirst, Predicate<String> keep,
+                                         int indexInterval, long maxSegmentBytes) throws IOException {
+        return merge(files, newestFirst, keep, false, indexInterval, maxSegmentBytes);
+    }
+
+    // tombstones only shadow older segments: a merge of every segment drops them, a merge of the newest few must keep them
+    static List<SortedLinkSegment> merge(Supplier<Path> files, List<SortedLinkSegment> newestFirst, Predicate<String> keep,
+                                         boolean keepTombstones, int indexInterval, long maxSegmentBytes) throws IOException {
+        final var cursors = new ArrayList<Cursor>();
+        for (final var segment : newestFirst) {
+            final var cursor = segment.cursor();
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+
+        try (var writer = new Writer(files, indexInterval, maxSegmentBytes)) {
+            while (!cursors.isEmpty()) {
+                var smallest = cursors.getFirst();
+                for (final var cursor : cursors) {
+                    if (cursor.code.compareTo(smallest.code) < 0) {
+                        smallest = cursor;
+                    }
+                }
+                final var code = smallest.code;
+                if (keep.test(code) && (keepTombstones || !smallest.isTombstone())) {
+                    writer.add(code.getBytes(StandardCharsets.UTF_8), smallest.expiresAt, smallest.body());
+                }
+                // older duplicates of the same code are skipped together with the winner
+                final var iterator = cursors.iterator();
+                while (iterator.hasNext()) {
+                    final var cursor = iterator.next();
+                    if (cursor.code.equals(code) && !cursor.advance()) {
+                        iterator.remove();
+                    }
+                }
+            }
+            return writer.finish();
+        }
+    }
+
+    static SortedLinkSegment open(Path file, int indexInterval) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SortedLinkSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), indexInterval);
+        }
+    }
+
+    private static SortedLinkSegment finish(Path file, int count, long minExpiresAt, int indexInterval) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(12).putInt(count).putLong(minExpiresAt).flip(), 4);
+        }
+        return open(file, indexInterval);
+    }
+
+
+    Link find(String code) {
+        final var offset = offsetOf(code);
+        return offset < 0
+            ? null
+            : decode(offset);
+    }
+
+    boolean contains(String key) {
+        return offsetOf(key) >= 0;
+    }
+
+    // body of the record stored under the key (empty for a tombstone), or null when this segment has no such key
+    byte[] findBody(String key) {
+        final var offset = offsetOf(key);
+        return offset < 0
+            ? null
+            : body(offset);
+    }
+
+    // cursor whose first advance() lands on the first record with a key not less than the given one
+    Cursor seek(String fromKey) {
+        final var floor = floorSlot(fromKey);
+        var index = floor < 0
+            ? 0
+            : floor * indexInterval;
+        var offset = floor < 0
+            ? HEADER_SIZE
+            : indexOffsets[floor];
+        while (index < recordCount && codeAt(offset).compareTo(fromKey) < 0) {
+            offset = nextRecord(offset);
+            index++;
+        }
+        return new Cursor(index, offset);
+    }
+
+    boolean mayContainExpired(long nowEpochSecond) {
+        final var retired = retiredExpiries;
+        return retired < expiryIndex.length && expiryAt(retired) < nowEpochSecond;
+    }
+
+    /**
+     * Visits the records that expired before {@code nowEpochSecond} in expiry order, skipping the ones retired by earlier
+     * calls. The visitor returns {@code true} for a record that is gone for good (deleted or superseded), which retires it;
+     * retiring stops at the first record the visitor keeps, so that one is visited again next time.
+     */
+    synchronized void visitExpired(long nowEpochSecond, Predicate<Cursor> visitor) {
+        var retiring = true;
+        for (var i = retiredExpiries; i < expiryIndex.length && expiryAt(i) < nowEpochSecond; i++) {
+            final var cursor = new Cursor(0, (int) expiryIndex[i]);
+            cursor.advance();
+            // a capped entry sorts before its real expiry
+            if (cursor.expiresAt >= nowEpochSecond) {
+                break;
+            }
+            if (visitor.test(cursor) && retiring) {
+                retiredExpiries = i + 1;
+            } else {
+                retiring = false;
+            }
+        }
+    }
+
+    private long expiryAt(int position) {
+        return minExpiresAtEpochSecond + (expiryIndex[position] >>> 32);
+    }
+
+    Cursor cursor() {
+        return new Cursor(0, HEADER_SIZE);
+    }
+
+    int recordCount() {
+        return recordCount;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int offsetOf(String key) {
+        final var bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (!mightContain(hash(bytes, bytes.length))) {
+            return -1;
+        }
+        final var floor = floorSlot(key);
+        if (floor < 0) {
+            return -1;
+        }
+
+        var offset = indexOffsets[floor];
+        final var last = Math.min(recordCount, (floor + 1) * indexInterval);
+        for (var i = floor * indexInterval; i < last; i++) {
+            final var cmp = codeAt(offset).compareTo(key);
+            if (cmp == 0) {
+                return offset;
+            }
+            if (cmp > 0) {
+                return -1;
+            }
+            offset = nextRecord(offset);
+        }
+        return -1;
+    }
+
+    private void addToBloom(long hash) {
+        final var mask = bloom.length * Long.SIZE - 1;
+        final var h1 = (int) hash;
+        final var h2 = (int) (hash >>> 32) | 1;
+        for (var i = 0; i < BLOOM_HASHES; i++) {
+            final var bit = (h1 + i * h2) & mask;
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean mightContain(long hash) {
+        final var mask = bloom.length * Long.SIZE - 1;
+        final var h1 = (int) hash;
+        final var h2 = (int) (hash >>> 32) | 1;
+        for (var i = 0; i < BLOOM_HASHES; i++) {
+            final var bit = (h1 + i * h2) & mask;
+            if ((bloom[bit >>> 6] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a with a murmur3 finalizer, so both 32-bit halves are usable as independent hashes
+    private static long hash(byte[] bytes, int length) {
+        var hash = 0xcbf29ce484222325L;
+        for (var i = 0; i < length; i++) {
+            hash = (hash ^ (bytes[i] & 0xFF)) * 0x100000001b3L;
+        }
+        hash = (hash ^ hash >>> 33) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ hash >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+
+    private int floorSlot(String key) {
+        var low = 0;
+        var high = indexCodes.length - 1;
+        var floor = -1;
+        while (low <= high) {
+            final var mid = (low + high) >>> 1;
+            if (indexCodes[mid].compareTo(key) <= 0) {
+                floor = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return floor;
+    }
+
+    private String codeAt(int offset) {
+        final var bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int bodyOffset(int offset) {
+        return offset + 4 + buffer.getInt(offset) + 8;
+    }
+
+    private int nextRecord(int offset) {
+        final var bodyOffset = bodyOffset(offset);
+        return bodyOffset + 4 + buffer.getInt(bodyOffset);
+    }
+
+    private byte[] body(int offset) {
+        final var bodyOffset = bodyOffset(offset);
+        final var bytes = new byte[buffer.getInt(bodyOffset)];
+        buffer.get(bodyOffset + 4, bytes);
+        return bytes;
+    }
+
+    private Link decode(int offset) {
+        return decode(body(offset));
+    }
+
+    static Link decode(byte[] body) {
+        try {
+            return LinkSnapshotCodec.readLink(new DataInputStream(new ByteArrayInputStream(body)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    record Record(String key, long expiresAt, byte[] body) {
+    }
+
+    // writes records into segments of at most maxSegmentBytes, starting a new file when the current one is full
+    private static final class Writer implements Closeable {
+        private final Supplier<Path> files;
+        private final int indexInterval;
+        private final long maxSegmentBytes;
+        private final List<SortedLinkSegment> written = new ArrayList<>();
+        private DataOutputStream out;
+        private Path file;
+        private int count;
+        private long bytes;
+        private long minExpiresAt;
+
+        private Writer(Supplier<Path> files, int indexInterval, long maxSegmentBytes) {
+            if (maxSegmentBytes <= HEADER_SIZE || maxSegmentBytes > MAX_SEGMENT_BYTES) {
+                throw new IllegalArgumentException("storage.max-segment-bytes must be above %d and at most %d".formatted(HEADER_SIZE,
+                    MAX_SEGMENT_BYTES));
+            }
+            this.files = files;
+            this.indexInterval = indexInterval;
+            this.maxSegmentBytes = maxSegmentBytes;
+        }
+
+        void add(byte[] key, long expiresAt, byte[] body) throws IOException {
+            final var size = 4L + key.length + 8 + 4 + body.length;
+            if (out == null || count > 0 && bytes + size > maxSegmentBytes) {
+                roll();
+            }
+            out.writeInt(key.length);
+            out.write(key);
+            out.writeLong(expiresAt);
+            out.writeInt(body.length);
+            out.write(body);
+            bytes += size;
+            minExpiresAt = Math.min(minExpiresAt, expiresAt);
+            count++;
+        }
+
+        // the written segments, none when there was no record
+        List<SortedLinkSegment> finish() throws IOException {
+            closeCurrent();
+            return List.copyOf(written);
+        }
+
+        private void roll() throws IOException {
+            closeCurrent();
+            file = files.get();
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(0);
+            out.writeLong(0);
+            count = 0;
+            bytes = HEADER_SIZE;
+            minExpiresAt = Long.MAX_VALUE;
+        }
+
+        private void closeCurrent() throws IOException {
+            if (out == null) {
+                return;
+            }
+            out.close();
+            out = null;
+            written.add(SortedLinkSegment.finish(file, count, minExpiresAt, indexInterval));
+        }
+
+        // drops the files of a failed write
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+                out = null;
+                Files.deleteIfExists(file);
+                written.forEach(SortedLinkSegment::delete);
+            }
+        }
+    }
+
+    final class Cursor {
+        private int index;
+        private int offset;
+        // the record at offset has not been returned by advance() yet
+        private boolean pending = true;
+        private String code;
+        private long expiresAt;
+
+        private Cursor(int index, int offset) {
+            this.index = index;
+            this.offset = offset;
+        }
+
+        boolean advance() {
+            if (!pending && index < recordCount) {
+                offset = nextRecord(offset);
+                index++;
+            }
+            pending = false;
+            if (index >= recordCount) {
+                return false;
+            }
+            code = codeAt(offset);
+            expiresAt = buffer.getLong(offset + 4 + buffer.getInt(offset));
+            return true;
+        }
+
+        String code() {
+            return code;
+        }
+
+        long expiresAt() {
+            return expiresAt;
+        }
+
+        byte[] body() {
+            return SortedLinkSegment.this.body(offset);
+        }
+
+        boolean isTombstone() {
+            return buffer.getInt(bodyOffset(offset)) == 0;
+        }
+
+        Link link() {
+            return decode(offset);
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.StorageProperties;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Two-tier repository: recently used links stay on heap, links idle for {@code storage.idle-seconds} are spilled to
+ * memory-mapped {@link SortedLinkSegment}s. A lookup that misses the hot tier promotes the link back. The per-user index
+ * always covers both tiers. A link pinned by {@link #updateLink} is not evicted until the change returns.
+ * <p>
+ * The cold tier only extends the heap of the running process and does not survive a restart: the per-user index and the
+ * tombstones live on heap, so segment files left by a previous run are deleted on startup. Use {@code storage.type=lsm}
+ * for storage that persists.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "storage.type", havingValue = "tiered")
+public class TieredLinkRepository implements LinkRepository, SmartLifecycle {
+    // started before and stopped after the background worker, which still cleans up through this repository on shutdown
+    static final int PHASE = DEFAULT_PHASE - 8192;
+
+    private final StorageProperties storageProperties;
+    private final Path directory;
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor();
+    private final Object maintenanceLock = new Object();
+    private final AtomicLong segmentIds = new AtomicLong();
+    private volatile Map<String, HotEntry> hot = new ConcurrentHashMap<>();
+    private volatile UserCodeIndex codesByUserId = new UserCodeIndex();
+    // deleted codes that may still have records in cold segments, dropped on compaction
+    private volatile Set<String> tombstones = ConcurrentHashMap.newKeySet();
+    private volatile List<SortedLinkSegment> segments = List.of();
+    private volatile boolean running;
+
+    private final LongAdder hotHits = new LongAdder();
+    private final LongAdder coldHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coldLookups = new LongAdder();
+    private final LongAdder coldLookupNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder promotions = new LongAdder();
+
+    public TieredLinkRepository(StorageProperties storageProperties) {
+        this.storageProperties = storageProperties;
+        this.directory = Path.of(storageProperties.directory());
+        try {
+            Files.createDirectories(directory);
+            // segments only spill the current process' heap, leftovers of a previous run are meaningless
+            try (var files = Files.list(directory)) {
+                final var leftovers = files.filter(f -> f.getFileName().toString().endsWith(".seg")).toList();
+                for (final var file : leftovers) {
+                    Files.delete(file);
+                }
+                if (!leftovers.isEmpty()) {
+                    log.info("Deleted {} cold segments of a previous run from {}, the tiered storage does not persist links",
+                        leftovers.size(), directory);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot prepare storage directory " + directory, e);
+        }
+    }
+
+    @Override
+    public Optional<Link> findLinkByCode(String code) {
+        final var entry = hot.get(code);
+        if (entry != null) {
+            entry.touch();
+            hotHits.increment();
+            return Optional.of(entry.link);
+        }
+
+        final var link = findCold(code);
+        if (link == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        coldHits.increment();
+
+        final var promoted = new HotEntry(link);
+        final var current = hot.putIfAbsent(code, promoted);
+        if (current != null) {
+            return Optional.of(current.link);
+        }
+        if (tombstones.contains(code)) {
+            // deleted while being promoted
+            hot.remove(code, promoted);
+            return Optional.empty();
+        }
+        promotions.increment();
+        return Optional.of(link);
+    }
+
+    @Override
+    public <T> Optional<T> updateLink(String code, Function<? super Link, ? extends T> change) {
+        while (true) {
+            final var entry = hot.get(code);
+            if (entry == null) {
+                // promotes a cold link, the next round pins it
+                if (findLinkByCode(code).isEmpty()) {
+                    return Optional.empty();
+                }
+                continue;
+            }
+            if (!entry.pin()) {
+                // being evicted: the next round sees the cold copy, which has every change made before
+                Thread.onSpinWait();
+                continue;
+            }
+            try {
+                entry.touch();
+                return Optional.ofNullable(change.apply(entry.link));
+            } finally {
+                entry.unpin();
+            }
+        }
+    }
+
+    @Override
+    public void saveLink(Link link) {
+        tombstones.remove(link.getCode());
+        hot.put(link.getCode(), new HotEntry(link));
+        codesByUserId.add(link.getUserId(), link.getCode());
+    }
+
+    @Override
+    public boolean saveLinkIfAbsent(Link link) {
+        final var code = link.getCode();
+        final var entry = new HotEntry(link);
+        if (hot.putIfAbsent(code, entry) != null) {
+            return false;
+        }
+        // eviction publishes a segment before it unmaps the hot entry, so a code being evicted is always visible here
+        if (!tombstones.contains(code) && findCold(code) != null) {
+            hot.remove(code, entry);
+            return false;
+        }
+        tombstones.remove(code);
+        codesByUserId.add(link.getUserId(), code);
+        return true;
+    }
+
+    @Override
+    public List<Link> findAll() {
+        final var out = new ArrayList<Link>();
+        forEachLink(out::add);
+        return out;
+    }
+
+    @Override
+    public void forEachLink(Consumer<? super Link> action) {
+        final var currentHot = hot;
+        for (final var entry : currentHot.values()) {
+            action.accept(entry.link);
+        }
+        forEachCold((cursor, link) -> {
+            if (!currentHot.containsKey(cursor.code())) {
+                action.accept(link.get());
+            }
+        });
+    }
+
+    @Override
+    public List<Link> findExpiredLinks() {
+        final var now = Instant.now().getEpochSecond();
+        final var out = new ArrayList<Link>();
+        final var currentHot = hot;
+        for (final var entry : currentHot.values()) {
+            if (entry.link.isExpired()) {
+                out.add(entry.link);
+            }
+        }
+
+        // only records that expired since the last call are read; they are retired once the cleaner tombstoned them
+        final var current = segments;
+        final var currentTombstones = tombstones;
+        for (var i = 0; i < current.size(); i++) {
+            final var newer = current.subList(0, i);
+            current.get(i).visitExpired(now, cursor -> {
+                final var code = cursor.code();
+                if (currentTombstones.contains(code) || newer.stream().anyMatch(segment -> segment.contains(code))) {
+                    return true;
+                }
+                // a hot copy is reported above
+                if (!currentHot.containsKey(code)) {
+                    out.add(cursor.link());
+                }
+                return false;
+            });
+        }
+        return out;
+    }
+
+    @Override
+    public List<Link> findLinksByUserId(UUID userId) {
+        final var out = new ArrayList<Link>();
+        for (String code : codesByUserId.codes(userId)) {
+            // listing must not promote the whole account into the hot tier
+            final var entry = hot.get(code);
+            final var link = entry != null
+                ? entry.link
+                : findCold(code);
+            if (link != null) {
+                out.add(link);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public List<String> findCodesByUserId(UUID userId) {
+        return List.copyOf(codesByUserId.codes(userId));
+    }
+
+    @Override
+    public boolean deleteLinkByCode(String code) {
+        return delete(code) != null;
+    }
+
+    @Override
+    public List<Link> deleteLinksByCodes(UUID userId, Collection<String> codes) {
+        final var removed = new ArrayList<Link>(codes.size());
+        final var removedCodes = new ArrayList<String>(codes.size());
+        for (final var code : codes) {
+            // one cold lookup per code serves both the ownership check and the tombstone decision
+            final var cold = findCold(code);
+            final var entry = hot.get(code);
+            final var link = entry != null
+                ? entry.link
+                : cold;
+            if (link == null || !link.getUserId().equals(userId)) {
+                continue;
+            }
+            final var deleted = remove(code, cold);
+            if (deleted != null) {
+                removed.add(deleted);
+                removedCodes.add(code);
+            }
+        }
+        // one index update for the whole batch instead of one per code
+        codesByUserId.removeAll(userId, removedCodes);
+        return removed;
+    }
+
+    // returns the removed link only to the caller that won the removal
+    private Link delete(String code) {
+        final var link = remove(code, findCold(code));
+        if (link != null) {
+            codesByUserId.remove(link.getUserId(), code);
+        }
+        return link;
+    }
+
+    // unmaps the hot entry and tombstones the cold copy, the caller updates the index
+    private Link remove(String code, Link cold) {
+        final var removed = hot.remove(code);
+        // a cold-backed code is owned by whoever adds the tombstone, so concurrent deletes report success exactly once
+        final var deleted = cold != null
+            ? tombstones.add(code)
+            : removed != null;
+        if (!deleted) {
+            return null;
+        }
+        return removed != null
+            ? removed.link
+            : cold;
+    }
+
+    @Override
+    public void replaceAll(Collection<Link> links) {
+        synchronized (maintenanceLock) {
+            final var freshHot = new ConcurrentHashMap<String, HotEntry>(Math.max(16, links.size() * 4 / 3 + 1));
+            final var freshIndex = new UserCodeIndex();
+            links.parallelStream().forEach(link -> {
+                freshHot.put(link.getCode(), new HotEntry(link));
+                freshIndex.add(link.getUserId(), link.getCode());
+            });
+            final var oldSegments = segments;
+            hot = freshHot;
+            codesByUserId = freshIndex;
+            tombstones = ConcurrentHashMap.newKeySet();
+            segments = List.of();
+            oldSegments.forEach(SortedLinkSegment::delete);
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        final var hits = hotHits.sum();
+        final var cold = coldHits.sum();
+        final var lookups = hits + cold + misses.sum();
+        final var coldLookupCount = coldLookups.sum();
+        final var stats = new LinkedHashMap<String, Object>();
+        stats.put("type", StorageProperties.Type.TIERED);
+        stats.put("hotLinks", hot.size());
+        stats.put("coldSegments", segments.size());
+        stats.put("coldRecords", segments.stream().mapToLong(SortedLinkSegment::recordCount).sum());
+        stats.put("tombstones", tombstones.size());
+        stats.put("users", codesByUserId.userCount());
+        stats.put("hotHitRate", lookups == 0
+            ? 0.0
+            : (double) hits / lookups);
+        stats.put("coldHits", cold);
+        stats.put("misses", misses.sum());
+        stats.put("coldLookups", coldLookupCount);
+        stats.put("coldLookupAvgMicros", coldLookupCount == 0
+            ? 0.0
+            : coldLookupNanos.sum() / 1_000.0 / coldLookupCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("promotions", promotions.sum());
+        return stats;
+    }
+
+    @Override
+    public void start() {
+        evictor.scheduleWithFixedDelay(this::evictIdle, storageProperties.evictionIntervalSeconds(),
+            storageProperties.evictionIntervalSeconds(), TimeUnit.SECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        evictor.shutdownNow();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    void evictIdle() {
+        try {
+            synchronized (maintenanceLock) {
+                final var threshold = System.nanoTime() - TimeUnit.SECONDS.toNanos(storageProperties.idleSeconds());
+                final var currentHot = hot;
+                final var candidates = new ArrayList<EvictionCandidate>();
+                for (final var entry : currentHot.values()) {
+                    final var lastAccess = entry.lastAccessNanos;
+                    // expired links are left for the cleaner
+                    if (lastAccess - threshold < 0 && !entry.link.isExpired()) {
+                        candidates.add(new EvictionCandidate(entry, lastAccess));
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    return;
+                }
+
+                candidates.sort(Comparator.comparing(candidate -> candidate.entry().link.getCode()));
+                // state as of before the write: the segment holds it or something newer, both differ from a later change
+                final var writtenClicks = new int[candidates.size()];
+                final var writtenActive = new boolean[candidates.size()];
+                final var links = new ArrayList<Link>(candidates.size());
+                for (var i = 0; i < candidates.size(); i++) {
+                    final var link = candidates.get(i).entry().link;
+                    writtenClicks[i] = link.getClickCount().get();
+                    writtenActive[i] = link.isActive();
+                    links.add(link);
+                }
+                final var written = SortedLinkSegment.write(this::nextSegmentFile, links, storageProperties.sparseIndexInterval(),
+                    storageProperties.maxSegmentBytes());
+                final var updated = new ArrayList<SortedLinkSegment>(segments.size() + written.size());
+                updated.addAll(written);
+                updated.addAll(segments);
+                segments = List.copyOf(updated);
+
+                for (var i = 0; i < candidates.size(); i++) {
+                    final var entry = candidates.get(i).entry();
+                    final var link = entry.link;
+                    // touched or pinned since it was picked: still in use
+                    if (entry.lastAccessNanos != candidates.get(i).lastAccessNanos() || !entry.freeze()) {
+                        continue;
+                    }
+                    // frozen, nobody can change it any more: the cold copy is current unless it changed before the freeze
+                    if (link.getClickCount().get() != writtenClicks[i] || link.isActive() != writtenActive[i]) {
+                        entry.unfreeze();
+                        continue;
+                    }
+                    if (!currentHot.remove(link.getCode(), entry)) {
+                        if (!currentHot.containsKey(link.getCode())) {
+                            // deleted while the segment was written
+                            tombstones.add(link.getCode());
+                        }
+                        continue;
+                    }
+                    evictions.increment();
+                }
+
+                if (segments.size() > storageProperties.maxColdSegments()) {
+                    compact();
+                }
+            }
+        } catch (Exception e) {
+            log.error("Cold tier eviction failed: {}", e.getMessage());
+        }
+    }
+
+    private void compact() throws IOException {
+        final var current = segments;
+        final var appliedTombstones = new HashSet<>(tombstones);
+        final var currentHot = hot;
+        final var merged = SortedLinkSegment.merge(this::nextSegmentFile, current,
+            code -> !appliedTombstones.contains(code) && !currentHot.containsKey(code), storageProperties.sparseIndexInterval(),
+            storageProperties.maxSegmentBytes());
+        segments = merged;
+        tombstones.removeAll(appliedTombstones);
+        current.forEach(SortedLinkSegment::delete);
+        log.debug("Compacted {} cold segments into {} of {} records", current.size(), merged.size(),
+            merged.stream().mapToLong(SortedLinkSegment::recordCount).sum());
+    }
+
+    private Link findCold(String code) {
+        final var current = segments;
+        if (current.isEmpty() || tombstones.contains(code)) {
+            return null;
+        }
+
+        final var startedAt = System.nanoTime();
+        try {
+            for (final var segment : current) {
+                final var link = segment.find(code);
+                if (link != null) {
+                    return link;
+                }
+            }
+            return null;
+        } finally {
+            coldLookups.increment();
+            coldLookupNanos.add(System.nanoTime() - startedAt);
+        }
+    }
+
+    // visits the newest cold record of every live code exactly once; the link is decoded lazily
+    private void forEachCold(ColdVisitor visitor) {
+        final var current = segments;
+        if (current.isEmpty()) {
+            return;
+        }
+        // a single (compacted) segment has no duplicates to track
+        final var seen = current.size() > 1
+            ? new HashSet<String>()
+            : null;
+        final var currentTombstones = tombstones;
+        for (final var segment : current) {
+            final var cursor = segment.cursor();
+            while (cursor.advance()) {
+                final var code = cursor.code();
+                if (!currentTombstones.contains(code) && (seen == null || seen.add(code))) {
+                    visitor.visit(cursor, cursor::link);
+                }
+            }
+        }
+    }
+
+    private Path nextSegmentFile() {
+        return directory.resolve("links-%06d.seg".formatted(segmentIds.incrementAndGet()));
+    }
+
+    private record EvictionCandidate(HotEntry entry, long lastAccessNanos) {
+    }
+
+    private interface ColdVisitor {
+
+        void visit(SortedLinkSegment.Cursor cursor, Supplier<Link> link);
+    }
+
+    private static final class HotEntry {
+        // coarse enough for idle detection, avoids a shared write on every hit of a popular link
+        private static final long TOUCH_GRANULARITY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+        private static final int FROZEN = -1;
+        private final Link link;
+        // updates in progress, or FROZEN while the evictor decides
+        private final AtomicInteger pins = new AtomicInteger();
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private HotEntry(Link link) {
+            this.link = link;
+        }
+
+        void touch() {
+            final var now = System.nanoTime();
+            if (now - lastAccessNanos > TOUCH_GRANULARITY_NANOS) {
+                lastAccessNanos = now;
+            }
+        }
+
+        boolean pin() {
+            while (true) {
+                final var current = pins.get();
+                if (current == FROZEN) {
+                    return false;
+                }
+                if (pins.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void unpin() {
+            pins.decrementAndGet();
+        }
+
+        boolean freeze() {
+            return pins.compareAndSet(0, FROZEN);
+        }
+
+        void unfreeze() {
+            pins.set(0);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary index userId -> codes.
+ * <p>
+ * Users with few links are stored as an immutable inline array replaced under the map bin lock. Once a user exceeds
+ * {@link #INLINE_CAPACITY} codes the bucket is promoted to a concurrent set, so adds and removes for hot users no longer
+ * take the bin lock. Empty buckets are removed from the map.
+ */
+final class UserCodeIndex {
+    static final int INLINE_CAPACITY = 8;
+
+    private final ConcurrentHashMap<UUID, Bucket> bucketByUserId = new ConcurrentHashMap<>();
+
+    void add(UUID userId, String code) {
+        if (bucketByUserId.get(userId) instanceof SharedBucket shared && shared.tryAdd(code)) {
+            return;
+        }
+
+        bucketByUserId.compute(userId, (k, v) -> v == null
+            ? new InlineBucket(new String[] {code})
+            : v.with(code));
+    }
+
+    void remove(UUID userId, String code) {
+        final var bucket = bucketByUserId.get(userId);
+        if (bucket == null) {
+            return;
+        }
+
+        if (bucket instanceof SharedBucket shared) {
+            if (shared.codes.remove(code) && shared.codes.isEmpty()) {
+                bucketByUserId.computeIfPresent(userId, (k, v) -> v == shared
+                    ? shared.retireIfEmpty()
+                    : v);
+            }
+            return;
+        }
+
+        bucketByUserId.computeIfPresent(userId, (k, v) -> v.without(code));
+    }
+
+    void removeAll(UUID userId, Collection<String> codes) {
+        if (codes.isEmpty()) {
+            return;
+        }
+        final var bucket = bucketByUserId.get(userId);
+        if (bucket == null) {
+            return;
+        }
+
+        if (bucket instanceof SharedBucket shared) {
+            // removes one by one: the view's removeAll would scan the whole set against the collection
+            var changed = false;
+            for (final var code : codes) {
+                changed |= shared.codes.remove(code);
+            }
+            if (changed && shared.codes.isEmpty()) {
+                bucketByUserId.computeIfPresent(userId, (k, v) -> v == shared
+                    ? shared.retireIfEmpty()
+                    : v);
+            }
+            return;
+        }
+
+        bucketByUserId.computeIfPresent(userId, (k, v) -> {
+            var current = v;
+            for (final var code : codes) {
+                if (current == null) {
+                    return null;
+                }
+                current = current.without(code);
+            }
+            return current;
+        });
+    }
+
+    Collection<String> codes(UUID userId) {
+        final var bucket = bucketByUserId.get(userId);
+        return bucket == null
+            ? List.of()
+            : bucket.codes();
+    }
+
+    int userCount() {
+        return bucketByUserId.size();
+    }
+
+    private sealed interface Bucket permits InlineBucket, SharedBucket {
+
+        Bucket with(String code);
+
+        Bucket without(String code);
+
+        Collection<String> codes();
+    }
+
+    private record InlineBucket(String[] values) implements Bucket {
+
+        @Override
+        public Bucket with(String code) {
+            for (final var value : values) {
+                if (value.equals(code)) {
+                    return this;
+                }
+            }
+
+            if (values.length < INLINE_CAPACITY) {
+                final var copy = Arrays.copyOf(values, values.length + 1);
+                copy[values.length] = code;
+                return new InlineBucket(copy);
+            }
+
+            final var shared = new SharedBucket();
+            shared.codes.addAll(Arrays.asList(values));
+            shared.codes.add(code);
+            return shared;
+        }
+
+        @Override
+        public Bucket without(String code) {
+            for (var i = 0; i < values.length; i++) {
+                if (values[i].equals(code)) {
+                    if (values.length == 1) {
+                        return null;
+                    }
+                    final var copy = new String[values.length - 1];
+                    System.arraycopy(values, 0, copy, 0, i);
+                    System.arraycopy(values, i + 1, copy, i, values.length - i - 1);
+                    return new InlineBucket(copy);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public Collection<String> codes() {
+            return Arrays.asList(values);
+        }
+    }
+
+    private static final class SharedBucket implements Bucket {
+        private final Set<String> codes = ConcurrentHashMap.newKeySet();
+        // set under the bin lock right before the bucket is unmapped; lock-free adders that observe it fall back to compute
+        private volatile boolean retired;
+
+        boolean tryAdd(String code) {
+            codes.add(code);
+            return !retired;
+        }
+
+        Bucket retireIfEmpty() {
+            retired = true;
+            if (codes.isEmpty()) {
+                return null;
+            }
+            retired = false;
+            return this;
+        }
+
+        @Override
+        public Bucket with(String code) {
+            codes.add(code);
+            return this;
+        }
+
+        @Override
+        public Bucket without(String code) {
+            codes.remove(code);
+            return codes.isEmpty()
+                ? retireIfEmpty()
+                : this;
+        }
+
+        @Override
+        public Collection<String> codes() {
+            return codes;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only redo log of a memtable. Frame layout: {@code int length, int crc32, byte op, payload}, where the length and
+ * the checksum cover {@code op + payload}. A frame cut short or corrupted by a crash in the middle of an append ends the
+ * replay, everything before it is applied.
+ */
+final class WriteAheadLog implements AutoCloseable {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    private static final int FRAME_HEADER_SIZE = 4 + 4;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final boolean fsync;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer frame = ByteBuffer.allocate(512);
+    private long size;
+
+    private WriteAheadLog(Path file, FileChannel channel, boolean fsync) {
+        this.file = file;
+        this.channel = channel;
+        this.fsync = fsync;
+    }
+
+    static WriteAheadLog create(Path file, boolean fsync) throws IOException {
+        return new WriteAheadLog(file, FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), fsync);
+    }
+
+    // returns the number of applied records
+    static int replay(Path file, Visitor visitor) throws IOException {
+        final var buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        final var crc = new CRC32();
+        var records = 0;
+        while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+            final var length = buffer.getInt();
+            final var checksum = buffer.getInt();
+            if (length < 1 || length > buffer.remaining()) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            final var op = buffer.get();
+            final var payload = new byte[length - 1];
+            buffer.get(payload);
+            visitor.visit(op, payload);
+            records++;
+        }
+        return records;
+    }
+
+    synchronized void append(byte op, byte[] payload) {
+        final var length = 1 + payload.length;
+        if (frame.capacity() < FRAME_HEADER_SIZE + length) {
+            frame = ByteBuffer.allocate(Integer.highestOneBit(FRAME_HEADER_SIZE + length) << 1);
+        }
+        crc.reset();
+        crc.update(op);
+        crc.update(payload);
+        frame.clear()
+            .putInt(length)
+            .putInt((int) crc.getValue())
+            .put(op)
+            .put(payload)
+            .flip();
+        try {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to write-ahead log " + file, e);
+        }
+        size += FRAME_HEADER_SIZE + length;
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    interface Visitor {
+
+        void visit(byte op, byte[] payload) throws IOException;
+    }
+}
@@ -1,18 +1,27 @@
 package com.mephi.skillfactory.urlshortener.service;
 
+import com.mephi.skillfactory.urlshortener.service.audit.AccessLog;
+
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import lombok.RequiredArgsConstructor;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.synchronizedList;
 
 @Service
+@RequiredArgsConstructor
 public class NotificationService {
     private final ConcurrentHashMap<UUID, List<String>> notifications = new ConcurrentHashMap<>();
+    private final List<BiConsumer<UUID, String>> listeners = new CopyOnWriteArrayList<>();
+    private final AccessLog accessLog;
 
     public void notify(UUID user, String message) {
         notifications.compute(user, (k, v) -> {
@@ -23,7 +32,13 @@ public class NotificationService {
             return v;
         });
 
-        System.out.printf("NOTIFY %s: %s%n", user, message);
+        accessLog.notified(user, message);
+        listeners.forEach(listener -> listener.accept(user, message));
+    }
+
+    // listeners run on the notifying thread, so anything slower than a hand-off belongs on the background worker
+    public void addListener(BiConsumer<UUID, String> listener) {
+        listeners.add(listener);
     }
 
     public List<String> getNotifications(UUID user) {
@@ -1,103 +1,285 @@
 package com.mephi.skillfactory.urlshortener.service;
 
+import com.mephi.skillfactory.urlshortener.domain.ClientProfile;
 import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.domain.RoutingRule;
+import com.mephi.skillfactory.urlshortener.domain.RoutingTable;
 import com.mephi.skillfactory.urlshortener.properties.AppProperties;
 import com.mephi.skillfactory.urlshortener.properties.LinkProperties;
+import com.mephi.skillfactory.urlshortener.replication.ReplicationState;
 import com.mephi.skillfactory.urlshortener.repository.LinkRepository;
+import com.mephi.skillfactory.urlshortener.service.activation.ActivationScheduler;
+import com.mephi.skillfactory.urlshortener.service.alias.AliasPolicy;
+import com.mephi.skillfactory.urlshortener.service.audit.AccessLog;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.coalesce.SingleFlight;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventType;
+import com.mephi.skillfactory.urlshortener.service.exception.AliasTakenException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidActivationWindowException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidMaxClicksException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidRedirectPolicyException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidRoutingRulesException;
+import com.mephi.skillfactory.urlshortener.service.exception.ReplicaException;
+import com.mephi.skillfactory.urlshortener.service.exception.ScheduleCapacityException;
 import com.mephi.skillfactory.urlshortener.service.exception.UniqueCodeException;
+import com.mephi.skillfactory.urlshortener.service.keyspace.CodeLengthPolicy;
+import com.mephi.skillfactory.urlshortener.service.quota.UsageTracker;
+import com.mephi.skillfactory.urlshortener.service.routing.Redirect;
+import com.mephi.skillfactory.urlshortener.service.stats.LinkStatistics;
 
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
 public class ShortLinkService {
-    private final ScheduledExecutorService linksCleaner = Executors.newSingleThreadScheduledExecutor();
     private final LinkRepository linkRepository;
     private final CodeGenerator codeGenerator;
-    private final AppProperties appProperties;
     private final LinkProperties linkProperties;
     private final NotificationService notificationService;
+    private final LinkEventLog linkEventLog;
+    private final ReplicationState replicationState;
+    private final AliasPolicy aliasPolicy;
+    private final ActivationScheduler activationScheduler;
+    private final UsageTracker usageTracker;
+    private final LinkStatistics linkStatistics;
+    private final AccessLog accessLog;
+    private final CodeLengthPolicy codeLengthPolicy;
+    private final SingleFlight<ShortenKey, Link> inFlightShortens;
 
     public ShortLinkService(LinkRepository linkRepository, CodeGenerator codeGenerator,
                             AppProperties appProperties, LinkProperties linkProperties,
-                            NotificationService notificationService) {
+                            NotificationService notificationService, LinkEventLog linkEventLog,
+                            ReplicationState replicationState, AliasPolicy aliasPolicy,
+                            ActivationScheduler activationScheduler, UsageTracker usageTracker,
+                            LinkStatistics linkStatistics, AccessLog accessLog, CodeLengthPolicy codeLengthPolicy,
+                            BackgroundWorker backgroundWorker) {
         this.linkRepository = linkRepository;
         this.codeGenerator = codeGenerator;
-        this.appProperties = appProperties;
         this.linkProperties = linkProperties;
         this.notificationService = notificationService;
+        this.linkEventLog = linkEventLog;
+        this.replicationState = replicationState;
+        this.aliasPolicy = aliasPolicy;
+        this.activationScheduler = activationScheduler;
+        this.usageTracker = usageTracker;
+        this.linkStatistics = linkStatistics;
+        this.accessLog = accessLog;
+        this.codeLengthPolicy = codeLengthPolicy;
+        this.inFlightShortens = new SingleFlight<>(linkProperties.coalesceWait());
 
-        startCleaner();
+        backgroundWorker.schedulePeriodic("link-cleanup", this::cleanup, Duration.ofSeconds(appProperties.cleanupIntervalSeconds()));
     }
 
-    public Link createShortLink(String longLink, UUID userId, Integer maxClicks, Long ttlSeconds) {
+    public Link createShortLink(String longLink, UUID userId, Integer maxClicks, Long ttlSeconds, String alias,
+                                Instant activeFrom, Instant activeUntil, RedirectPolicy redirectPolicy, List<RoutingRule> rules) {
+        replicationState.checkWritable();
         if (userId == null) {
             userId = UUID.randomUUID();
             log.debug("New user id is generated: {}", userId);
+            // nobody else can be shortening for a user that did not exist a moment ago
+            return create(longLink, userId, maxClicks, ttlSeconds, alias, activeFrom, activeUntil, redirectPolicy, rules);
         }
+        if (!linkProperties.coalesceShortens()) {
+            return create(longLink, userId, maxClicks, ttlSeconds, alias, activeFrom, activeUntil, redirectPolicy, rules);
+        }
+
+        // identical requests racing each other (double submits, client retries) share one link and one quota slot
+        final var owner = userId;
+        final var key = new ShortenKey(owner, longLink, maxClicks, ttlSeconds, alias, activeFrom, activeUntil, redirectPolicy, rules);
+        return inFlightShortens.execute(key, () -> create(longLink, owner, maxClicks, ttlSeconds, alias, activeFrom, activeUntil,
+            redirectPolicy, rules));
+    }
+
+    public Map<String, Object> coalescingStats() {
+        return inFlightShortens.stats();
+    }
+
+    public Map<String, Object> codeStats() {
+        return codeLengthPolicy.stats();
+    }
 
+    public String constructShortLinkUrl(Link shortLink) {
+        return linkProperties.baseUrl() + '/' + shortLink.getCode();
+    }
+
+    private Link create(String longLink, UUID userId, Integer maxClicks, Long ttlSeconds, String alias, Instant activeFrom,
+                        Instant activeUntil, RedirectPolicy redirectPolicy, List<RoutingRule> rules) {
+        final var ttl = ttlSeconds == null
+            ? linkProperties.defaultTtlSeconds()
+            : ttlSeconds;
+        if (maxClicks != null && maxClicks < 1 && maxClicks != Link.UNLIMITED_CLICKS) {
+            throw new InvalidMaxClicksException("maxClicks must be positive, or %d for unlimited".formatted(Link.UNLIMITED_CLICKS));
+        }
+        final var clicks = maxClicks == null
+            ? linkProperties.defaultMaxClicks()
+            : maxClicks;
+        final var policy = redirectPolicy == null
+            ? RedirectPolicy.TEMPORARY
+            : redirectPolicy;
+        // a cached redirect never reaches us again, so its clicks could not be counted
+        if (policy == RedirectPolicy.PERMANENT && clicks != Link.UNLIMITED_CLICKS) {
+            throw new InvalidRedirectPolicyException("PERMANENT redirects require maxClicks = %d (unlimited)".formatted(Link.UNLIMITED_CLICKS));
+        }
+        final var routing = compileRouting(rules);
+        // a cached redirect would pin whichever target the first visitor was routed to
+        if (policy == RedirectPolicy.PERMANENT && !routing.isEmpty()) {
+            throw new InvalidRedirectPolicyException("PERMANENT redirects cannot have routing rules");
+        }
+        final var now = Instant.now();
+        validateActivationWindow(now, ttl, activeFrom, activeUntil);
+        // a link whose window has not started yet is created inactive and switched on by the activation scheduler
+        final var active = activeFrom == null || !activeFrom.isAfter(now);
+
+        if (alias != null) {
+            aliasPolicy.validate(alias);
+        }
+
+        usageTracker.acquireLink(userId);
+        final Link link;
+        try {
+            link = claimCode(longLink, userId, now, ttl, clicks, active, alias, activeFrom, activeUntil, policy, routing);
+        } catch (RuntimeException e) {
+            usageTracker.releaseLink(userId);
+            throw e;
+        }
+        return created(link);
+    }
+
+    private Link claimCode(String longLink, UUID userId, Instant now, long ttl, int clicks, boolean active, String alias,
+                           Instant activeFrom, Instant activeUntil, RedirectPolicy policy, RoutingTable routing) {
+        if (alias != null) {
+            final var link = new Link(alias, longLink, userId, now, ttl, clicks, 0, active, activeFrom, activeUntil, policy, routing);
+            if (!linkRepository.saveLinkIfAbsent(link)) {
+                throw new AliasTakenException("Alias is already taken: " + alias);
+            }
+            return link;
+        }
+
+        var collisions = 0;
         for (var attempts = 0; attempts < linkProperties.maxShortGenAttempts(); attempts++) {
-            final var code = codeGenerator.generate(userId.toString(), longLink, linkProperties.codeLength(), attempts);
-            if (isCodeAvailable(code)) {
-                final var ttl = ttlSeconds == null
-                    ? linkProperties.defaultTtlSeconds()
-                    : ttlSeconds;
-                final var clicks = maxClicks == null
-                    ? linkProperties.defaultMaxClicks()
-                    : maxClicks;
-
-                final var link = new Link(code, longLink, userId, ttl, clicks);
-                linkRepository.saveLink(link);
-                notificationService.notify(userId, "Link created: " + code);
+            final var length = codeLengthPolicy.lengthFor(collisions);
+            final var code = codeGenerator.generate(userId.toString(), longLink, length, attempts);
+            final var link = new Link(code, longLink, userId, now, ttl, clicks, 0, active, activeFrom, activeUntil, policy, routing);
+            final var saved = linkRepository.saveLinkIfAbsent(link);
+            if (saved) {
+                codeLengthPolicy.recordAttempt(length, false);
                 return link;
             }
+            // codes are derived from owner and URL, so shortening the same URL again meets its own earlier link, which says
+            // nothing about how full the keyspace is and must neither count as a collision nor lengthen the next try
+            if (!isRepeat(code, userId, longLink)) {
+                codeLengthPolicy.recordAttempt(length, true);
+                collisions++;
+            }
         }
 
+        codeLengthPolicy.recordExhausted();
         throw new UniqueCodeException("Cannot generate unique link code after %s attempts"
             .formatted(linkProperties.maxShortGenAttempts()));
     }
 
-    public String constructShortLinkUrl(Link shortLink) {
-        return linkProperties.baseUrl() + '/' + shortLink.getCode();
+    private boolean isRepeat(String code, UUID userId, String longLink) {
+        return linkRepository.findLinkByCode(code)
+            .filter(existing -> existing.getUserId().equals(userId) && existing.getTargetUrl().equals(longLink))
+            .isPresent();
     }
 
-    private boolean isCodeAvailable(String code) {
-        return linkRepository.findLinkByCode(code).isEmpty();
+    private static RoutingTable compileRouting(List<RoutingRule> rules) {
+        try {
+            return RoutingTable.compile(rules);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRoutingRulesException(e.getMessage(), e);
+        }
     }
 
-    public Optional<Link> getShortLink(String code) {
-        final var linkOptional = linkRepository.findLinkByCode(code);
-        if (linkOptional.isEmpty()) {
-            return Optional.empty();
+    private void validateActivationWindow(Instant now, long ttlSeconds, Instant activeFrom, Instant activeUntil) {
+        if (activeFrom != null && !activeFrom.isBefore(now.plusSeconds(ttlSeconds))) {
+            throw new InvalidActivationWindowException("activeFrom must be before the link expires");
+        }
+        if (activeUntil != null && !activeUntil.isAfter(activeFrom == null
+            ? now
+            : activeFrom)) {
+            throw new InvalidActivationWindowException("activeUntil must be in the future and after activeFrom");
         }
+    }
 
-        final var link = linkOptional.get();
+    private Link created(Link link) {
+        if (!activationScheduler.schedule(link)) {
+            if (linkRepository.deleteLinkByCode(link.getCode())) {
+                usageTracker.releaseLink(link.getUserId());
+            }
+            throw new ScheduleCapacityException("Too many scheduled activation windows, try again later");
+        }
+        codeLengthPolicy.linkAdded(link.getCode());
+        linkEventLog.publish(LinkEventType.CREATED, link);
+        accessLog.created(link);
+        notificationService.notify(link.getUserId(), "Link created: " + link.getCode());
+        return link;
+    }
+
+    public Optional<Link> getShortLink(String code) {
+        return redirect(code, () -> ClientProfile.UNKNOWN).map(Redirect::link);
+    }
+
+    // the client is only profiled when the link has routing rules
+    public Optional<Redirect> redirect(String code, Supplier<ClientProfile> client) {
+        replicationState.checkReadable();
+        return linkRepository.updateLink(code, link -> follow(link, client));
+    }
+
+    // null when the link cannot be followed
+    private Redirect follow(Link link, Supplier<ClientProfile> client) {
         if (!link.isActive() || link.isExpired()) {
-            return Optional.empty();
+            return null;
+        }
+        // maxClicks is enforced against the primary's counter, which a follower only sees with a delay
+        final var follower = replicationState.isFollower();
+        if (follower && link.isClickLimited()) {
+            throw new ReplicaException("Click-limited links are only redirected by the primary");
         }
 
+        usageTracker.recordClick(link.getUserId());
+        final var targetUrl = link.getRouting().isEmpty()
+            ? link.getTargetUrl()
+            : link.routeFor(client.get());
+        if (follower) {
+            replicationState.forwardClick(link.getCode());
+            accessLog.redirected(link, targetUrl);
+            return new Redirect(link, targetUrl);
+        }
         final var clicks = link.incrementAndGetClicks();
-        if (clicks >= link.getMaxClicks()) {
-            link.deactivate();
-            notificationService.notify(link.getUserId(), "Link " + code + " reached max clicks and is now inactive");
+        linkEventLog.publish(LinkEventType.CLICKED, link);
+        accessLog.redirected(link, targetUrl);
+        if (link.isClickLimited() && clicks >= link.getMaxClicks() && link.deactivate()) {
+            linkEventLog.publish(LinkEventType.DEACTIVATED, link);
+            notificationService.notify(link.getUserId(), "Link " + link.getCode() + " reached max clicks and is now inactive");
         }
-        return Optional.of(link);
+        return new Redirect(link, targetUrl);
     }
 
     public List<Link> listByUserId(UUID userId) {
         return linkRepository.findLinksByUserId(userId);
     }
 
+    public Map<String, Object> usage(UUID userId) {
+        return usageTracker.usage(userId);
+    }
+
     public boolean deleteLink(String code, UUID userId) {
+        replicationState.checkWritable();
         final var linkOptional = linkRepository.findLinkByCode(code);
         if (linkOptional.isEmpty()) {
             return false;
@@ -106,23 +288,43 @@ public class ShortLinkService {
         if (!link.getUserId().equals(userId)) {
             throw new SecurityException("Only owner can delete link");
         }
-        linkRepository.deleteLinkByCode(code);
+        // lost a race with the cleaner or a concurrent delete, which already accounted for the removal
+        if (!linkRepository.deleteLinkByCode(code)) {
+            return false;
+        }
+        onRemoved(link, LinkEventType.DELETED);
         notificationService.notify(userId, "Link deleted: " + code);
         return true;
     }
 
+    // batched removal for bulk jobs: no per-link notifications, the caller reports a summary
+    public int removeOwnedLinks(UUID userId, Collection<String> codes, LinkEventType reason) {
+        replicationState.checkWritable();
+        final var removed = linkRepository.deleteLinksByCodes(userId, codes);
+        for (final var link : removed) {
+            onRemoved(link, reason);
+        }
+        return removed.size();
+    }
+
     public void cleanup() {
-        for (final var link : linkRepository.findAll()) {
-            if (link.isExpired()) {
-                linkRepository.deleteLinkByCode(link.getCode());
-                notificationService.notify(link.getUserId(), "Link " + link.getCode() + " expired and removed");
+        for (final var link : linkRepository.findExpiredLinks()) {
+            if (!linkRepository.deleteLinkByCode(link.getCode())) {
+                continue;
             }
+            onRemoved(link, LinkEventType.EXPIRED);
+            notificationService.notify(link.getUserId(), "Link " + link.getCode() + " expired and removed");
         }
+        linkStatistics.prune();
+    }
+
+    private void onRemoved(Link link, LinkEventType reason) {
+        usageTracker.releaseLink(link.getUserId());
+        codeLengthPolicy.linkRemoved(link.getCode());
+        linkEventLog.publish(reason, link);
     }
 
-    private void startCleaner() {
-        linksCleaner.scheduleAtFixedRate(
-            this::cleanup, appProperties.cleanupIntervalSeconds(), appProperties.cleanupIntervalSeconds(), TimeUnit.SECONDS
-        );
+    private record ShortenKey(UUID userId, String url, Integer maxClicks, Long ttlSeconds, String alias, Instant activeFrom,
+                              Instant activeUntil, RedirectPolicy redirectPolicy, List<RoutingRule> rules) {
     }
 }
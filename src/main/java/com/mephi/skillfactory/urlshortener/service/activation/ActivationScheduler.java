@@ -0,0 +1,121 @@
+package com.mephi.skillfactory.urlshortener.service.activation;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.ActivationProperties;
+import com.mephi.skillfactory.urlshortener.repository.LinkRepository;
+import com.mephi.skillfactory.urlshortener.service.NotificationService;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventType;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Flips {@link Link#isActive()} at the boundaries of activation windows, so redirects only read the flag. Transitions are
+ * keyed by code and re-checked against the current link when they fire, so entries left behind by a deleted or replaced
+ * link are harmless.
+ */
+@Slf4j
+@Component
+public class ActivationScheduler {
+    private final LinkRepository linkRepository;
+    private final LinkEventLog linkEventLog;
+    private final NotificationService notificationService;
+    private final TimingWheel wheel;
+    private final AtomicLong activations = new AtomicLong();
+    private final AtomicLong deactivations = new AtomicLong();
+    private final AtomicLong overdue = new AtomicLong();
+
+    public ActivationScheduler(ActivationProperties activationProperties, LinkRepository linkRepository, LinkEventLog linkEventLog,
+                               NotificationService notificationService, BackgroundWorker backgroundWorker) {
+        this.linkRepository = linkRepository;
+        this.linkEventLog = linkEventLog;
+        this.notificationService = notificationService;
+        this.wheel = new TimingWheel(activationProperties.tickMillis(), activationProperties.wheelSize(),
+            activationProperties.maxScheduled(), System.currentTimeMillis());
+
+        backgroundWorker.schedulePeriodic("activation-wheel", this::advance, Duration.ofMillis(activationProperties.tickMillis()));
+    }
+
+    public boolean schedule(Link link) {
+        final var activeFrom = link.getActiveFrom();
+        final var activeUntil = link.getActiveUntil();
+        if (activeFrom != null && !link.isActive() && !accepted(wheel.schedule(link.getCode(), TimingWheel.ACTIVATE,
+            activeFrom.toEpochMilli()))) {
+            return false;
+        }
+        // a full wheel may drop the end of a window whose start was already accepted, the start then fires harmlessly
+        return activeUntil == null || accepted(wheel.schedule(link.getCode(), TimingWheel.DEACTIVATE, activeUntil.toEpochMilli()));
+    }
+
+    public void scheduleAll(Consumer<Consumer<? super Link>> forEachLink) {
+        final var rejected = new int[1];
+        forEachLink.accept(link -> {
+            if ((link.getActiveFrom() != null || link.getActiveUntil() != null) && !schedule(link)) {
+                rejected[0]++;
+            }
+        });
+        if (rejected[0] > 0) {
+            log.warn("Activation wheel is full, {} links keep their current state", rejected[0]);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of("scheduled", wheel.size(), "capacity", wheel.capacity(), "activations", activations.get(), "deactivations",
+            deactivations.get(), "overdue", overdue.get());
+    }
+
+    private boolean accepted(TimingWheel.ScheduleResult result) {
+        if (result == TimingWheel.ScheduleResult.OVERDUE) {
+            overdue.incrementAndGet();
+        }
+        return result != TimingWheel.ScheduleResult.REJECTED;
+    }
+
+    void advance() {
+        wheel.advance(System.currentTimeMillis(), this::onTransition);
+    }
+
+    private void onTransition(String code, byte transition) {
+        linkRepository.updateLink(code, link -> {
+            onTransition(link, transition);
+            return link;
+        });
+    }
+
+    private void onTransition(Link link, byte transition) {
+        final var code = link.getCode();
+        final var now = Instant.now();
+        if (transition == TimingWheel.ACTIVATE) {
+            final var activeFrom = link.getActiveFrom();
+            final var activeUntil = link.getActiveUntil();
+            if (activeFrom == null || now.isBefore(activeFrom) || activeUntil != null && !now.isBefore(activeUntil) || link.isActive()) {
+                return;
+            }
+            if (link.activate()) {
+                activations.incrementAndGet();
+                linkEventLog.publish(LinkEventType.ACTIVATED, link);
+                notificationService.notify(link.getUserId(), "Link " + code + " is now active");
+            }
+            return;
+        }
+
+        final var activeUntil = link.getActiveUntil();
+        if (activeUntil == null || now.isBefore(activeUntil) || !link.isActive()) {
+            return;
+        }
+        if (link.deactivate()) {
+            deactivations.incrementAndGet();
+            linkEventLog.publish(LinkEventType.DEACTIVATED, link);
+            notificationService.notify(link.getUserId(), "Link " + code + " activation window ended and it is now inactive");
+        }
+    }
+}
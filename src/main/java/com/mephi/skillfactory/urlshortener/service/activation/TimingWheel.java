@@ -0,0 +1,168 @@
+package com.mephi.skillfactory.urlshortener.service.activation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashed timing wheel of link state transitions advanced by a single ticker thread.
+ * <p>
+ * Each bucket keeps its entries in parallel primitive arrays (code reference, deadline tick, transition), about 13 bytes
+ * per entry instead of a task object per timer, and shrinks back after a burst has fired. Entries further away than one
+ * rotation simply stay in their bucket until the tick they are due. The number of pending entries is capped.
+ * <p>
+ * The ticker publishes {@code processedTick} while holding the bucket lock, so a producer that sees a deadline beyond it
+ * under the same lock is guaranteed the bucket is visited again in time; anything already due goes to an overdue queue
+ * drained on the next advance.
+ */
+final class TimingWheel {
+    static final byte ACTIVATE = 1;
+    static final byte DEACTIVATE = 2;
+
+    private final long tickMillis;
+    private final long originMillis;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final long capacity;
+    private final AtomicLong size = new AtomicLong();
+    private final ConcurrentLinkedQueue<Entry> overdue = new ConcurrentLinkedQueue<>();
+    private volatile long processedTick;
+
+    TimingWheel(long tickMillis, int wheelSize, long capacity, long nowMillis) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.originMillis = nowMillis;
+        this.buckets = new Bucket[wheelSize];
+        for (var i = 0; i < wheelSize; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.capacity = capacity;
+    }
+
+    ScheduleResult schedule(String code, byte transition, long deadlineMillis) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return ScheduleResult.REJECTED;
+        }
+        final var tick = tickOf(deadlineMillis);
+        final var bucket = buckets[(int) (tick & mask)];
+        synchronized (bucket) {
+            if (tick > processedTick) {
+                bucket.add(code, tick, transition);
+                return ScheduleResult.SCHEDULED;
+            }
+        }
+        overdue.add(new Entry(code, transition));
+        return ScheduleResult.OVERDUE;
+    }
+
+    /**
+     * Fires every entry due at {@code nowMillis}, catching up tick by tick if the ticker fell behind.
+     */
+    void advance(long nowMillis, TransitionHandler handler) {
+        final var fired = new ArrayList<Entry>();
+        var overdueEntry = overdue.poll();
+        while (overdueEntry != null) {
+            fired.add(overdueEntry);
+            overdueEntry = overdue.poll();
+        }
+        fire(fired, handler);
+
+        final var target = tickOf(nowMillis);
+        for (var tick = processedTick + 1; tick <= target; tick++) {
+            fired.clear();
+            final var bucket = buckets[(int) (tick & mask)];
+            synchronized (bucket) {
+                bucket.drainDue(tick, fired);
+                processedTick = tick;
+            }
+            fire(fired, handler);
+        }
+    }
+
+    long size() {
+        return size.get();
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    private void fire(List<Entry> fired, TransitionHandler handler) {
+        size.addAndGet(-fired.size());
+        for (final var entry : fired) {
+            handler.onTransition(entry.code, entry.transition);
+        }
+    }
+
+    private long tickOf(long millis) {
+        // rounded up so a transition never fires before its boundary
+        return Math.max(0, Math.ceilDiv(millis - originMillis, tickMillis));
+    }
+
+    enum ScheduleResult {
+        SCHEDULED,
+        // the deadline had already passed, the entry fires on the next advance instead of at its tick
+        OVERDUE,
+        // the wheel is at capacity
+        REJECTED
+    }
+
+    @FunctionalInterface
+    interface TransitionHandler {
+
+        void onTransition(String code, byte transition);
+    }
+
+    private record Entry(String code, byte transition) {
+    }
+
+    private static final class Bucket {
+        private static final int MIN_CAPACITY = 4;
+
+        private String[] codes = new String[MIN_CAPACITY];
+        private long[] ticks = new long[MIN_CAPACITY];
+        private byte[] transitions = new byte[MIN_CAPACITY];
+        private int count;
+
+        void add(String code, long tick, byte transition) {
+            if (count == codes.length) {
+                resize(count + (count >> 1) + 1);
+            }
+            codes[count] = code;
+            ticks[count] = tick;
+            transitions[count] = transition;
+            count++;
+        }
+
+        void drainDue(long tick, List<Entry> out) {
+            var kept = 0;
+            for (var i = 0; i < count; i++) {
+                if (ticks[i] <= tick) {
+                    out.add(new Entry(codes[i], transitions[i]));
+                } else {
+                    codes[kept] = codes[i];
+                    ticks[kept] = ticks[i];
+                    transitions[kept] = transitions[i];
+                    kept++;
+                }
+            }
+            Arrays.fill(codes, kept, count, null);
+            count = kept;
+            if (codes.length > MIN_CAPACITY && count < codes.length / 4) {
+                resize(Math.max(MIN_CAPACITY, count * 2));
+            }
+        }
+
+        private void resize(int newCapacity) {
+            codes = Arrays.copyOf(codes, newCapacity);
+            ticks = Arrays.copyOf(ticks, newCapacity);
+            transitions = Arrays.copyOf(transitions, newCapacity);
+        }
+    }
+}
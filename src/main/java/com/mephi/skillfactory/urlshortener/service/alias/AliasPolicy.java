@@ -0,0 +1,66 @@
+package com.mephi.skillfactory.urlshortener.service.alias;
+
+import com.mephi.skillfactory.urlshortener.properties.AliasProperties;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidAliasException;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Vanity aliases share the code key space with generated codes. Generated codes are pure base62, so an alias must contain
+ * at least one {@code -} or {@code _} to never collide with one. Reserved words are rejected both as the whole alias and
+ * as any of its separator-delimited parts.
+ */
+@Component
+public class AliasPolicy {
+    private final AliasProperties aliasProperties;
+    private final ReservedWordTrie reservedWords;
+
+    public AliasPolicy(AliasProperties aliasProperties) {
+        this.aliasProperties = aliasProperties;
+        this.reservedWords = new ReservedWordTrie(aliasProperties.reservedWords());
+    }
+
+    public void validate(String alias) {
+        final var length = alias.length();
+        if (length < aliasProperties.minLength() || length > aliasProperties.maxLength()) {
+            throw new InvalidAliasException("Alias length must be between %s and %s"
+                .formatted(aliasProperties.minLength(), aliasProperties.maxLength()));
+        }
+        if (isSeparator(alias.charAt(0)) || isSeparator(alias.charAt(length - 1))) {
+            throw new InvalidAliasException("Alias must not start or end with '-' or '_'");
+        }
+
+        var hasSeparator = false;
+        var tokenStart = 0;
+        for (var i = 0; i <= length; i++) {
+            if (i < length && !isSeparator(alias.charAt(i))) {
+                if (!isAllowed(alias.charAt(i))) {
+                    throw new InvalidAliasException("Alias may contain only lowercase latin letters, digits, '-' and '_'");
+                }
+                continue;
+            }
+            if (i < length) {
+                hasSeparator = true;
+            }
+            if (reservedWords.contains(alias, tokenStart, i)) {
+                throw new InvalidAliasException("Alias contains a reserved word: " + alias.substring(tokenStart, i));
+            }
+            tokenStart = i + 1;
+        }
+
+        if (!hasSeparator) {
+            throw new InvalidAliasException("Alias must contain '-' or '_' to stay apart from generated codes");
+        }
+        if (reservedWords.contains(alias, 0, length)) {
+            throw new InvalidAliasException("Alias is reserved: " + alias);
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '-' || c == '_';
+    }
+
+    private static boolean isAllowed(char c) {
+        return c >= 'a' && c <= 'z' || c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,93 @@
+package com.mephi.skillfactory.urlshortener.service.alias;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Immutable trie flattened into arrays in breadth-first order: the children of a node are contiguous and sorted by label,
+ * so a lookup is one binary search per character over a few primitive arrays instead of a map per node.
+ */
+final class ReservedWordTrie {
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final BitSet terminal;
+
+    ReservedWordTrie(Collection<String> words) {
+        final var root = new BuildNode();
+        var nodes = 1;
+        for (final var word : words) {
+            var node = root;
+            for (final var c : word.toLowerCase(Locale.ROOT).toCharArray()) {
+                var child = node.children.get(c);
+                if (child == null) {
+                    child = new BuildNode();
+                    node.children.put(c, child);
+                    nodes++;
+                }
+                node = child;
+            }
+            node.terminal = true;
+        }
+
+        labels = new char[nodes];
+        firstChild = new int[nodes];
+        childCount = new int[nodes];
+        terminal = new BitSet(nodes);
+        final var queue = new ArrayDeque<BuildNode>();
+        queue.add(root);
+        var index = 0;
+        var next = 1;
+        while (!queue.isEmpty()) {
+            final var node = queue.poll();
+            terminal.set(index, node.terminal);
+            firstChild[index] = next;
+            childCount[index] = node.children.size();
+            for (final var child : node.children.entrySet()) {
+                labels[next++] = child.getKey();
+                queue.add(child.getValue());
+            }
+            index++;
+        }
+    }
+
+    boolean contains(CharSequence text, int from, int to) {
+        var node = 0;
+        for (var i = from; i < to; i++) {
+            node = child(node, text.charAt(i));
+            if (node < 0) {
+                return false;
+            }
+        }
+        return terminal.get(node);
+    }
+
+    int size() {
+        return terminal.cardinality();
+    }
+
+    private int child(int node, char label) {
+        var low = firstChild[node];
+        var high = low + childCount[node] - 1;
+        while (low <= high) {
+            final var mid = (low + high) >>> 1;
+            final var midLabel = labels[mid];
+            if (midLabel < label) {
+                low = mid + 1;
+            } else if (midLabel > label) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static final class BuildNode {
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private boolean terminal;
+    }
+}
@@ -0,0 +1,476 @@
+package com.mephi.skillfactory.urlshortener.service.audit;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.AccessLogProperties;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only access and audit log kept off the request path.
+ * <p>
+ * Producers put entries into a bounded lock-free queue and return; one writer thread drains the queue in batches, encodes
+ * them as tab-separated UTF-8 lines straight into a direct buffer and hands each batch to the file channel in as few writes
+ * as the buffer allows. {@code access.log} is renamed to {@code access-<millis>.log} once it grows past {@code access-log.max-file-bytes},
+ * and only the newest {@code access-log.max-files} rotated files are kept. When the disk falls behind and the queue is full,
+ * the overflow policy of the entry's category decides: {@code DROP} counts the entry and returns at once, {@code BLOCK} waits
+ * for space up to {@code access-log.block-timeout} and drops after that. Redirects always drop, so redirect latency never
+ * depends on the disk; dropped redirects are counted separately because they are missing billing records. An idle writer parks until a producer hands it an entry.
+ */
+@Slf4j
+@Component
+public class AccessLog implements SmartLifecycle {
+    // starts before and stops after the background worker, whose final runs may still notify
+    public static final int PHASE = BackgroundWorker.PHASE - 1024;
+    static final String ACTIVE_FILE = "access.log";
+    private static final String ROTATED_PREFIX = "access-";
+    private static final String SUFFIX = ".log";
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final long BLOCK_PARK_NANOS = 50_000;
+    private static final long STOP_TIMEOUT_MILLIS = 5_000;
+    private static final DateTimeFormatter SECOND_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.")
+        .withZone(ZoneOffset.UTC);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] TYPE_NAMES = Arrays.stream(AccessLogEntry.Type.values())
+        .map(type -> type.name()
+            .getBytes(StandardCharsets.US_ASCII))
+        .toArray(byte[][]::new);
+    private static final byte TAB = '\t';
+    private static final byte NEWLINE = '\n';
+    // timestamp, longest type name, owner, separators and the two "-" placeholders
+    private static final int FIXED_BYTES = 24 + 10 + 36 + 5 + 2;
+
+    private final AccessLogProperties properties;
+    private final Path directory;
+    private final BoundedMpscQueue<AccessLogEntry> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder droppedRedirects = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rotations = new AtomicLong();
+    private final AtomicLong rotationFailures = new AtomicLong();
+    // the writer state below is touched by the writer thread only
+    private final List<AccessLogEntry> batch = new ArrayList<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private FileChannel channel;
+    private long fileBytes;
+    private long cachedSecond = Long.MIN_VALUE;
+    private byte[] cachedSecondPrefix;
+    private volatile Thread writer;
+    // set while the writer is about to park, so producers only pay for an unpark when it sleeps
+    private volatile boolean writerIdle;
+    private volatile boolean running;
+
+    public AccessLog(AccessLogProperties properties) {
+        if (properties.enabled() && (properties.directory() == null || properties.directory().isBlank())) {
+            throw new IllegalArgumentException("access-log.directory must be set when the access log is enabled");
+        }
+        if (properties.redirectOverflow() == AccessLogProperties.OverflowPolicy.BLOCK) {
+            throw new IllegalArgumentException("access-log.redirect-overflow must be drop, redirects never wait for the disk");
+        }
+        this.properties = properties;
+        this.directory = Path.of(properties.directory());
+        this.queue = new BoundedMpscQueue<>(properties.queueCapacity());
+    }
+
+    public void created(Link link) {
+        record(new AccessLogEntry(System.currentTimeMillis(), AccessLogEntry.Type.CREATED, link.getUserId(), link.getCode(),
+            link.getTargetUrl()), properties.auditOverflow());
+    }
+
+    // targetUrl is where the visitor was actually sent, which differs from the link's target when a routing rule matched
+    public void redirected(Link link, String targetUrl) {
+        record(new AccessLogEntry(System.currentTimeMillis(), AccessLogEntry.Type.REDIRECTED, link.getUserId(), link.getCode(), targetUrl),
+            properties.redirectOverflow());
+    }
+
+    public void notified(UUID userId, String message) {
+        record(new AccessLogEntry(System.currentTimeMillis(), AccessLogEntry.Type.NOTIFIED, userId, null, message),
+            properties.auditOverflow());
+    }
+
+    public Map<String, Object> stats() {
+        final var out = new LinkedHashMap<String, Object>();
+        out.put("enabled", properties.enabled());
+        out.put("queued", queue.size());
+        out.put("capacity", queue.capacity());
+        out.put("written", written.get());
+        out.put("dropped", dropped.sum());
+        out.put("droppedRedirects", droppedRedirects.sum());
+        out.put("blocked", blocked.sum());
+        out.put("failed", failed.get());
+        out.put("rotations", rotations.get());
+        out.put("rotationFailures", rotationFailures.get());
+        return out;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (properties.enabled()) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create access log directory " + directory, e);
+            }
+            running = true;
+            writer = Thread.ofPlatform()
+                .name("access-log-writer")
+                .daemon()
+                .start(this::runWriter);
+            return;
+        }
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        final var current = writer;
+        if (current == null) {
+            return;
+        }
+        LockSupport.unpark(current);
+        try {
+            current.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (current.isAlive()) {
+            log.warn("Access log writer did not finish within {} ms, {} entries left", STOP_TIMEOUT_MILLIS, queue.size());
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    // called by the writer thread only; tests call it directly instead of starting the writer
+    int drain() {
+        final var drained = queue.drainTo(batch, properties.batchSize());
+        if (drained == 0) {
+            return 0;
+        }
+        try {
+            writeBatch();
+            written.addAndGet(drained);
+        } catch (IOException e) {
+            failed.addAndGet(drained);
+            log.warn("Access log write failed, {} entries lost: {}", drained, e.getMessage());
+            closeChannel();
+            return drained;
+        } finally {
+            batch.clear();
+        }
+        // the batch is already on disk, a failed rotation only leaves the active file growing until the next attempt
+        if (fileBytes >= properties.maxFileBytes()) {
+            try {
+                rotate();
+            } catch (IOException e) {
+                rotationFailures.incrementAndGet();
+                log.warn("Access log rotation failed: {}", e.getMessage());
+                closeChannel();
+            }
+        }
+        return drained;
+    }
+
+    void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Cannot close access log: {}", e.getMessage());
+        }
+        channel = null;
+    }
+
+    private void record(AccessLogEntry entry, AccessLogProperties.OverflowPolicy policy) {
+        if (!properties.enabled()) {
+            return;
+        }
+        if (queue.offer(entry)) {
+            wakeWriter();
+            return;
+        }
+        // without a running writer nobody frees space, so waiting would only add latency
+        if (policy == AccessLogProperties.OverflowPolicy.BLOCK && running && awaitSpace(entry)) {
+            wakeWriter();
+            return;
+        }
+        dropped.increment();
+        if (entry.type() == AccessLogEntry.Type.REDIRECTED) {
+            droppedRedirects.increment();
+        }
+    }
+
+    private void wakeWriter() {
+        if (writerIdle) {
+            final var current = writer;
+            if (current != null) {
+                LockSupport.unpark(current);
+            }
+        }
+    }
+
+    private boolean awaitSpace(AccessLogEntry entry) {
+        blocked.increment();
+        final var deadline = System.nanoTime() + properties.blockTimeout()
+            .toNanos();
+        while (System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            if (queue.offer(entry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runWriter() {
+        while (running) {
+            if (drain() == 0) {
+                awaitEntries();
+            }
+        }
+        // whatever was queued before stop still reaches the file
+        int drained;
+        do {
+            drained = drain();
+        } while (drained > 0);
+        closeChannel();
+    }
+
+    // the flag is raised before the queue is checked, so a producer that offers after the check sees it and unparks the writer
+    private void awaitEntries() {
+        writerIdle = true;
+        try {
+            if (running && queue.size() == 0) {
+                LockSupport.park(this);
+            }
+        } finally {
+            writerIdle = false;
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        for (final var entry : batch) {
+            final var maxBytes = maxEncodedBytes(entry);
+            if (maxBytes > buffer.remaining()) {
+                writeBuffer();
+            }
+            if (maxBytes > buffer.capacity()) {
+                final var oversized = ByteBuffer.allocate(maxBytes);
+                encode(entry, oversized);
+                write(oversized.flip());
+            } else {
+                encode(entry, buffer);
+            }
+        }
+        writeBuffer();
+        if (properties.fsync()) {
+            channel.force(false);
+        }
+    }
+
+    // a UTF-16 char never takes more than three bytes, escaped or encoded
+    private static int maxEncodedBytes(AccessLogEntry entry) {
+        return FIXED_BYTES + 3 * (length(entry.code()) + length(entry.detail()));
+    }
+
+    private static int length(String value) {
+        return value == null
+            ? 0
+            : value.length();
+    }
+
+    // timestamp, type, owner, code and detail separated by tabs, encoded straight into the buffer
+    private void encode(AccessLogEntry entry, ByteBuffer target) {
+        putTimestamp(entry.timestampMillis(), target);
+        target.put(TAB)
+            .put(TYPE_NAMES[entry.type()
+                .ordinal()])
+            .put(TAB);
+        putUuid(entry.userId(), target);
+        target.put(TAB);
+        putText(entry.code(), target);
+        target.put(TAB);
+        putText(entry.detail(), target);
+        target.put(NEWLINE);
+    }
+
+    // the date and time part is formatted once per second, only the milliseconds change in between
+    private void putTimestamp(long millis, ByteBuffer target) {
+        final var second = Math.floorDiv(millis, 1000);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedSecondPrefix = SECOND_FORMAT.format(Instant.ofEpochSecond(second))
+                .getBytes(StandardCharsets.US_ASCII);
+        }
+        final var fraction = (int) Math.floorMod(millis, 1000);
+        target.put(cachedSecondPrefix)
+            .put((byte) ('0' + fraction / 100))
+            .put((byte) ('0' + fraction / 10 % 10))
+            .put((byte) ('0' + fraction % 10))
+            .put((byte) 'Z');
+    }
+
+    private static void putUuid(UUID uuid, ByteBuffer target) {
+        final var most = uuid.getMostSignificantBits();
+        final var least = uuid.getLeastSignificantBits();
+        putHex(most >>> 32, 8, target);
+        target.put((byte) '-');
+        putHex(most >>> 16, 4, target);
+        target.put((byte) '-');
+        putHex(most, 4, target);
+        target.put((byte) '-');
+        putHex(least >>> 48, 4, target);
+        target.put((byte) '-');
+        putHex(least, 12, target);
+    }
+
+    private static void putHex(long value, int digits, ByteBuffer target) {
+        for (var shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            target.put(HEX[(int) (value >>> shift) & 0xF]);
+        }
+    }
+
+    // tabs, line breaks and backslashes are escaped so that one entry is always one line
+    private static void putText(String value, ByteBuffer target) {
+        if (value == null) {
+            target.put((byte) '-');
+            return;
+        }
+        for (var i = 0; i < value.length(); i++) {
+            final var c = value.charAt(i);
+            switch (c) {
+                case '\t' -> target.put((byte) '\\').put((byte) 't');
+                case '\n' -> target.put((byte) '\\').put((byte) 'n');
+                case '\r' -> target.put((byte) '\\').put((byte) 'r');
+                case '\\' -> target.put((byte) '\\').put((byte) '\\');
+                default -> {
+                    if (c < 0x80) {
+                        target.put((byte) c);
+                    } else if (c < 0x800) {
+                        target.put((byte) (0xC0 | c >> 6))
+                            .put((byte) (0x80 | c & 0x3F));
+                    } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        final var codePoint = Character.toCodePoint(c, value.charAt(++i));
+                        target.put((byte) (0xF0 | codePoint >> 18))
+                            .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                            .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+                            .put((byte) (0x80 | codePoint & 0x3F));
+                    } else if (Character.isSurrogate(c)) {
+                        target.put((byte) '?');
+                    } else {
+                        target.put((byte) (0xE0 | c >> 12))
+                            .put((byte) (0x80 | c >> 6 & 0x3F))
+                            .put((byte) (0x80 | c & 0x3F));
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        try {
+            write(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void write(ByteBuffer source) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(directory.resolve(ACTIVE_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+            fileBytes = channel.size();
+        }
+        while (source.hasRemaining()) {
+            fileBytes += channel.write(source);
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        closeChannel();
+        var millis = System.currentTimeMillis();
+        var target = directory.resolve(ROTATED_PREFIX + millis + SUFFIX);
+        while (Files.exists(target)) {
+            target = directory.resolve(ROTATED_PREFIX + ++millis + SUFFIX);
+        }
+        Files.move(directory.resolve(ACTIVE_FILE), target, StandardCopyOption.ATOMIC_MOVE);
+        rotations.incrementAndGet();
+        if (properties.maxFiles() > 0) {
+            pruneRotated();
+        }
+    }
+
+    private void pruneRotated() throws IOException {
+        final List<Path> rotated;
+        try (Stream<Path> files = Files.list(directory)) {
+            rotated = files.filter(file -> rotatedMillis(file) >= 0)
+                .sorted(Comparator.comparingLong(AccessLog::rotatedMillis)
+                    .reversed())
+                .toList();
+        }
+        for (final var file : rotated.subList(Math.min(rotated.size(), properties.maxFiles()), rotated.size())) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long rotatedMillis(Path file) {
+        final var name = file.getFileName()
+            .toString();
+        if (!name.startsWith(ROTATED_PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name, ROTATED_PREFIX.length(), name.length() - SUFFIX.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.mephi.skillfactory.urlshortener.service.audit;
+
+import java.util.UUID;
+
+public record AccessLogEntry(long timestampMillis,
+                             Type type,
+                             UUID userId,
+                             String code,
+                             String detail) {
+
+    public enum Type {
+        CREATED,
+        REDIRECTED,
+        NOTIFIED
+    }
+}
@@ -0,0 +1,68 @@
+package com.mephi.skillfactory.urlshortener.service.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer single-consumer queue over a power-of-two ring.
+ * <p>
+ * A producer claims a slot with one CAS on the tail and then stores the element; it fails instead of waiting when the ring
+ * is full. The single consumer takes elements in claim order, clears their slots and publishes the new head, which is what
+ * frees the slots for producers. A claimed slot that is not stored yet stops the drain, so order is never broken.
+ */
+final class BoundedMpscQueue<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // written by the consumer only
+    private volatile long head;
+
+    BoundedMpscQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        final var size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    boolean offer(E element) {
+        while (true) {
+            final var claimed = tail.get();
+            if (claimed - head >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(claimed, claimed + 1)) {
+                slots.set((int) (claimed & mask), element);
+                return true;
+            }
+        }
+    }
+
+    int drainTo(List<E> out, int maxElements) {
+        var next = head;
+        var drained = 0;
+        while (drained < maxElements) {
+            final var slot = (int) (next & mask);
+            final var element = slots.get(slot);
+            if (element == null) {
+                break;
+            }
+            slots.set(slot, null);
+            out.add(element);
+            next++;
+            drained++;
+        }
+        head = next;
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+}
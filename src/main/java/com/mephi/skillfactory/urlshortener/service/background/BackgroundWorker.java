@@ -0,0 +1,202 @@
+package com.mephi.skillfactory.urlshortener.service.background;
+
+import com.mephi.skillfactory.urlshortener.properties.BackgroundProperties;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Owns the application's background threads: periodic tasks (expired link cleanup) and a bounded queue of one-off tasks.
+ * <p>
+ * Threads are created in {@link #start()}, which runs after storage and before the web server; on {@link #stop()} the
+ * web server is already down, so periodic tasks get one final run and the queue is drained within
+ * {@code background.drain-timeout-millis}. Tasks submitted while the worker is not running are executed on the caller.
+ */
+@Slf4j
+@Component
+public class BackgroundWorker implements SmartLifecycle {
+    public static final int PHASE = DEFAULT_PHASE - 4096;
+
+    private final BackgroundProperties backgroundProperties;
+    private final List<PeriodicTask> periodicTasks = new CopyOnWriteArrayList<>();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong ranOnCaller = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private volatile ScheduledExecutorService scheduler;
+    private volatile ThreadPoolExecutor queue;
+    private volatile boolean running;
+
+    public BackgroundWorker(BackgroundProperties backgroundProperties) {
+        this.backgroundProperties = backgroundProperties;
+    }
+
+    public synchronized void schedulePeriodic(String name, Runnable task, Duration interval) {
+        final var periodic = new PeriodicTask(name, task, interval.toMillis());
+        periodicTasks.add(periodic);
+        // a task registered after start() joins the running schedule instead of waiting for the next restart
+        if (running) {
+            schedule(periodic);
+        }
+    }
+
+    public void submit(Runnable task) {
+        final var current = queue;
+        if (!running || current == null) {
+            runOnCaller(task);
+            return;
+        }
+        current.execute(() -> runTracked(task));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("background-periodic").daemon().factory());
+        // a full queue pushes the work back onto the submitting thread instead of dropping it
+        queue = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(backgroundProperties.queueCapacity()),
+            Thread.ofPlatform().name("background-queue").daemon().factory(), (task, executor) -> runOnCaller(task));
+        periodicTasks.forEach(this::schedule);
+        running = true;
+        log.info("Background worker started with {} periodic tasks", periodicTasks.size());
+    }
+
+    private void schedule(PeriodicTask periodic) {
+        scheduler.scheduleWithFixedDelay(() -> runPeriodic(periodic), periodic.intervalMillis, periodic.intervalMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        final var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backgroundProperties.drainTimeoutMillis());
+
+        scheduler.shutdown();
+        awaitUntil(scheduler, deadline);
+        // the final pass goes through the queue so it is bounded by the same deadline
+        for (final var periodic : periodicTasks) {
+            queue.execute(() -> runPeriodic(periodic));
+        }
+        queue.shutdown();
+        if (!awaitUntil(queue, deadline)) {
+            abandoned.addAndGet(queue.shutdownNow().size());
+            scheduler.shutdownNow();
+            log.warn("Background drain timed out after {} ms, {} queued tasks abandoned", backgroundProperties.drainTimeoutMillis(),
+                abandoned.get());
+            return;
+        }
+        log.info("Background worker drained, {} tasks completed", completed.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    public Map<String, Object> stats() {
+        final var current = queue;
+        final var stats = new LinkedHashMap<String, Object>();
+        stats.put("running", running);
+        stats.put("queueDepth", current == null
+            ? 0
+            : current.getQueue().size());
+        stats.put("queueCapacity", backgroundProperties.queueCapacity());
+        stats.put("active", current == null
+            ? 0
+            : current.getActiveCount());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("ranOnCaller", ranOnCaller.get());
+        stats.put("abandoned", abandoned.get());
+        final var periodic = new ArrayList<Map<String, Object>>();
+        for (final var task : periodicTasks) {
+            periodic.add(task.stats());
+        }
+        stats.put("periodic", periodic);
+        return stats;
+    }
+
+    private void runOnCaller(Runnable task) {
+        ranOnCaller.incrementAndGet();
+        runTracked(task);
+    }
+
+    private void runTracked(Runnable task) {
+        try {
+            task.run();
+            completed.incrementAndGet();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            log.error("Background task failed", e);
+        }
+    }
+
+    private void runPeriodic(PeriodicTask periodic) {
+        final var started = System.nanoTime();
+        try {
+            periodic.task.run();
+            periodic.runs.incrementAndGet();
+        } catch (RuntimeException e) {
+            // an exception escaping a scheduled task would silently cancel all its future runs
+            periodic.failures.incrementAndGet();
+            log.error("Periodic task {} failed", periodic.name, e);
+        } finally {
+            periodic.lastDurationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+        }
+    }
+
+    private static boolean awaitUntil(ExecutorService executor, long deadline) {
+        try {
+            return executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class PeriodicTask {
+        private final String name;
+        private final Runnable task;
+        private final long intervalMillis;
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile long lastDurationMicros;
+
+        private PeriodicTask(String name, Runnable task, long intervalMillis) {
+            this.name = name;
+            this.task = task;
+            this.intervalMillis = intervalMillis;
+        }
+
+        private Map<String, Object> stats() {
+            return Map.of("name", name, "intervalMillis", intervalMillis, "runs", runs.get(), "failures", failures.get(),
+                "lastDurationMicros", lastDurationMicros);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.mephi.skillfactory.urlshortener.service.background;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+@Component
+@RequiredArgsConstructor
+public class BackgroundWorkerHealthIndicator implements HealthIndicator {
+    private final BackgroundWorker backgroundWorker;
+
+    @Override
+    public Health health() {
+        final var builder = backgroundWorker.isRunning()
+            ? Health.up()
+            : Health.outOfService();
+        return builder.withDetails(backgroundWorker.stats()).build();
+    }
+}
@@ -0,0 +1,8 @@
+package com.mephi.skillfactory.urlshortener.service.bulk;
+
+public enum BulkAction {
+    // removed as if the owner deleted every link, DELETED events
+    DELETE,
+    // removed as if every link had reached its TTL, EXPIRED events
+    EXPIRE
+}
@@ -0,0 +1,87 @@
+package com.mephi.skillfactory.urlshortener.service.bulk;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of one bulk operation. Batches report into striped counters from the pool threads; the terminal state is
+ * published last, so a poller that sees it also sees the final counts.
+ */
+public final class BulkJob {
+    private final UUID id = UUID.randomUUID();
+    private final UUID userId;
+    private final BulkAction action;
+    private final Instant submittedAt = Instant.now();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private volatile int total;
+    private volatile State state = State.QUEUED;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile boolean cancelled;
+
+    BulkJob(UUID userId, BulkAction action) {
+        this.userId = userId;
+        this.action = action;
+    }
+
+    public UUID id() {
+        return id;
+    }
+
+    public UUID userId() {
+        return userId;
+    }
+
+    public BulkAction action() {
+        return action;
+    }
+
+    public BulkJobStatus status() {
+        final var currentProcessed = processed.sum();
+        final var currentRemoved = removed.sum();
+        return new BulkJobStatus(id, action, state, total, currentProcessed, currentRemoved, currentProcessed - currentRemoved, submittedAt,
+            finishedAt, error);
+    }
+
+    void started(int total) {
+        this.total = total;
+        this.state = State.RUNNING;
+    }
+
+    void batchDone(int batchSize, int batchRemoved) {
+        processed.add(batchSize);
+        removed.add(batchRemoved);
+    }
+
+    void finish(State state, String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.state = state;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    Instant finishedAt() {
+        return finishedAt;
+    }
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+}
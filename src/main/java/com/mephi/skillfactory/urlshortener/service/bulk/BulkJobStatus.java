@@ -0,0 +1,16 @@
+package com.mephi.skillfactory.urlshortener.service.bulk;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record BulkJobStatus(UUID id,
+                            BulkAction action,
+                            BulkJob.State state,
+                            int total,
+                            long processed,
+                            long removed,
+                            long skipped,
+                            Instant submittedAt,
+                            Instant finishedAt,
+                            String error) {
+}
@@ -0,0 +1,175 @@
+package com.mephi.skillfactory.urlshortener.service.bulk;
+
+import com.mephi.skillfactory.urlshortener.properties.BulkProperties;
+import com.mephi.skillfactory.urlshortener.replication.ReplicationState;
+import com.mephi.skillfactory.urlshortener.repository.LinkRepository;
+import com.mephi.skillfactory.urlshortener.service.NotificationService;
+import com.mephi.skillfactory.urlshortener.service.ShortLinkService;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventType;
+import com.mephi.skillfactory.urlshortener.service.exception.ScheduleCapacityException;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Removes many links of one owner as an asynchronous job.
+ * <p>
+ * A job snapshots the codes to process (the owner's index or the requested list), splits them into batches and removes the
+ * batches in parallel on a dedicated fork-join pool, so neither request threads nor the background worker are held. Progress
+ * is polled through {@link #status}; the owner gets one summary notification instead of one per link. The pool starts after
+ * the background worker and stops right after the web server, cancelling running jobs between batches.
+ */
+@Slf4j
+@Service
+public class BulkLinkService implements SmartLifecycle {
+    public static final int PHASE = BackgroundWorker.PHASE + 1024;
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    private final BulkProperties bulkProperties;
+    private final ShortLinkService shortLinkService;
+    private final LinkRepository linkRepository;
+    private final ReplicationState replicationState;
+    private final NotificationService notificationService;
+    private final ConcurrentHashMap<UUID, BulkJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private volatile ForkJoinPool pool;
+    private volatile boolean running;
+
+    public BulkLinkService(BulkProperties bulkProperties, ShortLinkService shortLinkService, LinkRepository linkRepository,
+                           ReplicationState replicationState, NotificationService notificationService, BackgroundWorker backgroundWorker) {
+        this.bulkProperties = bulkProperties;
+        this.shortLinkService = shortLinkService;
+        this.linkRepository = linkRepository;
+        this.replicationState = replicationState;
+        this.notificationService = notificationService;
+
+        backgroundWorker.schedulePeriodic("bulk-job-retention", this::evictFinished, bulkProperties.retention());
+    }
+
+    // codes == null means every link of the user
+    public BulkJobStatus submit(UUID userId, BulkAction action, List<String> codes) {
+        replicationState.checkWritable();
+        final var current = pool;
+        if (!running || current == null) {
+            throw new ScheduleCapacityException("Bulk operations are not accepted while the service is stopping");
+        }
+        if (activeJobs.incrementAndGet() > bulkProperties.maxActiveJobs()) {
+            activeJobs.decrementAndGet();
+            throw new ScheduleCapacityException("Too many bulk operations in progress, try again later");
+        }
+
+        final var job = new BulkJob(userId, action);
+        jobs.put(job.id(), job);
+        try {
+            current.execute(() -> run(job, codes));
+        } catch (RejectedExecutionException e) {
+            activeJobs.decrementAndGet();
+            jobs.remove(job.id());
+            throw new ScheduleCapacityException("Bulk operations are not accepted while the service is stopping");
+        }
+        return job.status();
+    }
+
+    public Optional<BulkJobStatus> status(UUID jobId, UUID userId) {
+        final var job = jobs.get(jobId);
+        return job == null || !job.userId().equals(userId)
+            ? Optional.empty()
+            : Optional.of(job.status());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        pool = new ForkJoinPool(bulkProperties.parallelism(), forkJoinPool -> {
+            final var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("bulk-job-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        jobs.values().forEach(BulkJob::cancel);
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Bulk jobs did not stop within {} s", STOP_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    void run(BulkJob job, List<String> requested) {
+        try {
+            final var codes = requested == null
+                ? linkRepository.findCodesByUserId(job.userId())
+                : List.copyOf(new LinkedHashSet<>(requested));
+            job.started(codes.size());
+            final var reason = job.action() == BulkAction.DELETE
+                ? LinkEventType.DELETED
+                : LinkEventType.EXPIRED;
+            final var batchSize = bulkProperties.batchSize();
+            // runs inside the pool, so the parallel stream splits batches across the pool's workers
+            IntStream.range(0, (codes.size() + batchSize - 1) / batchSize)
+                .parallel()
+                .forEach(batch -> {
+                    if (job.isCancelled()) {
+                        return;
+                    }
+                    final var slice = codes.subList(batch * batchSize, Math.min(codes.size(), (batch + 1) * batchSize));
+                    job.batchDone(slice.size(), shortLinkService.removeOwnedLinks(job.userId(), slice, reason));
+                });
+
+            final var state = job.isCancelled()
+                ? BulkJob.State.CANCELLED
+                : BulkJob.State.COMPLETED;
+            final var status = job.status();
+            final var summary = "Bulk %s %s: %d of %d links removed".formatted(job.action(), state, status.removed(), status.total());
+            notificationService.notify(job.userId(), summary);
+            job.finish(state, null);
+        } catch (RuntimeException e) {
+            log.error("Bulk job {} failed", job.id(), e);
+            job.finish(BulkJob.State.FAILED, e.getMessage());
+        } finally {
+            activeJobs.decrementAndGet();
+        }
+    }
+
+    void evictFinished() {
+        final var horizon = Instant.now().minus(bulkProperties.retention());
+        jobs.values().removeIf(job -> job.isFinished() && job.finishedAt().isBefore(horizon));
+    }
+}
@@ -0,0 +1,94 @@
+package com.mephi.skillfactory.urlshortener.service.coalesce;
+
+import com.mephi.skillfactory.urlshortener.service.exception.CoalescedCallException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with an equal key into one computation.
+ * <p>
+ * The first caller for a key becomes the leader and runs the supplier on its own thread; callers arriving while it runs
+ * wait for the leader's future and receive the same result. A failure reaches every waiter as its own exception of the
+ * leader's type, caused by the leader's, so exception mapping is unchanged and no instance is shared between threads.
+ * Waiting is bounded: a waiter that outlives the timeout gives up with {@link CoalescedCallException} instead of piling up
+ * behind a stuck leader. The key is released as soon as the leader finishes, so only overlapping calls are merged and later
+ * calls compute afresh.
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long waitTimeoutNanos;
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public SingleFlight(Duration waitTimeout) {
+        if (waitTimeout == null || waitTimeout.isNegative() || waitTimeout.isZero()) {
+            throw new IllegalArgumentException("Coalesced call wait timeout must be positive: " + waitTimeout);
+        }
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+    }
+
+    public V execute(K key, Supplier<V> supplier) {
+        final var mine = new CompletableFuture<V>();
+        final var existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        leaders.increment();
+        try {
+            final var value = supplier.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of("inFlight", inFlight.size(), "leaders", leaders.sum(), "coalesced", coalesced.sum(), "timedOut", timedOut.sum());
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            throw new CoalescedCallException("Timed out waiting for an identical request in progress", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CoalescedCallException("Interrupted while waiting for an identical request in progress", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw copyOf(cause);
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new CoalescedCallException(e.getMessage(), e);
+        }
+    }
+
+    // the (message, cause) constructor exists on every @StandardException and on the standard runtime exceptions
+    private static RuntimeException copyOf(RuntimeException leaderFailure) {
+        try {
+            return leaderFailure.getClass()
+                .getConstructor(String.class, Throwable.class)
+                .newInstance(leaderFailure.getMessage(), leaderFailure);
+        } catch (ReflectiveOperationException e) {
+            return new CoalescedCallException(leaderFailure.getMessage(), leaderFailure);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.mephi.skillfactory.urlshortener.service.event;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+
+// what consumers need to know about the link, taken when the event was published and never changed afterwards; only CREATED
+// carries a copy of the whole link, which a follower stores, so a redirect publishes without copying the link
+public record LinkEvent(long sequence,
+                        LinkEventType type,
+                        String code,
+                        long expiresAtSecond,
+                        int clickCount,
+                        Link link) {
+
+    public static LinkEvent of(long sequence, LinkEventType type, Link link) {
+        return new LinkEvent(sequence, type, link.getCode(), link.getExpiresAt().getEpochSecond(), link.getClickCount().get(),
+            type == LinkEventType.CREATED
+                ? link.copy()
+                : null);
+    }
+}
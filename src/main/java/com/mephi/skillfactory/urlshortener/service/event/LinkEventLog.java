@@ -0,0 +1,232 @@
+package com.mephi.skillfactory.urlshortener.service.event;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.AppProperties;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ordered change-data-capture log of link events.
+ * <p>
+ * Producers claim a sequence with an atomic increment and store the event into a fixed ring, they never wait for consumers.
+ * A slot only moves forward: a producer that was overtaken by a whole ring does not overwrite the newer event, so a
+ * reader comparing the slot's sequence with its cursor always sees the log in order. Every event carries the fields of the
+ * link its consumers read, taken at publish time. Every subscription keeps its own cursor; a consumer that falls more than a
+ * ring behind skips the overwritten events and counts them as dropped. Idle consumers park until a producer wakes them; a
+ * producer only pays for the wake-up when a consumer is actually parked, and only one producer wakes it.
+ */
+@Slf4j
+@Component
+public class LinkEventLog {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    // upper bound of one idle wait, only matters for noticing a closed subscription
+    private static final long MAX_IDLE_PARK_NANOS = 100_000_000;
+
+    private final AtomicReferenceArray<LinkEvent> ring;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final ConcurrentHashMap<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    // copy-on-write view of subscriptions for the publish path, which only reads it
+    private volatile Subscription[] wakeList = new Subscription[0];
+
+    @Autowired
+    public LinkEventLog(AppProperties appProperties) {
+        this(appProperties.eventLogCapacity());
+    }
+
+    public LinkEventLog(int capacity) {
+        final var size = capacity <= 0
+            ? DEFAULT_CAPACITY
+            : Integer.highestOneBit(capacity - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(Math.max(2, size));
+        this.mask = ring.length() - 1;
+    }
+
+    public long publish(LinkEventType type, Link link) {
+        final var sequence = nextSequence.getAndIncrement();
+        final var event = LinkEvent.of(sequence, type, link);
+        final var slot = (int) (sequence & mask);
+        while (true) {
+            final var stored = ring.get(slot);
+            if (stored != null && stored.sequence() > sequence) {
+                // overtaken by a full ring while storing: readers already count this sequence as dropped
+                break;
+            }
+            if (ring.compareAndSet(slot, stored, event)) {
+                break;
+            }
+        }
+        for (final var subscription : wakeList) {
+            subscription.wake();
+        }
+        return sequence;
+    }
+
+    public long nextSequence() {
+        return nextSequence.get();
+    }
+
+    public int capacity() {
+        return ring.length();
+    }
+
+    public Subscription subscribe(String name) {
+        return subscribe(name, nextSequence.get());
+    }
+
+    public Subscription subscribe(String name, long fromSequence) {
+        final var subscription = new Subscription(name, fromSequence);
+        if (subscriptions.putIfAbsent(name, subscription) != null) {
+            throw new IllegalStateException("Subscription already exists: " + name);
+        }
+        refreshWakeList();
+        return subscription;
+    }
+
+    // polls the subscription on a daemon thread and hands events to the handler in order; the thread ends once the subscription
+    // is closed, the caller owns both
+    public Thread tail(Subscription subscription, Consumer<List<LinkEvent>> handler, int batchSize) {
+        final var thread = new Thread(() -> {
+            while (!subscription.closed) {
+                final var batch = subscription.poll(batchSize);
+                if (batch.isEmpty()) {
+                    subscription.awaitEvents(MAX_IDLE_PARK_NANOS);
+                    continue;
+                }
+                try {
+                    handler.accept(batch);
+                } catch (Exception e) {
+                    log.error("Event consumer {} failed: {}", subscription.name, e.getMessage());
+                }
+            }
+        }, "link-events-" + subscription.name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    public List<SubscriptionStats> stats() {
+        final var head = nextSequence.get();
+        final var out = new ArrayList<SubscriptionStats>();
+        for (final var subscription : subscriptions.values()) {
+            out.add(new SubscriptionStats(subscription.name, subscription.cursor, Math.max(0, head - subscription.cursor),
+                subscription.dropped.get()));
+        }
+        return out;
+    }
+
+    private synchronized void refreshWakeList() {
+        wakeList = subscriptions.values().toArray(Subscription[]::new);
+    }
+
+    public record SubscriptionStats(String name,
+                                    long cursor,
+                                    long lag,
+                                    long dropped) {
+    }
+
+    public final class Subscription implements AutoCloseable {
+        private final String name;
+        private final AtomicLong dropped = new AtomicLong();
+        // written by the single consuming thread only, read by stats()
+        private volatile long cursor;
+        private volatile boolean closed;
+        // the consuming thread, set before it first parks
+        private volatile Thread waiter;
+        // true while the consumer may be parked; whoever clears it unparks the consumer
+        private final AtomicBoolean parked = new AtomicBoolean();
+
+        private Subscription(String name, long fromSequence) {
+            this.name = name;
+            this.cursor = fromSequence;
+        }
+
+        public List<LinkEvent> poll(int maxEvents) {
+            final var out = new ArrayList<LinkEvent>(Math.min(maxEvents, 256));
+            var sequence = cursor;
+            while (out.size() < maxEvents) {
+                final var event = ring.get((int) (sequence & mask));
+                if (event == null || event.sequence() < sequence) {
+                    // claimed but not stored yet, or nothing new: keep the order and stop here
+                    break;
+                }
+                if (event.sequence() > sequence) {
+                    final var oldestAvailable = Math.max(sequence + 1, nextSequence.get() - ring.length());
+                    dropped.addAndGet(oldestAvailable - sequence);
+                    sequence = oldestAvailable;
+                    continue;
+                }
+                out.add(event);
+                sequence++;
+            }
+            cursor = sequence;
+            return out;
+        }
+
+        // parks the consuming thread until an event is published after the cursor, the timeout passes or the subscription closes
+        public void awaitEvents(long timeoutNanos) {
+            waiter = Thread.currentThread();
+            // set before the ring is checked, so a producer storing an event after the check sees it and wakes the consumer
+            parked.set(true);
+            try {
+                if (!closed && !hasStoredEvent()) {
+                    LockSupport.parkNanos(this, timeoutNanos);
+                }
+            } finally {
+                parked.set(false);
+            }
+        }
+
+        // the plain read keeps producers off the flag's cache line while the consumer is busy
+        private void wake() {
+            if (parked.get() && parked.compareAndSet(true, false)) {
+                LockSupport.unpark(waiter);
+            }
+        }
+
+        private boolean hasStoredEvent() {
+            final var event = ring.get((int) (cursor & mask));
+            return event != null && event.sequence() >= cursor;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public long cursor() {
+            return cursor;
+        }
+
+        public long lag() {
+            return Math.max(0, nextSequence.get() - cursor);
+        }
+
+        public long dropped() {
+            return dropped.get();
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(name, this);
+            refreshWakeList();
+            wake();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.mephi.skillfactory.urlshortener.service.event;
+
+public enum LinkEventType {
+    CREATED,
+    CLICKED,
+    ACTIVATED,
+    DEACTIVATED,
+    DELETED,
+    EXPIRED
+}
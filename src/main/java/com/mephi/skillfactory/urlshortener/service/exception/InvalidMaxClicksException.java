@@ -0,0 +1,7 @@
+package com.mephi.skillfactory.urlshortener.service.exception;
+
+import lombok.experimental.StandardException;
+
+@StandardException
+public final class InvalidMaxClicksException extends RuntimeException {
+}
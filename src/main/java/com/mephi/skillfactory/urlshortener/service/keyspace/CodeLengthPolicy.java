@@ -0,0 +1,234 @@
+package com.mephi.skillfactory.urlshortener.service.keyspace;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.KeyspaceProperties;
+import com.mephi.skillfactory.urlshortener.properties.LinkProperties;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Picks the length of generated codes from how full the keyspace of every length is.
+ * <p>
+ * The write paths count live codes per length, so the chance that a fresh code of length L collides is estimated as
+ * live(L) / 62^L without touching the repository, and new codes get the shortest length whose estimate stays within
+ * {@code keyspace.max-collision-rate}. Observed collisions are counted per length in fixed windows of {@code keyspace.window};
+ * a length that collided more often than allowed in its last window is skipped, which covers what the estimate cannot see
+ * (aliases, codes the counters have not seen yet). A skipped length gets no attempts, so its rate ages out after a window and the
+ * length is probed again. One create moves to the next length every {@value #ATTEMPTS_PER_LENGTH} collisions instead of
+ * retrying a crowded one. The shortest length is {@code keyspace.min-code-length} when set and {@code link.codeLength} otherwise;
+ * with {@code keyspace.adaptive=false} every code has {@code link.codeLength} characters.
+ */
+@Component
+public class CodeLengthPolicy {
+    static final int ATTEMPTS_PER_LENGTH = 2;
+    private static final int ALPHABET_SIZE = 62;
+    private static final long MIN_WINDOW_ATTEMPTS = 16;
+
+    private final boolean adaptive;
+    private final int minLength;
+    private final int maxLength;
+    private final double maxCollisionRate;
+    private final long windowMillis;
+    private final double[] keyspaceByLength;
+    private final LongAdder[] liveByLength;
+    private final CollisionWindow[] windowByLength;
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    // racing updates may publish a stale choice for a moment, the next change of the counters corrects it
+    private volatile int currentLength;
+
+    public CodeLengthPolicy(KeyspaceProperties keyspaceProperties, LinkProperties linkProperties) {
+        this.adaptive = keyspaceProperties.adaptive();
+        // codes never get shorter than link.codeLength unless a shorter minimum is configured explicitly
+        this.minLength = adaptive && keyspaceProperties.minCodeLength() > 0
+            ? keyspaceProperties.minCodeLength()
+            : linkProperties.codeLength();
+        this.maxLength = adaptive
+            ? keyspaceProperties.maxCodeLength()
+            : linkProperties.codeLength();
+        if (minLength < 1 || maxLength < minLength) {
+            throw new IllegalArgumentException("keyspace.min-code-length must be positive and not above keyspace.max-code-length");
+        }
+        if (keyspaceProperties.window().toMillis() < 1) {
+            throw new IllegalArgumentException("keyspace.window must be positive");
+        }
+        this.maxCollisionRate = keyspaceProperties.maxCollisionRate();
+        this.windowMillis = keyspaceProperties.window().toMillis();
+        this.keyspaceByLength = new double[maxLength + 1];
+        this.liveByLength = new LongAdder[maxLength + 1];
+        this.windowByLength = new CollisionWindow[maxLength + 1];
+        for (var length = 0; length <= maxLength; length++) {
+            keyspaceByLength[length] = Math.pow(ALPHABET_SIZE, length);
+            liveByLength[length] = new LongAdder();
+            windowByLength[length] = new CollisionWindow();
+        }
+        this.currentLength = minLength;
+    }
+
+    // length of the next try of one create after the given number of collisions
+    public int lengthFor(int collisions) {
+        return Math.min(maxLength, currentLength + collisions / ATTEMPTS_PER_LENGTH);
+    }
+
+    public void recordAttempt(int length, boolean collided) {
+        attempts.increment();
+        if (collided) {
+            collisions.increment();
+        }
+        if (length > maxLength) {
+            return;
+        }
+        final var now = System.currentTimeMillis();
+        windowByLength[length].record(now / windowMillis, collided);
+        if (collided) {
+            selectLength(now);
+        }
+    }
+
+    public void recordExhausted() {
+        exhausted.increment();
+    }
+
+    public void linkAdded(String code) {
+        final var length = code.length();
+        if (length > maxLength) {
+            return;
+        }
+        liveByLength[length].increment();
+        // only the length in use can get too full, shorter ones are already skipped
+        if (length == currentLength) {
+            selectLength(System.currentTimeMillis());
+        }
+    }
+
+    // called only by whoever actually removed the link, see LinkRepository#deleteLinkByCode
+    public void linkRemoved(String code) {
+        final var length = code.length();
+        if (length > maxLength) {
+            return;
+        }
+        liveByLength[length].decrement();
+        if (length <= currentLength) {
+            selectLength(System.currentTimeMillis());
+        }
+    }
+
+    public void rebuild(Consumer<Consumer<? super Link>> forEachLink) {
+        for (final var live : liveByLength) {
+            live.reset();
+        }
+        forEachLink.accept(link -> {
+            final var length = link.getCode()
+                .length();
+            if (length <= maxLength) {
+                liveByLength[length].increment();
+            }
+        });
+        selectLength(System.currentTimeMillis());
+    }
+
+    public int currentLength() {
+        return currentLength;
+    }
+
+    public Map<String, Object> stats() {
+        final var period = System.currentTimeMillis() / windowMillis;
+        final var lengths = new LinkedHashMap<Integer, Map<String, Object>>();
+        for (var length = minLength; length <= maxLength; length++) {
+            final var live = liveByLength[length].sum();
+            final var window = windowByLength[length];
+            if (live == 0 && window.attempts(period) == 0 && length != currentLength) {
+                continue;
+            }
+            lengths.put(length, Map.of("live", live, "estimatedCollisionRate", live / keyspaceByLength[length], "windowAttempts",
+                window.attempts(period), "windowCollisionRate", window.rate(period)));
+        }
+
+        final var totalAttempts = attempts.sum();
+        final var totalCollisions = collisions.sum();
+        final var out = new LinkedHashMap<String, Object>();
+        out.put("adaptive", adaptive);
+        out.put("currentLength", currentLength);
+        out.put("maxCollisionRate", maxCollisionRate);
+        out.put("attempts", totalAttempts);
+        out.put("collisions", totalCollisions);
+        out.put("collisionRate", totalAttempts == 0
+            ? 0.0
+            : (double) totalCollisions / totalAttempts);
+        out.put("attemptsPerCode", totalAttempts == totalCollisions
+            ? 0.0
+            : (double) totalAttempts / (totalAttempts - totalCollisions));
+        out.put("exhausted", exhausted.sum());
+        out.put("lengths", lengths);
+        return out;
+    }
+
+    private void selectLength(long nowMillis) {
+        final var period = nowMillis / windowMillis;
+        for (var length = minLength; length < maxLength; length++) {
+            final var estimated = liveByLength[length].sum() / keyspaceByLength[length];
+            if (estimated <= maxCollisionRate && windowByLength[length].rate(period) <= maxCollisionRate) {
+                currentLength = length;
+                return;
+            }
+        }
+        currentLength = maxLength;
+    }
+
+    private static final class CollisionWindow {
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder collisions = new LongAdder();
+        private volatile long period = Long.MIN_VALUE;
+        private volatile long previousPeriod = Long.MIN_VALUE;
+        private volatile double previousRate;
+
+        private void record(long now, boolean collided) {
+            if (period != now) {
+                rotate(now);
+            }
+            attempts.increment();
+            if (collided) {
+                collisions.increment();
+            }
+        }
+
+        private long attempts(long now) {
+            return period == now
+                ? attempts.sum()
+                : 0;
+        }
+
+        // the running window once it has enough attempts, otherwise the window right before the current period
+        private double rate(long now) {
+            final var running = period;
+            if (running == now || running == now - 1) {
+                final var sampled = attempts.sum();
+                if (sampled >= MIN_WINDOW_ATTEMPTS) {
+                    return (double) collisions.sum() / sampled;
+                }
+            }
+            return previousPeriod == now - 1
+                ? previousRate
+                : 0;
+        }
+
+        private synchronized void rotate(long now) {
+            if (period == now) {
+                return;
+            }
+            final var sampled = attempts.sumThenReset();
+            final var collided = collisions.sumThenReset();
+            previousRate = sampled >= MIN_WINDOW_ATTEMPTS
+                ? (double) collided / sampled
+                : 0;
+            previousPeriod = period;
+            period = now;
+        }
+    }
+}
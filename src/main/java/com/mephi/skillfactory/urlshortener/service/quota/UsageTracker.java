@@ -0,0 +1,310 @@
+package com.mephi.skillfactory.urlshortener.service.quota;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.QuotaProperties;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.exception.QuotaExceededException;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Per-user link and click counters maintained by the write paths, so quota checks never look at the links themselves.
+ * Every user owns an independent {@link Usage} updated with CAS; the map is only touched to create an entry or to retire an
+ * idle one, and no lock is shared between users. The click counter is a fixed window packed into one long (period index in
+ * the high half, count in the low half), so rolling over to a new period and counting a click is a single CAS. Every change
+ * of a user's link count also moves the user between power-of-two buckets of the links-per-user histogram.
+ * <p>
+ * {@link #rebuild} recounts links into a fresh table and swaps it in with one volatile write; click windows are shared with
+ * the fresh table, so clicks are neither lost nor counted twice. A writer that finds the table swapped after its CAS applies
+ * its change to the fresh table as well, so a create or delete racing the recount is not lost. It may be counted twice when
+ * the recount already saw it; the error is bounded by the writes in flight during the swap and gone after the next rebuild.
+ * <p>
+ * Links created here go through {@link #acquireLink}; links that arrive from elsewhere, replicated from a primary, are
+ * counted with {@link #linkAdded} as the repository accepts them, so a follower reports the same usage as its primary.
+ */
+@Component
+public class UsageTracker {
+    private static final int RETIRED = -1;
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+    private final int maxLinksPerUser;
+    private final long maxClicksPerPeriod;
+    private final long periodMillis;
+    private volatile Table table = new Table(new ConcurrentHashMap<>());
+
+    public UsageTracker(QuotaProperties quotaProperties, BackgroundWorker backgroundWorker) {
+        if (quotaProperties.period().toSeconds() < 1) {
+            throw new IllegalArgumentException("quota.period must be at least one second");
+        }
+        this.maxLinksPerUser = quotaProperties.maxLinksPerUser();
+        this.maxClicksPerPeriod = quotaProperties.maxClicksPerPeriod();
+        this.periodMillis = quotaProperties.period().toMillis();
+
+        backgroundWorker.schedulePeriodic("usage-sweep", this::evictIdle, quotaProperties.period());
+    }
+
+    public void acquireLink(UUID userId) {
+        addLink(userId, true);
+    }
+
+    // a link stored without a quota check, e.g. replicated from the primary, which already enforced it
+    public void linkAdded(UUID userId) {
+        addLink(userId, false);
+    }
+
+    // called only by whoever actually removed the link, see LinkRepository#deleteLinkByCode
+    public void releaseLink(UUID userId) {
+        var used = table;
+        used.releaseLink(userId);
+        for (var current = table; current != used; current = table) {
+            used = current;
+            used.releaseLink(userId);
+        }
+    }
+
+    public void recordClick(UUID userId) {
+        recordClick(userId, System.currentTimeMillis());
+    }
+
+    public Map<String, Object> usage(UUID userId) {
+        final var period = System.currentTimeMillis() / periodMillis;
+        final var usage = table.usageByUserId.get(userId);
+        final var links = usage == null
+            ? 0
+            : Math.max(0, usage.links.get());
+        final var clicks = usage == null
+            ? 0L
+            : usage.clicksIn(period);
+        return Map.of("links", links, "maxLinks", maxLinksPerUser, "clicksInPeriod", clicks, "maxClicksPerPeriod", maxClicksPerPeriod,
+            "periodEndsAt", Instant.ofEpochMilli((period + 1) * periodMillis));
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of("trackedUsers", table.usageByUserId.size(), "maxLinksPerUser", maxLinksPerUser, "maxClicksPerPeriod",
+            maxClicksPerPeriod, "periodMillis", periodMillis, "linksPerUser", linksPerUserHistogram());
+    }
+
+    // bucket label ("1", "2-3", "4-7", ...) -> number of users holding that many links
+    public Map<String, Long> linksPerUserHistogram() {
+        final var usersByLinkCount = table.usersByLinkCount;
+        final var out = new LinkedHashMap<String, Long>();
+        for (var bucket = 0; bucket < usersByLinkCount.length; bucket++) {
+            final var users = usersByLinkCount[bucket].sum();
+            if (users > 0) {
+                final var from = 1L << bucket;
+                final var to = (from << 1) - 1;
+                out.put(from == to
+                    ? Long.toString(from)
+                    : from + "-" + to, users);
+            }
+        }
+        return out;
+    }
+
+    // recounts links after a bulk replace, click windows of the current period survive
+    // links are streamed, the store is never held on heap
+    public synchronized void rebuild(Consumer<Consumer<? super Link>> forEachLink) {
+        final var previous = table.usageByUserId;
+        final var fresh = new ConcurrentHashMap<UUID, Usage>(Math.max(16, previous.size() * 4 / 3 + 1));
+        forEachLink.accept(link -> fresh.computeIfAbsent(link.getUserId(), id -> new Usage(new AtomicLong())).links.incrementAndGet());
+        // the very same window objects, so clicks counted on the old table until the swap still count
+        previous.forEach((userId, usage) -> {
+            final var counted = fresh.get(userId);
+            if (counted == null) {
+                fresh.put(userId, new Usage(usage.clickWindow));
+            } else {
+                fresh.put(userId, new Usage(usage.clickWindow, counted.links.get()));
+            }
+        });
+        final var rebuilt = new Table(fresh);
+        fresh.values().forEach(usage -> rebuilt.moveInHistogram(0, usage.links.get()));
+        table = rebuilt;
+    }
+
+    void recordClick(UUID userId, long nowMillis) {
+        final var period = nowMillis / periodMillis;
+        var used = table;
+        var window = used.recordClick(userId, period, maxClicksPerPeriod);
+        if (window == null) {
+            throw new QuotaExceededException("Click quota of the link owner exceeded: at most %s clicks per %s s"
+                .formatted(maxClicksPerPeriod, periodMillis / 1000));
+        }
+        // a user first seen after the rebuild copied the windows has a window of its own in the fresh table
+        for (var current = table; current != used; current = table) {
+            used = current;
+            final var counted = window;
+            final var usage = used.usageByUserId.get(userId);
+            if (usage == null || usage.clickWindow != counted) {
+                window = used.recordClick(userId, period, 0);
+            }
+        }
+    }
+
+    // drops users without links whose click window is over; updates racing with it retry on a fresh entry
+    void evictIdle() {
+        final var period = System.currentTimeMillis() / periodMillis;
+        final var current = table.usageByUserId;
+        current.forEach((userId, usage) -> {
+            final var window = usage.clickWindow.get();
+            if (Usage.countIn(window, period) != 0 || !usage.links.compareAndSet(0, RETIRED)) {
+                return;
+            }
+            // a click that slipped in before the retirement keeps the entry; the clicker waits for this decision
+            if (usage.clickWindow.get() != window) {
+                usage.links.set(0);
+                return;
+            }
+            current.remove(userId, usage);
+        });
+    }
+
+    int trackedUsers() {
+        return table.usageByUserId.size();
+    }
+
+    private void addLink(UUID userId, boolean enforceQuota) {
+        var used = table;
+        if (!used.addLink(userId, enforceQuota, maxLinksPerUser)) {
+            throw new QuotaExceededException("Link quota exceeded: at most %s links per user".formatted(maxLinksPerUser));
+        }
+        for (var current = table; current != used; current = table) {
+            used = current;
+            used.addLink(userId, false, 0);
+        }
+    }
+
+    // one generation of counters; a rebuild replaces the map and its histogram together
+    private static final class Table {
+        private final ConcurrentHashMap<UUID, Usage> usageByUserId;
+        private final LongAdder[] usersByLinkCount = new LongAdder[Integer.SIZE];
+
+        private Table(ConcurrentHashMap<UUID, Usage> usageByUserId) {
+            this.usageByUserId = usageByUserId;
+            for (var i = 0; i < usersByLinkCount.length; i++) {
+                usersByLinkCount[i] = new LongAdder();
+            }
+        }
+
+        private boolean addLink(UUID userId, boolean enforceQuota, int maxLinksPerUser) {
+            while (true) {
+                final var usage = liveUsage(userId);
+                final var current = usage.links.get();
+                if (current == RETIRED) {
+                    awaitEviction(userId, usage);
+                    continue;
+                }
+                if (enforceQuota && maxLinksPerUser > 0 && current >= maxLinksPerUser) {
+                    return false;
+                }
+                if (usage.links.compareAndSet(current, current + 1)) {
+                    moveInHistogram(current, current + 1);
+                    return true;
+                }
+            }
+        }
+
+        private void releaseLink(UUID userId) {
+            final var usage = usageByUserId.get(userId);
+            if (usage == null) {
+                return;
+            }
+            final var previous = usage.links.getAndUpdate(current -> current > 0
+                ? current - 1
+                : current);
+            if (previous > 0) {
+                moveInHistogram(previous, previous - 1);
+            }
+        }
+
+        // the window the click was counted in, or null when the quota is exhausted
+        private AtomicLong recordClick(UUID userId, long period, long limit) {
+            while (true) {
+                final var usage = liveUsage(userId);
+                if (usage.links.get() == RETIRED) {
+                    awaitEviction(userId, usage);
+                    continue;
+                }
+                if (!usage.tryClick(period, limit)) {
+                    return null;
+                }
+                // retired after the check above: the evictor either saw the click and keeps the entry, or removed it and the
+                // click belongs on a fresh one
+                if (usage.links.get() == RETIRED && !awaitEviction(userId, usage)) {
+                    continue;
+                }
+                return usage.clickWindow;
+            }
+        }
+
+        // true when the evictor kept the entry, false once it is gone from the map
+        private boolean awaitEviction(UUID userId, Usage usage) {
+            while (usage.links.get() == RETIRED) {
+                if (usageByUserId.get(userId) != usage) {
+                    return false;
+                }
+                Thread.onSpinWait();
+            }
+            return true;
+        }
+
+        private Usage liveUsage(UUID userId) {
+            return usageByUserId.computeIfAbsent(userId, id -> new Usage(new AtomicLong()));
+        }
+
+        private void moveInHistogram(int from, int to) {
+            if (from > 0) {
+                usersByLinkCount[Integer.SIZE - 1 - Integer.numberOfLeadingZeros(from)].decrement();
+            }
+            if (to > 0) {
+                usersByLinkCount[Integer.SIZE - 1 - Integer.numberOfLeadingZeros(to)].increment();
+            }
+        }
+    }
+
+    private static final class Usage {
+        private final AtomicInteger links;
+        private final AtomicLong clickWindow;
+
+        private Usage(AtomicLong clickWindow) {
+            this(clickWindow, 0);
+        }
+
+        private Usage(AtomicLong clickWindow, int links) {
+            this.links = new AtomicInteger(links);
+            this.clickWindow = clickWindow;
+        }
+
+        private long clicksIn(long period) {
+            return countIn(clickWindow.get(), period);
+        }
+
+        private static long countIn(long window, long period) {
+            return window >>> 32 == period
+                ? window & COUNT_MASK
+                : 0;
+        }
+
+        private boolean tryClick(long period, long limit) {
+            while (true) {
+                final var window = clickWindow.get();
+                final var count = countIn(window, period);
+                if (limit > 0 && count >= limit) {
+                    return false;
+                }
+                final var next = Math.min(count + 1, COUNT_MASK);
+                if (clickWindow.compareAndSet(window, period << 32 | next)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.mephi.skillfactory.urlshortener.service.reactive;
+
+import com.mephi.skillfactory.urlshortener.properties.ReactiveProperties;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control of the reactive API: at most {@code reactive.max-concurrency} requests are in progress (running on a
+ * worker or waiting for one) and every request above that is rejected at once. An admitted request therefore never waits
+ * behind an unbounded backlog, so latency stays flat under overload while the excess gets a cheap 503 with Retry-After
+ * instead of a timeout.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class AdmissionLimiter {
+    private final int maxConcurrency;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public AdmissionLimiter(ReactiveProperties reactiveProperties) {
+        if (reactiveProperties.maxConcurrency() < 1) {
+            throw new IllegalArgumentException("reactive.max-concurrency must be positive");
+        }
+        this.maxConcurrency = reactiveProperties.maxConcurrency();
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            final var current = inFlight.get();
+            if (current >= maxConcurrency) {
+                shed.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.increment();
+                peak.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    // exactly once per successful tryAcquire, whether the request completed, failed or was cancelled by the client
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public Map<String, Object> stats() {
+        final var out = new LinkedHashMap<String, Object>();
+        out.put("mode", "reactive");
+        out.put("maxConcurrency", maxConcurrency);
+        out.put("inFlight", inFlight.get());
+        out.put("peakInFlight", peak.get());
+        out.put("admitted", admitted.sum());
+        out.put("shed", shed.sum());
+        return out;
+    }
+}
@@ -0,0 +1,158 @@
+package com.mephi.skillfactory.urlshortener.service.reactive;
+
+import com.mephi.skillfactory.urlshortener.domain.ClientProfile;
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.domain.RoutingRule;
+import com.mephi.skillfactory.urlshortener.properties.ReactiveProperties;
+import com.mephi.skillfactory.urlshortener.service.NotificationService;
+import com.mephi.skillfactory.urlshortener.service.ShortLinkService;
+import com.mephi.skillfactory.urlshortener.service.bulk.BulkAction;
+import com.mephi.skillfactory.urlshortener.service.bulk.BulkJobStatus;
+import com.mephi.skillfactory.urlshortener.service.bulk.BulkLinkService;
+import com.mephi.skillfactory.urlshortener.service.exception.ScheduleCapacityException;
+import com.mephi.skillfactory.urlshortener.service.routing.Redirect;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link Mono} facade over the blocking link, notification and bulk services for the reactive API.
+ * <p>
+ * Calls run on a bounded worker pool ({@code reactive.worker-threads}) instead of the event loops, so storage I/O of the
+ * tiered and LSM repositories or an access log waiting for queue space never stalls the connections an event loop serves. The
+ * pool's backlog is sized to {@code reactive.max-concurrency}, the {@link AdmissionLimiter} bound, so an admitted request
+ * always gets a slot; a rejected task (which only happens while stopping) fails with {@link ScheduleCapacityException}.
+ * The pool starts before the web server and stops right after it.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveLinkService implements SmartLifecycle {
+    public static final int PHASE = BulkLinkService.PHASE;
+
+    private final ReactiveProperties reactiveProperties;
+    private final ShortLinkService shortLinkService;
+    private final NotificationService notificationService;
+    private final BulkLinkService bulkLinkService;
+    private volatile Scheduler scheduler;
+
+    public ReactiveLinkService(ReactiveProperties reactiveProperties, ShortLinkService shortLinkService,
+                               NotificationService notificationService, BulkLinkService bulkLinkService) {
+        if (reactiveProperties.workerThreads() < 1) {
+            throw new IllegalArgumentException("reactive.worker-threads must be positive");
+        }
+        this.reactiveProperties = reactiveProperties;
+        this.shortLinkService = shortLinkService;
+        this.notificationService = notificationService;
+        this.bulkLinkService = bulkLinkService;
+    }
+
+    public Mono<Link> createShortLink(String longLink, UUID userId, Integer maxClicks, Long ttlSeconds, String alias, Instant activeFrom,
+                                      Instant activeUntil, RedirectPolicy redirectPolicy, List<RoutingRule> rules) {
+        return call(() -> shortLinkService.createShortLink(longLink, userId, maxClicks, ttlSeconds, alias, activeFrom, activeUntil,
+            redirectPolicy, rules));
+    }
+
+    public String constructShortLinkUrl(Link shortLink) {
+        return shortLinkService.constructShortLinkUrl(shortLink);
+    }
+
+    // empty when the link does not exist or is inactive/expired
+    public Mono<Redirect> redirect(String code, Supplier<ClientProfile> client) {
+        return call(() -> shortLinkService.redirect(code, client)
+            .orElse(null));
+    }
+
+    public Mono<List<Link>> listByUserId(UUID userId) {
+        return call(() -> shortLinkService.listByUserId(userId));
+    }
+
+    public Mono<Map<String, Object>> usage(UUID userId) {
+        return call(() -> shortLinkService.usage(userId));
+    }
+
+    public Mono<Boolean> deleteLink(String code, UUID userId) {
+        return call(() -> shortLinkService.deleteLink(code, userId));
+    }
+
+    public Mono<List<String>> getNotifications(UUID userId) {
+        return call(() -> notificationService.getNotifications(userId));
+    }
+
+    public Mono<BulkJobStatus> submitBulk(UUID userId, BulkAction action, List<String> codes) {
+        return call(() -> bulkLinkService.submit(userId, action, codes));
+    }
+
+    public Mono<BulkJobStatus> bulkStatus(UUID jobId, UUID userId) {
+        return call(() -> bulkLinkService.status(jobId, userId)
+            .orElse(null));
+    }
+
+    // a null result completes empty
+    public <T> Mono<T> call(Callable<T> task) {
+        return Mono.defer(() -> {
+                final var current = scheduler;
+                if (current == null) {
+                    return Mono.error(new ScheduleCapacityException("Requests are not accepted while the service is stopping"));
+                }
+                return Mono.fromCallable(task)
+                    .subscribeOn(current);
+            })
+            .onErrorMap(RejectedExecutionException.class, e -> new ScheduleCapacityException("Server is overloaded, try again later", e));
+    }
+
+    // for blocking stream copies (snapshot export) that must not run on an event loop
+    public Executor executor() {
+        return task -> {
+            final var current = scheduler;
+            if (current == null) {
+                throw new RejectedExecutionException("Reactive worker pool is stopped");
+            }
+            current.schedule(task);
+        };
+    }
+
+    @Override
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        final var threads = reactiveProperties.workerThreads();
+        final var queuedPerThread = Math.max(1, (reactiveProperties.maxConcurrency() + threads - 1) / threads);
+        scheduler = Schedulers.newBoundedElastic(threads, queuedPerThread, "api-worker");
+    }
+
+    @Override
+    public synchronized void stop() {
+        final var current = scheduler;
+        if (current == null) {
+            return;
+        }
+        scheduler = null;
+        current.dispose();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,148 @@
+package com.mephi.skillfactory.urlshortener.service.routing;
+
+import com.mephi.skillfactory.urlshortener.domain.ClientProfile;
+import com.mephi.skillfactory.urlshortener.properties.RoutingProperties;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Turns the headers of a redirect request into the {@link ClientProfile} routing rules are evaluated against, once per
+ * request. The device comes from the cached {@link UserAgentClassifier}, preferred languages from {@code Accept-Language}
+ * (parsed forms are cached the same way), and the country from the header a CDN or geo-IP proxy in front of the service sets,
+ * {@code routing.country-header}. The visitor hash mixes the client address and User-Agent so weighted splits are sticky.
+ */
+@Component
+public class ClientProfileExtractor {
+    static final int MAX_LANGUAGES = 8;
+    static final int MAX_CACHED_LENGTH = 256;
+    private static final String USER_AGENT = "User-Agent";
+    private static final String ACCEPT_LANGUAGE = "Accept-Language";
+
+    private final UserAgentClassifier userAgentClassifier;
+    private final String countryHeader;
+    private final LruCache<String, List<String>> languagesByHeader;
+
+    public ClientProfileExtractor(RoutingProperties routingProperties, UserAgentClassifier userAgentClassifier) {
+        if (routingProperties.acceptLanguageCacheSize() < 1) {
+            throw new IllegalArgumentException("routing.accept-language-cache-size must be positive");
+        }
+        this.userAgentClassifier = userAgentClassifier;
+        this.countryHeader = routingProperties.countryHeader() == null || routingProperties.countryHeader().isBlank()
+            ? null
+            : routingProperties.countryHeader();
+        this.languagesByHeader = new LruCache<>(routingProperties.acceptLanguageCacheSize());
+    }
+
+    public ClientProfile extract(UnaryOperator<String> headers, String remoteAddress) {
+        final var userAgent = headers.apply(USER_AGENT);
+        final var country = countryHeader == null
+            ? null
+            : headers.apply(countryHeader);
+        return new ClientProfile(userAgentClassifier.classify(userAgent), languages(headers.apply(ACCEPT_LANGUAGE)), country(country),
+            visitorHash(remoteAddress, userAgent));
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of("userAgents", userAgentClassifier.stats(), "acceptLanguagesCached", languagesByHeader.size());
+    }
+
+    List<String> languages(String acceptLanguage) {
+        if (acceptLanguage == null || acceptLanguage.isBlank()) {
+            return List.of();
+        }
+        final var cached = languagesByHeader.get(acceptLanguage);
+        if (cached != null) {
+            return cached;
+        }
+        final var parsed = parseAcceptLanguage(acceptLanguage);
+        if (acceptLanguage.length() <= MAX_CACHED_LENGTH) {
+            languagesByHeader.put(acceptLanguage, parsed);
+        }
+        return parsed;
+    }
+
+    // "de-CH, fr;q=0.9, en;q=0.8, *;q=0.5" -> [de-ch, de, fr, en]; q=0 and malformed weights exclude the range
+    static List<String> parseAcceptLanguage(String header) {
+        final var ranges = new ArrayList<WeightedRange>();
+        for (final var part : header.split(",")) {
+            final var pieces = part.split(";");
+            final var tag = pieces[0].trim()
+                .toLowerCase(Locale.ROOT);
+            if (tag.isEmpty() || tag.equals("*")) {
+                continue;
+            }
+            var quality = 1.0;
+            for (var i = 1; i < pieces.length; i++) {
+                final var parameter = pieces[i].trim();
+                if (parameter.startsWith("q=")) {
+                    quality = quality(parameter.substring(2));
+                }
+            }
+            if (quality > 0) {
+                ranges.add(new WeightedRange(tag, quality));
+            }
+        }
+        // stable, so ranges of equal quality keep the client's order
+        ranges.sort(Comparator.comparingDouble(WeightedRange::quality)
+            .reversed());
+
+        final var languages = new ArrayList<String>();
+        for (final var range : ranges) {
+            addLanguage(languages, range.tag());
+            final var dash = range.tag()
+                .indexOf('-');
+            if (dash > 0) {
+                addLanguage(languages, range.tag().substring(0, dash));
+            }
+        }
+        return List.copyOf(languages.subList(0, Math.min(languages.size(), MAX_LANGUAGES)));
+    }
+
+    // ISO 3166 alpha-2 codes only, anything else (empty, "unknown") means the country is not known
+    static String country(String value) {
+        if (value == null) {
+            return null;
+        }
+        final var trimmed = value.trim();
+        if (trimmed.length() != 2 || !Character.isLetterOrDigit(trimmed.charAt(0)) || !Character.isLetterOrDigit(trimmed.charAt(1))) {
+            return null;
+        }
+        return trimmed.toUpperCase(Locale.ROOT);
+    }
+
+    static int visitorHash(String remoteAddress, String userAgent) {
+        // murmur3 finalizer, so close addresses still land in different A/B buckets
+        var hash = Objects.hashCode(remoteAddress) * 31 + Objects.hashCode(userAgent);
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static double quality(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void addLanguage(List<String> languages, String language) {
+        if (!languages.contains(language)) {
+            languages.add(language);
+        }
+    }
+
+    private record WeightedRange(String tag, double quality) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.mephi.skillfactory.urlshortener.service.routing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded least-recently-used cache for the header lookups of the redirect path.
+ * <p>
+ * Keys are spread over up to {@value #MAX_SEGMENTS} access-ordered maps, each guarded by its own monitor, so concurrent
+ * visitors rarely meet on one lock. A full segment evicts its least recently used entry, which keeps the popular headers
+ * cached while one-off values pass through instead of flushing everything at once.
+ */
+final class LruCache<K, V> {
+    static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private final Segment<K, V>[] segments;
+    private final int mask;
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    LruCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        final var count = Integer.highestOneBit(Math.clamp(capacity / MIN_SEGMENT_CAPACITY, 1, MAX_SEGMENTS));
+        this.segments = new Segment[count];
+        this.mask = count - 1;
+        for (var i = 0; i < count; i++) {
+            // the first segments take the remainder, so the total is exactly the capacity
+            segments[i] = new Segment<>(capacity / count + (i < capacity % count
+                ? 1
+                : 0), evictions);
+        }
+    }
+
+    V get(K key) {
+        final var segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    void put(K key, V value) {
+        final var segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    int size() {
+        var size = 0;
+        for (final var segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        final var hash = key.hashCode();
+        return segments[(hash ^ hash >>> 16) & mask];
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+        private final LongAdder evictions;
+
+        private Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
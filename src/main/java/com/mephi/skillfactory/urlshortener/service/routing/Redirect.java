@@ -0,0 +1,8 @@
+package com.mephi.skillfactory.urlshortener.service.routing;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+
+// targetUrl is the link's own target unless one of its routing rules matched the visitor
+public record Redirect(Link link,
+                       String targetUrl) {
+}
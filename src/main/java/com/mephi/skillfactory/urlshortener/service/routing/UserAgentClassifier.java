@@ -0,0 +1,83 @@
+package com.mephi.skillfactory.urlshortener.service.routing;
+
+import com.mephi.skillfactory.urlshortener.domain.DeviceType;
+import com.mephi.skillfactory.urlshortener.properties.RoutingProperties;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sorts User-Agent strings into device types by a few well-known tokens. Visitors send far fewer distinct strings than
+ * requests, so results are cached by the exact header value and a visit usually costs one map lookup. The cache keeps the
+ * {@code routing.user-agent-cache-size} most recently seen strings; unusually long strings are classified without caching.
+ */
+@Component
+public class UserAgentClassifier {
+    static final int MAX_CACHED_LENGTH = 512;
+    private static final String[] BOT_TOKENS = {"bot", "crawl", "spider", "slurp", "preview", "headless", "facebookexternalhit", "curl/",
+        "wget/", "python-requests", "okhttp"};
+    private static final String[] TABLET_TOKENS = {"ipad", "tablet", "kindle", "silk/", "playbook"};
+    private static final String[] MOBILE_TOKENS = {"mobi", "iphone", "ipod", "android", "windows phone", "opera mini"};
+
+    private final int cacheSize;
+    private final LruCache<String, DeviceType> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public UserAgentClassifier(RoutingProperties routingProperties) {
+        if (routingProperties.userAgentCacheSize() < 1) {
+            throw new IllegalArgumentException("routing.user-agent-cache-size must be positive");
+        }
+        this.cacheSize = routingProperties.userAgentCacheSize();
+        this.cache = new LruCache<>(cacheSize);
+    }
+
+    public DeviceType classify(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return DeviceType.OTHER;
+        }
+        final var cached = cache.get(userAgent);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        final var device = parse(userAgent);
+        if (userAgent.length() <= MAX_CACHED_LENGTH) {
+            cache.put(userAgent, device);
+        }
+        return device;
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of("cached", cache.size(), "capacity", cacheSize, "hits", hits.sum(), "misses", misses.sum(), "evictions",
+            cache.evictions());
+    }
+
+    static DeviceType parse(String userAgent) {
+        final var agent = userAgent.toLowerCase(Locale.ROOT);
+        if (containsAny(agent, BOT_TOKENS)) {
+            return DeviceType.BOT;
+        }
+        // Android tablets are the Android devices that do not announce themselves as "Mobile"
+        if (containsAny(agent, TABLET_TOKENS) || agent.contains("android") && !agent.contains("mobile")) {
+            return DeviceType.TABLET;
+        }
+        if (containsAny(agent, MOBILE_TOKENS)) {
+            return DeviceType.MOBILE;
+        }
+        return DeviceType.DESKTOP;
+    }
+
+    private static boolean containsAny(String agent, String[] tokens) {
+        for (final var token : tokens) {
+            if (agent.contains(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
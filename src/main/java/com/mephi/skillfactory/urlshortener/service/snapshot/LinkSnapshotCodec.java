@@ -0,0 +1,312 @@
+package com.mephi.skillfactory.urlshortener.service.snapshot;
+
+import com.mephi.skillfactory.urlshortener.domain.DeviceType;
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.domain.RouteTarget;
+import com.mephi.skillfactory.urlshortener.domain.RoutingRule;
+import com.mephi.skillfactory.urlshortener.domain.RoutingTable;
+import com.mephi.skillfactory.urlshortener.repository.LinkRepository;
+import com.mephi.skillfactory.urlshortener.service.exception.SnapshotFormatException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Versioned binary snapshot of links.
+ * <p>
+ * Layout: {@code MAGIC, VERSION, watermark} header, then a {@code RECORD} marker followed by a link per record, then
+ * {@code END} and the number of records written. Integers that are small in practice are written as unsigned varints.
+ * Version 2 appends a flags byte with the optional activation window and the redirect policy to every link; version 1
+ * snapshots are still readable. Routing rules follow behind their own flag, so snapshots of links without rules are unchanged.
+ * <p>
+ * The watermark is not a consistent cut: the links are read while the service keeps running, so a link created before it
+ * may already be deleted, and click counters are whatever they were when the link was written. Links created after the
+ * watermark are skipped. Reading treats every length and count as untrusted and fails with {@link SnapshotFormatException}.
+ */
+public final class LinkSnapshotCodec {
+    public static final int MAGIC = 0x55534E50; // "USNP"
+    public static final short VERSION = 2;
+    private static final short VERSION_WITHOUT_WINDOW = 1;
+    private static final int HAS_ACTIVE_FROM = 1;
+    private static final int HAS_ACTIVE_UNTIL = 2;
+    private static final int PERMANENT_REDIRECT = 4;
+    private static final int HAS_ROUTING = 8;
+    private static final byte RECORD = 1;
+    private static final byte END = 0;
+    // far above any URL or code the API accepts, low enough that a forged length cannot exhaust the heap
+    static final int MAX_STRING_BYTES = 1024 * 1024;
+
+    private LinkSnapshotCodec() {
+    }
+
+    public static long write(LinkRepository repository, Instant watermark, OutputStream outputStream) throws IOException {
+        final var out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(watermark.getEpochSecond());
+        out.writeInt(watermark.getNano());
+
+        final var count = new long[1];
+        try {
+            repository.forEachLink(link -> {
+                // links created after the watermark belong to the next snapshot
+                if (link.getCreatedAt().isAfter(watermark)) {
+                    return;
+                }
+                try {
+                    out.writeByte(RECORD);
+                    writeLink(out, link);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        out.writeByte(END);
+        writeVarLong(out, count[0]);
+        out.flush();
+        return count[0];
+    }
+
+    public static Snapshot read(InputStream inputStream) throws IOException {
+        final var links = new ArrayList<Link>();
+        final var watermark = read(inputStream, links::add);
+        return new Snapshot(watermark, links);
+    }
+
+    // hands every link to the action as it is decoded, so a snapshot never has to fit on the heap; returns the watermark
+    public static Instant read(InputStream inputStream, Consumer<? super Link> action) throws IOException {
+        try {
+            return readSnapshot(new DataInputStream(inputStream), action);
+        } catch (EOFException e) {
+            throw new SnapshotFormatException("Snapshot ends unexpectedly", e);
+        }
+    }
+
+    private static Instant readSnapshot(DataInputStream in, Consumer<? super Link> action) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new SnapshotFormatException("Not a link snapshot");
+        }
+        final var version = in.readShort();
+        if (version != VERSION && version != VERSION_WITHOUT_WINDOW) {
+            throw new SnapshotFormatException("Unsupported snapshot version: " + version);
+        }
+        final var watermark = Instant.ofEpochSecond(in.readLong(), in.readInt());
+
+        var count = 0L;
+        while (true) {
+            final var marker = in.readByte();
+            if (marker == END) {
+                break;
+            }
+            if (marker != RECORD) {
+                throw new SnapshotFormatException("Unexpected record marker: " + marker);
+            }
+            action.accept(readLink(in, version));
+            count++;
+        }
+
+        final var expected = readVarLong(in);
+        if (expected != count) {
+            throw new SnapshotFormatException("Snapshot is truncated: expected %d links, read %d".formatted(expected, count));
+        }
+        return watermark;
+    }
+
+    public static void writeLink(DataOutputStream out, Link link) throws IOException {
+        writeString(out, link.getCode());
+        out.writeLong(link.getUserId().getMostSignificantBits());
+        out.writeLong(link.getUserId().getLeastSignificantBits());
+        writeString(out, link.getTargetUrl());
+        writeVarLong(out, link.getCreatedAt().getEpochSecond());
+        writeVarLong(out, link.getCreatedAt().getNano());
+        writeVarLong(out, link.getTtlSeconds());
+        writeVarLong(out, link.getMaxClicks());
+        writeVarLong(out, link.getClickCount().get());
+        out.writeBoolean(link.isActive());
+        final var activeFrom = link.getActiveFrom();
+        final var activeUntil = link.getActiveUntil();
+        var flags = 0;
+        if (activeFrom != null) {
+            flags |= HAS_ACTIVE_FROM;
+        }
+        if (activeUntil != null) {
+            flags |= HAS_ACTIVE_UNTIL;
+        }
+        if (link.getRedirectPolicy() == RedirectPolicy.PERMANENT) {
+            flags |= PERMANENT_REDIRECT;
+        }
+        if (!link.getRouting().isEmpty()) {
+            flags |= HAS_ROUTING;
+        }
+        out.writeByte(flags);
+        if (activeFrom != null) {
+            writeVarLong(out, activeFrom.toEpochMilli());
+        }
+        if (activeUntil != null) {
+            writeVarLong(out, activeUntil.toEpochMilli());
+        }
+        if (!link.getRouting().isEmpty()) {
+            writeRules(out, link.getRouting().rules());
+        }
+    }
+
+    public static Link readLink(DataInputStream in) throws IOException {
+        return readLink(in, VERSION);
+    }
+
+    private static Link readLink(DataInputStream in, short version) throws IOException {
+        final var code = readString(in);
+        final var userId = new UUID(in.readLong(), in.readLong());
+        final var targetUrl = readString(in);
+        final var createdAt = Instant.ofEpochSecond(readVarLong(in), readVarLong(in));
+        final var ttlSeconds = readVarLong(in);
+        final var maxClicks = (int) readVarLong(in);
+        final var clickCount = (int) readVarLong(in);
+        final var active = in.readBoolean();
+        if (version == VERSION_WITHOUT_WINDOW) {
+            return new Link(code, targetUrl, userId, createdAt, ttlSeconds, maxClicks, clickCount, active);
+        }
+        final var flags = in.readByte();
+        final var activeFrom = (flags & HAS_ACTIVE_FROM) == 0
+            ? null
+            : Instant.ofEpochMilli(readVarLong(in));
+        final var activeUntil = (flags & HAS_ACTIVE_UNTIL) == 0
+            ? null
+            : Instant.ofEpochMilli(readVarLong(in));
+        final var redirectPolicy = (flags & PERMANENT_REDIRECT) == 0
+            ? RedirectPolicy.TEMPORARY
+            : RedirectPolicy.PERMANENT;
+        final var routing = (flags & HAS_ROUTING) == 0
+            ? RoutingTable.EMPTY
+            : readRules(in);
+        return new Link(code, targetUrl, userId, createdAt, ttlSeconds, maxClicks, clickCount, active, activeFrom, activeUntil, redirectPolicy,
+            routing);
+    }
+
+    // rules are written as compiled (normalized), so reading compiles them again without surprises
+    private static void writeRules(DataOutputStream out, List<RoutingRule> rules) throws IOException {
+        writeVarLong(out, rules.size());
+        for (final var rule : rules) {
+            var devices = 0;
+            for (final var device : rule.devices()) {
+                devices |= 1 << device.ordinal();
+            }
+            writeVarLong(out, devices);
+            writeStrings(out, rule.languages());
+            writeStrings(out, rule.countries());
+            writeVarLong(out, rule.targets().size());
+            for (final var target : rule.targets()) {
+                writeString(out, target.url());
+                writeVarLong(out, target.weight());
+            }
+        }
+    }
+
+    private static RoutingTable readRules(DataInputStream in) throws IOException {
+        final var count = checkedCount(in, RoutingTable.MAX_RULES);
+        final var rules = new ArrayList<RoutingRule>(count);
+        for (var i = 0; i < count; i++) {
+            final var deviceMask = readVarLong(in);
+            final var devices = new ArrayList<DeviceType>();
+            for (final var device : DeviceType.values()) {
+                if ((deviceMask & 1L << device.ordinal()) != 0) {
+                    devices.add(device);
+                }
+            }
+            final var languages = readStrings(in);
+            final var countries = readStrings(in);
+            final var targetCount = checkedCount(in, RoutingTable.MAX_TARGETS_PER_RULE);
+            final var targets = new ArrayList<RouteTarget>(targetCount);
+            for (var t = 0; t < targetCount; t++) {
+                targets.add(new RouteTarget(readString(in), (int) readVarLong(in)));
+            }
+            rules.add(new RoutingRule(devices, languages, countries, targets));
+        }
+        try {
+            return RoutingTable.compile(rules);
+        } catch (IllegalArgumentException e) {
+            throw new SnapshotFormatException("Invalid routing rules: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        writeVarLong(out, values.size());
+        for (final var value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        final var count = checkedCount(in, Long.SIZE);
+        final var values = new ArrayList<String>(count);
+        for (var i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static int checkedCount(DataInputStream in, int max) throws IOException {
+        final var count = readVarLong(in);
+        if (count < 0 || count > max) {
+            throw new SnapshotFormatException("Routing rule count %d out of range".formatted(count));
+        }
+        return (int) count;
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        final var bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        final var length = readVarLong(in);
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new SnapshotFormatException("String length %d out of range".formatted(length));
+        }
+        final var bytes = new byte[(int) length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // zig-zag keeps the rare negative values (e.g. a negative ttl) short as well
+    public static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        var v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    public static long readVarLong(DataInputStream in) throws IOException {
+        var result = 0L;
+        for (var shift = 0; shift < 64; shift += 7) {
+            final var b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (result >>> 1) ^ -(result & 1);
+            }
+        }
+        throw new SnapshotFormatException("Malformed varint");
+    }
+
+    public record Snapshot(Instant watermark, List<Link> links) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.mephi.skillfactory.urlshortener.service.snapshot;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.repository.LinkRepository;
+import com.mephi.skillfactory.urlshortener.service.activation.ActivationScheduler;
+import com.mephi.skillfactory.urlshortener.service.keyspace.CodeLengthPolicy;
+import com.mephi.skillfactory.urlshortener.service.quota.UsageTracker;
+import com.mephi.skillfactory.urlshortener.service.stats.LinkStatistics;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SnapshotService implements SmartInitializingSingleton {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final LinkRepository linkRepository;
+    private final ActivationScheduler activationScheduler;
+    private final UsageTracker usageTracker;
+    private final LinkStatistics linkStatistics;
+    private final CodeLengthPolicy codeLengthPolicy;
+
+    public long exportTo(OutputStream outputStream) throws IOException {
+        final var watermark = Instant.now();
+        final var startedAt = System.nanoTime();
+        final var out = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        final var count = LinkSnapshotCodec.write(linkRepository, watermark, out);
+        out.flush();
+        log.info("Exported {} links (watermark {}) in {} ms", count, watermark, (System.nanoTime() - startedAt) / 1_000_000);
+        return count;
+    }
+
+    // the derived state is rebuilt after the swap: until then quota checks and code lengths still see the replaced links, and
+    // writes in that gap are picked up by the rebuild's scan of the new store
+    public int importFrom(InputStream inputStream) throws IOException {
+        final var startedAt = System.nanoTime();
+        final var snapshot = LinkSnapshotCodec.read(new BufferedInputStream(inputStream, BUFFER_SIZE));
+        linkRepository.replaceAll(snapshot.links());
+        rebuildDerivedState(snapshot.links()::forEach);
+        log.info("Imported {} links (watermark {}) in {} ms", snapshot.links().size(), snapshot.watermark(),
+            (System.nanoTime() - startedAt) / 1_000_000);
+        return snapshot.links().size();
+    }
+
+    // a persistent repository comes up with links, whose counters and activation windows are held in memory only; the links
+    // are streamed from the repository once per consumer, so a store larger than the heap can still be started
+    @Override
+    public void afterSingletonsInstantiated() {
+        final var startedAt = System.nanoTime();
+        rebuildDerivedState(linkRepository::forEachLink);
+        log.info("Rebuilt counters and activation windows of stored links in {} ms", (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    public long exportTo(Path file) throws IOException {
+        try (var out = Files.newOutputStream(file)) {
+            return exportTo(out);
+        }
+    }
+
+    public int importFrom(Path file) throws IOException {
+        try (var in = Files.newInputStream(file)) {
+            return importFrom(in);
+        }
+    }
+
+    private void rebuildDerivedState(Consumer<Consumer<? super Link>> forEachLink) {
+        activationScheduler.scheduleAll(forEachLink);
+        usageTracker.rebuild(forEachLink);
+        linkStatistics.rebuild(forEachLink);
+        codeLengthPolicy.rebuild(forEachLink);
+    }
+}
@@ -0,0 +1,63 @@
+package com.mephi.skillfactory.urlshortener.service.stats;
+
+import com.mephi.skillfactory.urlshortener.replication.ReplicationState;
+import com.mephi.skillfactory.urlshortener.repository.LinkRepository;
+import com.mephi.skillfactory.urlshortener.service.ShortLinkService;
+import com.mephi.skillfactory.urlshortener.service.audit.AccessLog;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.quota.UsageTracker;
+import com.mephi.skillfactory.urlshortener.service.reactive.AdmissionLimiter;
+import com.mephi.skillfactory.urlshortener.service.routing.ClientProfileExtractor;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+
+// what the admin endpoints of both API modes report; storage stats may touch disk, so the reactive mode calls it off the event loop
+@Service
+@RequiredArgsConstructor
+public class AdminStatsService {
+    private final LinkEventLog linkEventLog;
+    private final ReplicationState replicationState;
+    private final LinkRepository linkRepository;
+    private final UsageTracker usageTracker;
+    private final LinkStatistics linkStatistics;
+    private final ShortLinkService shortLinkService;
+    private final AccessLog accessLog;
+    private final ClientProfileExtractor clientProfileExtractor;
+    // present only in the reactive API mode
+    private final ObjectProvider<AdmissionLimiter> admissionLimiter;
+
+    public List<LinkEventLog.SubscriptionStats> eventConsumers() {
+        return linkEventLog.stats();
+    }
+
+    public Map<String, Object> replication() {
+        return replicationState.stats();
+    }
+
+    public Map<String, Object> storage() {
+        return linkRepository.stats();
+    }
+
+    public Map<String, Object> quota() {
+        return usageTracker.stats();
+    }
+
+    public Map<String, Object> all(int top) {
+        return Map.of("storage", linkRepository.stats(), "quota", usageTracker.stats(), "links", linkStatistics.stats(top), "shortens",
+            shortLinkService.coalescingStats(), "codes", shortLinkService.codeStats(), "accessLog", accessLog.stats(), "routing",
+            clientProfileExtractor.stats(), "api", api());
+    }
+
+    private Map<String, Object> api() {
+        final var limiter = admissionLimiter.getIfAvailable();
+        return limiter == null
+            ? Map.of("mode", "servlet")
+            : limiter.stats();
+    }
+}
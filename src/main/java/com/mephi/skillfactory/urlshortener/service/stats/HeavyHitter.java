@@ -0,0 +1,6 @@
+package com.mephi.skillfactory.urlshortener.service.stats;
+
+public record HeavyHitter(String code,
+                          long count,
+                          long error) {
+}
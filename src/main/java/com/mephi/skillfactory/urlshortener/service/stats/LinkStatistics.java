@@ -0,0 +1,205 @@
+package com.mephi.skillfactory.urlshortener.service.stats;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.StatsProperties;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEvent;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventType;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Operator statistics that never scan the repository.
+ * <p>
+ * Everything is consumed from the event log by a single thread, so links created by replication or removed by any path are
+ * counted the same way as local writes. The number of links per expiry second makes the count of expired links still waiting
+ * for the cleaner a sum over the few seconds the cleaner has not reached yet; redirect traffic goes into windowed Space-Saving
+ * sketches. A consumer that falls behind only loses precision until the next {@link #rebuild}.
+ * <p>
+ * The subscription is taken at construction, so nothing published before {@link #start()} is missed, but the consuming
+ * thread only runs between {@link #start()} and {@link #stop()}.
+ */
+@Slf4j
+@Component
+public class LinkStatistics implements SmartLifecycle {
+    // starts before and stops after the background worker, whose cleanups publish the removals counted here
+    public static final int PHASE = BackgroundWorker.PHASE - 1024;
+    private static final String SUBSCRIPTION = "link-stats";
+    private static final long STOP_TIMEOUT_MILLIS = 5_000;
+    private final ConcurrentSkipListMap<Long, LongAdder> linksByExpirySecond = new ConcurrentSkipListMap<>();
+    private final AtomicLongArray eventsByType = new AtomicLongArray(LinkEventType.values().length);
+    private final int heavyHitters;
+    private final long windowMillis;
+    private final LinkEventLog linkEventLog;
+    private final int eventBatchSize;
+    private volatile LinkEventLog.Subscription subscription;
+    private Thread consumer;
+    // updates of linksByExpirySecond and the fields below are guarded by this, readers of the counters do not lock
+    // events before this sequence are already reflected in the links of the last rebuild
+    private long rebuiltBeforeSequence;
+    private SpaceSavingSketch window;
+    private long windowStartedAt;
+    private List<HeavyHitter> previousTop = List.of();
+    private long previousClicks;
+
+    public LinkStatistics(StatsProperties statsProperties, LinkEventLog linkEventLog) {
+        this.heavyHitters = statsProperties.heavyHitters();
+        this.windowMillis = statsProperties.window().toMillis();
+        this.window = new SpaceSavingSketch(heavyHitters);
+        this.windowStartedAt = System.currentTimeMillis();
+        this.linkEventLog = linkEventLog;
+        this.eventBatchSize = statsProperties.eventBatchSize();
+        this.subscription = linkEventLog.subscribe(SUBSCRIPTION);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (consumer != null) {
+            return;
+        }
+        final var current = subscription;
+        if (current.isClosed()) {
+            // restarted after a stop: continue where the previous consumer left off
+            subscription = linkEventLog.subscribe(SUBSCRIPTION, current.cursor());
+        }
+        consumer = linkEventLog.tail(subscription, this::onEvents, eventBatchSize);
+    }
+
+    // joins outside the monitor, the consumer takes it for every batch
+    @Override
+    public void stop() {
+        final Thread current;
+        synchronized (this) {
+            current = consumer;
+            if (current == null) {
+                return;
+            }
+            consumer = null;
+            subscription.close();
+        }
+        try {
+            current.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (current.isAlive()) {
+            log.warn("Link statistics consumer did not finish within {} ms", STOP_TIMEOUT_MILLIS);
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return consumer != null;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    // pending events describe the state the links replaced, so they are skipped instead of being applied on top
+    public synchronized void rebuild(Consumer<Consumer<? super Link>> forEachLink) {
+        rebuiltBeforeSequence = linkEventLog.nextSequence();
+        linksByExpirySecond.clear();
+        forEachLink.accept(link -> linkAdded(link.getExpiresAt().getEpochSecond()));
+    }
+
+    public long expiredPendingCleanup() {
+        var pending = 0L;
+        for (final var counter : linksByExpirySecond.headMap(Instant.now().getEpochSecond()).values()) {
+            pending += counter.sum();
+        }
+        return pending;
+    }
+
+    // drops emptied seconds behind the cleaner; new links never expire that far in the past, so nothing is added to them
+    public synchronized void prune() {
+        final var horizon = Instant.now().getEpochSecond() - 1;
+        linksByExpirySecond.headMap(horizon).entrySet().removeIf(entry -> entry.getValue().sum() == 0);
+    }
+
+    public Map<String, Object> stats(int limit) {
+        final var events = new LinkedHashMap<String, Long>();
+        for (final var type : LinkEventType.values()) {
+            events.put(type.name(), eventsByType.get(type.ordinal()));
+        }
+
+        final var out = new LinkedHashMap<String, Object>();
+        out.put("expiredPendingCleanup", expiredPendingCleanup());
+        out.put("events", events);
+        out.put("eventsLag", subscription.lag());
+        out.put("eventsDropped", subscription.dropped());
+        synchronized (this) {
+            rotateIfDue(System.currentTimeMillis());
+            out.put("windowStartedAt", Instant.ofEpochMilli(windowStartedAt));
+            out.put("windowClicks", window.total());
+            out.put("hotCodes", window.top(limit));
+            out.put("previousWindowClicks", previousClicks);
+            out.put("previousWindowHotCodes", previousTop.size() > limit
+                ? previousTop.subList(0, limit)
+                : previousTop);
+        }
+        return out;
+    }
+
+    void onEvents(List<LinkEvent> batch) {
+        for (final var event : batch) {
+            eventsByType.incrementAndGet(event.type().ordinal());
+        }
+        synchronized (this) {
+            rotateIfDue(System.currentTimeMillis());
+            for (final var event : batch) {
+                switch (event.type()) {
+                    case CLICKED -> window.offer(event.code());
+                    case CREATED -> {
+                        if (event.sequence() >= rebuiltBeforeSequence) {
+                            linkAdded(event.expiresAtSecond());
+                        }
+                    }
+                    // published only by whoever actually removed the link, see LinkRepository#deleteLinkByCode
+                    case DELETED, EXPIRED -> {
+                        if (event.sequence() >= rebuiltBeforeSequence) {
+                            linkRemoved(event.expiresAtSecond());
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+    }
+
+    private void linkAdded(long expiresAtSecond) {
+        linksByExpirySecond.computeIfAbsent(expiresAtSecond, second -> new LongAdder()).increment();
+    }
+
+    private void linkRemoved(long expiresAtSecond) {
+        final var counter = linksByExpirySecond.get(expiresAtSecond);
+        if (counter != null) {
+            counter.decrement();
+        }
+    }
+
+    private void rotateIfDue(long nowMillis) {
+        if (nowMillis - windowStartedAt < windowMillis) {
+            return;
+        }
+        previousTop = window.top(heavyHitters);
+        previousClicks = window.total();
+        window = new SpaceSavingSketch(heavyHitters);
+        windowStartedAt = nowMillis;
+    }
+}
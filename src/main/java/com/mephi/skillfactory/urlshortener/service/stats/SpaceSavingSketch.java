@@ -0,0 +1,121 @@
+package com.mephi.skillfactory.urlshortener.service.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Space-Saving heavy hitters over a stream of keys with a fixed number of counters.
+ * <p>
+ * Counters live in an indexed binary min-heap (parallel arrays plus key -> slot map), so a hit and the eviction of the
+ * smallest counter are both O(log capacity). A reported count overestimates the true frequency by at most its {@code error};
+ * every key seen more than {@code total / capacity} times is guaranteed to be tracked. Not thread-safe.
+ */
+final class SpaceSavingSketch {
+    private final String[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final HashMap<String, Integer> slotByKey;
+    private int size;
+    private long total;
+
+    SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.keys = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.slotByKey = new HashMap<>(capacity * 4 / 3 + 1);
+    }
+
+    void offer(String key) {
+        total++;
+        final var slot = slotByKey.get(key);
+        if (slot != null) {
+            counts[slot]++;
+            siftDown(slot);
+            return;
+        }
+        if (size < keys.length) {
+            place(size, key, 1, 0);
+            siftUp(size++);
+            return;
+        }
+        // the new key inherits the smallest counter, whose value bounds how often it may have been missed
+        slotByKey.remove(keys[0]);
+        place(0, key, counts[0] + 1, counts[0]);
+        siftDown(0);
+    }
+
+    List<HeavyHitter> top(int limit) {
+        final var out = new ArrayList<HeavyHitter>(size);
+        for (var i = 0; i < size; i++) {
+            out.add(new HeavyHitter(keys[i], counts[i], errors[i]));
+        }
+        out.sort(Comparator.comparingLong(HeavyHitter::count)
+            .reversed());
+        return out.size() > limit
+            ? out.subList(0, limit)
+            : out;
+    }
+
+    long total() {
+        return total;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void place(int slot, String key, long count, long error) {
+        keys[slot] = key;
+        counts[slot] = count;
+        errors[slot] = error;
+        slotByKey.put(key, slot);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            final var parent = (slot - 1) >>> 1;
+            if (counts[parent] <= counts[slot]) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            final var left = 2 * slot + 1;
+            if (left >= size) {
+                return;
+            }
+            final var right = left + 1;
+            final var smallest = right < size && counts[right] < counts[left]
+                ? right
+                : left;
+            if (counts[slot] <= counts[smallest]) {
+                return;
+            }
+            swap(slot, smallest);
+            slot = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        final var key = keys[a];
+        final var count = counts[a];
+        final var error = errors[a];
+        keys[a] = keys[b];
+        counts[a] = counts[b];
+        errors[a] = errors[b];
+        keys[b] = key;
+        counts[b] = count;
+        errors[b] = error;
+        slotByKey.put(keys[a], a);
+        slotByKey.put(keys[b], b);
+    }
+}
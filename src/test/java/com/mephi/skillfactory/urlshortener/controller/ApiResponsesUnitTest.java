@@ -0,0 +1,64 @@
+package com.mephi.skillfactory.urlshortener.controller;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.service.routing.Redirect;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApiResponsesUnitTest {
+
+    @Test
+    void shouldAnswerPermanentUnlimitedLinkWithCacheable301() {
+        // given
+        final var link = link(Link.UNLIMITED_CLICKS, RedirectPolicy.PERMANENT);
+
+        // when
+        final var response = ApiResponses.redirect(new Redirect(link, link.getTargetUrl()));
+
+        // then
+        assertEquals(HttpStatus.MOVED_PERMANENTLY.value(), response.getStatusCode().value());
+        assertEquals(URI.create("https://example.com/target"), response.getHeaders().getLocation());
+        final var cacheControl = response.getHeaders().getCacheControl();
+        assertTrue(cacheControl.startsWith("max-age=") && cacheControl.contains("public"), cacheControl);
+        final var maxAge = Long.parseLong(cacheControl.substring("max-age=".length(), cacheControl.indexOf(',')));
+        assertTrue(maxAge > 3_500 && maxAge <= 3_600, cacheControl);
+    }
+
+    @Test
+    void shouldAnswerTemporaryLinkWithUncacheable302() {
+        // given
+        final var link = link(Link.UNLIMITED_CLICKS, RedirectPolicy.TEMPORARY);
+
+        // when
+        final var response = ApiResponses.redirect(new Redirect(link, "https://example.com/routed"));
+
+        // then
+        assertEquals(HttpStatus.FOUND.value(), response.getStatusCode().value());
+        assertEquals(URI.create("https://example.com/routed"), response.getHeaders().getLocation());
+        assertEquals("no-store", response.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void shouldNeverCacheClickLimitedLink() {
+        // given: a stored link with the legacy maxClicks of 0 is still limited, whatever its policy
+        final var limited = link(5, RedirectPolicy.PERMANENT);
+        final var legacy = link(0, RedirectPolicy.PERMANENT);
+
+        // when / then
+        assertEquals(HttpStatus.FOUND.value(), ApiResponses.redirect(new Redirect(limited, limited.getTargetUrl())).getStatusCode().value());
+        assertEquals("no-store", ApiResponses.redirect(new Redirect(legacy, legacy.getTargetUrl())).getHeaders().getCacheControl());
+    }
+
+    private static Link link(int maxClicks, RedirectPolicy policy) {
+        return new Link("c1", "https://example.com/target", UUID.randomUUID(), Instant.now(), 3_600, maxClicks, 0, true, null, null, policy);
+    }
+}
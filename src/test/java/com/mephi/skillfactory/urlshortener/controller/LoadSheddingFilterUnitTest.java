@@ -0,0 +1,87 @@
+package com.mephi.skillfactory.urlshortener.controller;
+
+import com.mephi.skillfactory.urlshortener.properties.ReactiveProperties;
+import com.mephi.skillfactory.urlshortener.service.reactive.AdmissionLimiter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.time.Duration;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LoadSheddingFilterUnitTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final AdmissionLimiter admissionLimiter = new AdmissionLimiter(new ReactiveProperties(1, 1, Duration.ofSeconds(3)));
+    private final LoadSheddingFilter filter = new LoadSheddingFilter(admissionLimiter, new ReactiveProperties(1, 1, Duration.ofSeconds(3)));
+
+    @Test
+    void shouldRejectAboveMaxConcurrencyWith503AndRetryAfter() {
+        // given: one request in progress takes the only slot
+        final var inProgress = Sinks.<Void>empty();
+        final var first = filter.filter(exchange("/api/abc"), exchange -> inProgress.asMono())
+            .subscribe();
+
+        // when
+        final var rejected = exchange("/api/abc");
+        filter.filter(rejected, exchange -> Mono.error(new AssertionError("an overloaded request must not reach the handler")))
+            .block(TIMEOUT);
+
+        // then
+        assertEquals(503, rejected.getResponse().getStatusCode().value());
+        assertEquals("3", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Server is overloaded, try again later", rejected.getResponse().getBodyAsString().block(TIMEOUT));
+        assertEquals(1, admissionLimiter.inFlight());
+
+        inProgress.tryEmitEmpty();
+        assertEquals(0, admissionLimiter.inFlight());
+        first.dispose();
+    }
+
+    @Test
+    void shouldReleaseSlotWhenClientCancels() {
+        // given
+        final var first = filter.filter(exchange("/api/abc"), exchange -> Mono.never())
+            .subscribe();
+        assertEquals(1, admissionLimiter.inFlight());
+
+        // when
+        first.dispose();
+
+        // then
+        assertEquals(0, admissionLimiter.inFlight());
+        final var next = exchange("/api/abc");
+        filter.filter(next, exchange -> Mono.empty()).block(TIMEOUT);
+        assertNull(next.getResponse().getStatusCode());
+    }
+
+    @Test
+    void shouldLetAdminAndNonApiRequestsThroughWhenFull() {
+        // given
+        final var first = filter.filter(exchange("/api/abc"), exchange -> Mono.never())
+            .subscribe();
+
+        // when
+        final var admin = exchange("/api/admin/stats");
+        filter.filter(admin, exchange -> Mono.empty()).block(TIMEOUT);
+        final var health = exchange("/actuator/health");
+        filter.filter(health, exchange -> Mono.empty()).block(TIMEOUT);
+
+        // then
+        assertNull(admin.getResponse().getStatusCode());
+        assertNull(health.getResponse().getStatusCode());
+        assertEquals(1, admissionLimiter.inFlight());
+        first.dispose();
+    }
+
+    private static MockServerWebExchange exchange(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+}
@@ -0,0 +1,103 @@
+package com.mephi.skillfactory.urlshortener.controller.codec;
+
+import com.mephi.skillfactory.urlshortener.controller.dto.LinkView;
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenRequest;
+import com.mephi.skillfactory.urlshortener.controller.dto.ShortenResponse;
+import com.mephi.skillfactory.urlshortener.domain.DeviceType;
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.domain.RouteTarget;
+import com.mephi.skillfactory.urlshortener.domain.RoutingRule;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LinkWireCodecUnitTest {
+
+    @Test
+    void shouldRoundTripShortenRequestKeepingAbsentFields() {
+        final var full = new ShortenRequest("https://example.com/путь?q=1", 5, 3_600L, "summer-sale",
+            Instant.ofEpochMilli(1_750_000_000_000L), Instant.ofEpochMilli(1_750_086_400_000L), RedirectPolicy.PERMANENT,
+            List.of(new RoutingRule(List.of(DeviceType.MOBILE, DeviceType.DESKTOP), List.of("ru"), List.of(),
+                List.of(new RouteTarget("https://m.example.com", 1), new RouteTarget("https://b.example.com", null)))));
+        final var urlOnly = new ShortenRequest("https://example.com", null, null, null, null, null, null, null);
+
+        assertEquals(full, LinkWireCodec.decodeShortenRequest(LinkWireCodec.encodeShortenRequest(full)));
+        final var decoded = LinkWireCodec.decodeShortenRequest(LinkWireCodec.encodeShortenRequest(urlOnly));
+        assertNull(decoded.maxClicks());
+        assertNull(decoded.ttlSeconds());
+        assertNull(decoded.redirectPolicy());
+        assertNull(decoded.rules());
+    }
+
+    @Test
+    void shouldRoundTripShortenResponse() {
+        final var response = new ShortenResponse("abc1234", "http://localhost:8080/api/abc1234", "d3b07384-d9a7-4e5b-8b5e-8f4c2a7f1e11");
+
+        assertEquals(response, LinkWireCodec.decodeShortenResponse(LinkWireCodec.encodeShortenResponse(response)));
+    }
+
+    @Test
+    void shouldRoundTripLinkViewsIncludingDefaults() {
+        // given
+        final var createdAt = Instant.ofEpochMilli(1_735_689_600_123L);
+        final var links = List.of(
+            new LinkView("c1", "https://a", createdAt, 900, 3, 10, true, createdAt, createdAt.plusSeconds(600),
+                RedirectPolicy.TEMPORARY, List.of(new RoutingRule(List.of(), List.of("de-ch", "de"), List.of("CH"),
+                List.of(new RouteTarget("https://a/de", 3), new RouteTarget("https://a/en", 1))))),
+            new LinkView("c2", "https://b", createdAt, 0, 0, 0, false, null, null, RedirectPolicy.PERMANENT, List.of()),
+            new LinkView("c3", "https://c", createdAt, 60, -1, Integer.MAX_VALUE, true, null, null, RedirectPolicy.TEMPORARY, List.of()));
+
+        // when
+        final var decoded = LinkWireCodec.decodeLinkViews(LinkWireCodec.encodeLinkViews(links));
+
+        // then
+        assertEquals(links, decoded);
+    }
+
+    @Test
+    void shouldSkipUnknownFields() {
+        final var known = LinkWireCodec.encodeShortenRequest(new ShortenRequest("https://a", 2, null, null, null, null, null, null));
+        // field 15 varint 1, field 16 length-delimited "xy", field 17 fixed32
+        final var unknown = new byte[] {0x78, 0x01, (byte) 0x82, 0x01, 0x02, 'x', 'y', (byte) 0x8D, 0x01, 0, 0, 0, 0};
+        final var message = Arrays.copyOf(unknown, unknown.length + known.length);
+        System.arraycopy(known, 0, message, unknown.length, known.length);
+
+        assertEquals(new ShortenRequest("https://a", 2, null, null, null, null, null, null), LinkWireCodec.decodeShortenRequest(message));
+    }
+
+    @Test
+    void shouldRejectTruncatedMessage() {
+        final var bytes = LinkWireCodec.encodeShortenRequest(new ShortenRequest("https://example.com", null, null, null, null, null, null, null));
+
+        assertThrows(IllegalArgumentException.class, () -> LinkWireCodec.decodeShortenRequest(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test
+    void shouldRejectKnownFieldWithMismatchedWireType() {
+        // url = 1 sent as varint 1, max_clicks = 2 sent as length-delimited "x", rules = 8 sent as varint
+        final var urlAsVarint = new byte[] {0x08, 0x01};
+        final var maxClicksAsString = new byte[] {0x12, 0x01, 'x'};
+        final var ruleAsVarint = new byte[] {0x40, 0x01};
+
+        assertThrows(IllegalArgumentException.class, () -> LinkWireCodec.decodeShortenRequest(urlAsVarint));
+        assertThrows(IllegalArgumentException.class, () -> LinkWireCodec.decodeShortenRequest(maxClicksAsString));
+        assertThrows(IllegalArgumentException.class, () -> LinkWireCodec.decodeShortenRequest(ruleAsVarint));
+        assertThrows(IllegalArgumentException.class, () -> LinkWireCodec.decodeLinkViews(new byte[] {0x08, 0x01}));
+    }
+
+    @Test
+    void shouldEncodeCompatibleWithProtobufVarints() {
+        // ShortenRequest { max_clicks = 300 }: tag 0x10, varint 300 = 0xAC 0x02
+        final var request = new ShortenRequest(null, 300, null, null, null, null, null, null);
+
+        assertArrayEquals(new byte[] {0x10, (byte) 0xAC, 0x02}, LinkWireCodec.encodeShortenRequest(request));
+    }
+}
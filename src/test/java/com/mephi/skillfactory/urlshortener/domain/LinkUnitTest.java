@@ -0,0 +1,71 @@
+package com.mephi.skillfactory.urlshortener.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkUnitTest {
+    private static final Instant CREATED_AT = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Test
+    void shouldCachePermanentRedirectUntilExpiry() {
+        final var link = link(Link.UNLIMITED_CLICKS, null, RedirectPolicy.PERMANENT);
+
+        assertEquals(Duration.ofMinutes(50), link.cacheableFor(CREATED_AT.plus(Duration.ofMinutes(10))));
+        assertEquals(Duration.ZERO, link.cacheableFor(CREATED_AT.plus(Duration.ofHours(2))));
+    }
+
+    @Test
+    void shouldBoundCacheLifetimeByActivationWindow() {
+        final var link = link(Link.UNLIMITED_CLICKS, CREATED_AT.plus(Duration.ofMinutes(20)), RedirectPolicy.PERMANENT);
+
+        assertEquals(Duration.ofMinutes(15), link.cacheableFor(CREATED_AT.plus(Duration.ofMinutes(5))));
+    }
+
+    @Test
+    void shouldNeverCacheTemporaryOrClickLimitedRedirects() {
+        final var now = CREATED_AT.plusSeconds(1);
+
+        assertEquals(Duration.ZERO, link(Link.UNLIMITED_CLICKS, null, RedirectPolicy.TEMPORARY).cacheableFor(now));
+        assertEquals(Duration.ZERO, link(10, null, RedirectPolicy.PERMANENT).cacheableFor(now));
+    }
+
+    @Test
+    void shouldReactivateUnlimitedLinkRegardlessOfClicks() {
+        final var link = new Link("c1", "https://a", UUID.randomUUID(), CREATED_AT, 3_600, Link.UNLIMITED_CLICKS, 1_000, false, null, null,
+            RedirectPolicy.TEMPORARY);
+
+        assertTrue(link.activate());
+        assertTrue(link.isActive());
+    }
+
+    @Test
+    void shouldReportOnlyTheCallThatChangedActiveState() {
+        final var link = link(Link.UNLIMITED_CLICKS, null, RedirectPolicy.TEMPORARY);
+
+        assertTrue(link.deactivate());
+        assertFalse(link.deactivate());
+        assertTrue(link.activate());
+        assertFalse(link.activate());
+    }
+
+    @Test
+    void shouldKeepZeroMaxClicksAsDeactivateOnFirstClick() {
+        final var link = new Link("c1", "https://a", UUID.randomUUID(), CREATED_AT, 3_600, 0, 0, false, null, null,
+            RedirectPolicy.PERMANENT);
+
+        assertTrue(link.isClickLimited());
+        assertFalse(link.activate());
+        assertEquals(Duration.ZERO, link.cacheableFor(CREATED_AT.plusSeconds(1)));
+    }
+
+    private static Link link(int maxClicks, Instant activeUntil, RedirectPolicy policy) {
+        return new Link("c1", "https://a", UUID.randomUUID(), CREATED_AT, 3_600, maxClicks, 0, true, null, activeUntil, policy);
+    }
+}
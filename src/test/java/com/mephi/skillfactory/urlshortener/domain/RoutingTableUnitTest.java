@@ -0,0 +1,94 @@
+package com.mephi.skillfactory.urlshortener.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingTableUnitTest {
+    private static final String FALLBACK = "https://example.com";
+
+    @Test
+    void shouldRouteByFirstMatchingRule() {
+        // given
+        final var table = RoutingTable.compile(List.of(
+            rule(List.of(DeviceType.MOBILE), List.of("de"), List.of(), "https://m.example.com/de"),
+            rule(List.of(DeviceType.MOBILE, DeviceType.TABLET), List.of(), List.of(), "https://m.example.com"),
+            rule(List.of(), List.of("fr"), List.of("CA"), "https://example.ca/fr")));
+
+        // when / then
+        assertEquals("https://m.example.com/de", table.route(client(DeviceType.MOBILE, List.of("de-at", "de"), null), FALLBACK));
+        assertEquals("https://m.example.com", table.route(client(DeviceType.MOBILE, List.of("en"), "DE"), FALLBACK));
+        assertEquals("https://m.example.com", table.route(client(DeviceType.TABLET, List.of(), null), FALLBACK));
+        assertEquals("https://example.ca/fr", table.route(client(DeviceType.DESKTOP, List.of("fr-ca", "fr"), "CA"), FALLBACK));
+        assertEquals(FALLBACK, table.route(client(DeviceType.DESKTOP, List.of("fr"), "FR"), FALLBACK));
+        assertEquals(FALLBACK, table.route(ClientProfile.UNKNOWN, FALLBACK));
+    }
+
+    @Test
+    void shouldSplitByWeightAndKeepVisitorInBucket() {
+        // given
+        final var table = RoutingTable.compile(List.of(new RoutingRule(null, null, null,
+            List.of(new RouteTarget("https://a.example.com", 3), new RouteTarget("https://b.example.com", 1)))));
+
+        // when
+        var a = 0;
+        for (var visitor = 0; visitor < 4_000; visitor++) {
+            if (table.route(new ClientProfile(DeviceType.DESKTOP, List.of(), null, visitor * 0x9E3779B9), FALLBACK).equals("https://a.example.com")) {
+                a++;
+            }
+        }
+
+        // then
+        assertEquals(3_000, a, 100);
+        final var visitor = new ClientProfile(DeviceType.MOBILE, List.of(), null, 12345);
+        assertEquals(table.route(visitor, FALLBACK), table.route(visitor, FALLBACK));
+    }
+
+    @Test
+    void shouldNormalizeRules() {
+        final var table = RoutingTable.compile(List.of(new RoutingRule(null, List.of(" EN-us ", "en-US"), List.of("de"),
+            List.of(new RouteTarget(" https://example.com/en ", null)))));
+
+        assertEquals(List.of(new RoutingRule(List.of(), List.of("en-us"), List.of("DE"), List.of(new RouteTarget("https://example.com/en", 1)))),
+            table.rules());
+        assertEquals("https://example.com/en", table.route(client(DeviceType.BOT, List.of("en-us", "en"), "DE"), FALLBACK));
+    }
+
+    @Test
+    void shouldCompileNoRulesToEmptyTable() {
+        assertSame(RoutingTable.EMPTY, RoutingTable.compile(null));
+        assertSame(RoutingTable.EMPTY, RoutingTable.compile(List.of()));
+        assertTrue(RoutingTable.EMPTY.isEmpty());
+        assertEquals(FALLBACK, RoutingTable.EMPTY.route(client(DeviceType.MOBILE, List.of("en"), "US"), FALLBACK));
+    }
+
+    @Test
+    void shouldRejectInvalidRules() {
+        assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(new RoutingRule(null, null, null, List.of()))));
+        assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(rule(List.of(), List.of(), List.of(), "/relative"))));
+        assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(rule(List.of(), List.of(), List.of(),
+            "javascript:alert(1)"))));
+        assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(rule(List.of(), List.of(), List.of(),
+            "data:text/html,<script>alert(1)</script>"))));
+        assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(rule(List.of(), List.of(), List.of(), "ftp://a/b"))));
+        assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(new RoutingRule(null, null, null,
+            List.of(new RouteTarget("https://a", 0))))));
+        assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(List.of(rule(List.of(), List.of(" "), List.of(), "https://a"))));
+        assertThrows(IllegalArgumentException.class, () -> RoutingTable.compile(Collections.nCopies(RoutingTable.MAX_RULES + 1,
+            rule(List.of(), List.of(), List.of(), "https://a"))));
+    }
+
+    private static RoutingRule rule(List<DeviceType> devices, List<String> languages, List<String> countries, String url) {
+        return new RoutingRule(devices, languages, countries, List.of(new RouteTarget(url, 1)));
+    }
+
+    private static ClientProfile client(DeviceType device, List<String> languages, String country) {
+        return new ClientProfile(device, languages, country, 0);
+    }
+}
@@ -0,0 +1,121 @@
+package com.mephi.skillfactory.urlshortener.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadTestReportUnitTest {
+    private static final double THRESHOLD = 0.10;
+
+    @Test
+    void shouldComputeErrorRatioAgainstAttemptedRequests() {
+        // given: 10 answered redirects, 2 of them failed, and 30 more shed by the generator without a latency
+        final var histograms = new EnumMap<Operation, Histogram>(Operation.class);
+        final var errors = new EnumMap<Operation, Long>(Operation.class);
+        final var attempts = new EnumMap<Operation, Long>(Operation.class);
+        for (final var operation : Operation.values()) {
+            histograms.put(operation, new Histogram(3));
+            errors.put(operation, 0L);
+            attempts.put(operation, 0L);
+        }
+        for (var i = 0; i < 10; i++) {
+            histograms.get(Operation.REDIRECT).recordValue(100);
+        }
+        errors.put(Operation.REDIRECT, 32L);
+        attempts.put(Operation.REDIRECT, 40L);
+        final var result = new LoadGenerator.Result(histograms, errors, attempts, 40, 30, 0, 1.0);
+
+        // when
+        final var report = LoadTestReport.from(result, null, 0);
+
+        // then
+        assertEquals(0.8, report.metrics().get("redirect.errorRatio"), 1e-9);
+        assertEquals(0.0, report.metrics().get("shorten.errorRatio"));
+        assertEquals(10.0, report.metrics().get("throughput"), 1e-9);
+        assertEquals(30.0, report.metrics().get("shed"));
+    }
+
+    @Test
+    void shouldNotReportChangesWithinThreshold() {
+        // given
+        final var baseline = report(1_000, 5_000, 500, 0.001);
+        final var current = report(1_099, 5_499, 451, 0.0109);
+
+        // when
+        final var regressions = current.regressionsAgainst(baseline, THRESHOLD);
+
+        // then
+        assertTrue(regressions.isEmpty(), regressions::toString);
+    }
+
+    @Test
+    void shouldReportLatencyGrowthBeyondThreshold() {
+        // given
+        final var baseline = report(1_000, 5_000, 500, 0.0);
+        final var current = report(1_101, 5_501, 500, 0.0);
+
+        // when
+        final var regressions = current.regressionsAgainst(baseline, THRESHOLD);
+
+        // then
+        assertEquals(2, regressions.size());
+        assertTrue(regressions.get(0).startsWith("redirect.p999Micros"));
+        assertTrue(regressions.get(1).startsWith("redirect.p99Micros"));
+    }
+
+    @Test
+    void shouldReportThroughputDropBeyondThreshold() {
+        // given
+        final var baseline = report(1_000, 5_000, 500, 0.0);
+        final var current = report(1_000, 5_000, 449, 0.0);
+
+        // when
+        final var regressions = current.regressionsAgainst(baseline, THRESHOLD);
+
+        // then
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.getFirst().startsWith("throughput"));
+    }
+
+    @Test
+    void shouldReportErrorRatioGrowthBeyondTolerance() {
+        // given
+        final var baseline = report(1_000, 5_000, 500, 0.001);
+        final var current = report(1_000, 5_000, 500, 0.0111);
+
+        // when
+        final var regressions = current.regressionsAgainst(baseline, THRESHOLD);
+
+        // then
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.getFirst().startsWith("redirect.errorRatio"));
+    }
+
+    @Test
+    void shouldIgnoreMetricsMissingFromCurrentReport() {
+        // given
+        final var baseline = report(1_000, 5_000, 500, 0.0);
+        final var current = new LoadTestReport(Map.of("throughput", 500.0));
+
+        // when
+        final var regressions = current.regressionsAgainst(baseline, THRESHOLD);
+
+        // then
+        assertTrue(regressions.isEmpty(), regressions::toString);
+    }
+
+    private static LoadTestReport report(double p99Micros, double p999Micros, double throughput, double errorRatio) {
+        final var metrics = new TreeMap<String, Double>();
+        metrics.put("redirect.p99Micros", p99Micros);
+        metrics.put("redirect.p999Micros", p999Micros);
+        metrics.put("redirect.errorRatio", errorRatio);
+        metrics.put("throughput", throughput);
+        return new LoadTestReport(metrics);
+    }
+}
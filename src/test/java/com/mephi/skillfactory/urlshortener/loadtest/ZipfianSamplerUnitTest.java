@@ -0,0 +1,76 @@
+package com.mephi.skillfactory.urlshortener.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZipfianSamplerUnitTest {
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void shouldSampleOnlyRanksInRange() {
+        // given
+        final var sampler = new ZipfianSampler(10, 1.2);
+
+        // when / then
+        for (var i = 0; i < SAMPLES; i++) {
+            final var rank = sampler.next();
+            assertTrue(rank >= 0 && rank < 10, () -> "rank " + rank);
+        }
+    }
+
+    @Test
+    void shouldAlwaysSampleSingleRank() {
+        // given
+        final var sampler = new ZipfianSampler(1, 1.0);
+
+        // when / then
+        for (var i = 0; i < 1_000; i++) {
+            assertEquals(0, sampler.next());
+        }
+    }
+
+    @Test
+    void shouldFollowPowerLaw() {
+        // given
+        final var n = 100;
+        final var exponent = 1.0;
+        final var sampler = new ZipfianSampler(n, exponent);
+        final var counts = new int[n];
+
+        // when
+        for (var i = 0; i < SAMPLES; i++) {
+            counts[sampler.next()]++;
+        }
+
+        // then: P(rank) = 1 / ((rank + 1)^s * H(n, s))
+        var harmonic = 0.0;
+        for (var rank = 1; rank <= n; rank++) {
+            harmonic += 1.0 / Math.pow(rank, exponent);
+        }
+        for (final var rank : new int[] {0, 1, 4}) {
+            final var expected = SAMPLES / (Math.pow(rank + 1, exponent) * harmonic);
+            assertEquals(expected, counts[rank], expected * 0.05, "rank " + rank);
+        }
+        assertTrue(counts[0] > counts[1] && counts[1] > counts[9]);
+    }
+
+    @Test
+    void shouldSampleUniformlyWithZeroExponent() {
+        // given
+        final var n = 4;
+        final var sampler = new ZipfianSampler(n, 0.0);
+        final var counts = new int[n];
+
+        // when
+        for (var i = 0; i < SAMPLES; i++) {
+            counts[sampler.next()]++;
+        }
+
+        // then
+        for (final var count : counts) {
+            assertEquals(SAMPLES / (double) n, count, SAMPLES * 0.01);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.mephi.skillfactory.urlshortener.replication;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.BackgroundProperties;
+import com.mephi.skillfactory.urlshortener.properties.QuotaProperties;
+import com.mephi.skillfactory.urlshortener.properties.ReplicationProperties;
+import com.mephi.skillfactory.urlshortener.properties.StatsProperties;
+import com.mephi.skillfactory.urlshortener.repository.InMemoryLinkRepository;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventType;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.exception.ReplicaException;
+import com.mephi.skillfactory.urlshortener.service.quota.UsageTracker;
+import com.mephi.skillfactory.urlshortener.service.stats.LinkStatistics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicationUnitTest {
+    private final InMemoryLinkRepository primaryRepository = new InMemoryLinkRepository();
+    private final InMemoryLinkRepository followerRepository = new InMemoryLinkRepository();
+    private final LinkEventLog eventLog = new LinkEventLog(1024);
+    private final UsageTracker followerUsage = new UsageTracker(new QuotaProperties(0, 0, Duration.ofHours(1)),
+        new BackgroundWorker(new BackgroundProperties(16, 1_000)));
+    private final UsageTracker primaryUsage = new UsageTracker(new QuotaProperties(0, 0, Duration.ofHours(1)),
+        new BackgroundWorker(new BackgroundProperties(16, 1_000)));
+    private final LinkEventLog followerEventLog = new LinkEventLog(1024);
+    private ReplicationPrimary primary;
+    private ReplicationFollower follower;
+    private ReplicationState followerState;
+
+    @BeforeEach
+    void setUp() {
+        final var primaryProperties = properties(ReplicationProperties.Role.PRIMARY, 0);
+        primary = new ReplicationPrimary(primaryProperties, primaryRepository, eventLog, new ReplicationState(primaryProperties),
+            primaryUsage);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (follower != null) {
+            follower.stop();
+        }
+        primary.stop();
+    }
+
+    @Test
+    void shouldShipSnapshotAndSubsequentChangesToFollower() {
+        // given
+        final var userId = UUID.randomUUID();
+        final var existing = new Link("existing", "https://example.com/1", userId, 600, 10);
+        primaryRepository.saveLink(existing);
+        startFollower();
+        awaitTrue(() -> followerRepository.findLinkByCode("existing").isPresent());
+
+        // when
+        final var created = new Link("created", "https://example.com/2", userId, 600, 10);
+        primaryRepository.saveLink(created);
+        eventLog.publish(LinkEventType.CREATED, created);
+        created.incrementAndGetClicks();
+        eventLog.publish(LinkEventType.CLICKED, created);
+        created.incrementAndGetClicks();
+        eventLog.publish(LinkEventType.CLICKED, created);
+        existing.deactivate();
+        eventLog.publish(LinkEventType.DEACTIVATED, existing);
+        primaryRepository.deleteLinkByCode("existing");
+        eventLog.publish(LinkEventType.DELETED, existing);
+
+        // then
+        awaitTrue(() -> followerRepository.findLinkByCode("existing").isEmpty()
+            && followerRepository.findLinkByCode("created").map(link -> link.getClickCount().get() == 2).orElse(false));
+        assertEquals(1, followerRepository.findLinksByUserId(userId).size());
+        assertEquals("https://example.com/2", followerRepository.findLinkByCode("created").orElseThrow().getTargetUrl());
+        awaitTrue(() -> ((Number) follower.stats().get("lagEvents")).longValue() == 0);
+    }
+
+    @Test
+    void shouldCountReplicatedLinksInFollowerUsage() {
+        // given
+        final var userId = UUID.randomUUID();
+        final var existing = new Link("usage-1", "https://example.com/1", userId, 600, 10);
+        primaryRepository.saveLink(existing);
+        startFollower();
+        awaitTrue(() -> followerRepository.findLinkByCode("usage-1").isPresent());
+
+        // when
+        final var created = new Link("usage-2", "https://example.com/2", userId, 600, 10);
+        primaryRepository.saveLink(created);
+        eventLog.publish(LinkEventType.CREATED, created);
+        awaitTrue(() -> followerRepository.findLinkByCode("usage-2").isPresent());
+        final var afterCreate = followerUsage.usage(userId).get("links");
+        primaryRepository.deleteLinkByCode("usage-1");
+        eventLog.publish(LinkEventType.DELETED, existing);
+        awaitTrue(() -> followerRepository.findLinkByCode("usage-1").isEmpty());
+
+        // then
+        assertEquals(2, afterCreate);
+        assertEquals(1, followerUsage.usage(userId).get("links"));
+    }
+
+    @Test
+    void shouldCountReplicatedLinksInFollowerStatistics() {
+        // given
+        final var followerStatistics = new LinkStatistics(new StatsProperties(8, Duration.ofMinutes(5), 64), followerEventLog);
+        followerStatistics.start();
+        final var userId = UUID.randomUUID();
+        final var expired = new Link("stats-1", "https://example.com/1", userId, Instant.now().minusSeconds(120), 60, 10, 0, true);
+        primaryRepository.saveLink(expired);
+        startFollower();
+        awaitTrue(() -> followerStatistics.expiredPendingCleanup() == 1);
+
+        // when
+        final var created = new Link("stats-2", "https://example.com/2", userId, Instant.now().minusSeconds(120), 60, 10, 0, true);
+        primaryRepository.saveLink(created);
+        eventLog.publish(LinkEventType.CREATED, created);
+        awaitTrue(() -> followerStatistics.expiredPendingCleanup() == 2);
+        primaryRepository.deleteLinkByCode("stats-1");
+        eventLog.publish(LinkEventType.EXPIRED, expired);
+
+        // then
+        awaitTrue(() -> followerStatistics.expiredPendingCleanup() == 1);
+        followerStatistics.stop();
+    }
+
+    @Test
+    void shouldRemoveLinksMissingFromSnapshot() {
+        // given
+        followerRepository.saveLink(new Link("stale", "https://example.com/stale", UUID.randomUUID(), 600, 10));
+        primaryRepository.saveLink(new Link("kept", "https://example.com/kept", UUID.randomUUID(), 600, 10));
+
+        // when
+        startFollower();
+
+        // then
+        awaitTrue(() -> ((Number) follower.stats().get("snapshotsLoaded")).longValue() == 1);
+        assertTrue(followerRepository.findLinkByCode("kept").isPresent());
+        assertTrue(followerRepository.findLinkByCode("stale").isEmpty());
+    }
+
+    @Test
+    void shouldForwardFollowerClicksToPrimary() {
+        // given
+        final var owner = UUID.randomUUID();
+        final var link = new Link("shared", "https://example.com/shared", owner, 600, Link.UNLIMITED_CLICKS);
+        primaryRepository.saveLink(link);
+        startFollower();
+        awaitTrue(() -> followerRepository.findLinkByCode("shared").isPresent());
+
+        // when
+        followerState.forwardClick("shared");
+        followerState.forwardClick("shared");
+        followerState.forwardClick("shared");
+
+        // then
+        awaitTrue(() -> link.getClickCount().get() == 3);
+        awaitTrue(() -> followerRepository.findLinkByCode("shared").orElseThrow().getClickCount().get() == 3);
+        awaitTrue(() -> Long.valueOf(3).equals(follower.stats().get("clicksForwarded")));
+        assertEquals(3L, primaryUsage.usage(owner).get("clicksInPeriod"));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldCapPendingHandshakesAndCloseThemOnStop() {
+        // given: peers that connect and never answer the challenge
+        primary.start();
+        final var silent = new ArrayList<SocketChannel>();
+        for (var i = 0; i < ReplicationPrimary.MAX_PENDING_HANDSHAKES; i++) {
+            silent.add(SocketChannel.open(new InetSocketAddress("localhost", primary.localPort())));
+        }
+        awaitTrue(() -> Integer.valueOf(ReplicationPrimary.MAX_PENDING_HANDSHAKES).equals(primary.stats().get("pendingHandshakes")));
+
+        // when
+        try (var rejected = SocketChannel.open(new InetSocketAddress("localhost", primary.localPort()))) {
+            // then: closed before any challenge is sent
+            assertEquals(-1, rejected.read(ByteBuffer.allocate(1)));
+        }
+        assertEquals(1L, primary.stats().get("rejectedConnections"));
+
+        primary.stop();
+        for (final var channel : silent) {
+            try (channel) {
+                final var buffer = ByteBuffer.allocate(1024);
+                while (channel.read(buffer.clear()) >= 0) {
+                    // the challenge, then the end of the stream
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldDisconnectFollowersOnStop() {
+        // given
+        startFollower();
+        awaitTrue(() -> Boolean.TRUE.equals(follower.stats().get("connected")));
+
+        // when
+        primary.stop();
+
+        // then
+        awaitTrue(() -> Boolean.FALSE.equals(follower.stats().get("connected")));
+        awaitTrue(() -> List.of().equals(primary.stats().get("followers")));
+    }
+
+    @Test
+    void shouldNotReplicateToFollowerWithWrongSecret() {
+        // given
+        primaryRepository.saveLink(new Link("secret-link", "https://example.com/1", UUID.randomUUID(), 600, 10));
+
+        // when
+        startFollower("wrong");
+        LockSupport.parkNanos(300_000_000);
+
+        // then
+        assertTrue(followerRepository.findLinkByCode("secret-link").isEmpty());
+        assertEquals(false, follower.stats().get("connected"));
+        assertEquals(0L, follower.stats().get("snapshotsLoaded"));
+    }
+
+    @Test
+    void shouldRequireSharedSecret() {
+        final var followerProperties = properties(ReplicationProperties.Role.FOLLOWER, 0, " ");
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new ReplicationFollower(followerProperties, followerRepository, new ReplicationState(followerProperties),
+                followerUsage, followerEventLog));
+    }
+
+    @Test
+    void shouldRejectWritesAndStaleReadsOnFollower() {
+        final var state = new ReplicationState(properties(ReplicationProperties.Role.FOLLOWER, 0));
+
+        assertThrows(ReplicaException.class, state::checkWritable);
+        assertThrows(ReplicaException.class, state::checkReadable);
+
+        state.markPrimaryContact();
+        assertDoesNotThrow(state::checkReadable);
+        assertFalse(state.stalenessMillis() > 5_000);
+    }
+
+    @Test
+    void shouldAllowWritesOnPrimary() {
+        final var state = new ReplicationState(properties(ReplicationProperties.Role.PRIMARY, 0));
+
+        assertDoesNotThrow(state::checkWritable);
+        assertDoesNotThrow(state::checkReadable);
+    }
+
+    private void startFollower() {
+        startFollower("secret");
+    }
+
+    private void startFollower(String sharedSecret) {
+        primary.start();
+        final var followerProperties = properties(ReplicationProperties.Role.FOLLOWER, primary.localPort(), sharedSecret);
+        followerState = new ReplicationState(followerProperties);
+        follower = new ReplicationFollower(followerProperties, followerRepository, followerState, followerUsage, followerEventLog);
+        follower.start();
+    }
+
+    private ReplicationProperties properties(ReplicationProperties.Role role, int port) {
+        return properties(role, port, "secret");
+    }
+
+    private ReplicationProperties properties(ReplicationProperties.Role role, int port, String sharedSecret) {
+        return new ReplicationProperties(role, "localhost", port, sharedSecret, 64, 50, 5_000);
+    }
+
+    private void awaitTrue(BooleanSupplier condition) {
+        final var deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                assertTrue(condition.getAsBoolean(), "Condition was not met in time");
+            }
+            LockSupport.parkNanos(10_000_000);
+        }
+    }
+}
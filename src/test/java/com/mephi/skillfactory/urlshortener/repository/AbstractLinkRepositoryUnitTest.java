@@ -0,0 +1,255 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Behaviour every {@link LinkRepository} must share; each implementation runs it through a subclass.
+ */
+abstract class AbstractLinkRepositoryUnitTest<R extends LinkRepository> {
+    protected R repository;
+
+    protected abstract R createRepository() throws IOException;
+
+    @BeforeEach
+    void setUpRepository() throws IOException {
+        repository = createRepository();
+    }
+
+    @Test
+    void shouldReturnSavedLink() {
+        final var userId = UUID.randomUUID();
+        final var link = link("abc", userId);
+
+        repository.saveLink(link);
+
+        final var linkOptional = repository.findLinkByCode("abc");
+        assertTrue(linkOptional.isPresent());
+        assertSame(link, linkOptional.get());
+    }
+
+    @Test
+    void shouldApplyUpdateToStoredLink() {
+        repository.saveLink(link("abc", UUID.randomUUID()));
+
+        final var clicks = repository.updateLink("abc", Link::incrementAndGetClicks);
+
+        assertEquals(1, (int) clicks.orElseThrow());
+        assertEquals(1, repository.findLinkByCode("abc").orElseThrow().getClickCount().get());
+        assertTrue(repository.updateLink("missing", Link::incrementAndGetClicks).isEmpty());
+    }
+
+    @Test
+    void shouldReturnAllSavedLinks() {
+        final var link1 = link("c1", UUID.randomUUID());
+        final var link2 = link("c2", UUID.randomUUID());
+
+        repository.saveLink(link1);
+        repository.saveLink(link2);
+
+        final var links = repository.findAll();
+        assertEquals(2, links.size());
+        assertTrue(links.contains(link1) && links.contains(link2));
+    }
+
+    @Test
+    void shouldReturnOnlyUsersLinks() {
+        // given
+        final var userId1 = UUID.randomUUID();
+        final var link11 = link("link11", userId1);
+        final var link12 = link("link12", userId1);
+
+        final var userId2 = UUID.randomUUID();
+        final var link21 = link("link21", userId2);
+
+        repository.saveLink(link11);
+        repository.saveLink(link12);
+        repository.saveLink(link21);
+
+        // when
+        final var user1Links = repository.findLinksByUserId(userId1);
+        final var user2Links = repository.findLinksByUserId(userId2);
+
+        // then
+        assertEquals(2, user1Links.size());
+        assertTrue(user1Links.contains(link11));
+        assertTrue(user1Links.contains(link12));
+
+        assertEquals(1, user2Links.size());
+        assertTrue(user2Links.contains(link21));
+    }
+
+    @Test
+    void shouldDeleteLinkByCode() {
+        // given
+        final var userId = UUID.randomUUID();
+        final var link = link("toDelete", userId);
+
+        repository.saveLink(link);
+        assertTrue(repository.findLinkByCode("toDelete").isPresent());
+        assertFalse(repository.findLinksByUserId(userId).isEmpty());
+
+        // when
+        final var deleted = repository.deleteLinkByCode("toDelete");
+
+        // then
+        assertTrue(deleted);
+        assertFalse(repository.deleteLinkByCode("toDelete"));
+        assertFalse(repository.findLinkByCode("toDelete").isPresent());
+        assertTrue(repository.findLinksByUserId(userId).isEmpty());
+    }
+
+    @Test
+    void shouldNotThrowWhenDeleteNonExistingCodes() {
+        final var userId = UUID.randomUUID();
+        final var linkToKeep = link("keep", userId);
+        repository.saveLink(linkToKeep);
+
+        assertDoesNotThrow(() -> repository.deleteLinkByCode("no-such-code"));
+
+        assertTrue(repository.findLinkByCode("keep").isPresent());
+        assertEquals(1, repository.findLinksByUserId(userId).size());
+    }
+
+    @Test
+    void shouldFindMultipleLinksForSameUser() {
+        final var user = UUID.randomUUID();
+        final var link1 = link("link1", user);
+        final var link2 = link("link2", user);
+        repository.saveLink(link1);
+        repository.saveLink(link2);
+
+        final var links = repository.findLinksByUserId(user);
+
+        assertEquals(2, links.size());
+        final var codes = new HashSet<>();
+        for (final var l : links) {
+            codes.add(l.getCode());
+        }
+        assertTrue(codes.containsAll(Arrays.asList("link1", "link2")));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldSaveAllLinkInConcurrentManner() throws Exception {
+        final var threads = 8;
+        final var perThread = 250;
+        try (var executorService = Executors.newFixedThreadPool(threads)) {
+            final var start = new CountDownLatch(1);
+            final var futures = new ArrayList<Future<?>>();
+            final var counter = new AtomicInteger();
+
+            for (var thread = 0; thread < threads; thread++) {
+                futures.add(executorService.submit(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    for (var i = 0; i < perThread; i++) {
+                        final var linkIdSuffix = counter.getAndIncrement();
+                        final var userId = UUID.randomUUID();
+                        final var link = link("c" + linkIdSuffix, userId);
+                        repository.saveLink(link);
+                    }
+
+                }));
+            }
+            start.countDown();
+
+            for (final var future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+
+            final var links = repository.findAll();
+            assertEquals(threads * perThread, links.size());
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldLetOnlyOneConcurrentClaimOfCodeWin() {
+        final var threads = 8;
+        try (var executorService = Executors.newFixedThreadPool(threads)) {
+            final var start = new CountDownLatch(1);
+            final var futures = new ArrayList<Future<Boolean>>();
+            for (var thread = 0; thread < threads; thread++) {
+                final var link = link("summer-sale", UUID.randomUUID());
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    return repository.saveLinkIfAbsent(link);
+                }));
+            }
+            start.countDown();
+
+            var winners = 0;
+            for (final var future : futures) {
+                if (future.get(10, TimeUnit.SECONDS)) {
+                    winners++;
+                }
+            }
+
+            assertEquals(1, winners);
+            final var owner = repository.findLinkByCode("summer-sale").orElseThrow().getUserId();
+            assertEquals(1, repository.findLinksByUserId(owner).size());
+            assertEquals(1, repository.findAll().size());
+        }
+    }
+
+    @Test
+    void shouldDeleteOnlyOwnedLinksInBatch() {
+        // given
+        final var owner = UUID.randomUUID();
+        repository.saveLink(link("mine1", owner));
+        repository.saveLink(link("mine2", owner));
+        repository.saveLink(link("foreign", UUID.randomUUID()));
+
+        // when
+        final var removed = repository.deleteLinksByCodes(owner, List.of("mine1", "mine2", "foreign", "missing"));
+
+        // then
+        assertEquals(2, removed.size());
+        assertTrue(repository.findCodesByUserId(owner).isEmpty());
+        assertTrue(repository.findLinkByCode("foreign").isPresent());
+        assertTrue(repository.deleteLinksByCodes(owner, List.of("mine1", "mine2")).isEmpty());
+    }
+
+    @Test
+    void shouldReplaceAllLinks() {
+        final var userId = UUID.randomUUID();
+        repository.saveLink(link("old", userId));
+
+        repository.replaceAll(List.of(link("new1", userId), link("new2", userId)));
+
+        assertFalse(repository.findLinkByCode("old").isPresent());
+        assertTrue(repository.findLinkByCode("new1").isPresent());
+        assertEquals(2, repository.findLinksByUserId(userId).size());
+        assertEquals(2, repository.findAll().size());
+    }
+
+    protected static Link link(String code, UUID userId) {
+        return new Link(code, "https://example.com/" + code, userId, 600, 10);
+    }
+}
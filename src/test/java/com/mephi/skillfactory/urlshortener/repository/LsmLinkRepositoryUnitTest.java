@@ -0,0 +1,275 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.StorageProperties;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LsmLinkRepositoryUnitTest extends AbstractLinkRepositoryUnitTest<LsmLinkRepository> {
+    private Path directory;
+
+    @Override
+    protected LsmLinkRepository createRepository() throws IOException {
+        directory = Files.createTempDirectory("lsm-links");
+        return open();
+    }
+
+    @Test
+    void shouldReplayLoggedWritesAfterCrash() {
+        // given
+        final var userId = UUID.randomUUID();
+        repository.saveLink(link("gone", userId));
+        repository.saveLink(link("kept", userId));
+        repository.deleteLinkByCode("gone");
+
+        // when: reopened without stop(), only the write-ahead log has the writes
+        final var reopened = open();
+
+        // then
+        assertFalse(reopened.findLinkByCode("gone").isPresent());
+        assertTrue(reopened.findLinkByCode("kept").isPresent());
+        assertEquals(List.of("kept"), reopened.findCodesByUserId(userId));
+        assertEquals(1, reopened.stats().get("segments"));
+    }
+
+    @Test
+    void shouldPersistClicksOfCachedLinksOnFlush() {
+        // given
+        final var link = link("abc", UUID.randomUUID());
+        repository.saveLink(link);
+        repository.flush();
+        final var cached = repository.findLinkByCode("abc").orElseThrow();
+
+        // when
+        cached.incrementAndGetClicks();
+        cached.incrementAndGetClicks();
+        cached.incrementAndGetClicks();
+        repository.flush();
+
+        // then
+        assertSame(link, cached);
+        assertEquals(3, open().findLinkByCode("abc").orElseThrow().getClickCount().get());
+    }
+
+    @Test
+    void shouldKeepDeletedLinkDeletedAcrossCompaction() {
+        // given
+        final var userId = UUID.randomUUID();
+        for (var i = 0; i < 10; i++) {
+            repository.saveLink(link("c" + i, userId));
+        }
+        repository.flush();
+
+        // when
+        assertTrue(repository.deleteLinkByCode("c3"));
+        assertFalse(repository.deleteLinkByCode("c3"));
+        repository.flush();
+        repository.saveLink(link("r", userId));
+        repository.flush();
+
+        // then: the two small newest segments are merged, the tombstone keeps shadowing the large oldest one
+        assertEquals(2, repository.stats().get("segments"));
+        assertEquals(1L, repository.stats().get("compactions"));
+        final var reopened = open();
+        assertFalse(reopened.findLinkByCode("c3").isPresent());
+        assertTrue(reopened.findLinkByCode("c4").isPresent());
+        assertEquals(10, reopened.findLinksByUserId(userId).size());
+        assertEquals(10, reopened.findAll().size());
+    }
+
+    @Test
+    void shouldStopReplayAtTornLogTail() throws IOException {
+        // given
+        repository.saveLink(link("abc", UUID.randomUUID()));
+        try (var files = Files.list(directory)) {
+            final var log = files.filter(file -> file.getFileName().toString().endsWith(".wal")).findFirst().orElseThrow();
+            Files.write(log, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+        }
+
+        // when
+        final var reopened = open();
+
+        // then
+        assertTrue(reopened.findLinkByCode("abc").isPresent());
+        assertEquals(1, reopened.findAll().size());
+    }
+
+    @Test
+    void shouldListUserCodesByPrefixAcrossMemtableAndSegments() {
+        final var userId = UUID.randomUUID();
+        final var other = UUID.randomUUID();
+        repository.saveLink(link("b", userId));
+        repository.saveLink(link("x", other));
+        repository.flush();
+        repository.saveLink(link("a", userId));
+        repository.saveLink(link("c", userId));
+        repository.deleteLinkByCode("c");
+
+        assertEquals(List.of("a", "b"), repository.findCodesByUserId(userId));
+        assertEquals(List.of("x"), repository.findCodesByUserId(other));
+    }
+
+    @Test
+    void shouldFindExpiredLinksInSegments() {
+        final var expired = new Link("old", "https://a", UUID.randomUUID(), Instant.now().minusSeconds(120), 60, 10, 0, true);
+        repository.saveLink(expired);
+        repository.saveLink(link("fresh", UUID.randomUUID()));
+        repository.flush();
+
+        final var expiredLinks = repository.findExpiredLinks();
+
+        assertEquals(1, expiredLinks.size());
+        assertEquals("old", expiredLinks.getFirst().getCode());
+    }
+
+    @Test
+    void shouldRetireExpiredSegmentRecordOnceDeleted() {
+        // given
+        final var expired = new Link("old", "https://a", UUID.randomUUID(), Instant.now().minusSeconds(120), 60, 10, 0, true);
+        repository.saveLink(expired);
+        repository.flush();
+        assertEquals(1, repository.findExpiredLinks().size());
+
+        // when
+        assertTrue(repository.deleteLinkByCode("old"));
+        final var shadowedByMemtable = repository.findExpiredLinks();
+        repository.flush();
+
+        // then
+        assertTrue(shadowedByMemtable.isEmpty());
+        assertTrue(repository.findExpiredLinks().isEmpty());
+    }
+
+    @Test
+    void shouldMergeOnlyNewestSegmentsOfSimilarSize() {
+        assertEquals(4, LsmLinkRepository.mergeRun(new long[] {1, 1, 1, 1, 1_000}, 4));
+        assertEquals(2, LsmLinkRepository.mergeRun(new long[] {1, 2, 3, 4, 1_000}, 4));
+        assertEquals(3, LsmLinkRepository.mergeRun(new long[] {10, 10, 10, 1_000}, 3));
+        assertEquals(3, LsmLinkRepository.mergeRun(new long[] {1, 100, 1_000}, 1));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldNotEvictCachedLinkWhileUpdateIsInProgress() {
+        // given: a clean cached link and an idle threshold that makes every cached link evictable
+        final var evicting = open(0);
+        evicting.saveLink(link("busy", UUID.randomUUID()));
+        evicting.flush();
+        final var changing = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+
+        // when
+        try (var executorService = Executors.newSingleThreadExecutor()) {
+            final var update = executorService.submit(() -> evicting.updateLink("busy", link -> {
+                changing.countDown();
+                awaitQuietly(release);
+                return link.incrementAndGetClicks();
+            }));
+            assertTrue(changing.await(5, TimeUnit.SECONDS));
+            evicting.evictCache();
+            release.countDown();
+            update.get(5, TimeUnit.SECONDS);
+        }
+        evicting.flush();
+        evicting.stop();
+
+        // then
+        assertEquals(1, open(0).findLinkByCode("busy").orElseThrow().getClickCount().get());
+    }
+
+    @Test
+    void shouldNotLoseWritesRacingWithFlushes() throws Exception {
+        // given
+        final var threads = 4;
+        final var perThread = 2_000;
+        final var userId = UUID.randomUUID();
+
+        // when
+        try (var executorService = Executors.newFixedThreadPool(threads)) {
+            final var futures = new ArrayList<Future<?>>();
+            for (var thread = 0; thread < threads; thread++) {
+                final var prefix = "t" + thread + "-";
+                futures.add(executorService.submit(() -> {
+                    for (var i = 0; i < perThread; i++) {
+                        repository.saveLinkIfAbsent(link(prefix + i, userId));
+                        if (i % 10 == 0) {
+                            repository.deleteLinkByCode(prefix + i);
+                        }
+                    }
+                }));
+            }
+            while (!futures.stream().allMatch(Future::isDone)) {
+                repository.flush();
+            }
+            for (final var future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        // then
+        final var expected = threads * perThread * 9 / 10;
+        assertEquals(expected, repository.findAll().size());
+        assertEquals(expected, repository.findCodesByUserId(userId).size());
+        assertEquals(expected, open().findAll().size());
+    }
+
+    @Test
+    void shouldLetRunningFlushFinishOnStop() {
+        // given: a small memtable, so the writes keep background flushes going until stop()
+        final var flushing = open(3_600, 64);
+        flushing.start();
+        final var userId = UUID.randomUUID();
+        for (var i = 0; i < 5_000; i++) {
+            flushing.saveLink(link("s" + i, userId));
+        }
+
+        // when
+        flushing.stop();
+
+        // then
+        final var reopened = open();
+        assertEquals(5_000, reopened.findAll().size());
+        assertEquals(5_000, reopened.findCodesByUserId(userId).size());
+    }
+
+    private LsmLinkRepository open() {
+        return open(3_600);
+    }
+
+    private LsmLinkRepository open(long idleSeconds) {
+        return open(idleSeconds, 65_536);
+    }
+
+    private LsmLinkRepository open(long idleSeconds, int memtableMaxEntries) {
+        return new LsmLinkRepository(new StorageProperties(StorageProperties.Type.LSM, directory.toString(), idleSeconds, 60, 4, 2, 1 << 20,
+            memtableMaxEntries, 100_000, false));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
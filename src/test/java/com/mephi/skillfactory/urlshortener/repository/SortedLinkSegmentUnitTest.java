@@ -0,0 +1,112 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedLinkSegmentUnitTest {
+    private final AtomicInteger fileIds = new AtomicInteger();
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("segments");
+    }
+
+    @Test
+    void shouldSplitWriteAtSegmentSizeCap() throws IOException {
+        // given
+        final var links = new ArrayList<Link>();
+        for (var i = 0; i < 100; i++) {
+            links.add(new Link("c%03d".formatted(i), "https://example.com/" + i, UUID.randomUUID(), 600, 10));
+        }
+
+        // when
+        final var segments = SortedLinkSegment.write(this::nextFile, links, 4, 2_048);
+
+        // then
+        assertTrue(segments.size() > 1);
+        assertEquals(100, segments.stream().mapToInt(SortedLinkSegment::recordCount).sum());
+        for (final var segment : segments) {
+            assertTrue(Files.size(segment.file()) <= 2_048);
+        }
+        for (final var link : links) {
+            assertEquals(1, segments.stream().filter(segment -> segment.find(link.getCode()) != null).count());
+        }
+    }
+
+    @Test
+    void shouldRejectCapAboveMappableSize() {
+        assertThrows(IllegalArgumentException.class, () -> SortedLinkSegment.write(this::nextFile, List.<Link>of(), 4,
+            SortedLinkSegment.MAX_SEGMENT_BYTES + 1));
+    }
+
+    @Test
+    void shouldVisitOnlyExpiredRecordsUntilRetired() throws IOException {
+        // given
+        final var now = Instant.now();
+        final var links = List.of(
+            expiredLink("a", now, 300),
+            expiredLink("b", now, 100),
+            new Link("c", "https://example.com/c", UUID.randomUUID(), 600, 10),
+            expiredLink("d", now, 200));
+        final var segment = SortedLinkSegment.write(this::nextFile, links, 2, SortedLinkSegment.MAX_SEGMENT_BYTES).getFirst();
+        final var deleted = new HashSet<String>();
+
+        // when
+        final var first = visit(segment, now, deleted);
+        deleted.add("a");
+        deleted.add("b");
+        final var second = visit(segment, now, deleted);
+        deleted.add("d");
+        final var third = visit(segment, now, deleted);
+
+        // then
+        assertEquals(List.of("a", "d", "b"), first);
+        // "a" is retired, "d" is still pending and stops retiring, so the deleted "b" stays behind it
+        assertEquals(List.of("d"), second);
+        assertTrue(third.isEmpty());
+        assertFalse(segment.mayContainExpired(now.getEpochSecond()));
+        assertNotNull(segment.find("c"));
+    }
+
+    // returns the codes the visitor kept, in visiting order; deleted codes are retired
+    private List<String> visit(SortedLinkSegment segment, Instant now, Set<String> deleted) {
+        final var kept = new ArrayList<String>();
+        segment.visitExpired(now.getEpochSecond(), cursor -> {
+            if (deleted.contains(cursor.code())) {
+                return true;
+            }
+            kept.add(cursor.code());
+            return false;
+        });
+        return kept;
+    }
+
+    private Link expiredLink(String code, Instant now, long expiredSecondsAgo) {
+        return new Link(code, "https://example.com/" + code, UUID.randomUUID(), now.minusSeconds(60 + expiredSecondsAgo), 60, 10, 0,
+            true);
+    }
+
+    private Path nextFile() {
+        return directory.resolve("test-%03d.seg".formatted(fileIds.incrementAndGet()));
+    }
+}
@@ -0,0 +1,215 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.StorageProperties;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TieredLinkRepositoryUnitTest extends AbstractLinkRepositoryUnitTest<TieredLinkRepository> {
+
+    @Override
+    protected TieredLinkRepository createRepository() throws IOException {
+        final var directory = Files.createTempDirectory("tiered-links");
+        // idleSeconds = 0: every non-expired link is spilled by evictIdle()
+        return new TieredLinkRepository(new StorageProperties(StorageProperties.Type.TIERED, directory.toString(), 0, 60, 4, 2, 1 << 20,
+            65_536, 100_000, false));
+    }
+
+    @Test
+    void shouldPromoteEvictedLinkWithItsState() {
+        // given
+        final var link = new Link("abc", "https://example.com", UUID.randomUUID(), 600, 10);
+        repository.saveLink(link);
+        link.incrementAndGetClicks();
+        link.incrementAndGetClicks();
+
+        // when
+        repository.evictIdle();
+        final var promoted = repository.findLinkByCode("abc");
+
+        // then
+        assertTrue(promoted.isPresent());
+        assertNotSame(link, promoted.get());
+        assertEquals(2, promoted.get().getClickCount().get());
+        assertEquals("https://example.com", promoted.get().getTargetUrl());
+        assertSame(promoted.get(), repository.findLinkByCode("abc").orElseThrow());
+        assertEquals(1L, repository.stats().get("promotions"));
+    }
+
+    @Test
+    void shouldListUserLinksFromBothTiersWithoutPromotion() {
+        final var userId = UUID.randomUUID();
+        repository.saveLink(new Link("cold", "https://a", userId, 600, 10));
+        repository.evictIdle();
+        repository.saveLink(new Link("hot", "https://b", userId, 600, 10));
+
+        final var links = repository.findLinksByUserId(userId);
+
+        assertEquals(2, links.size());
+        assertEquals(1, repository.stats().get("hotLinks"));
+        assertEquals(2, repository.findAll().size());
+    }
+
+    @Test
+    void shouldDeleteOnlyOwnedLinksFromBothTiersInBatch() {
+        // given
+        final var owner = UUID.randomUUID();
+        repository.saveLink(new Link("cold", "https://a", owner, 600, 10));
+        repository.saveLink(new Link("foreign", "https://b", UUID.randomUUID(), 600, 10));
+        repository.evictIdle();
+        repository.saveLink(new Link("hot", "https://c", owner, 600, 10));
+
+        // when
+        final var removed = repository.deleteLinksByCodes(owner, List.of("cold", "hot", "foreign", "missing"));
+
+        // then
+        assertEquals(2, removed.size());
+        assertTrue(repository.findCodesByUserId(owner).isEmpty());
+        assertTrue(repository.findLinkByCode("foreign").isPresent());
+        assertTrue(repository.deleteLinksByCodes(owner, List.of("cold", "hot")).isEmpty());
+    }
+
+    @Test
+    void shouldLookUpEachColdCodeOnceInBatchDelete() {
+        // given
+        final var owner = UUID.randomUUID();
+        final var codes = new ArrayList<String>();
+        for (var i = 0; i < 10; i++) {
+            codes.add("batch-" + i);
+            repository.saveLink(new Link("batch-" + i, "https://example.com/" + i, owner, 600, 10));
+        }
+        repository.evictIdle();
+        final var lookupsBefore = (Long) repository.stats().get("coldLookups");
+
+        // when
+        final var removed = repository.deleteLinksByCodes(owner, codes);
+
+        // then
+        assertEquals(10, removed.size());
+        assertEquals(lookupsBefore + codes.size(), repository.stats().get("coldLookups"));
+        assertTrue(repository.findCodesByUserId(owner).isEmpty());
+        assertTrue(repository.findLinkByCode("batch-3").isEmpty());
+    }
+
+    @Test
+    void shouldKeepColdLinkDeletedAcrossCompaction() {
+        // given
+        final var userId = UUID.randomUUID();
+        for (var i = 0; i < 10; i++) {
+            repository.saveLink(new Link("c" + i, "https://example.com/" + i, userId, 600, 10));
+        }
+        repository.evictIdle();
+
+        // when
+        assertTrue(repository.deleteLinkByCode("c3"));
+        assertFalse(repository.deleteLinkByCode("c3"));
+        for (var round = 0; round < 2; round++) {
+            repository.saveLink(new Link("r" + round, "https://example.com/r", userId, 600, 10));
+            repository.evictIdle();
+        }
+
+        // then
+        assertEquals(1, repository.stats().get("coldSegments"));
+        assertFalse(repository.findLinkByCode("c3").isPresent());
+        assertTrue(repository.findLinkByCode("c4").isPresent());
+        assertTrue(repository.findLinkByCode("r1").isPresent());
+        assertEquals(11, repository.findLinksByUserId(userId).size());
+    }
+
+    @Test
+    void shouldFindExpiredLinksInColdTier() {
+        final var expired = new Link("old", "https://a", UUID.randomUUID(), Instant.now().minusSeconds(120), 60, 10, 0, true);
+        repository.saveLink(new Link("fresh", "https://b", UUID.randomUUID(), 600, 10));
+        repository.evictIdle();
+        repository.saveLink(expired);
+
+        final var expiredLinks = repository.findExpiredLinks();
+
+        assertEquals(1, expiredLinks.size());
+        assertEquals("old", expiredLinks.getFirst().getCode());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldNotLoseUpdatesToLinksBeingEvicted() {
+        // given
+        final var threads = 4;
+        final var perThread = 2_000;
+        repository.saveLink(new Link("busy", "https://example.com", UUID.randomUUID(), 600, Link.UNLIMITED_CLICKS));
+        final var done = new AtomicBoolean();
+
+        // when
+        try (var executorService = Executors.newFixedThreadPool(threads + 1)) {
+            final var evictor = executorService.submit(() -> {
+                while (!done.get()) {
+                    repository.evictIdle();
+                }
+            });
+            final var futures = new ArrayList<Future<?>>();
+            for (var thread = 0; thread < threads; thread++) {
+                futures.add(executorService.submit(() -> {
+                    for (var i = 0; i < perThread; i++) {
+                        repository.updateLink("busy", Link::incrementAndGetClicks);
+                    }
+                }));
+            }
+            for (final var future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            evictor.get(30, TimeUnit.SECONDS);
+        }
+
+        // then
+        assertEquals(threads * perThread, repository.findLinkByCode("busy").orElseThrow().getClickCount().get());
+    }
+
+    @Test
+    void shouldMissUnknownCode() {
+        repository.saveLink(new Link("abc", "https://a", UUID.randomUUID(), 600, 10));
+        repository.evictIdle();
+
+        assertFalse(repository.findLinkByCode("abd").isPresent());
+        assertFalse(repository.findLinkByCode("a").isPresent());
+        assertFalse(repository.findLinkByCode("zzz").isPresent());
+    }
+
+    @Test
+    void shouldNotClaimCodeHeldInColdTierUntilDeleted() {
+        // given
+        final var owner = UUID.randomUUID();
+        repository.saveLink(new Link("summer-sale", "https://a", owner, 600, 10));
+        repository.evictIdle();
+        final var claim = new Link("summer-sale", "https://b", UUID.randomUUID(), 600, 10);
+
+        // when
+        final var claimedWhileHeld = repository.saveLinkIfAbsent(claim);
+        repository.deleteLinkByCode("summer-sale");
+        final var claimedAfterDelete = repository.saveLinkIfAbsent(claim);
+
+        // then
+        assertFalse(claimedWhileHeld);
+        assertTrue(claimedAfterDelete);
+        assertEquals("https://b", repository.findLinkByCode("summer-sale").orElseThrow().getTargetUrl());
+        assertTrue(repository.findLinksByUserId(owner).isEmpty());
+    }
+}
@@ -0,0 +1,141 @@
+package com.mephi.skillfactory.urlshortener.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCodeIndexUnitTest {
+    private UserCodeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserCodeIndex();
+    }
+
+    @Test
+    void shouldKeepCodesOfInlineBucket() {
+        final var userId = UUID.randomUUID();
+
+        index.add(userId, "c1");
+        index.add(userId, "c2");
+        index.add(userId, "c2");
+
+        assertEquals(new HashSet<>(List.of("c1", "c2")), new HashSet<>(index.codes(userId)));
+    }
+
+    @Test
+    void shouldPromoteBucketWhenInlineCapacityExceeded() {
+        final var userId = UUID.randomUUID();
+        final var count = UserCodeIndex.INLINE_CAPACITY * 4;
+
+        for (var i = 0; i < count; i++) {
+            index.add(userId, "c" + i);
+        }
+
+        assertEquals(count, index.codes(userId).size());
+    }
+
+    @Test
+    void shouldRemoveBatchesFromBothBucketKinds() {
+        final var smallUser = UUID.randomUUID();
+        final var largeUser = UUID.randomUUID();
+        index.add(smallUser, "s1");
+        index.add(smallUser, "s2");
+        for (var i = 0; i < UserCodeIndex.INLINE_CAPACITY * 2; i++) {
+            index.add(largeUser, "l" + i);
+        }
+
+        index.removeAll(smallUser, List.of("s1", "s2", "missing"));
+        index.removeAll(largeUser, List.of("l0", "l1"));
+
+        assertTrue(index.codes(smallUser).isEmpty());
+        assertEquals(UserCodeIndex.INLINE_CAPACITY * 2 - 2, index.codes(largeUser).size());
+        assertEquals(1, index.userCount());
+    }
+
+    @Test
+    void shouldRemoveEmptyUserEntries() {
+        final var smallUser = UUID.randomUUID();
+        final var largeUser = UUID.randomUUID();
+        index.add(smallUser, "s1");
+        for (var i = 0; i < UserCodeIndex.INLINE_CAPACITY * 2; i++) {
+            index.add(largeUser, "l" + i);
+        }
+        assertEquals(2, index.userCount());
+
+        index.remove(smallUser, "s1");
+        for (var i = 0; i < UserCodeIndex.INLINE_CAPACITY * 2; i++) {
+            index.remove(largeUser, "l" + i);
+        }
+
+        assertEquals(0, index.userCount());
+        assertTrue(index.codes(smallUser).isEmpty());
+        assertTrue(index.codes(largeUser).isEmpty());
+    }
+
+    @Test
+    void shouldIgnoreRemovalOfUnknownCode() {
+        final var userId = UUID.randomUUID();
+        index.add(userId, "keep");
+
+        index.remove(userId, "no-such-code");
+        index.remove(UUID.randomUUID(), "keep");
+
+        assertEquals(1, index.codes(userId).size());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldNotLoseCodesUnderConcurrentAddAndRemoveForSameUser() {
+        final var userId = UUID.randomUUID();
+        final var threads = 8;
+        final var perThread = 2_000;
+        try (var executorService = Executors.newFixedThreadPool(threads)) {
+            final var start = new CountDownLatch(1);
+            final var futures = new ArrayList<Future<?>>();
+
+            for (var thread = 0; thread < threads; thread++) {
+                final var prefix = "t" + thread + "-";
+                futures.add(executorService.submit(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    // every thread keeps its last code, all the others are added and removed right away,
+                    // so the bucket keeps shrinking to empty and growing back
+                    for (var i = 0; i < perThread; i++) {
+                        index.add(userId, prefix + i);
+                        if (i < perThread - 1) {
+                            index.remove(userId, prefix + i);
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (final var future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        final var codes = new HashSet<>(index.codes(userId));
+        assertEquals(threads, codes.size());
+        for (var thread = 0; thread < threads; thread++) {
+            assertTrue(codes.contains("t" + thread + "-" + (perThread - 1)));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.mephi.skillfactory.urlshortener.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,7 +17,7 @@ class NotificationServiceUnitTest {
 
     @BeforeEach
     void setUp() {
-        notificationService = new NotificationService();
+        notificationService = new NotificationService(TestServices.disabledAccessLog());
     }
 
     @Test
@@ -76,4 +77,18 @@ class NotificationServiceUnitTest {
         assertEquals(1, notifications2.size());
         assertEquals(List.of("user2-1"), notifications2);
     }
+
+    @Test
+    void shouldPassNotificationsToListeners() {
+        // given
+        final var userId = UUID.randomUUID();
+        final var received = new ArrayList<String>();
+        notificationService.addListener((user, message) -> received.add(user + ": " + message));
+
+        // when
+        notificationService.notify(userId, "expired");
+
+        // then
+        assertEquals(List.of(userId + ": expired"), received);
+    }
 }
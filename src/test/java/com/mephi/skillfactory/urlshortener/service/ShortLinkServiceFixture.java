@@ -0,0 +1,101 @@
+package com.mephi.skillfactory.urlshortener.service;
+
+import com.mephi.skillfactory.urlshortener.properties.ActivationProperties;
+import com.mephi.skillfactory.urlshortener.properties.AliasProperties;
+import com.mephi.skillfactory.urlshortener.properties.AppProperties;
+import com.mephi.skillfactory.urlshortener.properties.BackgroundProperties;
+import com.mephi.skillfactory.urlshortener.properties.KeyspaceProperties;
+import com.mephi.skillfactory.urlshortener.properties.LinkProperties;
+import com.mephi.skillfactory.urlshortener.properties.QuotaProperties;
+import com.mephi.skillfactory.urlshortener.properties.ReplicationProperties;
+import com.mephi.skillfactory.urlshortener.properties.StatsProperties;
+import com.mephi.skillfactory.urlshortener.replication.ReplicationState;
+import com.mephi.skillfactory.urlshortener.repository.InMemoryLinkRepository;
+import com.mephi.skillfactory.urlshortener.service.activation.ActivationScheduler;
+import com.mephi.skillfactory.urlshortener.service.alias.AliasPolicy;
+import com.mephi.skillfactory.urlshortener.service.audit.AccessLog;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.keyspace.CodeLengthPolicy;
+import com.mephi.skillfactory.urlshortener.service.quota.UsageTracker;
+import com.mephi.skillfactory.urlshortener.service.stats.LinkStatistics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A {@link ShortLinkService} wired with its real in-memory collaborators, for tests and benchmarks that drive the service as a
+ * whole. Nothing is started: background tasks, the access log and the statistics consumer stay idle unless a test starts them.
+ */
+public record ShortLinkServiceFixture(InMemoryLinkRepository repository,
+                                      BackgroundWorker backgroundWorker,
+                                      LinkEventLog linkEventLog,
+                                      ReplicationState replicationState,
+                                      NotificationService notificationService,
+                                      UsageTracker usageTracker,
+                                      CodeLengthPolicy codeLengthPolicy,
+                                      ShortLinkService shortLinkService) {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private InMemoryLinkRepository repository;
+        private LinkProperties linkProperties = new LinkProperties("http://localhost/api", 900, 10, 7, 10, true, Duration.ofSeconds(5));
+        private AppProperties appProperties = new AppProperties(1, 1 << 16);
+        private KeyspaceProperties keyspaceProperties = new KeyspaceProperties(true, 4, 10, 0.01, Duration.ofMinutes(1));
+        private Function<AccessLog, NotificationService> notificationService = NotificationService::new;
+
+        private Builder() {
+        }
+
+        public Builder repository(InMemoryLinkRepository repository) {
+            this.repository = repository;
+            return this;
+        }
+
+        public Builder linkProperties(LinkProperties linkProperties) {
+            this.linkProperties = linkProperties;
+            return this;
+        }
+
+        public Builder appProperties(AppProperties appProperties) {
+            this.appProperties = appProperties;
+            return this;
+        }
+
+        public Builder keyspaceProperties(KeyspaceProperties keyspaceProperties) {
+            this.keyspaceProperties = keyspaceProperties;
+            return this;
+        }
+
+        public Builder notificationService(Function<AccessLog, NotificationService> notificationService) {
+            this.notificationService = notificationService;
+            return this;
+        }
+
+        public ShortLinkServiceFixture build() {
+            final var links = repository == null
+                ? new InMemoryLinkRepository()
+                : repository;
+            final var backgroundWorker = new BackgroundWorker(new BackgroundProperties(16, 1_000));
+            final var linkEventLog = new LinkEventLog(appProperties.eventLogCapacity());
+            final var replicationState = new ReplicationState(new ReplicationProperties(ReplicationProperties.Role.NONE, "localhost", 0, "",
+                16, 1_000, 5_000));
+            final var accessLog = TestServices.disabledAccessLog();
+            final var notifications = notificationService.apply(accessLog);
+            final var usageTracker = new UsageTracker(new QuotaProperties(0, 0, Duration.ofHours(1)), backgroundWorker);
+            final var activationScheduler = new ActivationScheduler(new ActivationProperties(100, 64, 1_000), links, linkEventLog,
+                notifications, backgroundWorker);
+            final var codeLengthPolicy = new CodeLengthPolicy(keyspaceProperties, linkProperties);
+            final var shortLinkService = new ShortLinkService(links, new CodeGenerator(), appProperties, linkProperties, notifications,
+                linkEventLog, replicationState, new AliasPolicy(new AliasProperties(3, 32, List.of())), activationScheduler, usageTracker,
+                new LinkStatistics(new StatsProperties(8, Duration.ofMinutes(5), 1_024), linkEventLog), accessLog, codeLengthPolicy,
+                backgroundWorker);
+            return new ShortLinkServiceFixture(links, backgroundWorker, linkEventLog, replicationState, notifications, usageTracker,
+                codeLengthPolicy, shortLinkService);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.mephi.skillfactory.urlshortener.service;
+
+import com.mephi.skillfactory.urlshortener.domain.ClientProfile;
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.repository.InMemoryLinkRepository;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEvent;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventType;
+import com.mephi.skillfactory.urlshortener.service.exception.AliasTakenException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidMaxClicksException;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidRedirectPolicyException;
+import com.mephi.skillfactory.urlshortener.service.keyspace.CodeLengthPolicy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShortLinkServiceUnitTest {
+    private InMemoryLinkRepository repository;
+    // when set, saves wait for it, so the first shorten holds its key while identical ones arrive
+    private volatile CountDownLatch saveGate;
+    private LinkEventLog linkEventLog;
+    private CodeLengthPolicy codeLengthPolicy;
+    private ShortLinkService shortLinkService;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryLinkRepository() {
+            @Override
+            public boolean saveLinkIfAbsent(Link link) {
+                final var gate = saveGate;
+                if (gate != null) {
+                    try {
+                        gate.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.saveLinkIfAbsent(link);
+            }
+        };
+        final var fixture = ShortLinkServiceFixture.builder()
+            .repository(repository)
+            .build();
+        linkEventLog = fixture.linkEventLog();
+        codeLengthPolicy = fixture.codeLengthPolicy();
+        shortLinkService = fixture.shortLinkService();
+    }
+
+    @Test
+    void shouldRedirectPermanentUnlimitedLinkAsCacheable() {
+        // given
+        final var link = shortLinkService.createShortLink("https://example.com/permanent", UUID.randomUUID(), Link.UNLIMITED_CLICKS,
+            3_600L, null, null, null, RedirectPolicy.PERMANENT, null);
+
+        // when
+        final var redirect = shortLinkService.redirect(link.getCode(), () -> ClientProfile.UNKNOWN).orElseThrow();
+
+        // then
+        assertEquals("https://example.com/permanent", redirect.targetUrl());
+        assertTrue(redirect.link().cacheableFor(Instant.now()).toSeconds() > 3_500);
+        assertTrue(redirect.link().isActive());
+    }
+
+    @Test
+    void shouldRedirectClickLimitedLinkAsUncacheableAndDeactivateAtLimit() {
+        // given
+        final var link = shortLinkService.createShortLink("https://example.com/limited", UUID.randomUUID(), 2, 3_600L, null, null,
+            null, null, null);
+
+        // when
+        final var first = shortLinkService.redirect(link.getCode(), () -> ClientProfile.UNKNOWN).orElseThrow();
+        shortLinkService.redirect(link.getCode(), () -> ClientProfile.UNKNOWN);
+        final var third = shortLinkService.redirect(link.getCode(), () -> ClientProfile.UNKNOWN);
+
+        // then
+        assertEquals(Duration.ZERO, first.link().cacheableFor(Instant.now()));
+        assertTrue(third.isEmpty());
+    }
+
+    @Test
+    void shouldRejectZeroMaxClicksAndLimitedPermanentRedirects() {
+        final var owner = UUID.randomUUID();
+
+        assertThrows(InvalidMaxClicksException.class, () -> shortLinkService.createShortLink("https://example.com/zero", owner, 0,
+            null, null, null, null, null, null));
+        assertThrows(InvalidMaxClicksException.class, () -> shortLinkService.createShortLink("https://example.com/negative", owner,
+            -5, null, null, null, null, null, null));
+        assertThrows(InvalidRedirectPolicyException.class, () -> shortLinkService.createShortLink("https://example.com/limited", owner,
+            5, null, null, null, null, RedirectPolicy.PERMANENT, null));
+    }
+
+    @Test
+    void shouldDeactivateLegacyZeroMaxClicksLinkOnFirstClick() {
+        // given: maxClicks of 0 from data written before the unlimited sentinel existed
+        final var link = new Link("legacy0", "https://example.com/legacy", UUID.randomUUID(), 3_600, 0);
+        repository.saveLink(link);
+
+        // when
+        final var first = shortLinkService.redirect("legacy0", () -> ClientProfile.UNKNOWN);
+        final var second = shortLinkService.redirect("legacy0", () -> ClientProfile.UNKNOWN);
+
+        // then
+        assertTrue(first.isPresent());
+        assertTrue(second.isEmpty());
+        assertFalse(link.isActive());
+    }
+
+    @Test
+    void shouldNotCountRepeatedShortenOfOwnUrlAsCollision() {
+        // given
+        final var owner = UUID.randomUUID();
+        final var codes = new ArrayList<String>();
+
+        // when
+        for (var i = 0; i < 5; i++) {
+            codes.add(shortLinkService.createShortLink("https://example.com/again", owner, null, null, null, null, null, null, null)
+                .getCode());
+        }
+
+        // then
+        assertEquals(5, codes.stream().distinct().count());
+        assertTrue(codes.stream().allMatch(code -> code.length() == 4));
+        assertEquals(0L, codeLengthPolicy.stats().get("collisions"));
+        assertEquals(4, codeLengthPolicy.currentLength());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldCoalesceConcurrentIdenticalShortensIntoOneLink() {
+        // given
+        final var owner = UUID.randomUUID();
+        final var callers = 8;
+        saveGate = new CountDownLatch(1);
+
+        // when
+        final var results = new ArrayList<Future<Link>>();
+        try (var executorService = Executors.newFixedThreadPool(callers)) {
+            for (var i = 0; i < callers; i++) {
+                results.add(executorService.submit(() -> shortLinkService.createShortLink("https://example.com/same", owner, null, null,
+                    null, null, null, null, null)));
+            }
+            awaitCoalesced(callers - 1);
+            saveGate.countDown();
+
+            // then
+            final var first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (final var result : results) {
+                assertEquals(first.getCode(), result.get(10, TimeUnit.SECONDS).getCode());
+            }
+        }
+        assertEquals(1, repository.findLinksByUserId(owner).size());
+        assertEquals(1, shortLinkService.usage(owner).get("links"));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldFailEveryCoalescedShortenWithItsOwnException() {
+        // given
+        final var owner = UUID.randomUUID();
+        final var callers = 4;
+        repository.saveLink(new Link("my-taken", "https://example.com/taken", UUID.randomUUID(), 3_600, 10));
+        saveGate = new CountDownLatch(1);
+
+        // when
+        final var results = new ArrayList<Future<Link>>();
+        final var failures = new IdentityHashMap<Throwable, Boolean>();
+        try (var executorService = Executors.newFixedThreadPool(callers)) {
+            for (var i = 0; i < callers; i++) {
+                results.add(executorService.submit(() -> shortLinkService.createShortLink("https://example.com/alias", owner, null, null,
+                    "my-taken", null, null, null, null)));
+            }
+            awaitCoalesced(callers - 1);
+            saveGate.countDown();
+
+            // then
+            for (final var result : results) {
+                final var thrown = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+                assertEquals(AliasTakenException.class, thrown.getCause().getClass());
+                failures.put(thrown.getCause(), true);
+            }
+        }
+        assertEquals(callers, failures.size());
+        assertEquals(0, shortLinkService.usage(owner).get("links"));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldPublishSingleDeletedEventForConcurrentDeletes() {
+        // given
+        final var owner = UUID.randomUUID();
+        final var threads = 8;
+        final var rounds = 200;
+        final var codes = new ArrayList<String>();
+        for (var i = 0; i < rounds; i++) {
+            codes.add(shortLinkService.createShortLink("https://example.com/" + i, owner, null, null, null, null, null, null, null)
+                .getCode());
+        }
+        final var subscription = linkEventLog.subscribe("test");
+
+        // when
+        var deleted = 0;
+        try (var executorService = Executors.newFixedThreadPool(threads)) {
+            for (final var code : codes) {
+                final var start = new CountDownLatch(1);
+                final var futures = new ArrayList<Future<Boolean>>();
+                for (var thread = 0; thread < threads; thread++) {
+                    futures.add(executorService.submit(() -> {
+                        start.await();
+                        return shortLinkService.deleteLink(code, owner);
+                    }));
+                }
+                start.countDown();
+                for (final var future : futures) {
+                    if (future.get(10, TimeUnit.SECONDS)) {
+                        deleted++;
+                    }
+                }
+            }
+        }
+
+        // then
+        final var events = subscription.poll(rounds * threads);
+        assertEquals(rounds, deleted);
+        assertEquals(rounds, events.stream().filter(event -> event.type() == LinkEventType.DELETED).count());
+        assertEquals(rounds, events.stream().map(LinkEvent::code).distinct().count());
+    }
+
+    private void awaitCoalesced(long expected) {
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((long) shortLinkService.coalescingStats().get("coalesced") < expected && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(expected, shortLinkService.coalescingStats().get("coalesced"));
+    }
+}
@@ -0,0 +1,21 @@
+package com.mephi.skillfactory.urlshortener.service;
+
+import com.mephi.skillfactory.urlshortener.properties.AccessLogProperties;
+import com.mephi.skillfactory.urlshortener.service.audit.AccessLog;
+
+import java.time.Duration;
+
+/**
+ * Collaborators that tests and benchmarks need but do not exercise.
+ */
+public final class TestServices {
+
+    private TestServices() {
+    }
+
+    // writes nothing, so a service under test never touches the file system or waits for a writer
+    public static AccessLog disabledAccessLog() {
+        return new AccessLog(new AccessLogProperties(false, "", 16, 16, 0, 0, AccessLogProperties.OverflowPolicy.DROP,
+            AccessLogProperties.OverflowPolicy.DROP, Duration.ZERO, false));
+    }
+}
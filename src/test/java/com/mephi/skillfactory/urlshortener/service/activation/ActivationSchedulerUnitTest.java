@@ -0,0 +1,134 @@
+package com.mephi.skillfactory.urlshortener.service.activation;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.ActivationProperties;
+import com.mephi.skillfactory.urlshortener.properties.BackgroundProperties;
+import com.mephi.skillfactory.urlshortener.repository.InMemoryLinkRepository;
+import com.mephi.skillfactory.urlshortener.service.NotificationService;
+import com.mephi.skillfactory.urlshortener.service.TestServices;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventType;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivationSchedulerUnitTest {
+    private InMemoryLinkRepository repository;
+    private LinkEventLog linkEventLog;
+    private ActivationScheduler activationScheduler;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryLinkRepository();
+        linkEventLog = new LinkEventLog(64);
+        final var backgroundWorker = new BackgroundWorker(new BackgroundProperties(16, 1_000));
+        final var accessLog = TestServices.disabledAccessLog();
+        activationScheduler = new ActivationScheduler(new ActivationProperties(10, 64, 1_000), repository, linkEventLog,
+            new NotificationService(accessLog), backgroundWorker);
+    }
+
+    @Test
+    void shouldActivateAndLaterDeactivateAtWindowBoundaries() {
+        // given
+        final var now = Instant.now();
+        final var link = new Link("summer-sale", "https://a", UUID.randomUUID(), now, 600, 10, 0, false, now.minusMillis(1),
+            now.plusMillis(150));
+        repository.saveLink(link);
+        final var subscription = linkEventLog.subscribe("test");
+        assertTrue(activationScheduler.schedule(link));
+
+        // when
+        activationScheduler.advance();
+        final var activeInWindow = link.isActive();
+        awaitWindowEnd(link);
+        activationScheduler.advance();
+
+        // then
+        assertTrue(activeInWindow);
+        assertFalse(link.isActive());
+        final var events = subscription.poll(10);
+        assertEquals(2, events.size());
+        assertEquals(LinkEventType.ACTIVATED, events.get(0).type());
+        assertEquals(LinkEventType.DEACTIVATED, events.get(1).type());
+    }
+
+    @Test
+    void shouldIgnoreTransitionsOfReplacedLink() {
+        final var now = Instant.now();
+        final var scheduled = new Link("promo_1", "https://a", UUID.randomUUID(), now, 600, 10, 0, false, now.minusMillis(1), null);
+        repository.saveLink(scheduled);
+        activationScheduler.schedule(scheduled);
+        repository.deleteLinkByCode("promo_1");
+        final var replacement = new Link("promo_1", "https://b", UUID.randomUUID(), 600, 10);
+        replacement.deactivate();
+        repository.saveLink(replacement);
+
+        activationScheduler.advance();
+
+        assertFalse(replacement.isActive());
+    }
+
+    @Test
+    void shouldNotActivateLinkThatHasUsedAllClicks() {
+        final var now = Instant.now();
+        final var link = new Link("promo-2", "https://a", UUID.randomUUID(), now, 600, 1, 1, false, now.minusMillis(1), null);
+        repository.saveLink(link);
+        activationScheduler.schedule(link);
+
+        activationScheduler.advance();
+
+        assertFalse(link.isActive());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldPublishDeactivationOnceWhenTransitionsFireConcurrently() {
+        // given: a window that has already ended, with its end scheduled several times and fired from several threads
+        final var now = Instant.now();
+        final var link = new Link("flash", "https://a", UUID.randomUUID(), now.minusSeconds(10), 600, 10, 0, true, null,
+            now.minusSeconds(1));
+        repository.saveLink(link);
+        final var threads = 8;
+        for (var i = 0; i < threads * 4; i++) {
+            assertTrue(activationScheduler.schedule(link));
+        }
+        final var subscription = linkEventLog.subscribe("test");
+
+        // when
+        final var start = new CountDownLatch(1);
+        try (var executorService = Executors.newFixedThreadPool(threads)) {
+            for (var i = 0; i < threads; i++) {
+                executorService.submit(() -> {
+                    start.await();
+                    activationScheduler.advance();
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+
+        // then
+        assertFalse(link.isActive());
+        assertEquals(1, subscription.poll(64).size());
+        assertEquals(1L, activationScheduler.stats().get("deactivations"));
+        assertEquals((long) threads * 4, activationScheduler.stats().get("overdue"));
+    }
+
+    private static void awaitWindowEnd(Link link) {
+        while (Instant.now().isBefore(link.getActiveUntil().plusMillis(20))) {
+            Thread.onSpinWait();
+        }
+    }
+}
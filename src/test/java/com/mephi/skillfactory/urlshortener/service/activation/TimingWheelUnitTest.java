@@ -0,0 +1,97 @@
+package com.mephi.skillfactory.urlshortener.service.activation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelUnitTest {
+
+    @Test
+    void shouldFireOnlyOnceDeadlineIsReached() {
+        final var wheel = new TimingWheel(10, 8, 100, 0);
+        final var fired = new ArrayList<String>();
+        wheel.schedule("a", TimingWheel.ACTIVATE, 25);
+
+        wheel.advance(20, (code, transition) -> fired.add(code));
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(30, (code, transition) -> fired.add(code));
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void shouldKeepEntriesScheduledSeveralRotationsAhead() {
+        final var wheel = new TimingWheel(10, 8, 100, 0);
+        final var fired = new ArrayList<String>();
+        wheel.schedule("far", TimingWheel.DEACTIVATE, 400);
+        wheel.schedule("near", TimingWheel.DEACTIVATE, 80);
+
+        wheel.advance(390, (code, transition) -> fired.add(code));
+        assertEquals(List.of("near"), fired);
+
+        wheel.advance(400, (code, transition) -> fired.add(code));
+        assertEquals(List.of("near", "far"), fired);
+    }
+
+    @Test
+    void shouldFireOverdueEntriesOnNextAdvance() {
+        final var wheel = new TimingWheel(10, 8, 100, 0);
+        final var fired = new ArrayList<Byte>();
+        wheel.advance(100, (code, transition) -> fired.add(transition));
+
+        assertEquals(TimingWheel.ScheduleResult.OVERDUE, wheel.schedule("late", TimingWheel.ACTIVATE, 50));
+        wheel.advance(100, (code, transition) -> fired.add(transition));
+
+        assertEquals(List.of(TimingWheel.ACTIVATE), fired);
+    }
+
+    @Test
+    void shouldRejectEntriesBeyondCapacity() {
+        final var wheel = new TimingWheel(10, 8, 2, 0);
+
+        assertEquals(TimingWheel.ScheduleResult.SCHEDULED, wheel.schedule("a", TimingWheel.ACTIVATE, 10));
+        assertEquals(TimingWheel.ScheduleResult.SCHEDULED, wheel.schedule("b", TimingWheel.ACTIVATE, 10));
+        assertEquals(TimingWheel.ScheduleResult.REJECTED, wheel.schedule("c", TimingWheel.ACTIVATE, 10));
+
+        wheel.advance(10, (code, transition) -> {
+        });
+        assertEquals(TimingWheel.ScheduleResult.SCHEDULED, wheel.schedule("c", TimingWheel.ACTIVATE, 20));
+    }
+
+    @Test
+    void shouldFireMillionTransitionsExactlyOnceAndNeverEarly() {
+        // given
+        final var wheel = new TimingWheel(1, 1024, 2_000_000, 0);
+        final var random = new SplittableRandom(42);
+        final var deadlines = new HashMap<String, Long>();
+        for (var i = 0; i < 1_000_000; i++) {
+            final var code = "c" + i;
+            final var deadline = random.nextLong(1, 20_000);
+            deadlines.put(code, deadline);
+            wheel.schedule(code, TimingWheel.ACTIVATE, deadline);
+        }
+
+        // when
+        final var fired = new HashMap<String, Long>();
+        for (var now = 0L; now <= 20_000; now += 7) {
+            final var at = now;
+            wheel.advance(now, (code, transition) -> assertNull(fired.put(code, at)));
+        }
+
+        // then
+        assertEquals(deadlines.size(), fired.size());
+        assertEquals(0, wheel.size());
+        for (final var entry : fired.entrySet()) {
+            final var deadline = deadlines.get(entry.getKey());
+            assertTrue(entry.getValue() >= deadline && entry.getValue() < deadline + 7);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.mephi.skillfactory.urlshortener.service.alias;
+
+import com.mephi.skillfactory.urlshortener.properties.AliasProperties;
+import com.mephi.skillfactory.urlshortener.service.exception.InvalidAliasException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AliasPolicyUnitTest {
+    private AliasPolicy aliasPolicy;
+
+    @BeforeEach
+    void setUp() {
+        aliasPolicy = new AliasPolicy(new AliasProperties(3, 32, List.of("admin", "links", "login", "api")));
+    }
+
+    @Test
+    void shouldAcceptAliasWithSeparator() {
+        assertDoesNotThrow(() -> aliasPolicy.validate("summer-sale"));
+        assertDoesNotThrow(() -> aliasPolicy.validate("sale_2025"));
+        assertDoesNotThrow(() -> aliasPolicy.validate("administrator-page"));
+    }
+
+    @Test
+    void shouldRejectAliasThatLooksLikeGeneratedCode() {
+        assertThrows(InvalidAliasException.class, () -> aliasPolicy.validate("summersale"));
+    }
+
+    @Test
+    void shouldRejectMalformedAliases() {
+        assertThrows(InvalidAliasException.class, () -> aliasPolicy.validate("a-"));
+        assertThrows(InvalidAliasException.class, () -> aliasPolicy.validate("-sale"));
+        assertThrows(InvalidAliasException.class, () -> aliasPolicy.validate("Summer-Sale"));
+        assertThrows(InvalidAliasException.class, () -> aliasPolicy.validate("summer sale"));
+        assertThrows(InvalidAliasException.class, () -> aliasPolicy.validate("x".repeat(30) + "-yz"));
+    }
+
+    @Test
+    void shouldRejectReservedWordInAnyPart() {
+        assertThrows(InvalidAliasException.class, () -> aliasPolicy.validate("admin-panel"));
+        assertThrows(InvalidAliasException.class, () -> aliasPolicy.validate("bank_login"));
+        assertThrows(InvalidAliasException.class, () -> aliasPolicy.validate("my-api-docs"));
+    }
+
+    @Test
+    void shouldMatchOnlyWholeWordsInTrie() {
+        final var trie = new ReservedWordTrie(List.of("admin", "adm", "Links"));
+
+        assertEquals(3, trie.size());
+        assertTrue(trie.contains("adm", 0, 3));
+        assertTrue(trie.contains("admin", 0, 5));
+        assertTrue(trie.contains("my-links", 3, 8));
+        assertFalse(trie.contains("ad", 0, 2));
+        assertFalse(trie.contains("admins", 0, 6));
+        assertFalse(trie.contains("", 0, 0));
+    }
+}
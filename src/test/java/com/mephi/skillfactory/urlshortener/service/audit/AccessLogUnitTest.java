@@ -0,0 +1,184 @@
+package com.mephi.skillfactory.urlshortener.service.audit;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.AccessLogProperties;
+import com.mephi.skillfactory.urlshortener.properties.AccessLogProperties.OverflowPolicy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogUnitTest {
+    private final Link link = new Link("abc", "https://example.com", UUID.randomUUID(), 60, 10);
+    private Path directory;
+    private AccessLog accessLog;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("access-log");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (accessLog != null) {
+            accessLog.stop();
+            accessLog.closeChannel();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (final var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldWriteEntriesAsEscapedLinesInOrder() {
+        // given
+        accessLog = open(16, 1 << 20, 0, OverflowPolicy.DROP);
+
+        // when
+        accessLog.created(link);
+        accessLog.redirected(link, link.getTargetUrl());
+        accessLog.notified(link.getUserId(), "line\tone\ntwo");
+        accessLog.drain();
+
+        // then
+        final var lines = Files.readAllLines(directory.resolve(AccessLog.ACTIVE_FILE));
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).endsWith("\tCREATED\t" + link.getUserId() + "\tabc\thttps://example.com"));
+        assertTrue(lines.get(1).contains("\tREDIRECTED\t"));
+        assertTrue(lines.get(2).endsWith("\tNOTIFIED\t" + link.getUserId() + "\t-\tline\\tone\\ntwo"));
+        assertEquals(3L, accessLog.stats().get("written"));
+    }
+
+    @Test
+    void shouldDropWhenQueueIsFullAndWriterIsBehind() {
+        // given
+        accessLog = open(4, 1 << 20, 0, OverflowPolicy.BLOCK);
+
+        // when
+        for (var i = 0; i < 10; i++) {
+            accessLog.notified(link.getUserId(), "message " + i);
+        }
+
+        // then: nobody drains, so even the blocking category gives up instead of waiting
+        assertEquals(6L, accessLog.stats().get("dropped"));
+        assertEquals(0L, accessLog.stats().get("droppedRedirects"));
+        assertEquals(4, accessLog.drain());
+    }
+
+    @Test
+    void shouldDropRedirectsAtOnceAndCountThemAsBillingLoss() {
+        // given: the audit category would block
+        accessLog = open(4, 1 << 20, 0, OverflowPolicy.BLOCK);
+
+        // when
+        for (var i = 0; i < 10; i++) {
+            accessLog.redirected(link, link.getTargetUrl());
+        }
+
+        // then
+        assertEquals(6L, accessLog.stats().get("dropped"));
+        assertEquals(6L, accessLog.stats().get("droppedRedirects"));
+        assertEquals(0L, accessLog.stats().get("blocked"));
+    }
+
+    @Test
+    void shouldRejectBlockingRedirects() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessLog(new AccessLogProperties(true, directory.toString(), 16, 16, 0, 0,
+            OverflowPolicy.BLOCK, OverflowPolicy.BLOCK, Duration.ofSeconds(5), false)));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldBlockForSpaceWhileWriterDrains() {
+        // given
+        accessLog = open(4, 1 << 20, 0, OverflowPolicy.BLOCK);
+        accessLog.start();
+
+        // when
+        for (var i = 0; i < 1_000; i++) {
+            accessLog.created(link);
+        }
+        accessLog.stop();
+
+        // then
+        assertEquals(0L, accessLog.stats().get("dropped"));
+        assertEquals(1_000, Files.readAllLines(directory.resolve(AccessLog.ACTIVE_FILE)).size());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldWakeIdleWriterWhenEntryArrives() {
+        // given
+        accessLog = open(16, 1 << 20, 0, OverflowPolicy.DROP);
+        accessLog.start();
+        awaitWritten(0);
+
+        // when
+        accessLog.created(link);
+
+        // then
+        awaitWritten(1);
+        assertEquals(1, Files.readAllLines(directory.resolve(AccessLog.ACTIVE_FILE)).size());
+    }
+
+    @Test
+    void shouldRequireDirectoryWhenEnabled() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessLog(new AccessLogProperties(true, " ", 16, 16, 0, 0,
+            OverflowPolicy.DROP, OverflowPolicy.BLOCK, Duration.ofSeconds(5), false)));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldRotateBySizeAndKeepNewestFiles() {
+        // given
+        accessLog = open(16, 150, 2, OverflowPolicy.DROP);
+
+        // when
+        for (var i = 0; i < 5; i++) {
+            accessLog.redirected(link, link.getTargetUrl());
+            accessLog.redirected(link, link.getTargetUrl());
+            accessLog.drain();
+        }
+
+        // then
+        try (Stream<Path> files = Files.list(directory)) {
+            final var rotated = files.map(file -> file.getFileName().toString())
+                .filter(name -> !name.equals(AccessLog.ACTIVE_FILE))
+                .toList();
+            assertEquals(2, rotated.size());
+        }
+        assertEquals(5L, accessLog.stats().get("rotations"));
+    }
+
+    private void awaitWritten(long expected) throws InterruptedException {
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((long) accessLog.stats().get("written") < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, accessLog.stats().get("written"));
+    }
+
+    // redirects always drop, the policy applies to the audit category
+    private AccessLog open(int queueCapacity, long maxFileBytes, int maxFiles, OverflowPolicy auditPolicy) {
+        return new AccessLog(new AccessLogProperties(true, directory.toString(), queueCapacity, 64, maxFileBytes, maxFiles,
+            OverflowPolicy.DROP, auditPolicy, Duration.ofSeconds(5), false));
+    }
+}
@@ -0,0 +1,93 @@
+package com.mephi.skillfactory.urlshortener.service.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedMpscQueueUnitTest {
+
+    @Test
+    void shouldRejectOffersWhenFullUntilDrained() {
+        // given
+        final var queue = new BoundedMpscQueue<Integer>(4);
+        for (var i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+
+        // when
+        final var rejected = queue.offer(4);
+        final var out = new ArrayList<Integer>();
+        final var drained = queue.drainTo(out, 2);
+
+        // then
+        assertFalse(rejected);
+        assertEquals(2, drained);
+        assertEquals(List.of(0, 1), out);
+        assertTrue(queue.offer(4));
+        assertTrue(queue.offer(5));
+        assertFalse(queue.offer(6));
+        queue.drainTo(out, 10);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), out);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldKeepEveryProducersOrderUnderContention() {
+        // given
+        final var producers = 4;
+        final var perProducer = 50_000;
+        final var queue = new BoundedMpscQueue<long[]>(1_024);
+        final var start = new CountDownLatch(1);
+        final var pool = Executors.newFixedThreadPool(producers);
+        for (var p = 0; p < producers; p++) {
+            final var producer = p;
+            pool.execute(() -> {
+                awaitQuietly(start);
+                for (var i = 0; i < perProducer; i++) {
+                    final var element = new long[] {producer, i};
+                    while (!queue.offer(element)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+
+        // when
+        start.countDown();
+        final var next = new long[producers];
+        final var batch = new ArrayList<long[]>();
+        var received = 0;
+        while (received < producers * perProducer) {
+            batch.clear();
+            received += queue.drainTo(batch, 256);
+            for (final var element : batch) {
+                // then
+                assertEquals(next[(int) element[0]]++, element[1]);
+            }
+        }
+        pool.shutdown();
+
+        // then
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.size());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.mephi.skillfactory.urlshortener.service.background;
+
+import com.mephi.skillfactory.urlshortener.properties.BackgroundProperties;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackgroundWorkerUnitTest {
+
+    @Test
+    void shouldRunTasksOnCallerWhenNotStarted() {
+        final var worker = new BackgroundWorker(new BackgroundProperties(16, 1_000));
+        final var caller = Thread.currentThread();
+        final var ranOn = new Thread[1];
+
+        worker.submit(() -> ranOn[0] = Thread.currentThread());
+
+        assertEquals(caller, ranOn[0]);
+        assertEquals(1L, worker.stats().get("ranOnCaller"));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldDrainQueuedTasksAndRunPeriodicTasksOnceMoreOnStop() {
+        // given
+        final var worker = new BackgroundWorker(new BackgroundProperties(1_000, 5_000));
+        final var cleanups = new AtomicInteger();
+        worker.schedulePeriodic("cleanup", cleanups::incrementAndGet, Duration.ofHours(1));
+        worker.start();
+
+        final var gate = new CountDownLatch(1);
+        final var delivered = new AtomicInteger();
+        worker.submit(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (var i = 0; i < 100; i++) {
+            worker.submit(delivered::incrementAndGet);
+        }
+        assertTrue((int) worker.stats().get("queueDepth") > 0);
+
+        // when
+        gate.countDown();
+        worker.stop();
+
+        // then
+        assertFalse(worker.isRunning());
+        assertEquals(100, delivered.get());
+        assertEquals(1, cleanups.get());
+        assertEquals(0L, worker.stats().get("abandoned"));
+    }
+
+    @Test
+    void shouldAbandonQueuedTasksWhenDrainTimesOut() {
+        final var worker = new BackgroundWorker(new BackgroundProperties(16, 50));
+        worker.start();
+        worker.submit(() -> LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1)));
+        for (var i = 0; i < 5; i++) {
+            worker.submit(() -> {
+            });
+        }
+
+        worker.stop();
+
+        assertEquals(5L, worker.stats().get("abandoned"));
+    }
+
+    @Test
+    void shouldKeepSchedulingPeriodicTaskAfterFailure() {
+        // given
+        final var worker = new BackgroundWorker(new BackgroundProperties(16, 1_000));
+        final var runs = new AtomicInteger();
+        worker.schedulePeriodic("flaky", () -> {
+            runs.incrementAndGet();
+            throw new IllegalStateException("boom");
+        }, Duration.ofMillis(10));
+
+        // when: the first run fails, the schedule must survive it
+        worker.start();
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (runs.get() < 3 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        final var runsBeforeStop = runs.get();
+        worker.stop();
+
+        // then: at least two scheduled runs after the first failure, plus the final run on stop
+        assertTrue(runsBeforeStop >= 3, "runs before stop: " + runsBeforeStop);
+        assertTrue(runs.get() > runsBeforeStop);
+    }
+
+    @Test
+    void shouldScheduleTaskRegisteredAfterStart() {
+        // given
+        final var worker = new BackgroundWorker(new BackgroundProperties(16, 1_000));
+        final var runs = new AtomicInteger();
+        worker.start();
+
+        // when
+        worker.schedulePeriodic("late", runs::incrementAndGet, Duration.ofMillis(10));
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (runs.get() < 2 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        final var runsBeforeStop = runs.get();
+        worker.stop();
+
+        // then: the late task runs on its schedule and once more on stop
+        assertTrue(runsBeforeStop >= 2, "runs before stop: " + runsBeforeStop);
+        assertTrue(runs.get() > runsBeforeStop);
+    }
+}
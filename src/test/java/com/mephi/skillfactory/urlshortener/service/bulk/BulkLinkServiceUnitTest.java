@@ -0,0 +1,112 @@
+package com.mephi.skillfactory.urlshortener.service.bulk;
+
+import com.mephi.skillfactory.urlshortener.properties.BulkProperties;
+import com.mephi.skillfactory.urlshortener.repository.InMemoryLinkRepository;
+import com.mephi.skillfactory.urlshortener.service.NotificationService;
+import com.mephi.skillfactory.urlshortener.service.ShortLinkService;
+import com.mephi.skillfactory.urlshortener.service.ShortLinkServiceFixture;
+import com.mephi.skillfactory.urlshortener.service.quota.UsageTracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkLinkServiceUnitTest {
+    private InMemoryLinkRepository repository;
+    private ShortLinkService shortLinkService;
+    private NotificationService notificationService;
+    private UsageTracker usageTracker;
+    private BulkLinkService bulkLinkService;
+
+    @BeforeEach
+    void setUp() {
+        final var fixture = ShortLinkServiceFixture.builder().build();
+        repository = fixture.repository();
+        shortLinkService = fixture.shortLinkService();
+        notificationService = fixture.notificationService();
+        usageTracker = fixture.usageTracker();
+        bulkLinkService = new BulkLinkService(new BulkProperties(4, 100, 2, Duration.ofHours(1)), shortLinkService, repository,
+            fixture.replicationState(), notificationService, fixture.backgroundWorker());
+        bulkLinkService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkLinkService.stop();
+    }
+
+    @Test
+    void shouldDeleteWholeAccountInParallelBatches() {
+        // given
+        final var owner = UUID.randomUUID();
+        final var other = UUID.randomUUID();
+        for (var i = 0; i < 2_500; i++) {
+            shortLinkService.createShortLink("https://example.com/" + i, owner, null, null, null, null, null, null, null);
+        }
+        final var kept = shortLinkService.createShortLink("https://example.com/kept", other, null, null, null, null, null, null, null);
+
+        // when
+        final var status = await(bulkLinkService.submit(owner, BulkAction.DELETE, null).id(), owner);
+
+        // then
+        assertEquals(BulkJob.State.COMPLETED, status.state());
+        assertEquals(2_500, status.total());
+        assertEquals(2_500, status.removed());
+        assertTrue(repository.findLinksByUserId(owner).isEmpty());
+        assertTrue(repository.findLinkByCode(kept.getCode()).isPresent());
+        assertEquals(0, usageTracker.usage(owner).get("links"));
+        assertTrue(notificationService.getNotifications(owner).getLast().contains("2500 of 2500"));
+    }
+
+    @Test
+    void shouldSkipForeignAndMissingCodesInList() {
+        // given
+        final var owner = UUID.randomUUID();
+        final var codes = new ArrayList<String>();
+        for (var i = 0; i < 3; i++) {
+            codes.add(shortLinkService.createShortLink("https://example.com/" + i, owner, null, null, null, null, null, null, null)
+                .getCode());
+        }
+        codes.add(shortLinkService.createShortLink("https://example.com/foreign", UUID.randomUUID(), null, null, null, null, null, null, null)
+            .getCode());
+        codes.add("no-such-code");
+
+        // when
+        final var status = await(bulkLinkService.submit(owner, BulkAction.EXPIRE, codes).id(), owner);
+
+        // then
+        assertEquals(5, status.total());
+        assertEquals(3, status.removed());
+        assertEquals(2, status.skipped());
+        assertTrue(repository.findLinkByCode(codes.get(3)).isPresent());
+    }
+
+    @Test
+    void shouldHideJobsFromOtherUsers() {
+        final var owner = UUID.randomUUID();
+        final var job = bulkLinkService.submit(owner, BulkAction.DELETE, List.of());
+
+        assertTrue(bulkLinkService.status(job.id(), UUID.randomUUID()).isEmpty());
+    }
+
+    private BulkJobStatus await(UUID jobId, UUID owner) {
+        final var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            final var status = bulkLinkService.status(jobId, owner).orElseThrow();
+            if (status.finishedAt() != null) {
+                return status;
+            }
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+        throw new AssertionError("Bulk job did not finish in time");
+    }
+}
@@ -0,0 +1,167 @@
+package com.mephi.skillfactory.urlshortener.service.coalesce;
+
+import com.mephi.skillfactory.urlshortener.service.exception.CoalescedCallException;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightUnitTest {
+    private static final int CALLERS = 8;
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    @Test
+    @SneakyThrows
+    void shouldShareOneComputationBetweenOverlappingCalls() {
+        // given
+        final var flights = new SingleFlight<String, Object>(WAIT);
+        final var computations = new AtomicInteger();
+        final var release = new CountDownLatch(1);
+        final var pool = Executors.newFixedThreadPool(CALLERS);
+
+        // when
+        final var results = new ArrayList<Future<Object>>();
+        try {
+            for (var i = 0; i < CALLERS; i++) {
+                results.add(pool.submit(() -> flights.execute("key", () -> {
+                    computations.incrementAndGet();
+                    awaitQuietly(release);
+                    return new Object();
+                })));
+            }
+            awaitCoalesced(flights, CALLERS - 1);
+            release.countDown();
+
+            // then
+            final var first = results.get(0)
+                .get(5, TimeUnit.SECONDS);
+            for (final var result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, computations.get());
+        assertEquals(1L, flights.stats()
+            .get("leaders"));
+        assertEquals(0, flights.stats()
+            .get("inFlight"));
+    }
+
+    @Test
+    void shouldComputeAgainOnceTheLeaderFinished() {
+        // given
+        final var flights = new SingleFlight<String, Object>(WAIT);
+
+        // when
+        final var first = flights.execute("key", Object::new);
+        final var second = flights.execute("key", Object::new);
+
+        // then
+        assertNotSame(first, second);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldRethrowLeaderFailureToEveryWaiterAsItsOwnException() {
+        // given
+        final var flights = new SingleFlight<String, Object>(WAIT);
+        final var release = new CountDownLatch(1);
+        final var pool = Executors.newFixedThreadPool(CALLERS);
+
+        // when
+        final var results = new ArrayList<Future<Object>>();
+        try {
+            for (var i = 0; i < CALLERS; i++) {
+                results.add(pool.submit(() -> flights.execute("key", () -> {
+                    awaitQuietly(release);
+                    throw new IllegalStateException("boom");
+                })));
+            }
+            awaitCoalesced(flights, CALLERS - 1);
+            release.countDown();
+
+            // then
+            final var distinct = new IdentityHashMap<Throwable, Boolean>();
+            for (final var result : results) {
+                final var thrown = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertEquals(IllegalStateException.class, thrown.getCause()
+                    .getClass());
+                assertEquals("boom", thrown.getCause()
+                    .getMessage());
+                distinct.put(thrown.getCause(), true);
+            }
+            assertEquals(CALLERS, distinct.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldStopWaitingForStuckLeaderAfterTimeout() {
+        // given
+        final var flights = new SingleFlight<String, Object>(Duration.ofMillis(50));
+        final var release = new CountDownLatch(1);
+        final var pool = Executors.newSingleThreadExecutor();
+
+        try {
+            final var leader = pool.submit(() -> flights.execute("key", () -> {
+                awaitQuietly(release);
+                return new Object();
+            }));
+            while ((long) flights.stats()
+                .get("leaders") == 0) {
+                Thread.onSpinWait();
+            }
+
+            // when
+            assertThrows(CoalescedCallException.class, () -> flights.execute("key", Object::new));
+            release.countDown();
+
+            // then
+            assertEquals(1L, flights.stats()
+                .get("timedOut"));
+            leader.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRejectNonPositiveWaitTimeout() {
+        assertThrows(IllegalArgumentException.class, () -> new SingleFlight<String, Object>(Duration.ZERO));
+    }
+
+    private static void awaitCoalesced(SingleFlight<String, Object> flights, long expected) {
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((long) flights.stats()
+            .get("coalesced") < expected && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(expected, flights.stats()
+            .get("coalesced"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.mephi.skillfactory.urlshortener.service.event;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkEventLogUnitTest {
+    private final Link link = new Link("abc", "https://example.com", UUID.randomUUID(), 60, 10);
+
+    @Test
+    void shouldDeliverEventsInPublishOrder() {
+        final var eventLog = new LinkEventLog(16);
+        final var subscription = eventLog.subscribe("test");
+
+        eventLog.publish(LinkEventType.CREATED, link);
+        eventLog.publish(LinkEventType.CLICKED, link);
+        eventLog.publish(LinkEventType.DELETED, link);
+
+        final var events = subscription.poll(10);
+        assertEquals(List.of(LinkEventType.CREATED, LinkEventType.CLICKED, LinkEventType.DELETED),
+            events.stream().map(LinkEvent::type).toList());
+        assertEquals(List.of(0L, 1L, 2L), events.stream().map(LinkEvent::sequence).toList());
+        assertTrue(subscription.poll(10).isEmpty());
+    }
+
+    @Test
+    void shouldKeepIndependentCursorsPerSubscription() {
+        final var eventLog = new LinkEventLog(16);
+        final var fast = eventLog.subscribe("fast");
+        final var slow = eventLog.subscribe("slow");
+
+        for (var i = 0; i < 5; i++) {
+            eventLog.publish(LinkEventType.CLICKED, link);
+        }
+
+        assertEquals(5, fast.poll(100).size());
+        assertEquals(0, fast.lag());
+        assertEquals(5, slow.lag());
+        assertEquals(2, slow.poll(2).size());
+        assertEquals(3, slow.lag());
+    }
+
+    @Test
+    void shouldCountOverwrittenEventsAsDroppedForSlowConsumer() {
+        final var eventLog = new LinkEventLog(8);
+        final var subscription = eventLog.subscribe("slow");
+
+        for (var i = 0; i < 20; i++) {
+            eventLog.publish(LinkEventType.CLICKED, link);
+        }
+
+        final var events = subscription.poll(100);
+        assertEquals(8, events.size());
+        assertEquals(12, subscription.dropped());
+        assertEquals(12L, events.getFirst().sequence());
+        assertEquals(19L, events.getLast().sequence());
+    }
+
+    @Test
+    void shouldPublishLinkStateTakenAtPublishTime() {
+        final var eventLog = new LinkEventLog(8);
+        final var subscription = eventLog.subscribe("test");
+
+        eventLog.publish(LinkEventType.CREATED, link);
+        eventLog.publish(LinkEventType.CLICKED, link);
+        link.incrementAndGetClicks();
+        link.deactivate();
+
+        final var events = subscription.poll(2);
+        final var created = events.getFirst();
+        final var clicked = events.getLast();
+        assertNotSame(link, created.link());
+        assertEquals(0, created.link().getClickCount().get());
+        assertTrue(created.link().isActive());
+        assertNull(clicked.link());
+        assertEquals(link.getCode(), clicked.code());
+        assertEquals(0, clicked.clickCount());
+        assertEquals(link.getExpiresAt().getEpochSecond(), clicked.expiresAtSecond());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldWakeTailingConsumerOnPublish() {
+        final var eventLog = new LinkEventLog(8);
+        final var delivered = new CountDownLatch(1);
+        final var deliveredAt = new AtomicLong();
+        final var subscription = eventLog.subscribe("tail");
+        final var consumer = eventLog.tail(subscription, events -> {
+            deliveredAt.set(System.nanoTime());
+            delivered.countDown();
+        }, 10);
+        // let the consumer park on the empty log
+        Thread.sleep(50);
+
+        final var publishedAt = System.nanoTime();
+        eventLog.publish(LinkEventType.CREATED, link);
+
+        assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        // well below the idle park bound, so the consumer was woken rather than timed out
+        assertTrue(deliveredAt.get() - publishedAt < TimeUnit.MILLISECONDS.toNanos(50));
+        subscription.close();
+        consumer.join(1_000);
+        assertFalse(consumer.isAlive());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldKeepSlotsMonotonicWhenProducersOvertakeTheRing() {
+        final var threads = 4;
+        final var perThread = 20_000;
+        final var eventLog = new LinkEventLog(8);
+        final var subscription = eventLog.subscribe("reader");
+        final var seen = new AtomicLong(-1);
+
+        try (var executorService = Executors.newFixedThreadPool(threads + 1)) {
+            final var futures = new ArrayList<Future<?>>();
+            for (var thread = 0; thread < threads; thread++) {
+                futures.add(executorService.submit(() -> {
+                    for (var i = 0; i < perThread; i++) {
+                        eventLog.publish(LinkEventType.CLICKED, link);
+                    }
+                }));
+            }
+            final var reader = executorService.submit(() -> {
+                while (seen.get() < threads * perThread - 1L) {
+                    for (final var event : subscription.poll(8)) {
+                        assertTrue(event.sequence() > seen.get());
+                        seen.set(event.sequence());
+                    }
+                }
+            });
+            for (final var future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            reader.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(threads * perThread - 1L, seen.get());
+    }
+
+    @Test
+    void shouldRejectDuplicateSubscriptionName() {
+        final var eventLog = new LinkEventLog(8);
+        eventLog.subscribe("name");
+
+        assertThrows(IllegalStateException.class, () -> eventLog.subscribe("name"));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldNotLoseEventsFromConcurrentProducers() {
+        final var threads = 4;
+        final var perThread = 5_000;
+        final var eventLog = new LinkEventLog(threads * perThread);
+        final var subscription = eventLog.subscribe("all");
+
+        try (var executorService = Executors.newFixedThreadPool(threads)) {
+            final var start = new CountDownLatch(1);
+            final var futures = new ArrayList<Future<?>>();
+            for (var thread = 0; thread < threads; thread++) {
+                futures.add(executorService.submit(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    for (var i = 0; i < perThread; i++) {
+                        eventLog.publish(LinkEventType.CLICKED, link);
+                    }
+                }));
+            }
+            start.countDown();
+            for (final var future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        final var sequences = new HashSet<Long>();
+        var previous = -1L;
+        for (final var event : subscription.poll(threads * perThread)) {
+            assertTrue(event.sequence() > previous);
+            previous = event.sequence();
+            sequences.add(event.sequence());
+        }
+        assertEquals(threads * perThread, sequences.size());
+        assertEquals(0, subscription.dropped());
+    }
+}
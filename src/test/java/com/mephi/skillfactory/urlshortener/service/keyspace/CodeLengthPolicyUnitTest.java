@@ -0,0 +1,128 @@
+package com.mephi.skillfactory.urlshortener.service.keyspace;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.KeyspaceProperties;
+import com.mephi.skillfactory.urlshortener.properties.LinkProperties;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CodeLengthPolicyUnitTest {
+    private static final LinkProperties LINK_PROPERTIES = new LinkProperties("http://localhost/api", 900, 10, 7, 10, true, Duration.ofSeconds(5));
+
+    @Test
+    void shouldGrowOnceEstimatedCollisionRateExceedsLimit() {
+        // given: 62^2 = 3844 codes of length 2, so 1% is reached after 38 of them
+        final var policy = adaptive(2, 4);
+
+        // when
+        for (var i = 0; i < 38; i++) {
+            policy.linkAdded(code(2, i));
+        }
+        final var before = policy.currentLength();
+        policy.linkAdded(code(2, 38));
+
+        // then
+        assertEquals(2, before);
+        assertEquals(3, policy.currentLength());
+    }
+
+    @Test
+    void shouldShrinkBackWhenLinksAreRemoved() {
+        // given
+        final var policy = adaptive(2, 4);
+        for (var i = 0; i < 50; i++) {
+            policy.linkAdded(code(2, i));
+        }
+        assertEquals(3, policy.currentLength());
+
+        // when
+        for (var i = 0; i < 20; i++) {
+            policy.linkRemoved(code(2, i));
+        }
+
+        // then
+        assertEquals(2, policy.currentLength());
+    }
+
+    @Test
+    void shouldSkipLengthWhoseObservedCollisionRateIsTooHigh() {
+        // given: the estimate sees an empty keyspace, the repository disagrees
+        final var policy = adaptive(2, 4);
+
+        // when
+        for (var i = 0; i < 16; i++) {
+            policy.recordAttempt(2, i % 2 == 1);
+        }
+
+        // then
+        assertEquals(3, policy.currentLength());
+        assertEquals(0.5, policy.stats().get("collisionRate"));
+        assertEquals(2.0, policy.stats().get("attemptsPerCode"));
+    }
+
+    @Test
+    void shouldMoveToLongerCodesWithinOneCreate() {
+        final var policy = adaptive(2, 4);
+
+        assertEquals(2, policy.lengthFor(0));
+        assertEquals(2, policy.lengthFor(CodeLengthPolicy.ATTEMPTS_PER_LENGTH - 1));
+        assertEquals(3, policy.lengthFor(CodeLengthPolicy.ATTEMPTS_PER_LENGTH));
+        assertEquals(4, policy.lengthFor(100));
+    }
+
+    @Test
+    void shouldUseConfiguredLengthWhenNotAdaptive() {
+        final var policy = new CodeLengthPolicy(new KeyspaceProperties(false, 2, 4, 0.01, Duration.ofMinutes(1)), LINK_PROPERTIES);
+
+        assertEquals(7, policy.lengthFor(0));
+        assertEquals(7, policy.lengthFor(9));
+    }
+
+    @Test
+    void shouldStartAtLinkCodeLengthWhenMinimumIsNotSet() {
+        final var policy = adaptive(0, 10);
+
+        assertEquals(7, policy.currentLength());
+        assertEquals(8, policy.lengthFor(CodeLengthPolicy.ATTEMPTS_PER_LENGTH));
+    }
+
+    @Test
+    void shouldRecountOccupancyOnRebuild() {
+        // given
+        final var policy = adaptive(2, 4);
+        final var links = new ArrayList<Link>();
+        for (var i = 0; i < 40; i++) {
+            links.add(new Link(code(2, i), "https://example.com", UUID.randomUUID(), 60, 10));
+        }
+
+        // when
+        policy.rebuild(links::forEach);
+
+        // then
+        assertEquals(3, policy.currentLength());
+    }
+
+    @Test
+    void shouldRejectInvalidLengthRange() {
+        assertThrows(IllegalArgumentException.class, () -> adaptive(5, 4));
+    }
+
+    private static CodeLengthPolicy adaptive(int minLength, int maxLength) {
+        return new CodeLengthPolicy(new KeyspaceProperties(true, minLength, maxLength, 0.01, Duration.ofMinutes(1)), LINK_PROPERTIES);
+    }
+
+    private static String code(int length, int index) {
+        final var code = new StringBuilder(Integer.toString(index, 36));
+        while (code.length() < length) {
+            code.insert(0, '0');
+        }
+        return code.toString();
+    }
+}
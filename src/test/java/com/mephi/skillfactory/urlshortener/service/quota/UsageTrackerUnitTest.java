@@ -0,0 +1,201 @@
+package com.mephi.skillfactory.urlshortener.service.quota;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.BackgroundProperties;
+import com.mephi.skillfactory.urlshortener.properties.QuotaProperties;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.exception.QuotaExceededException;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UsageTrackerUnitTest {
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    @Test
+    void shouldRejectLinksOverQuotaUntilOneIsReleased() {
+        // given
+        final var tracker = tracker(2, 0);
+        final var userId = UUID.randomUUID();
+        tracker.acquireLink(userId);
+        tracker.acquireLink(userId);
+
+        // when / then
+        assertThrows(QuotaExceededException.class, () -> tracker.acquireLink(userId));
+        assertDoesNotThrow(() -> tracker.acquireLink(UUID.randomUUID()));
+
+        tracker.releaseLink(userId);
+        assertDoesNotThrow(() -> tracker.acquireLink(userId));
+        assertEquals(2, tracker.usage(userId).get("links"));
+        assertEquals(Map.of("1", 1L, "2-3", 1L), tracker.linksPerUserHistogram());
+    }
+
+    @Test
+    void shouldResetClickQuotaWhenPeriodRollsOver() {
+        // given
+        final var tracker = tracker(0, 3);
+        final var userId = UUID.randomUUID();
+        tracker.acquireLink(userId);
+        final var periodStart = 10 * HOUR;
+
+        // when
+        for (var i = 0; i < 3; i++) {
+            tracker.recordClick(userId, periodStart + i);
+        }
+
+        // then
+        assertThrows(QuotaExceededException.class, () -> tracker.recordClick(userId, periodStart + HOUR - 1));
+        assertDoesNotThrow(() -> tracker.recordClick(userId, periodStart + HOUR));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldNotOvershootLinkQuotaUnderContention() {
+        // given
+        final var tracker = tracker(100, 0);
+        final var userId = UUID.randomUUID();
+        final var acquired = new AtomicInteger();
+        final var executor = Executors.newFixedThreadPool(8);
+
+        // when
+        for (var i = 0; i < 1_000; i++) {
+            executor.execute(() -> {
+                try {
+                    tracker.acquireLink(userId);
+                    acquired.incrementAndGet();
+                } catch (QuotaExceededException ignored) {
+                    // expected once the quota is used up
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(100, acquired.get());
+        assertEquals(100, tracker.usage(userId).get("links"));
+    }
+
+    @Test
+    void shouldRetireIdleUsersAndRecountOnRebuild() {
+        // given
+        final var tracker = tracker(0, 0);
+        final var idle = UUID.randomUUID();
+        final var owner = UUID.randomUUID();
+        tracker.acquireLink(idle);
+        tracker.releaseLink(idle);
+
+        // when
+        tracker.evictIdle();
+        tracker.rebuild(List.of(new Link("c1", "https://a", owner, 60, 10), new Link("c2", "https://b", owner, 60, 10))::forEach);
+
+        // then
+        assertEquals(1, tracker.trackedUsers());
+        assertEquals(2, tracker.usage(owner).get("links"));
+        assertEquals(0, tracker.usage(idle).get("links"));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldKeepHistogramConsistentWhenRebuildRacesWithUpdates() {
+        // given: one user keeps creating and deleting a link while the counters are rebuilt from a fixed repository
+        final var tracker = tracker(0, 0);
+        final var owner = UUID.randomUUID();
+        final var churner = UUID.randomUUID();
+        final var links = List.of(new Link("c1", "https://a", owner, 60, 10), new Link("c2", "https://b", owner, 60, 10));
+        final var running = new AtomicBoolean(true);
+        final var executor = Executors.newFixedThreadPool(4);
+        for (var i = 0; i < 4; i++) {
+            executor.execute(() -> {
+                while (running.get()) {
+                    tracker.acquireLink(churner);
+                    tracker.releaseLink(churner);
+                }
+            });
+        }
+
+        // when
+        for (var i = 0; i < 2_000; i++) {
+            tracker.rebuild(links::forEach);
+        }
+        running.set(false);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(2, tracker.usage(owner).get("links"));
+        assertEquals(0, tracker.usage(churner).get("links"));
+        assertEquals(Map.of("2-3", 1L), tracker.linksPerUserHistogram());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldNotLoseClicksToConcurrentIdleEviction() {
+        // given: every click lands on a user who has just been created and is idle until the click is counted
+        final var tracker = tracker(0, 0);
+        final var running = new AtomicBoolean(true);
+        final var lost = new AtomicInteger();
+        final var executor = Executors.newFixedThreadPool(4);
+        executor.execute(() -> {
+            while (running.get()) {
+                tracker.evictIdle();
+            }
+        });
+
+        // when
+        final var clickers = new ArrayList<Future<?>>();
+        for (var i = 0; i < 3; i++) {
+            clickers.add(executor.submit(() -> {
+                for (var click = 0; click < 20_000; click++) {
+                    final var userId = UUID.randomUUID();
+                    tracker.recordClick(userId);
+                    if (!Long.valueOf(1).equals(tracker.usage(userId).get("clicksInPeriod"))) {
+                        lost.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (final var clicker : clickers) {
+            clicker.get(30, TimeUnit.SECONDS);
+        }
+        running.set(false);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(0, lost.get());
+    }
+
+    @Test
+    void shouldCountLinksAddedWithoutQuotaCheck() {
+        final var tracker = tracker(1, 0);
+        final var userId = UUID.randomUUID();
+        tracker.acquireLink(userId);
+
+        tracker.linkAdded(userId);
+
+        assertEquals(2, tracker.usage(userId).get("links"));
+        assertThrows(QuotaExceededException.class, () -> tracker.acquireLink(userId));
+    }
+
+    private static UsageTracker tracker(int maxLinks, long maxClicks) {
+        final var backgroundWorker = new BackgroundWorker(new BackgroundProperties(16, 1_000));
+        return new UsageTracker(new QuotaProperties(maxLinks, maxClicks, Duration.ofHours(1)), backgroundWorker);
+    }
+}
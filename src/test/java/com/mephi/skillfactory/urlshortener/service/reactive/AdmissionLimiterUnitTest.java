@@ -0,0 +1,88 @@
+package com.mephi.skillfactory.urlshortener.service.reactive;
+
+import com.mephi.skillfactory.urlshortener.properties.ReactiveProperties;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionLimiterUnitTest {
+
+    @Test
+    void shouldShedRequestsAboveLimitAndAdmitAgainAfterRelease() {
+        // given
+        final var limiter = new AdmissionLimiter(new ReactiveProperties(2, 1, Duration.ofSeconds(1)));
+
+        // when
+        final var first = limiter.tryAcquire();
+        final var second = limiter.tryAcquire();
+        final var third = limiter.tryAcquire();
+        limiter.release();
+        final var fourth = limiter.tryAcquire();
+
+        // then
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertTrue(fourth);
+        assertEquals(2, limiter.inFlight());
+        final var stats = limiter.stats();
+        assertEquals(3L, stats.get("admitted"));
+        assertEquals(1L, stats.get("shed"));
+        assertEquals(2, stats.get("peakInFlight"));
+    }
+
+    @Test
+    void shouldNeverAdmitMoreThanLimitConcurrently() throws InterruptedException {
+        // given
+        final var limit = 8;
+        final var limiter = new AdmissionLimiter(new ReactiveProperties(limit, 1, Duration.ofSeconds(1)));
+        final var threads = 16;
+        final var start = new CountDownLatch(1);
+        final var done = new CountDownLatch(threads);
+        final var overLimit = new AtomicInteger();
+
+        // when
+        try (var executor = Executors.newFixedThreadPool(threads)) {
+            for (var t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        for (var i = 0; i < 10_000; i++) {
+                            if (limiter.tryAcquire()) {
+                                if (limiter.inFlight() > limit) {
+                                    overLimit.incrementAndGet();
+                                }
+                                limiter.release();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            done.await();
+        }
+
+        // then
+        assertEquals(0, overLimit.get());
+        assertEquals(0, limiter.inFlight());
+        assertTrue((int) limiter.stats().get("peakInFlight") <= limit);
+    }
+
+    @Test
+    void shouldRejectNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionLimiter(new ReactiveProperties(0, 1, Duration.ofSeconds(1))));
+    }
+}
@@ -0,0 +1,104 @@
+package com.mephi.skillfactory.urlshortener.service.reactive;
+
+import com.mephi.skillfactory.urlshortener.properties.ReactiveProperties;
+import com.mephi.skillfactory.urlshortener.service.NotificationService;
+import com.mephi.skillfactory.urlshortener.service.TestServices;
+import com.mephi.skillfactory.urlshortener.service.exception.ScheduleCapacityException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactiveLinkServiceUnitTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final NotificationService notificationService = new NotificationService(TestServices.disabledAccessLog());
+    // one worker with a backlog of one: a running call, a queued one, and everything above is rejected
+    private final ReactiveLinkService reactiveLinkService = new ReactiveLinkService(new ReactiveProperties(1, 1, Duration.ofSeconds(1)),
+        null, notificationService, null);
+
+    @AfterEach
+    void tearDown() {
+        reactiveLinkService.stop();
+    }
+
+    @Test
+    void shouldRunBlockingCallsOnWorkerPool() {
+        // given
+        reactiveLinkService.start();
+        final var userId = UUID.randomUUID();
+        notificationService.notify(userId, "expired");
+
+        // when
+        final var thread = reactiveLinkService.call(() -> Thread.currentThread().getName())
+            .block(TIMEOUT);
+        final var notifications = reactiveLinkService.getNotifications(userId)
+            .block(TIMEOUT);
+
+        // then
+        assertTrue(thread.startsWith("api-worker"), thread);
+        assertNotEquals(Thread.currentThread().getName(), thread);
+        assertEquals(List.of("expired"), notifications);
+    }
+
+    @Test
+    void shouldCompleteEmptyForNullResult() {
+        reactiveLinkService.start();
+
+        assertNull(reactiveLinkService.call(() -> null).block(TIMEOUT));
+    }
+
+    @Test
+    void shouldFailWithScheduleCapacityWhenNotRunning() {
+        // given: never started
+        final var beforeStart = reactiveLinkService.call(() -> 1);
+
+        // when
+        reactiveLinkService.start();
+        reactiveLinkService.stop();
+        final var afterStop = reactiveLinkService.call(() -> 1);
+
+        // then
+        assertThrows(ScheduleCapacityException.class, () -> beforeStart.block(TIMEOUT));
+        assertThrows(ScheduleCapacityException.class, () -> afterStop.block(TIMEOUT));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldRejectCallsBeyondWorkerBacklogWithScheduleCapacity() {
+        // given: the only worker is busy and its single backlog slot is taken
+        reactiveLinkService.start();
+        final var started = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var running = reactiveLinkService.call(() -> {
+                started.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            })
+            .toFuture();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final var queued = reactiveLinkService.call(() -> "queued")
+            .toFuture();
+
+        // when
+        final var rejected = reactiveLinkService.call(() -> "rejected");
+
+        // then
+        assertThrows(ScheduleCapacityException.class, () -> rejected.block(TIMEOUT));
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+}
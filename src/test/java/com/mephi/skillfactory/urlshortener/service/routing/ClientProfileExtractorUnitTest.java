@@ -0,0 +1,89 @@
+package com.mephi.skillfactory.urlshortener.service.routing;
+
+import com.mephi.skillfactory.urlshortener.domain.DeviceType;
+import com.mephi.skillfactory.urlshortener.properties.RoutingProperties;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ClientProfileExtractorUnitTest {
+    private static final String IPHONE = "Mozilla/5.0 (iPhone; CPU iPhone OS 17_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) "
+        + "Version/17.4 Mobile/15E148 Safari/604.1";
+    private static final String ANDROID_TABLET = "Mozilla/5.0 (Linux; Android 14; SM-X710) AppleWebKit/537.36 (KHTML, like Gecko) "
+        + "Chrome/124.0.0.0 Safari/537.36";
+    private static final String ANDROID_PHONE = "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) "
+        + "Chrome/124.0.0.0 Mobile Safari/537.36";
+    private static final String WINDOWS = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) "
+        + "Chrome/124.0.0.0 Safari/537.36";
+
+    private final RoutingProperties properties = new RoutingProperties(2, 2, "CF-IPCountry");
+    private final UserAgentClassifier classifier = new UserAgentClassifier(properties);
+    private final ClientProfileExtractor extractor = new ClientProfileExtractor(properties, classifier);
+
+    @Test
+    void shouldClassifyUserAgents() {
+        assertEquals(DeviceType.MOBILE, UserAgentClassifier.parse(IPHONE));
+        assertEquals(DeviceType.MOBILE, UserAgentClassifier.parse(ANDROID_PHONE));
+        assertEquals(DeviceType.TABLET, UserAgentClassifier.parse(ANDROID_TABLET));
+        assertEquals(DeviceType.TABLET, UserAgentClassifier.parse("Mozilla/5.0 (iPad; CPU OS 17_4 like Mac OS X) Mobile/15E148"));
+        assertEquals(DeviceType.DESKTOP, UserAgentClassifier.parse(WINDOWS));
+        assertEquals(DeviceType.BOT, UserAgentClassifier.parse("Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)"));
+        assertEquals(DeviceType.BOT, UserAgentClassifier.parse("curl/8.5.0"));
+        assertEquals(DeviceType.OTHER, classifier.classify(null));
+        assertEquals(DeviceType.OTHER, classifier.classify(" "));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedClassification() {
+        // when
+        classifier.classify(IPHONE);
+        classifier.classify(WINDOWS);
+        classifier.classify(IPHONE);
+        classifier.classify(ANDROID_PHONE);
+        classifier.classify(IPHONE);
+        classifier.classify(WINDOWS);
+
+        // then: the third distinct agent pushed out the one not seen since, the recently used one stayed
+        final var stats = classifier.stats();
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(4L, stats.get("misses"));
+        assertEquals(2, stats.get("cached"));
+        assertEquals(2L, stats.get("evictions"));
+    }
+
+    @Test
+    void shouldParseAcceptLanguageByQuality() {
+        assertEquals(List.of("de-ch", "de", "fr", "en"), ClientProfileExtractor.parseAcceptLanguage("fr;q=0.9, de-CH, en;q=0.8, *;q=0.5"));
+        assertEquals(List.of("en"), ClientProfileExtractor.parseAcceptLanguage("ru;q=0, en;q=bad, en"));
+        assertEquals(List.of(), extractor.languages(null));
+
+        final var first = extractor.languages("ru-RU,ru;q=0.9");
+        assertSame(first, extractor.languages("ru-RU,ru;q=0.9"));
+        assertEquals(List.of("ru-ru", "ru"), first);
+    }
+
+    @Test
+    void shouldExtractProfileFromHeaders() {
+        // given
+        final var headers = Map.of("User-Agent", IPHONE, "Accept-Language", "en-GB,en;q=0.9", "CF-IPCountry", "gb");
+
+        // when
+        final var profile = extractor.extract(headers::get, "203.0.113.7");
+
+        // then
+        assertEquals(DeviceType.MOBILE, profile.device());
+        assertEquals(List.of("en-gb", "en"), profile.languages());
+        assertEquals("GB", profile.country());
+        assertEquals(profile.visitorHash(), extractor.extract(headers::get, "203.0.113.7").visitorHash());
+        assertNotEquals(profile.visitorHash(), extractor.extract(headers::get, "203.0.113.8").visitorHash());
+        assertNull(ClientProfileExtractor.country("XXX"));
+        assertNull(extractor.extract(Map.<String, String>of()::get, null).country());
+    }
+}
@@ -0,0 +1,50 @@
+package com.mephi.skillfactory.urlshortener.service.routing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LruCacheUnitTest {
+
+    @Test
+    void shouldNeverHoldMoreThanCapacityAcrossSegments() {
+        // given: large enough for every segment
+        final var cache = new LruCache<String, Integer>(1_000);
+
+        // when
+        for (var i = 0; i < 10_000; i++) {
+            cache.put("key-" + i, i);
+        }
+
+        // then
+        assertTrue(cache.size() <= 1_000);
+        assertEquals(10_000 - cache.size(), cache.evictions());
+        assertEquals(Integer.valueOf(9_999), cache.get("key-9999"));
+        assertNull(cache.get("key-0"));
+    }
+
+    @Test
+    void shouldKeepRecentlyReadEntry() {
+        // given
+        final var cache = new LruCache<String, Integer>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        // when
+        cache.get("a");
+        cache.put("c", 3);
+
+        // then
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(Integer.valueOf(3), cache.get("c"));
+    }
+
+    @Test
+    void shouldRejectNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<String, Integer>(0));
+    }
+}
@@ -0,0 +1,195 @@
+package com.mephi.skillfactory.urlshortener.service.snapshot;
+
+import com.mephi.skillfactory.urlshortener.domain.DeviceType;
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.domain.RedirectPolicy;
+import com.mephi.skillfactory.urlshortener.domain.RouteTarget;
+import com.mephi.skillfactory.urlshortener.domain.RoutingRule;
+import com.mephi.skillfactory.urlshortener.domain.RoutingTable;
+import com.mephi.skillfactory.urlshortener.properties.ActivationProperties;
+import com.mephi.skillfactory.urlshortener.properties.BackgroundProperties;
+import com.mephi.skillfactory.urlshortener.properties.KeyspaceProperties;
+import com.mephi.skillfactory.urlshortener.properties.LinkProperties;
+import com.mephi.skillfactory.urlshortener.properties.QuotaProperties;
+import com.mephi.skillfactory.urlshortener.properties.StatsProperties;
+import com.mephi.skillfactory.urlshortener.repository.InMemoryLinkRepository;
+import com.mephi.skillfactory.urlshortener.service.NotificationService;
+import com.mephi.skillfactory.urlshortener.service.TestServices;
+import com.mephi.skillfactory.urlshortener.service.activation.ActivationScheduler;
+import com.mephi.skillfactory.urlshortener.service.background.BackgroundWorker;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.exception.SnapshotFormatException;
+import com.mephi.skillfactory.urlshortener.service.keyspace.CodeLengthPolicy;
+import com.mephi.skillfactory.urlshortener.service.quota.UsageTracker;
+import com.mephi.skillfactory.urlshortener.service.stats.LinkStatistics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LinkSnapshotCodecUnitTest {
+    private InMemoryLinkRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryLinkRepository();
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldRestoreAllLinkFields() {
+        // given
+        final var userId = UUID.randomUUID();
+        final var createdAt = Instant.parse("2025-01-01T10:15:30.123456789Z");
+        final var link = new Link("abc1234", "https://example.com/путь?q=1", userId, createdAt, 300, 5, 3, false,
+            Instant.parse("2025-01-01T10:16:00Z"), Instant.parse("2025-01-01T10:18:00.250Z"), RedirectPolicy.PERMANENT);
+        repository.saveLink(link);
+
+        // when
+        final var snapshot = roundTrip(Instant.now());
+
+        // then
+        assertEquals(1, snapshot.links().size());
+        final var restored = snapshot.links().getFirst();
+        assertEquals(link.getCode(), restored.getCode());
+        assertEquals(link.getTargetUrl(), restored.getTargetUrl());
+        assertEquals(userId, restored.getUserId());
+        assertEquals(createdAt, restored.getCreatedAt());
+        assertEquals(300, restored.getTtlSeconds());
+        assertEquals(5, restored.getMaxClicks());
+        assertEquals(3, restored.getClickCount().get());
+        assertFalse(restored.isActive());
+        assertEquals(link.getActiveFrom(), restored.getActiveFrom());
+        assertEquals(link.getActiveUntil(), restored.getActiveUntil());
+        assertEquals(RedirectPolicy.PERMANENT, restored.getRedirectPolicy());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldRestoreRoutingRules() {
+        // given
+        final var routing = RoutingTable.compile(List.of(
+            new RoutingRule(List.of(DeviceType.MOBILE, DeviceType.TABLET), List.of("ru"), List.of("RU", "BY"),
+                List.of(new RouteTarget("https://m.example.com/ru", 1))),
+            new RoutingRule(null, null, null, List.of(new RouteTarget("https://a.example.com", 9), new RouteTarget("https://b.example.com", 1)))));
+        repository.saveLink(new Link("routed", "https://example.com", UUID.randomUUID(), Instant.parse("2025-01-01T00:00:00Z"), 300, 0, 0,
+            true, null, null, RedirectPolicy.TEMPORARY, routing));
+
+        // when
+        final var restored = roundTrip(Instant.now()).links().getFirst();
+
+        // then
+        assertEquals(routing.rules(), restored.getRouting().rules());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldSkipLinksCreatedAfterWatermark() {
+        final var watermark = Instant.parse("2025-01-01T00:00:00Z");
+        repository.saveLink(new Link("before", "https://a", UUID.randomUUID(), watermark.minusSeconds(1), 60, 1, 0, true));
+        repository.saveLink(new Link("after", "https://b", UUID.randomUUID(), watermark.plusSeconds(1), 60, 1, 0, true));
+
+        final var snapshot = roundTrip(watermark);
+
+        assertEquals(watermark, snapshot.watermark());
+        assertEquals(1, snapshot.links().size());
+        assertEquals("before", snapshot.links().getFirst().getCode());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReplaceRepositoryContentsOnImport() {
+        // given
+        final var userId = UUID.randomUUID();
+        for (var i = 0; i < 100; i++) {
+            repository.saveLink(new Link("c" + i, "https://example.com/" + i, userId, 60, 10));
+        }
+        final var out = new ByteArrayOutputStream();
+        snapshotService(repository).exportTo(out);
+
+        final var target = new InMemoryLinkRepository();
+        target.saveLink(new Link("stale", "https://stale", UUID.randomUUID(), 60, 10));
+
+        // when
+        final var imported = snapshotService(target).importFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        // then
+        assertEquals(100, imported);
+        assertEquals(100, target.findAll().size());
+        assertEquals(100, target.findLinksByUserId(userId).size());
+        assertFalse(target.findLinkByCode("stale").isPresent());
+    }
+
+    @Test
+    void shouldRejectUnknownFormat() {
+        final var garbage = new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThrows(SnapshotFormatException.class, () -> LinkSnapshotCodec.read(garbage));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldRejectTruncatedSnapshot() {
+        repository.saveLink(new Link("c1", "https://a", UUID.randomUUID(), 60, 10));
+        final var out = new ByteArrayOutputStream();
+        LinkSnapshotCodec.write(repository, Instant.now(), out);
+        final var bytes = out.toByteArray();
+
+        final var truncated = new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(SnapshotFormatException.class, () -> LinkSnapshotCodec.read(truncated));
+    }
+
+    @Test
+    void shouldRejectForgedStringLengths() {
+        assertThrows(SnapshotFormatException.class, () -> LinkSnapshotCodec.read(recordWithCodeLength(-5)));
+        assertThrows(SnapshotFormatException.class, () -> LinkSnapshotCodec.read(recordWithCodeLength(Integer.MAX_VALUE)));
+    }
+
+    @SneakyThrows
+    private static ByteArrayInputStream recordWithCodeLength(long length) {
+        final var bytes = new ByteArrayOutputStream();
+        final var out = new DataOutputStream(bytes);
+        out.writeInt(LinkSnapshotCodec.MAGIC);
+        out.writeShort(LinkSnapshotCodec.VERSION);
+        out.writeLong(0);
+        out.writeInt(0);
+        out.writeByte(1);
+        LinkSnapshotCodec.writeVarLong(out, length);
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    @SneakyThrows
+    private LinkSnapshotCodec.Snapshot roundTrip(Instant watermark) {
+        final var out = new ByteArrayOutputStream();
+        LinkSnapshotCodec.write(repository, watermark, out);
+        return LinkSnapshotCodec.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static SnapshotService snapshotService(InMemoryLinkRepository repository) {
+        final var backgroundWorker = new BackgroundWorker(new BackgroundProperties(16, 1_000));
+        final var linkEventLog = new LinkEventLog(64);
+        final var accessLog = TestServices.disabledAccessLog();
+        final var activationScheduler = new ActivationScheduler(new ActivationProperties(100, 64, 1_000), repository, linkEventLog,
+            new NotificationService(accessLog), backgroundWorker);
+        final var usageTracker = new UsageTracker(new QuotaProperties(0, 0, Duration.ofHours(1)), backgroundWorker);
+        final var linkStatistics = new LinkStatistics(new StatsProperties(16, Duration.ofMinutes(5), 64), linkEventLog);
+        final var codeLengthPolicy = new CodeLengthPolicy(new KeyspaceProperties(true, 4, 10, 0.01, Duration.ofMinutes(1)),
+            new LinkProperties("http://localhost/api", 900, 10, 7, 10, true, Duration.ofSeconds(5)));
+        return new SnapshotService(repository, activationScheduler, usageTracker, linkStatistics, codeLengthPolicy);
+    }
+}
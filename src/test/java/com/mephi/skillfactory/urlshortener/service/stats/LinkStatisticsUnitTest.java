@@ -0,0 +1,107 @@
+package com.mephi.skillfactory.urlshortener.service.stats;
+
+import com.mephi.skillfactory.urlshortener.domain.Link;
+import com.mephi.skillfactory.urlshortener.properties.StatsProperties;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEvent;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventLog;
+import com.mephi.skillfactory.urlshortener.service.event.LinkEventType;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import lombok.SneakyThrows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkStatisticsUnitTest {
+    private LinkEventLog linkEventLog;
+    private LinkStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        linkEventLog = new LinkEventLog(64);
+        statistics = new LinkStatistics(new StatsProperties(8, Duration.ofMinutes(5), 64), linkEventLog);
+    }
+
+    @Test
+    void shouldCountExpiredLinksUntilCleanerRemovesThem() {
+        // given
+        final var userId = UUID.randomUUID();
+        final var expired = new Link("old", "https://a", userId, Instant.now().minusSeconds(120), 60, 10, 0, true);
+        final var alive = new Link("new", "https://b", userId, 600, 10);
+        statistics.onEvents(List.of(LinkEvent.of(0, LinkEventType.CREATED, expired), LinkEvent.of(1, LinkEventType.CREATED, alive)));
+
+        // when
+        final var before = statistics.expiredPendingCleanup();
+        statistics.onEvents(List.of(LinkEvent.of(2, LinkEventType.EXPIRED, expired)));
+        statistics.prune();
+
+        // then
+        assertEquals(1, before);
+        assertEquals(0, statistics.expiredPendingCleanup());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReportHotCodesAndEventTotals() {
+        // given
+        final var link = new Link("hot-code", "https://a", UUID.randomUUID(), 600, Link.UNLIMITED_CLICKS);
+
+        // when
+        statistics.onEvents(List.of(LinkEvent.of(0, LinkEventType.CREATED, link), LinkEvent.of(1, LinkEventType.CLICKED, link),
+            LinkEvent.of(2, LinkEventType.CLICKED, link)));
+
+        // then
+        final var stats = statistics.stats(5);
+        assertEquals(List.of(new HeavyHitter("hot-code", 2, 0)), stats.get("hotCodes"));
+        assertEquals(2L, stats.get("windowClicks"));
+        assertEquals(Long.valueOf(2), ((Map<String, Long>) stats.get("events")).get("CLICKED"));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldConsumeEventsOnlyBetweenStartAndStop() {
+        // given: a click published before the consumer thread exists
+        final var link = new Link("early", "https://a", UUID.randomUUID(), 600, Link.UNLIMITED_CLICKS);
+        linkEventLog.publish(LinkEventType.CLICKED, link);
+
+        // when
+        statistics.start();
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Long.valueOf(1).equals(statistics.stats(5).get("windowClicks")) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        statistics.stop();
+
+        // then
+        assertEquals(1L, statistics.stats(5).get("windowClicks"));
+        assertFalse(statistics.isRunning());
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch(thread -> thread.getName().equals("link-events-link-stats")));
+    }
+
+    @Test
+    void shouldSkipEventsPublishedBeforeRebuild() {
+        // given: a removal still pending in the log when the links it describes are replaced by a rebuild
+        final var expired = new Link("old", "https://a", UUID.randomUUID(), Instant.now().minusSeconds(120), 60, 10, 0, true);
+        final var pendingSequence = linkEventLog.publish(LinkEventType.CLICKED, expired);
+        statistics.rebuild(List.of(expired)::forEach);
+
+        // when
+        statistics.onEvents(List.of(LinkEvent.of(pendingSequence, LinkEventType.DELETED, expired)));
+        final var afterPending = statistics.expiredPendingCleanup();
+        statistics.onEvents(List.of(LinkEvent.of(pendingSequence + 1, LinkEventType.EXPIRED, expired)));
+
+        // then
+        assertEquals(1, afterPending);
+        assertEquals(0, statistics.expiredPendingCleanup());
+    }
+}
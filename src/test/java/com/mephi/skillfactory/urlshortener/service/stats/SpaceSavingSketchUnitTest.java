@@ -0,0 +1,60 @@
+package com.mephi.skillfactory.urlshortener.service.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingSketchUnitTest {
+
+    @Test
+    void shouldCountExactlyWhileKeysFitIntoCapacity() {
+        // given
+        final var sketch = new SpaceSavingSketch(4);
+
+        // when
+        for (var i = 0; i < 5; i++) {
+            sketch.offer("a");
+        }
+        sketch.offer("b");
+        sketch.offer("b");
+        sketch.offer("c");
+
+        // then
+        final var top = sketch.top(2);
+        assertEquals(new HeavyHitter("a", 5, 0), top.get(0));
+        assertEquals(new HeavyHitter("b", 2, 0), top.get(1));
+        assertEquals(8, sketch.total());
+    }
+
+    @Test
+    void shouldFindViralCodesInLongTailWithFixedMemory() {
+        // given
+        final var sketch = new SpaceSavingSketch(64);
+        final var random = new Random(42);
+
+        // when: 10% of 200k clicks go to two viral codes, the rest to 100k cold codes
+        for (var i = 0; i < 200_000; i++) {
+            final var roll = random.nextInt(100);
+            if (roll < 6) {
+                sketch.offer("viral-1");
+            } else if (roll < 10) {
+                sketch.offer("viral-2");
+            } else {
+                sketch.offer("cold-" + random.nextInt(100_000));
+            }
+        }
+
+        // then
+        final var top = sketch.top(2);
+        assertEquals("viral-1", top.get(0).code());
+        assertEquals("viral-2", top.get(1).code());
+        assertEquals(64, sketch.size());
+        for (final var hitter : top) {
+            // the guaranteed lower bound count - error stays close to the true share
+            assertTrue(hitter.count() - hitter.error() >= (hitter.code().equals("viral-1") ? 11_000 : 7_000));
+        }
+    }
+}